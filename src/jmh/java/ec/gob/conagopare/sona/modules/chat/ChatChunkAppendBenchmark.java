@@ -0,0 +1,143 @@
+package ec.gob.conagopare.sona.modules.chat;
+
+import ec.gob.conagopare.sona.modules.chat.models.ChatChunk;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessageType;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoomType;
+import ec.gob.conagopare.sona.modules.chat.services.ChatChunkAppender;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.testcontainers.containers.MongoDBContainer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Envíos por segundo al agregar mensajes a los chunks contra un Mongo en Testcontainers, con varios remitentes
+ * escribiendo en la misma sala. Compara la estrategia anterior de {@code addMessage} (findOne + {@code $bsonSize} +
+ * {@code $push}) con {@link ChatChunkAppender#append(ChatRoom, ChatMessage)}. Cada iteración usa una sala nueva con el
+ * primer chunk ya creado, la estrategia anterior no soporta carreras al crearlo.
+ * <p>
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="ChatChunkAppendBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(8)
+@Fork(1)
+public class ChatChunkAppendBenchmark {
+
+    /**
+     * {@code legacy} es la implementación anterior, {@code conditional} es {@link ChatChunkAppender}.
+     */
+    @Param({"legacy", "conditional"})
+    public String strategy;
+
+    private MongoDBContainer mongo;
+    private SimpleMongoClientDatabaseFactory factory;
+    private MongoTemplate mongoTemplate;
+    private BiConsumer<ChatRoom, ChatMessage> append;
+    private ChatRoom room;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mongo = new MongoDBContainer("mongo:7.0.9");
+        mongo.start();
+
+        factory = new SimpleMongoClientDatabaseFactory(mongo.getReplicaSetUrl("chat-benchmark"));
+        mongoTemplate = new MongoTemplate(factory);
+
+        var resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        var indexOps = mongoTemplate.indexOps(ChatChunk.class);
+        resolver.resolveIndexFor(ChatChunk.class).forEach(indexOps::ensureIndex);
+    }
+
+    @Setup(Level.Iteration)
+    public void newRoom() {
+        // Cada iteración empieza con un appender nuevo, sin chunks abiertos en la caché
+        append = switch (strategy) {
+            case "legacy" -> this::legacyAppend;
+            case "conditional" -> new ChatChunkAppender(mongoTemplate)::append;
+            default -> throw new IllegalArgumentException("Estrategia desconocida: " + strategy);
+        };
+
+        room = mongoTemplate.save(ChatRoom.builder()
+                .type(ChatRoomType.GROUP)
+                .participants(List.of(0L, 1L))
+                .build());
+
+        append.accept(room, ChatMessage.now("seed", 0L, ChatMessageType.TEXT));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        factory.destroy();
+        mongo.stop();
+    }
+
+    @Benchmark
+    public ChatMessage append(ThreadParams thread) {
+        var message = ChatMessage.now("Mensaje del usuario " + thread.getThreadIndex(), (long) thread.getThreadIndex(), ChatMessageType.TEXT);
+        append.accept(room, message);
+        return message;
+    }
+
+    /**
+     * Copia de la implementación anterior de {@code ChatService.addMessage}, se mantiene como línea base. Con el índice
+     * único de número por sala, dos remitentes que crean el siguiente chunk a la vez fallan; se reintenta para que el
+     * benchmark no se detenga.
+     */
+    private void legacyAppend(ChatRoom chatRoom, ChatMessage message) {
+        var query = new Query()
+                .addCriteria(Criteria.where("room.$id").is(new ObjectId(chatRoom.getId())))
+                .with(Sort.by(Sort.Order.desc("number")));
+
+        var projectedQuery = Query.of(query);
+        projectedQuery.fields()
+                .include("_id")
+                .include("number");
+
+        var latestChunk = mongoTemplate.findOne(projectedQuery, ChatChunk.class);
+
+        if (latestChunk == null) {
+            mongoTemplate.save(ChatChunk.withFirstMessage(chatRoom, 1, message));
+            return;
+        }
+
+        var aggregate = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("_id").is(new ObjectId(latestChunk.getId()))),
+                Aggregation.project()
+                        .andExclude("_id")
+                        .and(context -> new Document("$bsonSize", Aggregation.ROOT)).as("size")
+        );
+
+        var result = mongoTemplate.aggregate(aggregate, ChatChunk.class, Document.class).getUniqueMappedResult();
+        var aproxSize = result == null ? 0 : result.get("size", Number.class).longValue();
+
+        if (aproxSize > ChatChunk.MAX_CHUNK_SIZE) {
+            try {
+                mongoTemplate.save(ChatChunk.withFirstMessage(chatRoom, latestChunk.getNumber() + 1, message));
+            } catch (DuplicateKeyException e) {
+                legacyAppend(chatRoom, message);
+            }
+            return;
+        }
+
+        mongoTemplate.updateFirst(query, new Update().push("messages", message), ChatChunk.class);
+    }
+}
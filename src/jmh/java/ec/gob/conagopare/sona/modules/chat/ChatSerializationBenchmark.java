@@ -0,0 +1,133 @@
+package ec.gob.conagopare.sona.modules.chat;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatMessagePayload;
+import ec.gob.conagopare.sona.modules.chat.models.ChatChunk;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessageType;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoomType;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversión a BSON de los mensajes y chunks con el converter de {@link MongoTemplate} y serialización JSON del
+ * {@link ChatMessagePayload} que se publica en el broker. No necesita Mongo, el cliente no se conecta hasta la primera
+ * operación.
+ * <p>
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="ChatSerializationBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatSerializationBenchmark {
+
+    /**
+     * Mensajes del chunk, un chunk lleno de mensajes cortos tiene unos cientos.
+     */
+    @Param({"50", "500"})
+    public int chunkMessages;
+
+    private SimpleMongoClientDatabaseFactory factory;
+    private MongoConverter converter;
+    private ObjectMapper objectMapper;
+
+    private ChatMessage message;
+    private Document messageDocument;
+    private ChatChunk chunk;
+    private Document chunkDocument;
+    private ChatMessagePayload payload;
+
+    @Setup
+    public void setUp() {
+        factory = new SimpleMongoClientDatabaseFactory("mongodb://localhost:27017/chat-benchmark");
+        converter = new MongoTemplate(factory).getConverter();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        var room = ChatRoom.builder()
+                .id(ObjectId.get().toHexString())
+                .type(ChatRoomType.PRIVATE)
+                .participants(List.of(1L, 2L))
+                .build();
+
+        message = message(0);
+        message.getReadBy().add(ChatMessage.ReadBy.now(2L));
+
+        var messages = new ArrayList<ChatMessage>(chunkMessages);
+        for (var i = 0; i < chunkMessages; i++) {
+            messages.add(message(i));
+        }
+
+        chunk = ChatChunk.builder()
+                .id(ObjectId.get().toHexString())
+                .room(room)
+                .number(1)
+                .messages(messages)
+                .build();
+
+        messageDocument = new Document();
+        converter.write(message, messageDocument);
+
+        chunkDocument = new Document();
+        converter.write(chunk, chunkDocument);
+
+        payload = ChatMessagePayload.builder()
+                .requestId("request-id")
+                .roomId(room.getId())
+                .message(message)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        factory.destroy();
+    }
+
+    @Benchmark
+    public Document writeMessage() {
+        var document = new Document();
+        converter.write(message, document);
+        return document;
+    }
+
+    @Benchmark
+    public ChatMessage readMessage() {
+        return converter.read(ChatMessage.class, messageDocument);
+    }
+
+    @Benchmark
+    public Document writeChunk() {
+        var document = new Document();
+        converter.write(chunk, document);
+        return document;
+    }
+
+    @Benchmark
+    public ChatChunk readChunk() {
+        return converter.read(ChatChunk.class, chunkDocument);
+    }
+
+    @Benchmark
+    public byte[] jsonPayload() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(payload);
+    }
+
+    private static ChatMessage message(int i) {
+        var message = ChatMessage.now("Hola, ¿cómo estás? Este es el mensaje número " + i + " de la conversación", 1L, ChatMessageType.TEXT);
+        message.setSequence(i + 1L);
+        return message;
+    }
+}
@@ -0,0 +1,111 @@
+package ec.gob.conagopare.sona.modules.forum;
+
+import ec.gob.conagopare.sona.application.common.utils.MongoUtils;
+import ec.gob.conagopare.sona.modules.forum.models.ByAuthor;
+import ec.gob.conagopare.sona.modules.forum.models.Post;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.testcontainers.containers.MongoDBContainer;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Páginas de publicaciones con {@link MongoUtils#getPage} contra un Mongo en Testcontainers con la colección poblada,
+ * comparando {@link MongoUtils.Pagination#SEPARATE_COUNT} y {@link MongoUtils.Pagination#FACET}. Se mide el feed sin
+ * filtros y el de un autor, ordenados por fecha como en la aplicación.
+ * <p>
+ * {@code ./mvnw -Pbenchmark test-compile exec:exec -Djmh.args="ForumPaginationBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ForumPaginationBenchmark {
+
+    private static final int AUTHORS = 100;
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"10000", "100000"})
+    public int posts;
+
+    @Param({"0", "50"})
+    public int page;
+
+    @Param({"SEPARATE_COUNT", "FACET"})
+    public MongoUtils.Pagination pagination;
+
+    private MongoDBContainer mongo;
+    private SimpleMongoClientDatabaseFactory factory;
+    private MongoTemplate mongoTemplate;
+    private PageRequest pageable;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mongo = new MongoDBContainer("mongo:7.0.9");
+        mongo.start();
+
+        factory = new SimpleMongoClientDatabaseFactory(mongo.getReplicaSetUrl("forum-benchmark"));
+        mongoTemplate = new MongoTemplate(factory);
+
+        var resolver = new MongoPersistentEntityIndexResolver(mongoTemplate.getConverter().getMappingContext());
+        var indexOps = mongoTemplate.indexOps(Post.class);
+        resolver.resolveIndexFor(Post.class).forEach(indexOps::ensureIndex);
+
+        seed();
+        pageable = PageRequest.of(page, PAGE_SIZE, Sort.by(Sort.Direction.DESC, Post.CREATED_AT_FIELD));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        factory.destroy();
+        mongo.stop();
+    }
+
+    @Benchmark
+    public Page<Post> feed() {
+        return MongoUtils.getPage(mongoTemplate, pageable, new ArrayList<>(), Post.class, pagination);
+    }
+
+    @Benchmark
+    public Page<Post> authorFeed() {
+        var operations = new ArrayList<AggregationOperation>();
+        operations.add(Aggregation.match(where(ByAuthor.AUTHOR_FIELD).is(7L)));
+        return MongoUtils.getPage(mongoTemplate, pageable, operations, Post.class, pagination);
+    }
+
+    private void seed() {
+        var start = Instant.now().minusSeconds(posts);
+        var batch = new ArrayList<Post>(1000);
+
+        for (var i = 0; i < posts; i++) {
+            var post = new Post();
+            post.setContent("Publicación número " + i + " del foro, con un texto de longitud parecida a las reales");
+            post.setAuthor((long) (i % AUTHORS));
+            post.setCreatedAt(start.plusSeconds(i));
+            post.setLikedBy(new ArrayList<>(List.of((long) (i % 7), (long) (i % 11))));
+            post.setLikesCount(2);
+            batch.add(post);
+
+            if (batch.size() == 1000) {
+                mongoTemplate.insert(batch, Post.class);
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) mongoTemplate.insert(batch, Post.class);
+    }
+}
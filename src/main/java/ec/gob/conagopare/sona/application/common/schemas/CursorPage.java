@@ -0,0 +1,32 @@
+package ec.gob.conagopare.sona.application.common.schemas;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página obtenida por cursor, ver
+ * {@link ec.gob.conagopare.sona.application.common.utils.MongoUtils#getCursorPage}. Para pedir la siguiente página se
+ * envía {@link #next} como cursor con el mismo orden y filtros.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> content;
+
+    /**
+     * Cursor de la siguiente página, {@code null} si no hay más elementos.
+     */
+    private String next;
+
+    /**
+     * Total de elementos, solo si se solicitó. Sin filtros es el total estimado de la colección.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long total;
+}
@@ -1,23 +1,92 @@
 package ec.gob.conagopare.sona.application.common.utils;
 
 import ec.gob.conagopare.sona.application.common.schemas.CountResult;
+import ec.gob.conagopare.sona.application.common.schemas.CursorPage;
+import io.github.luidmidev.springframework.web.problemdetails.ProblemDetails;
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
 import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.support.PageableExecutionUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public final class MongoUtils {
+
+    private static final String ID_FIELD = "_id";
+    private static final String CURSOR_KEYS = "k";
+    private static final String CURSOR_VALUES = "v";
+    private static final JsonWriterSettings CURSOR_JSON = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build();
+
+    private static final String FACET_CONTENT = "content";
+    private static final String FACET_TOTAL = "total";
+
+    /**
+     * Forma de obtener los elementos y el total de una {@link Page}.
+     */
+    public enum Pagination {
+        /**
+         * Dos agregaciones, una con {@code $skip} y {@code $limit} para los elementos y otra con {@code $count} para
+         * el total.
+         */
+        SEPARATE_COUNT,
+        /**
+         * Una sola agregación que termina en {@code $facet} con los elementos y el total, el pipeline se ejecuta una
+         * vez. El resultado es un único documento, así que la página completa debe caber en 16 MB.
+         */
+        FACET
+    }
+
+    /**
+     * Total que acompaña a una {@link CursorPage}.
+     */
+    public enum Total {
+        /**
+         * Sin total.
+         */
+        NONE,
+        /**
+         * {@code estimatedDocumentCount} de la colección, usa los metadatos de la colección e ignora los filtros.
+         */
+        ESTIMATED,
+        /**
+         * Conteo de la agregación con los filtros, recorre todos los documentos que cumplen los filtros.
+         */
+        EXACT
+    }
+
     MongoUtils() {
         throw new UnsupportedOperationException("Utility class");
     }
 
     public static <T> Page<T> getPage(MongoOperations mongo, Pageable pageable, List<AggregationOperation> operations, String collectionName, Class<T> targetClass) {
+        return getPage(mongo, pageable, operations, collectionName, targetClass, Pagination.SEPARATE_COUNT);
+    }
+
+    public static <T> Page<T> getPage(MongoOperations mongo, Pageable pageable, List<AggregationOperation> operations, Class<T> targetClass) {
+        var collectionName = mongo.getCollectionName(targetClass);
+        return getPage(mongo, pageable, operations, collectionName, targetClass);
+    }
+
+    public static <T> Page<T> getPage(MongoOperations mongo, Pageable pageable, List<AggregationOperation> operations, Class<T> targetClass, Pagination pagination) {
+        var collectionName = mongo.getCollectionName(targetClass);
+        return getPage(mongo, pageable, operations, collectionName, targetClass, pagination);
+    }
+
+    public static <T> Page<T> getPage(MongoOperations mongo, Pageable pageable, List<AggregationOperation> operations, String collectionName, Class<T> targetClass, Pagination pagination) {
         if (pageable.getSort().isSorted()) {
             operations.add(Aggregation.sort(pageable.getSort()));
         }
@@ -29,6 +98,13 @@ public final class MongoUtils {
             return new PageImpl<>(results.getMappedResults());
         }
 
+        return switch (pagination) {
+            case SEPARATE_COUNT -> separateCountPage(mongo, pageable, operations, collectionName, targetClass);
+            case FACET -> facetPage(mongo, pageable, operations, collectionName, targetClass);
+        };
+    }
+
+    private static <T> Page<T> separateCountPage(MongoOperations mongo, Pageable pageable, List<AggregationOperation> operations, String collectionName, Class<T> targetClass) {
         // Agregar paginación
         operations.add(Aggregation.skip((long) pageable.getPageNumber() * pageable.getPageSize()));
         operations.add(Aggregation.limit(pageable.getPageSize()));
@@ -51,8 +127,157 @@ public final class MongoUtils {
         );
     }
 
-    public static <T> Page<T> getPage(MongoOperations mongo, Pageable pageable, List<AggregationOperation> operations, Class<T> targetClass) {
+    private static <T> Page<T> facetPage(MongoOperations mongo, Pageable pageable, List<AggregationOperation> operations, String collectionName, Class<T> targetClass) {
+        operations.add(Aggregation.facet(Aggregation.skip(pageable.getOffset()), Aggregation.limit(pageable.getPageSize())).as(FACET_CONTENT)
+                .and(Aggregation.count().as(FACET_TOTAL)).as(FACET_TOTAL));
+
+        var aggregation = Aggregation.newAggregation(operations);
+        var result = mongo.aggregate(aggregation, collectionName, Document.class).getUniqueMappedResult();
+        if (result == null) {
+            return Page.empty(pageable);
+        }
+
+        var converter = mongo.getConverter();
+        var content = result.getList(FACET_CONTENT, Document.class, List.of()).stream()
+                .map(document -> converter.read(targetClass, document))
+                .toList();
+
+        // Sin documentos que cumplan los filtros $count no emite nada
+        var total = result.getList(FACET_TOTAL, Document.class, List.of()).stream()
+                .findFirst()
+                .map(count -> count.get(FACET_TOTAL, Number.class).longValue())
+                .orElse(0L);
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> total);
+    }
+
+    /**
+     * Paginación por cursor (keyset): en lugar de saltar los documentos de las páginas anteriores con {@code $skip},
+     * filtra los que van después del último documento de la página anterior según las claves del orden. Con un índice
+     * sobre las claves del orden cada página cuesta lo mismo sin importar su profundidad.
+     * <p>
+     * Al orden de {@code pageable} se agrega {@code _id} como desempate en la dirección de la última clave; el número de
+     * página de {@code pageable} se ignora. Las claves del orden no deben ser nulas. El cursor es opaco para el cliente y
+     * solo es válido con el mismo orden.
+     *
+     * @param mongo          operaciones de Mongo
+     * @param pageable       tamaño de página y orden
+     * @param cursor         cursor devuelto por la página anterior, {@code null} para la primera página
+     * @param total          total a calcular
+     * @param operations     etapas de la agregación, normalmente solo {@code $match}
+     * @param collectionName colección a consultar
+     * @param targetClass    clase de los resultados
+     * @return página con el cursor de la siguiente página
+     */
+    public static <T> CursorPage<T> getCursorPage(MongoOperations mongo, Pageable pageable, String cursor, Total total, List<AggregationOperation> operations, String collectionName, Class<T> targetClass) {
+        var size = pageable.isPaged() ? pageable.getPageSize() : 20;
+        var sort = keysetSort(pageable.getSort());
+        var keys = cursorKeys(sort);
+
+        var count = switch (total) {
+            case NONE -> null;
+            case ESTIMATED -> mongo.estimatedCount(collectionName);
+            case EXACT -> count(mongo, operations, collectionName);
+        };
+
+        var pageOperations = new ArrayList<>(operations);
+        if (cursor != null && !cursor.isBlank()) {
+            pageOperations.add(Aggregation.match(seek(sort, decodeCursor(cursor, keys))));
+        }
+        pageOperations.add(Aggregation.sort(sort));
+        pageOperations.add(Aggregation.limit(size + 1L));
+
+        // Se piden los documentos sin mapear para leer las claves del orden del último
+        var documents = new ArrayList<>(mongo.aggregate(Aggregation.newAggregation(pageOperations), collectionName, Document.class).getMappedResults());
+
+        String next = null;
+        if (documents.size() > size) {
+            documents.subList(size, documents.size()).clear();
+            next = encodeCursor(keys, documents.get(size - 1), sort);
+        }
+
+        var converter = mongo.getConverter();
+        var content = documents.stream().map(document -> converter.read(targetClass, document)).toList();
+        return new CursorPage<>(content, next, count);
+    }
+
+    public static <T> CursorPage<T> getCursorPage(MongoOperations mongo, Pageable pageable, String cursor, Total total, List<AggregationOperation> operations, Class<T> targetClass) {
         var collectionName = mongo.getCollectionName(targetClass);
-        return getPage(mongo, pageable, operations, collectionName, targetClass);
+        return getCursorPage(mongo, pageable, cursor, total, operations, collectionName, targetClass);
+    }
+
+    private static long count(MongoOperations mongo, List<AggregationOperation> operations, String collectionName) {
+        var countOperations = new ArrayList<>(operations);
+        countOperations.add(Aggregation.count().as("total"));
+        var count = mongo.aggregate(Aggregation.newAggregation(countOperations), collectionName, CountResult.class).getUniqueMappedResult();
+        return count != null ? count.getTotal() : 0;
+    }
+
+    private static Sort keysetSort(Sort sort) {
+        if (sort.getOrderFor(ID_FIELD) != null) return sort;
+
+        var direction = sort.stream().reduce((first, second) -> second).map(Sort.Order::getDirection).orElse(Sort.Direction.ASC);
+        return sort.and(Sort.by(direction, ID_FIELD));
+    }
+
+    private static List<String> cursorKeys(Sort sort) {
+        return sort.stream().map(order -> (order.isDescending() ? "-" : "") + order.getProperty()).toList();
+    }
+
+    /**
+     * Documentos después de {@code values}: para cada clave, las anteriores iguales y esa mayor (o menor si es
+     * descendente).
+     */
+    private static Criteria seek(Sort sort, List<?> values) {
+        var orders = sort.toList();
+        var or = new ArrayList<Criteria>(orders.size());
+
+        for (var i = 0; i < orders.size(); i++) {
+            var criteria = new ArrayList<Criteria>(i + 1);
+            for (var j = 0; j < i; j++) {
+                criteria.add(Criteria.where(orders.get(j).getProperty()).is(values.get(j)));
+            }
+
+            var order = orders.get(i);
+            var after = Criteria.where(order.getProperty());
+            criteria.add(order.isDescending() ? after.lt(values.get(i)) : after.gt(values.get(i)));
+
+            or.add(criteria.size() == 1 ? criteria.get(0) : new Criteria().andOperator(criteria));
+        }
+
+        return new Criteria().orOperator(or);
+    }
+
+    private static String encodeCursor(List<String> keys, Document last, Sort sort) {
+        var values = sort.stream()
+                .map(order -> last.getEmbedded(Arrays.asList(order.getProperty().split("\\.")), Object.class))
+                .toList();
+
+        var json = new Document(CURSOR_KEYS, keys).append(CURSOR_VALUES, values).toJson(CURSOR_JSON);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<?> decodeCursor(String cursor, List<String> keys) {
+        List<String> cursorKeys;
+        List<Object> values;
+        try {
+            var document = Document.parse(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            cursorKeys = document.getList(CURSOR_KEYS, String.class);
+            values = document.getList(CURSOR_VALUES, Object.class);
+        } catch (RuntimeException e) {
+            // Base64 o JSON inválido, o claves con otro tipo
+            throw ProblemDetails.badRequest("El cursor no es válido");
+        }
+
+        if (!keys.equals(cursorKeys) || values == null || values.size() != keys.size()) {
+            throw ProblemDetails.badRequest("El cursor no corresponde al orden solicitado");
+        }
+
+        // Los valores van directo a la consulta, un documento o arreglo podría llevar operadores como $ne o $regex
+        if (values.stream().anyMatch(value -> value instanceof Map<?, ?> || value instanceof Collection<?>)) {
+            throw ProblemDetails.badRequest("El cursor no es válido");
+        }
+
+        return values;
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,10 @@
 package ec.gob.conagopare.sona.application.common.utils;
 
+import ec.gob.conagopare.sona.application.storage.StoredResource;
 import io.github.luidmidev.storage.Stored;
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -24,4 +27,27 @@ public final class ResponseEntityUtils {
     public static ResponseEntity<ByteArrayResource> resource(Stored stored) {
         return resource(stored, false);
     }
+
+    /**
+     * Respuesta que copia el archivo directamente desde el almacenamiento. Spring MVC responde con {@code 206} a las
+     * peticiones con {@code Range} y con {@code 304} cuando coincide el {@code If-None-Match} o el
+     * {@code If-Modified-Since}.
+     *
+     * @param resource     archivo almacenado
+     * @param inline       si el archivo se muestra en el navegador en lugar de descargarse
+     * @param cacheControl política de caché de la respuesta
+     * @return respuesta con el recurso sin cargarlo en memoria
+     */
+    public static ResponseEntity<Resource> stream(StoredResource resource, boolean inline, CacheControl cacheControl) {
+        var builder = ResponseEntity
+                .status(HttpStatus.OK)
+                .contentType(MediaType.parseMediaType(resource.getContentType()))
+                .headers(HttpHeadersUtils.getHeadersForFile(resource.getFilename(), inline))
+                .cacheControl(cacheControl);
+
+        if (resource.getEtag() != null) builder.eTag(resource.getEtag());
+        if (resource.getUpdatedAt() != null) builder.lastModified(resource.getUpdatedAt());
+
+        return builder.body(resource);
+    }
 }
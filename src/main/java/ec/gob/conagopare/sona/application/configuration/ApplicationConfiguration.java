@@ -2,13 +2,18 @@ package ec.gob.conagopare.sona.application.configuration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.storage.Bucket;
 import com.google.cloud.storage.StorageOptions;
+import ec.gob.conagopare.sona.application.storage.GoogleCloudStreamingStorage;
+import ec.gob.conagopare.sona.application.storage.LocalFileSystemStorage;
+import ec.gob.conagopare.sona.application.storage.StreamingStorage;
 import io.github.luidmidev.jakarta.validations.utils.LocaleContext;
 import io.github.luidmidev.springframework.data.crud.core.http.export.SpreadSheetExporter;
 import io.github.luidmidev.storage.Storage;
 import io.github.luidmidev.storage.google.cloud.GoogleCloudStorage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.event.ApplicationStartedEvent;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
@@ -23,6 +28,8 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.UUID;
 
 @Slf4j
 @Configuration
@@ -50,7 +57,8 @@ public class ApplicationConfiguration {
     }
 
     @Bean
-    public Storage storage(Environment environment) throws IOException {
+    @ConditionalOnProperty(prefix = "storage", name = "provider", havingValue = "gcs", matchIfMissing = true)
+    public Bucket bucket(Environment environment) throws IOException {
 
         log.info("Configuring Google Cloud Storage");
         try (var resourceCredentials = new FileInputStream("google/service_account_storage.json")) {
@@ -58,14 +66,46 @@ public class ApplicationConfiguration {
                     .setCredentials(GoogleCredentials.fromStream(resourceCredentials))
                     .build()
                     .getService();
-            return new GoogleCloudStorage(storage.get(
+            return storage.get(
                     environment.acceptsProfiles(Profiles.of("test"))
                             ? "sona_app_test"
                             : "sona_app"
-            ));
+            );
         }
     }
 
+    /**
+     * Almacenamiento de las fotos de perfil, los tips y el contenido didáctico, solo existe con Cloud Storage. Los
+     * servicios lo reciben con {@code @Lazy}, así con {@code storage.provider=local} la aplicación inicia sin
+     * credenciales ni red y solo fallan esas operaciones.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "storage", name = "provider", havingValue = "gcs", matchIfMissing = true)
+    public Storage storage(Bucket bucket) {
+        return new GoogleCloudStorage(bucket);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "storage", name = "provider", havingValue = "gcs", matchIfMissing = true)
+    public StreamingStorage streamingStorage(Bucket bucket) {
+        return new GoogleCloudStreamingStorage(bucket);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "storage", name = "provider", havingValue = "local")
+    public LocalFileSystemStorage localFileSystemStorage(StorageProperties properties) {
+        var local = properties.getLocal();
+        var secret = local.getSecret();
+
+        if (secret == null || secret.isBlank()) {
+            log.warn("storage.local.secret is not set, upload URLs will not survive a restart");
+            secret = UUID.randomUUID().toString();
+        }
+
+        log.info("Configuring local file system storage at {}", local.getRoot());
+        return new LocalFileSystemStorage(Path.of(local.getRoot()), local.getUploadUrl(), secret);
+    }
+
     @Bean
     public SpreadSheetExporter spreadSheetExporter(ObjectMapper mapper) {
         return new SpreadSheetExporter(mapper);
@@ -0,0 +1,47 @@
+package ec.gob.conagopare.sona.application.configuration;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+/**
+ * Crea los índices declarados en los documentos de Mongo ({@code @CompoundIndex}, {@code @Indexed}, etc.), ya que
+ * Spring Data no los crea automáticamente a menos que se habilite {@code spring.data.mongodb.auto-index-creation}.
+ * Un índice que no se puede crear se registra y se continúa con los demás, los datos que lo impiden se corrigen antes
+ * con los backfills que se ejecutan al iniciar, como {@code ChatChunkNumberBackfill}.
+ */
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class MongoConfiguration {
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoMappingContext mappingContext;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        var resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        for (var entity : mappingContext.getPersistentEntities()) {
+            if (!entity.isAnnotationPresent(Document.class)) continue;
+
+            var indexOps = mongoTemplate.indexOps(entity.getType());
+            for (var index : resolver.resolveIndexFor(entity.getTypeInformation())) {
+                var name = index.getIndexOptions().get("name");
+                log.info("Ensuring index {} on {}", name, entity.getCollection());
+                try {
+                    indexOps.ensureIndex(index);
+                } catch (DataAccessException e) {
+                    // Por ejemplo, un índice único con documentos duplicados; no debe impedir que la aplicación inicie
+                    log.error("Could not create index {} on {}", name, entity.getCollection(), e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package ec.gob.conagopare.sona.application.configuration;
+
+import org.springframework.messaging.support.ChannelInterceptor;
+
+/**
+ * Interceptor de los mensajes que el servidor envía a las sesiones STOMP, {@link WebSocketBrokerConfiguration} lo
+ * registra en el canal de salida en lugar del de entrada.
+ */
+public interface OutboundChannelInterceptor extends ChannelInterceptor {
+}
@@ -0,0 +1,43 @@
+package ec.gob.conagopare.sona.application.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "storage")
+public class StorageProperties {
+
+    private Provider provider = Provider.GCS;
+
+    private final Local local = new Local();
+
+    public enum Provider {
+        /**
+         * Bucket de Google Cloud Storage, las subidas directas usan URLs firmadas.
+         */
+        GCS,
+        /**
+         * Directorio local, para desarrollo y pruebas sin acceso a Cloud Storage. Solo cubre los archivos del chat,
+         * las fotos de perfil, los tips y el contenido didáctico siguen necesitando Cloud Storage.
+         */
+        LOCAL
+    }
+
+    @Data
+    public static class Local {
+        /**
+         * Directorio donde se guardan los archivos.
+         */
+        private String root = "storage";
+        /**
+         * URL pública de {@code PUT /storage/local/upload} que se entrega a los clientes.
+         */
+        private String uploadUrl = "http://localhost:8080/storage/local/upload";
+        /**
+         * Clave con la que se firman las URLs de subida, si no se configura se genera una al iniciar.
+         */
+        private String secret;
+    }
+}
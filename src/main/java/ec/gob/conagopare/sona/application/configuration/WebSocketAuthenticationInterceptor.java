@@ -0,0 +1,82 @@
+package ec.gob.conagopare.sona.application.configuration;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Autentica las sesiones STOMP una sola vez en el frame {@code CONNECT} con el header {@code Authorization: Bearer},
+ * usando el mismo {@link JwtAuthenticationConverter} que las peticiones HTTP. Un {@code CONNECT} sin token se rechaza,
+ * no hay sesiones anónimas: los clientes deben enviar el token de acceso en el {@code CONNECT}. El usuario queda
+ * asociado a la sesión y se coloca en el {@link SecurityContextHolder} mientras se procesa cada mensaje, así los
+ * servicios con {@code @PreAuthorize} funcionan igual que desde los controladores REST.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class WebSocketAuthenticationInterceptor implements ExecutorChannelInterceptor {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtDecoder jwtDecoder;
+    private final JwtAuthenticationConverter jwtAuthenticationConverter;
+
+    @Override
+    public Message<?> preSend(@NotNull Message<?> message, @NotNull MessageChannel channel) {
+        var accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.CONNECT) return message;
+
+        var authorization = accessor.getFirstNativeHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization == null) {
+            throw new BadCredentialsException("Missing authorization header");
+        }
+
+        if (!authorization.startsWith(BEARER_PREFIX)) {
+            throw new BadCredentialsException("Invalid authorization header");
+        }
+
+        try {
+            var jwt = jwtDecoder.decode(authorization.substring(BEARER_PREFIX.length()).trim());
+            accessor.setUser(jwtAuthenticationConverter.convert(jwt));
+        } catch (JwtException e) {
+            log.debug("Rejected websocket CONNECT: {}", e.getMessage());
+            throw new BadCredentialsException("Invalid token", e);
+        }
+
+        return message;
+    }
+
+    @Override
+    public Message<?> beforeHandle(@NotNull Message<?> message, @NotNull MessageChannel channel, @NotNull MessageHandler handler) {
+        if (SimpMessageHeaderAccessor.getUser(message.getHeaders()) instanceof Authentication authentication) {
+            var context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(authentication);
+            SecurityContextHolder.setContext(context);
+        }
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(@NotNull Message<?> message, @NotNull MessageChannel channel, @NotNull MessageHandler handler, Exception ex) {
+        SecurityContextHolder.clearContext();
+    }
+}
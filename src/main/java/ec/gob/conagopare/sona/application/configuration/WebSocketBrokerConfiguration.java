@@ -4,15 +4,27 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.web.socket.config.annotation.*;
 
+import java.util.List;
+
 @Slf4j
 @Configuration
 @RequiredArgsConstructor
 @EnableWebSocketMessageBroker
 public class WebSocketBrokerConfiguration implements WebSocketMessageBrokerConfigurer {
 
+    private final WebSocketBrokerProperties properties;
+
+    /**
+     * Interceptores de los canales de entrada y de salida, en el orden de sus {@code @Order}; la autenticación va
+     * primero. Los {@link OutboundChannelInterceptor} van al canal de salida.
+     */
+    private final List<ChannelInterceptor> interceptors;
+
     @Override
     public void registerStompEndpoints(@NotNull StompEndpointRegistry registry) {
         registry.addEndpoint("/ws").setAllowedOrigins("*").withSockJS();
@@ -21,7 +33,49 @@ public class WebSocketBrokerConfiguration implements WebSocketMessageBrokerConfi
 
     @Override
     public void configureMessageBroker(@NotNull MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/topic");
+        log.info("Using websocket broker mode {}", properties.getMode());
+
+        if (properties.getMode() == WebSocketBrokerProperties.Mode.RELAY) {
+            var relay = properties.getRelay();
+            registry.enableStompBrokerRelay("/topic")
+                    .setRelayHost(relay.getHost())
+                    .setRelayPort(relay.getPort())
+                    .setClientLogin(relay.getClientLogin())
+                    .setClientPasscode(relay.getClientPasscode())
+                    .setSystemLogin(relay.getSystemLogin())
+                    .setSystemPasscode(relay.getSystemPasscode())
+                    .setVirtualHost(relay.getVirtualHost());
+        } else {
+            registry.enableSimpleBroker("/topic");
+        }
+
         registry.setApplicationDestinationPrefixes("/app");
     }
+
+    @Override
+    public void configureClientInboundChannel(@NotNull ChannelRegistration registration) {
+        registration.interceptors(interceptors.stream()
+                .filter(interceptor -> !(interceptor instanceof OutboundChannelInterceptor))
+                .toArray(ChannelInterceptor[]::new));
+    }
+
+    @Override
+    public void configureClientOutboundChannel(@NotNull ChannelRegistration registration) {
+        registration.interceptors(interceptors.stream()
+                .filter(OutboundChannelInterceptor.class::isInstance)
+                .toArray(ChannelInterceptor[]::new));
+    }
+
+    /**
+     * Límites por sesión para que un cliente lento no retenga los hilos del canal de salida: los mensajes se acumulan
+     * en el buffer de la sesión y, si se llena o un envío tarda demasiado, la sesión se cierra.
+     */
+    @Override
+    public void configureWebSocketTransport(@NotNull WebSocketTransportRegistration registry) {
+        var transport = properties.getTransport();
+        registry.setSendTimeLimit((int) transport.getSendTimeLimit().toMillis())
+                .setSendBufferSizeLimit((int) transport.getSendBufferSizeLimit().toBytes())
+                .setMessageSizeLimit((int) transport.getMessageSizeLimit().toBytes())
+                .setTimeToFirstMessage((int) transport.getTimeToFirstMessage().toMillis());
+    }
 }
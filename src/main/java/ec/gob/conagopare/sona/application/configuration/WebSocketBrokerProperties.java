@@ -0,0 +1,66 @@
+package ec.gob.conagopare.sona.application.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "websocket.broker")
+public class WebSocketBrokerProperties {
+
+    private Mode mode = Mode.SIMPLE;
+
+    private final Relay relay = new Relay();
+
+    private final Transport transport = new Transport();
+
+    public enum Mode {
+        /**
+         * Broker en memoria, solo sirve para una réplica.
+         */
+        SIMPLE,
+        /**
+         * Relay a un broker STOMP externo (RabbitMQ, ActiveMQ, etc.).
+         */
+        RELAY,
+        /**
+         * Broker en memoria en cada réplica, los eventos se reparten entre réplicas con change streams de Mongo.
+         */
+        MONGO
+    }
+
+    @Data
+    public static class Relay {
+        private String host = "localhost";
+        private int port = 61613;
+        private String clientLogin = "guest";
+        private String clientPasscode = "guest";
+        private String systemLogin = "guest";
+        private String systemPasscode = "guest";
+        private String virtualHost;
+    }
+
+    @Data
+    public static class Transport {
+        /**
+         * Tiempo máximo que puede tardar un envío a una sesión, si se supera la sesión se cierra.
+         */
+        private Duration sendTimeLimit = Duration.ofSeconds(5);
+        /**
+         * Mensajes pendientes de envío a una sesión lenta, si se superan la sesión se cierra.
+         */
+        private DataSize sendBufferSizeLimit = DataSize.ofKilobytes(256);
+        /**
+         * Tamaño máximo de un mensaje recibido de un cliente.
+         */
+        private DataSize messageSizeLimit = DataSize.ofKilobytes(64);
+        /**
+         * Tiempo para recibir el CONNECT después de abrir la conexión.
+         */
+        private Duration timeToFirstMessage = Duration.ofSeconds(30);
+    }
+}
@@ -13,6 +13,7 @@ import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -22,6 +23,8 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class NotificationService {
 
+    private static final int MAX_MULTICAST_TOKENS = 500;
+
     public final DeviceTokenRepository repository;
     private final UserRepository userRepository;
     private final FirebaseMessaging messaging;
@@ -82,15 +85,36 @@ public class NotificationService {
         internalSend(tokens, title, body, data);
     }
 
+    /**
+     * Envía la notificación en multicasts de hasta {@link #MAX_MULTICAST_TOKENS} tokens, el máximo que acepta FCM.
+     */
     private void internalSend(Collection<String> tokens, String title, String body, Map<String, String> data) {
         if (tokens.isEmpty()) {
             return;
         }
+
+        var notification = Notification.builder()
+                .setTitle(title)
+                .setBody(body)
+                .build();
+
+        var batch = new ArrayList<String>(Math.min(tokens.size(), MAX_MULTICAST_TOKENS));
+        for (var token : tokens) {
+            batch.add(token);
+            if (batch.size() == MAX_MULTICAST_TOKENS) {
+                sendMulticast(notification, batch, data);
+                batch.clear();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            sendMulticast(notification, batch, data);
+        }
+    }
+
+    private void sendMulticast(Notification notification, List<String> tokens, Map<String, String> data) {
         var message = MulticastMessage.builder()
-                .setNotification(Notification.builder()
-                        .setTitle(title)
-                        .setBody(body)
-                        .build())
+                .setNotification(notification)
                 .putAllData(data)
                 .addAllTokens(tokens)
                 .build();
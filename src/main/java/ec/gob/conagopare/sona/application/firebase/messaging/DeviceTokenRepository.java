@@ -17,7 +17,7 @@ public interface DeviceTokenRepository extends JpaRepository<DeviceToken, Long>
     @Query("select dt.token from DeviceToken dt where dt.user.id = :userId")
     List<String> findUserTokens(Long userId);
 
-    @Query("select dt.token from DeviceToken dt where dt.user.id in :usersIds")
+    @Query("select dt.token from DeviceToken dt where dt.user.id in :userIds")
     List<String> findUsersTokens(List<Long> userIds);
 
     Optional<DeviceToken> findByToken(String token);
@@ -0,0 +1,144 @@
+package ec.gob.conagopare.sona.application.storage;
+
+import com.google.cloud.ReadChannel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.BlobInfo;
+import com.google.cloud.storage.Bucket;
+import com.google.cloud.storage.HttpMethod;
+import com.google.cloud.storage.Storage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lee los archivos del bucket con un {@link ReadChannel}, que descarga el contenido por bloques y permite saltar a
+ * cualquier posición del archivo. Las subidas directas usan URLs firmadas V4 con la cabecera
+ * {@code x-goog-content-length-range}, que hace que Cloud Storage rechace los archivos más grandes que lo reservado.
+ */
+@RequiredArgsConstructor
+public class GoogleCloudStreamingStorage implements StreamingStorage {
+
+    private static final int CHUNK_SIZE = 256 * 1024;
+    private static final String CONTENT_LENGTH_RANGE = "x-goog-content-length-range";
+
+    private final Bucket bucket;
+
+    @Override
+    public Optional<StoredResource> open(String path) {
+        var blob = bucket.get(path);
+        if (blob == null || !blob.exists()) return Optional.empty();
+        return Optional.of(new BlobResource(blob));
+    }
+
+    @Override
+    public String store(InputStream content, String path, String contentType) {
+        bucket.create(path, content, contentType);
+        return path;
+    }
+
+    @Override
+    public UploadSlot reserve(String path, String contentType, long maxSize, Duration ttl) {
+        var headers = Map.of(
+                HttpHeaders.CONTENT_TYPE, contentType,
+                CONTENT_LENGTH_RANGE, "0," + maxSize
+        );
+
+        var url = bucket.getStorage().signUrl(
+                BlobInfo.newBuilder(bucket.getName(), path).setContentType(contentType).build(),
+                ttl.toSeconds(), TimeUnit.SECONDS,
+                Storage.SignUrlOption.httpMethod(HttpMethod.PUT),
+                Storage.SignUrlOption.withV4Signature(),
+                Storage.SignUrlOption.withContentType(),
+                Storage.SignUrlOption.withExtHeaders(Map.of(CONTENT_LENGTH_RANGE, "0," + maxSize))
+        );
+
+        return UploadSlot.builder()
+                .path(path)
+                .url(url.toString())
+                .method(HttpMethod.PUT.name())
+                .headers(headers)
+                .expiresAt(Instant.now().plus(ttl))
+                .build();
+    }
+
+    @Override
+    public boolean delete(String path) {
+        return bucket.getStorage().delete(bucket.getName(), path);
+    }
+
+    private static class BlobResource extends StoredResource {
+
+        private final Blob blob;
+
+        BlobResource(Blob blob) {
+            super(
+                    blob.getName(),
+                    StringUtils.getFilename(blob.getName()),
+                    blob.getContentType() == null ? "application/octet-stream" : blob.getContentType(),
+                    blob.getSize() == null ? 0 : blob.getSize(),
+                    blob.getEtag(),
+                    blob.getUpdateTimeOffsetDateTime() == null ? null : blob.getUpdateTimeOffsetDateTime().toInstant()
+            );
+            this.blob = blob;
+        }
+
+        @Override
+        @NonNull
+        public InputStream getInputStream() {
+            var reader = blob.reader();
+            reader.setChunkSize(CHUNK_SIZE);
+            return new ReadChannelInputStream(reader, contentLength());
+        }
+    }
+
+    private static class ReadChannelInputStream extends InputStream {
+
+        private final ReadChannel channel;
+        private final long size;
+        private long position;
+
+        ReadChannelInputStream(ReadChannel channel, long size) {
+            this.channel = channel;
+            this.size = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(@NonNull byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            var read = channel.read(ByteBuffer.wrap(b, off, len));
+            if (read > 0) position += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) return 0;
+            var target = Math.min(size, position + n);
+            channel.seek(target);
+            var skipped = target - position;
+            position = target;
+            return skipped;
+        }
+
+        @Override
+        public void close() {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package ec.gob.conagopare.sona.application.storage;
+
+import io.github.luidmidev.springframework.web.problemdetails.ProblemDetails;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.lang.NonNull;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Almacenamiento en un directorio local para desarrollo y pruebas sin Cloud Storage.
+ * <p>
+ * Las subidas directas se simulan con una URL hacia {@code PUT /storage/local/upload}, el token de la URL lleva la
+ * ruta, el tipo de contenido, el tamaño máximo y la expiración firmados con HMAC, igual que una URL firmada.
+ */
+@Slf4j
+public class LocalFileSystemStorage implements StreamingStorage {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Path root;
+    private final String uploadUrl;
+    private final SecretKeySpec key;
+
+    public LocalFileSystemStorage(Path root, String uploadUrl, String secret) {
+        this.root = root.toAbsolutePath().normalize();
+        this.uploadUrl = uploadUrl;
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+    }
+
+    @Override
+    public Optional<StoredResource> open(String path) throws IOException {
+        var file = resolve(path);
+        if (!Files.isRegularFile(file)) return Optional.empty();
+        return Optional.of(new FileResource(path, file));
+    }
+
+    @Override
+    public String store(InputStream content, String path, String contentType) throws IOException {
+        var file = resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.copy(content, file, StandardCopyOption.REPLACE_EXISTING);
+        return path;
+    }
+
+    @Override
+    public UploadSlot reserve(String path, String contentType, long maxSize, Duration ttl) {
+        resolve(path);
+
+        var expiresAt = Instant.now().plus(ttl);
+        var payload = String.join("\n", path, contentType, String.valueOf(maxSize), String.valueOf(expiresAt.getEpochSecond()));
+        var token = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8)) + "." + ENCODER.encodeToString(sign(payload));
+
+        return UploadSlot.builder()
+                .path(path)
+                .url(uploadUrl + "?token=" + token)
+                .method("PUT")
+                .headers(Map.of(HttpHeaders.CONTENT_TYPE, contentType))
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    @Override
+    public boolean delete(String path) throws IOException {
+        return Files.deleteIfExists(resolve(path));
+    }
+
+    /**
+     * Recibe el archivo de una subida reservada con {@link #reserve}.
+     *
+     * @param token       token de la URL de subida
+     * @param contentType tipo de contenido enviado por el cliente
+     * @param content     contenido del archivo
+     * @throws IOException si ocurre un error al escribir el archivo
+     */
+    public void upload(String token, String contentType, InputStream content) throws IOException {
+        var separator = token.indexOf('.');
+        if (separator < 0) throw ProblemDetails.forbidden("URL de subida inválida");
+
+        var payload = new String(DECODER.decode(token.substring(0, separator)), StandardCharsets.UTF_8);
+        var signature = DECODER.decode(token.substring(separator + 1));
+
+        if (!MessageDigest.isEqual(sign(payload), signature)) {
+            throw ProblemDetails.forbidden("URL de subida inválida");
+        }
+
+        var parts = payload.split("\n");
+        var path = parts[0];
+        var maxSize = Long.parseLong(parts[2]);
+
+        if (Instant.now().isAfter(Instant.ofEpochSecond(Long.parseLong(parts[3])))) {
+            throw ProblemDetails.forbidden("La URL de subida expiró");
+        }
+
+        if (!parts[1].equals(contentType)) {
+            throw ProblemDetails.badRequest("El tipo de contenido no coincide con el de la URL de subida");
+        }
+
+        var file = resolve(path);
+        Files.createDirectories(file.getParent());
+
+        // Se lee un byte más del permitido para detectar archivos que superan el tamaño reservado
+        try (var limited = new LimitedInputStream(content, maxSize + 1)) {
+            var written = Files.copy(limited, file, StandardCopyOption.REPLACE_EXISTING);
+            if (written > maxSize) {
+                Files.deleteIfExists(file);
+                throw ProblemDetails.badRequest("El archivo supera el tamaño máximo de " + maxSize + " bytes");
+            }
+        }
+    }
+
+    private Path resolve(String path) {
+        var file = root.resolve(path).normalize();
+        if (!file.startsWith(root) || file.equals(root)) {
+            throw ProblemDetails.badRequest("Ruta de archivo inválida");
+        }
+        return file;
+    }
+
+    private byte[] sign(String payload) {
+        try {
+            var mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo firmar la URL de subida", e);
+        }
+    }
+
+    private static class FileResource extends StoredResource {
+
+        private final Path file;
+
+        FileResource(String path, Path file) throws IOException {
+            super(
+                    path,
+                    StringUtils.getFilename(path),
+                    MediaTypeFactory.getMediaType(path).orElse(MediaType.APPLICATION_OCTET_STREAM).toString(),
+                    Files.size(file),
+                    Long.toHexString(Files.size(file)) + "-" + Long.toHexString(Files.getLastModifiedTime(file).toMillis()),
+                    Files.getLastModifiedTime(file).toInstant()
+            );
+            this.file = file;
+        }
+
+        /**
+         * El flujo de {@link Files#newInputStream} salta con {@code position} del canal, sin leer los bytes omitidos.
+         */
+        @Override
+        @NonNull
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(file);
+        }
+    }
+
+    private static class LimitedInputStream extends InputStream {
+
+        private final InputStream delegate;
+        private long remaining;
+
+        LimitedInputStream(InputStream delegate, long limit) {
+            this.delegate = delegate;
+            this.remaining = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) return -1;
+            var read = delegate.read();
+            if (read != -1) remaining--;
+            return read;
+        }
+
+        @Override
+        public int read(@NonNull byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) return -1;
+            var read = delegate.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) remaining -= read;
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
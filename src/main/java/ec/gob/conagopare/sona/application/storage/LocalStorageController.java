@@ -0,0 +1,33 @@
+package ec.gob.conagopare.sona.application.storage;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+/**
+ * Recibe las subidas directas cuando se usa {@link LocalFileSystemStorage}, cumple el papel de la URL firmada de
+ * Cloud Storage.
+ */
+@RestController
+@RequestMapping("/storage/local")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "storage", name = "provider", havingValue = "local")
+public class LocalStorageController {
+
+    private final LocalFileSystemStorage storage;
+
+    @PutMapping("/upload")
+    public ResponseEntity<Void> upload(
+            @RequestParam String token,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            HttpServletRequest request
+    ) throws IOException {
+        storage.upload(token, contentType, request.getInputStream());
+        return ResponseEntity.ok().build();
+    }
+}
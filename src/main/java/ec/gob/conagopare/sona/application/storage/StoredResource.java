@@ -0,0 +1,60 @@
+package ec.gob.conagopare.sona.application.storage;
+
+import lombok.Getter;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.lang.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+
+/**
+ * Archivo almacenado que se lee bajo demanda.
+ * <p>
+ * El flujo retornado por {@link #getInputStream()} implementa {@link InputStream#skip(long)} moviendo la posición de
+ * lectura en el almacenamiento, de modo que las respuestas parciales ({@code Range}) solo descargan los bytes pedidos.
+ */
+@Getter
+public abstract class StoredResource extends AbstractResource {
+
+    private final String path;
+    private final String filename;
+    private final String contentType;
+    private final long size;
+    private final String etag;
+    private final Instant updatedAt;
+
+    protected StoredResource(String path, String filename, String contentType, long size, String etag, Instant updatedAt) {
+        this.path = path;
+        this.filename = filename;
+        this.contentType = contentType;
+        this.size = size;
+        this.etag = etag;
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public long contentLength() {
+        return size;
+    }
+
+    @Override
+    public long lastModified() {
+        return updatedAt == null ? 0 : updatedAt.toEpochMilli();
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    @NonNull
+    public abstract InputStream getInputStream() throws IOException;
+
+    @Override
+    @NonNull
+    public String getDescription() {
+        return "Stored resource [" + path + "]";
+    }
+}
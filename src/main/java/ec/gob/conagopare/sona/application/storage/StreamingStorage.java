@@ -0,0 +1,55 @@
+package ec.gob.conagopare.sona.application.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Acceso a los archivos almacenados sin cargarlos en memoria, complementa a {@link io.github.luidmidev.storage.Storage}
+ * para los archivos que se escriben o se envían directamente desde y hacia la petición HTTP, o que el cliente sube sin
+ * pasar por el servidor.
+ */
+public interface StreamingStorage {
+
+    /**
+     * Obtiene los metadatos de un archivo, el contenido solo se lee al abrir el flujo del recurso.
+     *
+     * @param path ruta del archivo
+     * @return el recurso, vacío si el archivo no existe
+     * @throws IOException si ocurre un error al consultar el almacenamiento
+     */
+    Optional<StoredResource> open(String path) throws IOException;
+
+    /**
+     * Guarda el contenido copiándolo por bloques desde el flujo.
+     *
+     * @param content     contenido del archivo
+     * @param path        ruta completa del archivo
+     * @param contentType tipo de contenido del archivo
+     * @return la ruta del archivo guardado
+     * @throws IOException si ocurre un error al escribir el archivo
+     */
+    String store(InputStream content, String path, String contentType) throws IOException;
+
+    /**
+     * Reserva una ruta para que el cliente suba el archivo directamente al almacenamiento.
+     *
+     * @param path        ruta completa del archivo
+     * @param contentType tipo de contenido que debe enviar el cliente
+     * @param maxSize     tamaño máximo del archivo en bytes
+     * @param ttl         tiempo durante el cual la URL de subida es válida
+     * @return URL y cabeceras con las que el cliente debe subir el archivo
+     * @throws IOException si no se puede generar la URL de subida
+     */
+    UploadSlot reserve(String path, String contentType, long maxSize, Duration ttl) throws IOException;
+
+    /**
+     * Elimina un archivo, no hace nada si el archivo no existe.
+     *
+     * @param path ruta completa del archivo
+     * @return {@code true} si el archivo existía y se eliminó
+     * @throws IOException si ocurre un error al eliminar el archivo
+     */
+    boolean delete(String path) throws IOException;
+}
@@ -0,0 +1,34 @@
+package ec.gob.conagopare.sona.application.storage;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * URL firmada con la que el cliente sube un archivo, la petición debe incluir todas las cabeceras indicadas.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadSlot {
+
+    /**
+     * Ruta con la que se confirma la subida.
+     */
+    private String path;
+
+    private String url;
+
+    private String method;
+
+    @Builder.Default
+    private Map<String, String> headers = new HashMap<>();
+
+    private Instant expiresAt;
+}
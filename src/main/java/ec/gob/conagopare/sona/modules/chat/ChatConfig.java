@@ -0,0 +1,122 @@
+package ec.gob.conagopare.sona.modules.chat;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chat")
+public class ChatConfig {
+
+    private final Fanout fanout = new Fanout();
+
+    private final ReadReceipts readReceipts = new ReadReceipts();
+
+    private final Upload upload = new Upload();
+
+    private final Media media = new Media();
+
+    private final RoomCache roomCache = new RoomCache();
+
+    private final Archive archive = new Archive();
+
+    private final Presence presence = new Presence();
+
+    private final Groups groups = new Groups();
+
+    @Data
+    public static class Fanout {
+        /**
+         * Hilos dedicados a entregar mensajes a las bandejas de entrada y enviar notificaciones.
+         */
+        private int threads = 8;
+        /**
+         * Tareas en espera antes de que el hilo que envía el mensaje tenga que ejecutarlas.
+         */
+        private int queueCapacity = 10_000;
+    }
+
+    @Data
+    public static class ReadReceipts {
+        /**
+         * Tiempo durante el cual se acumulan las lecturas de un participante en una sala antes de guardarlas y
+         * notificarlas en un solo evento.
+         */
+        private Duration window = Duration.ofMillis(500);
+    }
+
+    @Data
+    public static class Upload {
+        /**
+         * Tiempo durante el cual el cliente puede usar la URL para subir una imagen o un audio.
+         */
+        private Duration ttl = Duration.ofMinutes(15);
+    }
+
+    @Data
+    public static class Media {
+        /**
+         * Hilos dedicados a generar miniaturas de las imágenes.
+         */
+        private int threads = 2;
+        /**
+         * Imágenes en espera, cuando la cola está llena la imagen se queda sin miniatura.
+         */
+        private int queueCapacity = 200;
+        /**
+         * Tamaño máximo en píxeles del lado más largo de la miniatura.
+         */
+        private int thumbnailSize = 320;
+    }
+
+    @Data
+    public static class RoomCache {
+        /**
+         * Cantidad máxima de salas en memoria.
+         */
+        private long maximumSize = 10_000;
+        /**
+         * Tiempo que una sala permanece en memoria desde que se consultó a la base de datos.
+         */
+        private Duration ttl = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class Archive {
+        /**
+         * Habilita el archivado periódico de los chunks antiguos.
+         */
+        private boolean enabled = true;
+        /**
+         * Antigüedad del último mensaje de un chunk para que se pueda archivar.
+         */
+        private Duration age = Duration.ofDays(90);
+        /**
+         * Tiempo entre ejecuciones del archivado.
+         */
+        private Duration interval = Duration.ofHours(6);
+        /**
+         * Chunks revisados por consulta.
+         */
+        private int batchSize = 200;
+    }
+
+    @Data
+    public static class Presence {
+        /**
+         * Tiempo mínimo entre dos eventos de escritura de un participante en una sala, los intermedios se descartan.
+         */
+        private Duration typingInterval = Duration.ofSeconds(2);
+    }
+
+    @Data
+    public static class Groups {
+        /**
+         * Cantidad máxima de participantes de una sala grupal.
+         */
+        private int maxParticipants = 1000;
+    }
+}
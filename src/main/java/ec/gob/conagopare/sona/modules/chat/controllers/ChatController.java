@@ -1,12 +1,23 @@
 package ec.gob.conagopare.sona.modules.chat.controllers;
 
 import ec.gob.conagopare.sona.application.common.utils.ResponseEntityUtils;
+import ec.gob.conagopare.sona.application.storage.UploadSlot;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatInboxRoom;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatMessageChange;
 import ec.gob.conagopare.sona.modules.chat.dto.ChatMessagePayload;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatMessagesSlice;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatSync;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatSyncRequest;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatUploadRequest;
 import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
 import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.models.ChatSearchEntry;
 import ec.gob.conagopare.sona.modules.chat.services.ChatService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -14,6 +25,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 
 @RestController
@@ -21,6 +33,12 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ChatController {
 
+    /**
+     * Los archivos del chat se guardan con nombres únicos y nunca cambian, solo se pueden cachear en el cliente porque
+     * solo los participantes de la sala pueden obtenerlos.
+     */
+    private static final CacheControl RESOURCE_CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(30)).cachePrivate().immutable();
+
     private final ChatService service;
 
     @PostMapping("/send/{roomId}")
@@ -53,6 +71,25 @@ public class ChatController {
         return ResponseEntity.ok(service.sendVoice(voice, roomId, requestId, jwt));
     }
 
+    @PostMapping("/send/{roomId}/upload")
+    public ResponseEntity<UploadSlot> requestUpload(
+            @PathVariable String roomId,
+            @RequestBody ChatUploadRequest request,
+            @AuthenticationPrincipal Jwt jwt
+    ) throws IOException {
+        return ResponseEntity.ok(service.requestUpload(roomId, request, jwt));
+    }
+
+    @PostMapping("/send/{roomId}/upload/confirm")
+    public ResponseEntity<ChatMessagePayload> confirmUpload(
+            @PathVariable String roomId,
+            @RequestParam String requestId,
+            @RequestParam String path,
+            @AuthenticationPrincipal Jwt jwt
+    ) throws IOException {
+        return ResponseEntity.ok(service.confirmUpload(roomId, path, requestId, jwt));
+    }
+
     @PutMapping("/room/{roomId}/read")
     public ResponseEntity<Void> read(
             @PathVariable String roomId,
@@ -63,11 +100,59 @@ public class ChatController {
         return ResponseEntity.ok().build();
     }
 
+    @PutMapping("/room/{roomId}/message/{messageId}")
+    public ResponseEntity<ChatMessageChange> edit(
+            @PathVariable String roomId,
+            @PathVariable String messageId,
+            @RequestBody String message,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        return ResponseEntity.ok(service.edit(roomId, messageId, message, jwt));
+    }
+
+    @DeleteMapping("/room/{roomId}/message/{messageId}")
+    public ResponseEntity<ChatMessageChange> delete(
+            @PathVariable String roomId,
+            @PathVariable String messageId,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        return ResponseEntity.ok(service.delete(roomId, messageId, jwt));
+    }
+
+    @PutMapping("/room/{roomId}/typing")
+    public ResponseEntity<Void> typing(
+            @PathVariable String roomId,
+            @RequestParam(defaultValue = "true") boolean typing,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        service.typing(roomId, typing, jwt);
+        return ResponseEntity.ok().build();
+    }
+
     @GetMapping("/resource")
-    public ResponseEntity<ByteArrayResource> resource(
-            @RequestParam String id
+    public ResponseEntity<Resource> resource(
+            @RequestParam String id,
+            @RequestParam(required = false) String variant,
+            @AuthenticationPrincipal Jwt jwt
     ) throws IOException {
-        return ResponseEntityUtils.resource(service.resource(id));
+        return ResponseEntityUtils.stream(service.resource(id, variant, jwt), false, RESOURCE_CACHE_CONTROL);
+    }
+
+    @PostMapping("/sync")
+    public ResponseEntity<ChatSync> sync(
+            @RequestBody ChatSyncRequest request,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        return ResponseEntity.ok(service.sync(request, jwt));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<Page<ChatSearchEntry>> search(
+            @RequestParam String q,
+            Pageable pageable,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        return ResponseEntity.ok(service.search(q, pageable, jwt));
     }
 
     @GetMapping("/rooms")
@@ -77,6 +162,13 @@ public class ChatController {
         return ResponseEntity.ok(service.rooms(jwt));
     }
 
+    @GetMapping("/inbox")
+    public ResponseEntity<List<ChatInboxRoom>> inbox(
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        return ResponseEntity.ok(service.inbox(jwt));
+    }
+
     @GetMapping("/room/{roomId}")
     public ResponseEntity<ChatRoom> room(
             @PathVariable String roomId
@@ -100,6 +192,16 @@ public class ChatController {
         return ResponseEntity.ok(service.messages(roomId, chunk));
     }
 
+    @GetMapping("/room/{roomId}/history")
+    public ResponseEntity<ChatMessagesSlice> history(
+            @PathVariable String roomId,
+            @RequestParam(required = false) String before,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        return ResponseEntity.ok(service.history(roomId, before, after, limit));
+    }
+
     @GetMapping("/room/{roomId}/last-message")
     public ResponseEntity<ChatMessage> lastMessage(
             @PathVariable String roomId
@@ -0,0 +1,64 @@
+package ec.gob.conagopare.sona.modules.chat.controllers;
+
+import ec.gob.conagopare.sona.modules.chat.dto.ChatGroupDto;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.services.ChatGroupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/chat/group")
+@RequiredArgsConstructor
+public class ChatGroupController {
+
+    private final ChatGroupService service;
+
+    @PostMapping
+    public ResponseEntity<ChatRoom> create(
+            @RequestBody ChatGroupDto group,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        return ResponseEntity.ok(service.create(group, jwt));
+    }
+
+    @PutMapping("/{roomId}/name")
+    public ResponseEntity<ChatRoom> rename(
+            @PathVariable String roomId,
+            @RequestParam String name,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        return ResponseEntity.ok(service.rename(roomId, name, jwt));
+    }
+
+    @PostMapping("/{roomId}/participants")
+    public ResponseEntity<ChatRoom> addParticipants(
+            @PathVariable String roomId,
+            @RequestBody List<Long> userIds,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        return ResponseEntity.ok(service.addParticipants(roomId, userIds, jwt));
+    }
+
+    @DeleteMapping("/{roomId}/participants/{userId}")
+    public ResponseEntity<ChatRoom> removeParticipant(
+            @PathVariable String roomId,
+            @PathVariable Long userId,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        return ResponseEntity.ok(service.removeParticipant(roomId, userId, jwt));
+    }
+
+    @PutMapping("/{roomId}/admins/{userId}")
+    public ResponseEntity<ChatRoom> addAdmin(
+            @PathVariable String roomId,
+            @PathVariable Long userId,
+            @AuthenticationPrincipal Jwt jwt
+    ) {
+        return ResponseEntity.ok(service.addAdmin(roomId, userId, jwt));
+    }
+}
@@ -0,0 +1,83 @@
+package ec.gob.conagopare.sona.modules.chat.controllers;
+
+import ec.gob.conagopare.sona.modules.chat.dto.ChatAck;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatSendRequest;
+import ec.gob.conagopare.sona.modules.chat.services.ChatBroadcaster;
+import ec.gob.conagopare.sona.modules.chat.services.ChatService;
+import ec.gob.conagopare.sona.modules.user.service.UserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Controller;
+
+import java.security.Principal;
+import java.util.List;
+
+/**
+ * Envío y lectura de mensajes por la misma sesión STOMP que recibe los eventos, sin una petición HTTP por mensaje.
+ * La sesión se autentica al conectarse, ver
+ * {@link ec.gob.conagopare.sona.application.configuration.WebSocketAuthenticationInterceptor}.
+ */
+@Slf4j
+@Controller
+@RequiredArgsConstructor
+public class ChatStompController {
+
+    private final ChatService service;
+    private final UserService userService;
+    private final SimpMessagingTemplate messaging;
+
+    /**
+     * Envía un mensaje de texto y responde con un {@link ChatAck} en la bandeja de entrada del remitente, tanto si se
+     * guardó como si falló.
+     */
+    @MessageMapping("chat.send.{roomId}")
+    public void send(@DestinationVariable String roomId, @Payload ChatSendRequest request, Principal principal) {
+        var jwt = jwt(principal);
+        var userId = userService.getUserId(jwt);
+
+        ChatAck ack;
+        try {
+            var sent = service.sendMessage(request.getMessage(), roomId, request.getRequestId(), jwt);
+            ack = ChatAck.builder()
+                    .requestId(request.getRequestId())
+                    .roomId(roomId)
+                    .messageId(sent.getMessage().getId())
+                    .sequence(sent.getMessage().getSequence())
+                    .createdAt(sent.getMessage().getCreatedAt())
+                    .build();
+        } catch (RuntimeException e) {
+            log.debug("Chat message {} rejected: {}", request.getRequestId(), e.getMessage());
+            ack = ChatAck.builder()
+                    .requestId(request.getRequestId())
+                    .roomId(roomId)
+                    .error(e.getMessage() == null ? "No se pudo enviar el mensaje" : e.getMessage())
+                    .build();
+        }
+
+        messaging.convertAndSend(ChatBroadcaster.ackInbox(userId), ack);
+    }
+
+    @MessageMapping("chat.read.{roomId}")
+    public void read(@DestinationVariable String roomId, @Payload List<String> messageIds, Principal principal) {
+        service.read(roomId, messageIds, jwt(principal));
+    }
+
+    @MessageMapping("chat.typing.{roomId}")
+    public void typing(@DestinationVariable String roomId, @Payload(required = false) Boolean typing, Principal principal) {
+        service.typing(roomId, typing == null || typing, jwt(principal));
+    }
+
+    private static Jwt jwt(Principal principal) {
+        if (principal instanceof JwtAuthenticationToken authentication) {
+            return authentication.getToken();
+        }
+        throw new AuthenticationCredentialsNotFoundException("La sesión no está autenticada");
+    }
+}
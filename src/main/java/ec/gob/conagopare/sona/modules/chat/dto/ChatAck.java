@@ -0,0 +1,36 @@
+package ec.gob.conagopare.sona.modules.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Respuesta a un mensaje enviado por STOMP, se publica en {@code /topic/chat.inbox.{participante}.ack}.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatAck {
+
+    private String requestId;
+
+    private String roomId;
+
+    /**
+     * Id del mensaje guardado, {@code null} si el envío falló.
+     */
+    private String messageId;
+
+    private long sequence;
+
+    private Instant createdAt;
+
+    /**
+     * Motivo del error, {@code null} si el mensaje se guardó.
+     */
+    private String error;
+}
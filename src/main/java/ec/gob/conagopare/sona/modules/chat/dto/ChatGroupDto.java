@@ -0,0 +1,28 @@
+package ec.gob.conagopare.sona.modules.chat.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatGroupDto {
+
+    @NotBlank(message = "El nombre del grupo no puede estar vacío")
+    @Size(max = 100, message = "El nombre del grupo no puede tener más de 100 caracteres")
+    private String name;
+
+    /**
+     * Participantes iniciales, el creador se agrega como participante y administrador.
+     */
+    @Builder.Default
+    private List<Long> participants = new ArrayList<>();
+}
@@ -0,0 +1,47 @@
+package ec.gob.conagopare.sona.modules.chat.dto;
+
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoomType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sala de chat como se muestra en la bandeja de entrada, con su último mensaje y los mensajes sin leer del usuario.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatInboxRoom {
+
+    @Id
+    private String id;
+
+    private String name;
+
+    private ChatRoomType type;
+
+    @Builder.Default
+    private List<Long> participants = new ArrayList<>();
+
+    @Builder.Default
+    private Map<Long, ChatRoom.ReadMark> readMarks = new HashMap<>();
+
+    private ChatMessage lastMessage;
+
+    private long unreadCount;
+
+    @Transient
+    @Builder.Default
+    private List<ChatParticipant> participantSummaries = new ArrayList<>();
+}
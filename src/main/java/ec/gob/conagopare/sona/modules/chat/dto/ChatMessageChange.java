@@ -0,0 +1,38 @@
+package ec.gob.conagopare.sona.modules.chat.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Edición o eliminación de un mensaje, con lo necesario para que los clientes actualicen su copia local del mensaje sin
+ * volver a pedir el chunk.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChatMessageChange {
+
+    private String roomId;
+    private String messageId;
+    private long sequence;
+    private Type type;
+
+    /**
+     * Texto nuevo del mensaje, solo en las ediciones.
+     */
+    private String message;
+
+    private Instant at;
+
+    public enum Type {
+        EDITED,
+        DELETED
+    }
+}
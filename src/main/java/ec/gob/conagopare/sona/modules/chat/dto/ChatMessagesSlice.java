@@ -0,0 +1,31 @@
+package ec.gob.conagopare.sona.modules.chat.dto;
+
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Porción del historial de una sala, los mensajes vienen en orden cronológico. Para pedir la siguiente porción se usa
+ * el id del primer mensaje como cursor {@code before} o el del último como cursor {@code after}.
+ */
+@Data
+@AllArgsConstructor
+@Builder
+public class ChatMessagesSlice {
+
+    @Builder.Default
+    private List<ChatMessage> messages = new ArrayList<>();
+
+    /**
+     * Indica si existen más mensajes en la dirección consultada.
+     */
+    private boolean hasMore;
+
+    public static ChatMessagesSlice empty() {
+        return new ChatMessagesSlice(List.of(), false);
+    }
+}
@@ -0,0 +1,32 @@
+package ec.gob.conagopare.sona.modules.chat.dto;
+
+import ec.gob.conagopare.sona.modules.user.models.User;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Datos mínimos de un participante para mostrarlo en la bandeja de entrada.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatParticipant {
+    private Long id;
+    private String username;
+    private String firstName;
+    private String lastName;
+    private boolean hasProfilePicture;
+
+    public static ChatParticipant of(User user) {
+        return ChatParticipant.builder()
+                .id(user.getId())
+                .username(user.getUsername())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .hasProfilePicture(user.hasProfilePicture())
+                .build();
+    }
+}
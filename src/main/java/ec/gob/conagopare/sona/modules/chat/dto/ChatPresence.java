@@ -0,0 +1,19 @@
+package ec.gob.conagopare.sona.modules.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Cambio de conexión de un participante, se envía a quienes comparten alguna sala con él.
+ */
+@Data
+@AllArgsConstructor
+@Builder
+public class ChatPresence {
+    private Long participantId;
+    private boolean online;
+    private Instant at;
+}
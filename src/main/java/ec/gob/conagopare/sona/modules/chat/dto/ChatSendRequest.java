@@ -0,0 +1,23 @@
+package ec.gob.conagopare.sona.modules.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Mensaje de texto enviado por STOMP a {@code /app/chat.send.{roomId}}.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatSendRequest {
+
+    /**
+     * Id generado por el cliente, se devuelve en el {@link ChatAck}.
+     */
+    private String requestId;
+
+    private String message;
+}
@@ -0,0 +1,68 @@
+package ec.gob.conagopare.sona.modules.chat.dto;
+
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cambios en las salas del usuario desde la última sincronización, solo se incluyen las salas con cambios.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatSync {
+
+    /**
+     * Se envía como {@link ChatSyncRequest#getSince()} en la siguiente sincronización.
+     */
+    private Instant syncedAt;
+
+    @Builder.Default
+    private List<RoomChanges> rooms = new ArrayList<>();
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RoomChanges {
+
+        private String roomId;
+
+        /**
+         * Secuencia hasta la que el cliente ya tiene todos los mensajes, se envía en la siguiente sincronización.
+         */
+        private long sequence;
+
+        /**
+         * Mensajes nuevos en orden de secuencia.
+         */
+        @Builder.Default
+        private List<ChatMessage> messages = new ArrayList<>();
+
+        /**
+         * Mensajes que el cliente ya tenía y se editaron o eliminaron desde la sincronización anterior, en su estado
+         * actual.
+         */
+        @Builder.Default
+        private List<ChatMessage> changed = new ArrayList<>();
+
+        /**
+         * Indica que hay más mensajes nuevos, se obtienen sincronizando de nuevo con {@link #sequence}.
+         */
+        private boolean hasMore;
+
+        /**
+         * Marcas de lectura actuales, {@code null} si ninguna cambió desde la sincronización anterior.
+         */
+        private Map<Long, ChatRoom.ReadMark> readMarks;
+    }
+}
@@ -0,0 +1,31 @@
+package ec.gob.conagopare.sona.modules.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Estado que conoce el cliente al reconectarse.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatSyncRequest {
+
+    /**
+     * {@link ChatSync#getSyncedAt()} de la sincronización anterior, {@code null} en la primera.
+     */
+    private Instant since;
+
+    /**
+     * Última secuencia recibida de cada sala, las salas que no están se sincronizan desde el inicio.
+     */
+    @Builder.Default
+    private Map<String, Long> rooms = new HashMap<>();
+}
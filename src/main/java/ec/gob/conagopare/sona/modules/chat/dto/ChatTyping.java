@@ -0,0 +1,17 @@
+package ec.gob.conagopare.sona.modules.chat.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Indicador de escritura de un participante en una sala. Los clientes lo ocultan si no reciben otro en unos segundos.
+ */
+@Data
+@AllArgsConstructor
+@Builder
+public class ChatTyping {
+    private String roomId;
+    private Long participantId;
+    private boolean typing;
+}
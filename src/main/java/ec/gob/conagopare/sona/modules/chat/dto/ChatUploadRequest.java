@@ -0,0 +1,40 @@
+package ec.gob.conagopare.sona.modules.chat.dto;
+
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessageType;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Archivo que el cliente quiere subir directamente al almacenamiento antes de enviarlo como mensaje.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChatUploadRequest {
+
+    /**
+     * {@link ChatMessageType#IMAGE} o {@link ChatMessageType#VOICE}.
+     */
+    @NotNull
+    private ChatMessageType type;
+
+    @NotNull
+    @NotEmpty
+    private String filename;
+
+    @NotNull
+    @NotEmpty
+    private String contentType;
+
+    /**
+     * Tamaño del archivo en bytes.
+     */
+    @Positive
+    private long size;
+}
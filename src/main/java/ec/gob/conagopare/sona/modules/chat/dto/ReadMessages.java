@@ -14,6 +14,10 @@ import java.util.List;
 public class ReadMessages {
     private String roomId;
     private ChatMessage.ReadBy readBy;
+    /**
+     * Mensaje hasta el cual el participante leyó la sala, todos los anteriores también se consideran leídos.
+     */
+    private String lastReadMessageId;
     @Builder.Default
     private List<String> messageIds = new ArrayList<>();
 }
@@ -10,6 +10,7 @@ import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -17,18 +18,64 @@ import java.util.List;
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
-@Document(collection = "chat_chunks")
+@Document(collection = ChatChunk.COLLECTION)
 @CompoundIndex(name = "unique_number_in_room", def = "{'number': 1, 'room.$id': 1}", unique = true)
+@CompoundIndex(name = "room_number", def = "{'room.$id': 1, 'number': -1}")
+@CompoundIndex(name = "room_last_sequence", def = "{'room.$id': 1, 'lastSequence': 1}")
 public class ChatChunk {
 
+    public static final String COLLECTION = "chat_chunks";
+
     public static final long CHUNK_LENGTH_MB = 3;
     public static final long MAX_CHUNK_SIZE = CHUNK_LENGTH_MB * 1024 * 1024; // 5 MB en bytes
 
+    public static final String NUMBER_FIELD = "number";
+    public static final String SIZE_FIELD = "size";
+    public static final String CLOSED_FIELD = "closed";
+    public static final String MESSAGES_FIELD = "messages";
+    public static final String LAST_SEQUENCE_FIELD = "lastSequence";
+    public static final String VERSION_FIELD = "version";
+
+    /**
+     * Bytes reservados por mensaje para las claves BSON, el createdAt, el tipo y el arreglo readBy.
+     */
+    private static final int MESSAGE_OVERHEAD_BYTES = 256;
+
+    /**
+     * Bytes reservados por edición para las claves BSON y las fechas de la versión anterior.
+     */
+    private static final int EDIT_OVERHEAD_BYTES = 64;
+
     @Id
     private String id;
 
     private long number;
 
+    /**
+     * Tamaño aproximado en bytes de los mensajes del chunk, se incrementa con cada mensaje agregado.
+     */
+    @JsonIgnore
+    private long size;
+
+    /**
+     * Indica que el chunk ya no acepta mensajes porque se abrió uno nuevo.
+     */
+    @JsonIgnore
+    private boolean closed;
+
+    /**
+     * Secuencia más alta de los mensajes del chunk, permite buscar los mensajes nuevos sin recorrer los chunks.
+     */
+    @JsonIgnore
+    private long lastSequence;
+
+    /**
+     * Se incrementa con cada cambio a los mensajes ya agregados: ediciones, eliminaciones y miniaturas. El archivado
+     * solo elimina el chunk si no cambió desde que lo leyó.
+     */
+    @JsonIgnore
+    private long version;
+
     @JsonIgnore
     @DBRef(lazy = true)
     private ChatRoom room;
@@ -40,7 +87,38 @@ public class ChatChunk {
         return ChatChunk.builder()
                 .room(room)
                 .number(number)
+                .size(estimateSize(message))
+                .lastSequence(message.getSequence())
                 .messages(List.of(message))
                 .build();
     }
+
+    /**
+     * Estima el tamaño que ocupará un mensaje dentro del chunk sin serializarlo a BSON.
+     *
+     * @param message mensaje a estimar
+     * @return tamaño aproximado en bytes
+     */
+    public static long estimateSize(ChatMessage message) {
+        return MESSAGE_OVERHEAD_BYTES
+                + utf8Length(message.getId())
+                + utf8Length(message.getMessage())
+                + utf8Length(message.getResource());
+    }
+
+    /**
+     * Estima cuánto crece el chunk al editar un mensaje: el texto nuevo, ya que el anterior pasa al historial y su
+     * tamaño ya estaba contado. Al eliminar un mensaje no se descuenta su tamaño, el chunk nunca reduce su tamaño
+     * contado.
+     *
+     * @param message texto nuevo del mensaje
+     * @return tamaño aproximado en bytes
+     */
+    public static long estimateEditSize(String message) {
+        return EDIT_OVERHEAD_BYTES + utf8Length(message);
+    }
+
+    private static int utf8Length(String value) {
+        return value == null ? 0 : value.getBytes(StandardCharsets.UTF_8).length;
+    }
 }
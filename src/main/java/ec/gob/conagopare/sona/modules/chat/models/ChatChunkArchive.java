@@ -0,0 +1,64 @@
+package ec.gob.conagopare.sona.modules.chat.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chunk antiguo y leído por todos los participantes, movido fuera de {@link ChatChunk#COLLECTION} para que la
+ * colección que se consulta al chatear se mantenga pequeña. Los mensajes se guardan comprimidos y sin el detalle de
+ * lecturas por mensaje.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = ChatChunkArchive.COLLECTION)
+@CompoundIndex(name = "unique_archived_number_in_room", def = "{'roomId': 1, 'number': 1}", unique = true)
+@CompoundIndex(name = "room_message_ids", def = "{'roomId': 1, 'messageIds': 1}")
+public class ChatChunkArchive {
+
+    public static final String COLLECTION = "chat_chunks_archive";
+
+    public static final String ROOM_ID_FIELD = "roomId";
+    public static final String NUMBER_FIELD = "number";
+    public static final String MESSAGE_IDS_FIELD = "messageIds";
+
+    /**
+     * Mismo id que tenía el chunk.
+     */
+    @Id
+    private String id;
+
+    @Field(targetType = FieldType.OBJECT_ID)
+    private String roomId;
+
+    private long number;
+
+    /**
+     * Ids de los mensajes en orden, para ubicar un mensaje sin descomprimir el chunk.
+     */
+    @Builder.Default
+    private List<String> messageIds = new ArrayList<>();
+
+    private Instant firstMessageAt;
+
+    private Instant lastMessageAt;
+
+    /**
+     * Documento BSON {@code {messages: [...]}} comprimido con GZIP.
+     */
+    private byte[] messages;
+
+    private Instant archivedAt;
+}
@@ -14,8 +14,26 @@ import java.util.UUID;
 @NoArgsConstructor
 public class ChatMessage {
 
+    public static final String MESSAGE_FIELD = "message";
+    public static final String RESOURCE_FIELD = "resource";
+    public static final String MEDIA_FIELD = "media";
+    public static final String EDITED_AT_FIELD = "editedAt";
+    public static final String EDITS_FIELD = "edits";
+    public static final String DELETED_AT_FIELD = "deletedAt";
+
+    /**
+     * Versiones anteriores que se conservan por mensaje editado.
+     */
+    public static final int MAX_EDITS = 5;
+
     private String id;
 
+    /**
+     * Posición del mensaje en la sala, creciente y sin repetirse, ver {@link ChatRoom#getSequence()}. Los mensajes
+     * enviados antes de que existiera tienen {@code 0}.
+     */
+    private long sequence;
+
     private String message;
 
     private Instant createdAt;
@@ -27,9 +45,39 @@ public class ChatMessage {
     @Field(write = Field.Write.NON_NULL)
     private String resource;
 
+    /**
+     * Dimensiones y miniatura de las imágenes, se agrega después de enviar el mensaje.
+     */
+    @Field(write = Field.Write.NON_NULL)
+    private Media media;
+
+    /**
+     * Lecturas registradas por mensaje antes de las marcas de lectura de {@link ChatRoom#getReadMarks()}, ya no se
+     * escriben pero se conservan para los chunks existentes.
+     */
     @Builder.Default
     private List<ReadBy> readBy = new ArrayList<>();
 
+    /**
+     * Fecha de la última edición, {@code null} si el mensaje no se editó.
+     */
+    @Field(write = Field.Write.NON_NULL)
+    private Instant editedAt;
+
+    /**
+     * Textos anteriores del mensaje, solo las últimas {@link #MAX_EDITS} versiones. No se escribe en los mensajes que
+     * nunca se editaron.
+     */
+    @Field(write = Field.Write.NON_NULL)
+    private List<Edit> edits;
+
+    /**
+     * Fecha en que se eliminó el mensaje. El mensaje eliminado se queda en el chunk sin texto, recurso ni historial,
+     * así no cambian las posiciones de los demás mensajes ni el tamaño contado del chunk.
+     */
+    @Field(write = Field.Write.NON_NULL)
+    private Instant deletedAt;
+
     public static ChatMessage now(String message, Long sentBy, ChatMessageType type) {
         return ChatMessage.builder()
                 .id(UUID.randomUUID().toString())
@@ -56,4 +104,27 @@ public class ChatMessage {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Texto que tenía el mensaje hasta {@code editedAt}.
+     */
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Edit {
+        private String message;
+        private Instant editedAt;
+    }
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Media {
+        private int width;
+        private int height;
+        private String thumbnail;
+        private int thumbnailWidth;
+        private int thumbnailHeight;
+    }
+}
@@ -1,22 +1,39 @@
 package ec.gob.conagopare.sona.modules.chat.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 @Document(collection = "chat_rooms")
+@CompoundIndex(name = "participants_type", def = "{'participants': 1, 'type': 1}")
 public class ChatRoom {
 
+    public static final String NAME_FIELD = "name";
+    public static final String TYPE_FIELD = "type";
+    public static final String PARTICIPANTS_FIELD = "participants";
+    public static final String ADMINS_FIELD = "admins";
+    public static final String PAIR_KEY_FIELD = "pairKey";
+    public static final String SEQUENCE_FIELD = "sequence";
+    public static final String READ_MARKS_FIELD = "readMarks";
+    public static final String CHANGED_AT_FIELD = "changedAt";
+
     @Id
     private String id;
 
@@ -26,4 +43,76 @@ public class ChatRoom {
 
     @Builder.Default
     private List<Long> participants = new ArrayList<>();
+
+    /**
+     * Participantes que pueden cambiar el nombre y los miembros de una sala grupal, las salas privadas no tienen.
+     */
+    @Builder.Default
+    private List<Long> admins = new ArrayList<>();
+
+    /**
+     * Clave única de una sala privada, los ids de los dos participantes ordenados, ver {@link #pairKey(Long, Long)}.
+     * Las salas grupales no la tienen.
+     */
+    @Indexed(name = "unique_private_pair", unique = true, sparse = true)
+    private String pairKey;
+
+    /**
+     * Secuencia del último mensaje de la sala, se incrementa de forma atómica al agregar cada mensaje.
+     */
+    @JsonIgnore
+    private long sequence;
+
+    /**
+     * Fecha de la última edición o eliminación de un mensaje de la sala, permite a la sincronización saber qué salas
+     * tienen mensajes modificados.
+     */
+    @JsonIgnore
+    @Field(write = Field.Write.NON_NULL)
+    private Instant changedAt;
+
+    /**
+     * Último mensaje leído por cada participante, todos los mensajes hasta esa posición se consideran leídos.
+     */
+    @Builder.Default
+    private Map<Long, ReadMark> readMarks = new HashMap<>();
+
+    /**
+     * Clave de la sala privada entre dos usuarios, no depende del orden en el que se pasan.
+     *
+     * @param userId  id de un participante
+     * @param otherId id del otro participante
+     * @return ids ordenados separados por {@code :}
+     */
+    public static String pairKey(Long userId, Long otherId) {
+        return Math.min(userId, otherId) + ":" + Math.max(userId, otherId);
+    }
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class ReadMark {
+
+        private String messageId;
+
+        /**
+         * Número del chunk que contiene el mensaje.
+         */
+        private long chunk;
+
+        /**
+         * Posición del mensaje dentro del chunk.
+         */
+        private int index;
+
+        private Instant readAt;
+
+        /**
+         * @return si esta marca está después de la posición indicada
+         */
+        public boolean isAfter(long chunk, int index) {
+            return this.chunk > chunk || (this.chunk == chunk && this.index > index);
+        }
+    }
 }
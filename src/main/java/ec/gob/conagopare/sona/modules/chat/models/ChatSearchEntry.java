@@ -0,0 +1,55 @@
+package ec.gob.conagopare.sona.modules.chat.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entrada del índice de búsqueda de mensajes, una por mensaje de texto. Los términos son las palabras del mensaje en
+ * minúsculas y sin tildes; el índice multikey sobre {@code terms} funciona como índice invertido, así la búsqueda no
+ * necesita leer los chunks.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = ChatSearchEntry.COLLECTION)
+@CompoundIndex(name = "terms_room_created", def = "{'terms': 1, 'roomId': 1, 'createdAt': -1}")
+public class ChatSearchEntry {
+
+    public static final String COLLECTION = "chat_search_entries";
+
+    public static final String TERMS_FIELD = "terms";
+    public static final String ROOM_ID_FIELD = "roomId";
+    public static final String CREATED_AT_FIELD = "createdAt";
+
+    /**
+     * Id del mensaje.
+     */
+    @Id
+    private String messageId;
+
+    private String roomId;
+
+    private Long sentBy;
+
+    private Instant createdAt;
+
+    /**
+     * Inicio del mensaje para mostrar en los resultados.
+     */
+    private String snippet;
+
+    @JsonIgnore
+    @Builder.Default
+    private List<String> terms = new ArrayList<>();
+}
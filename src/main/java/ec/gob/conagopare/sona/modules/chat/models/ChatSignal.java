@@ -0,0 +1,43 @@
+package ec.gob.conagopare.sona.modules.chat.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evento efímero del chat que no queda en los chunks (mensajes leídos, etc.) y que se reparte entre réplicas con el
+ * change stream de {@code chat_signals}. Mongo los elimina al minuto.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = ChatSignal.COLLECTION)
+public class ChatSignal {
+
+    public static final String COLLECTION = "chat_signals";
+
+    @Id
+    private String id;
+
+    /**
+     * Réplica que publicó el evento, ya lo entregó a sus sesiones locales.
+     */
+    private String origin;
+
+    @Builder.Default
+    private List<String> destinations = new ArrayList<>();
+
+    private Object payload;
+
+    @Indexed(expireAfter = "1m")
+    private Instant createdAt;
+}
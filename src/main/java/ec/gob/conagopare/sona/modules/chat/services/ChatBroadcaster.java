@@ -0,0 +1,80 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.modules.chat.dto.ChatMessageChange;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatMessagePayload;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatPresence;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatTyping;
+import ec.gob.conagopare.sona.modules.chat.dto.ReadMessages;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoomType;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Entrega los eventos del chat a las bandejas de entrada ({@code /topic/chat.inbox.{participante}}) de los
+ * participantes de una sala privada, o al topic de la sala ({@code /topic/chat.room.{sala}}) en las salas grupales
+ * para publicar una sola vez sin importar la cantidad de participantes. La implementación depende de
+ * {@code websocket.broker.mode}.
+ */
+public interface ChatBroadcaster {
+
+    String INBOX_TOPIC = "/topic/chat.inbox.";
+    String ROOM_TOPIC = "/topic/chat.room.";
+    String READ_SUFFIX = ".read";
+    String TYPING_SUFFIX = ".typing";
+    String PRESENCE_SUFFIX = ".presence";
+    String ACK_SUFFIX = ".ack";
+    String CHANGE_SUFFIX = ".change";
+
+    void message(ChatRoom room, ChatMessagePayload payload);
+
+    void read(ChatRoom room, ReadMessages readMessages);
+
+    /**
+     * Publica la edición o eliminación de un mensaje en {@code .change} de la bandeja de entrada o de la sala.
+     */
+    void change(ChatRoom room, ChatMessageChange change);
+
+    void typing(ChatRoom room, ChatTyping typing);
+
+    void presence(Collection<Long> contacts, ChatPresence presence);
+
+    /**
+     * Destinos de un evento de la sala: el topic de la sala si es grupal o la bandeja de entrada de cada participante.
+     *
+     * @param room   sala de chat
+     * @param suffix sufijo del tipo de evento, vacío para los mensajes
+     * @return destinos STOMP
+     */
+    static List<String> destinations(ChatRoom room, String suffix) {
+        if (room.getType() == ChatRoomType.GROUP) {
+            return List.of(ROOM_TOPIC + room.getId() + suffix);
+        }
+        return room.getParticipants().stream().map(participant -> INBOX_TOPIC + participant + suffix).toList();
+    }
+
+    static String inbox(Long participant) {
+        return INBOX_TOPIC + participant;
+    }
+
+    static String readInbox(Long participant) {
+        return INBOX_TOPIC + participant + READ_SUFFIX;
+    }
+
+    static String typingInbox(Long participant) {
+        return INBOX_TOPIC + participant + TYPING_SUFFIX;
+    }
+
+    static String presenceInbox(Long participant) {
+        return INBOX_TOPIC + participant + PRESENCE_SUFFIX;
+    }
+
+    static String ackInbox(Long participant) {
+        return INBOX_TOPIC + participant + ACK_SUFFIX;
+    }
+
+    static String changeInbox(Long participant) {
+        return INBOX_TOPIC + participant + CHANGE_SUFFIX;
+    }
+}
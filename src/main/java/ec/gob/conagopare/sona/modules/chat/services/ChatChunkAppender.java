@@ -0,0 +1,128 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ec.gob.conagopare.sona.modules.chat.models.ChatChunk;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import io.github.luidmidev.springframework.web.problemdetails.ProblemDetails;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Agrega mensajes al chunk abierto de una sala con una sola actualización condicional.
+ * <p>
+ * Se mantiene en memoria el número del chunk abierto de cada sala, el {@code $push} del mensaje, el {@code $inc} del
+ * tamaño y la decisión de abrir un nuevo chunk se resuelven en la misma consulta. Cuando el chunk está lleno se cierra
+ * y se inserta el siguiente, el índice único {@code (number, room.$id)} resuelve las carreras entre nodos. Antes de
+ * agregarlo se reserva la secuencia del mensaje en la sala.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChatChunkAppender {
+
+    private static final String CHAT_CHUNK_ROOM_KEY = "room.$id";
+    private static final int MAX_APPEND_ATTEMPTS = 5;
+
+    private final MongoTemplate mongoTemplate;
+
+    private final Cache<String, Long> openChunks = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+
+    public void append(ChatRoom room, ChatMessage message) {
+        var roomId = room.getId();
+        message.setSequence(nextSequence(roomId));
+
+        var messageSize = ChatChunk.estimateSize(message);
+        var number = openChunkNumber(roomId);
+
+        for (var attempt = 0; attempt < MAX_APPEND_ATTEMPTS; attempt++) {
+
+            if (number > 0 && push(roomId, number, message, messageSize)) {
+                openChunks.put(roomId, number);
+                return;
+            }
+
+            if (number > 0) close(roomId, number);
+
+            try {
+                mongoTemplate.insert(ChatChunk.withFirstMessage(room, number + 1, message));
+                openChunks.put(roomId, number + 1);
+                return;
+            } catch (DuplicateKeyException e) {
+                log.debug("Chunk {} of room {} was opened concurrently, retrying", number + 1, roomId);
+                number++;
+            }
+        }
+
+        openChunks.invalidate(roomId);
+        throw ProblemDetails.internalServerError("No se pudo agregar el mensaje al chat después de " + MAX_APPEND_ATTEMPTS + " intentos");
+    }
+
+    private boolean push(String roomId, long number, ChatMessage message, long messageSize) {
+        var query = new Query(chunk(roomId, number)
+                .and(ChatChunk.CLOSED_FIELD).ne(true)
+                .and(ChatChunk.SIZE_FIELD).lte(ChatChunk.MAX_CHUNK_SIZE - messageSize)
+        );
+
+        var update = new Update()
+                .push(ChatChunk.MESSAGES_FIELD, message)
+                .inc(ChatChunk.SIZE_FIELD, messageSize)
+                .max(ChatChunk.LAST_SEQUENCE_FIELD, message.getSequence());
+
+        return mongoTemplate.updateFirst(query, update, ChatChunk.class).getModifiedCount() > 0;
+    }
+
+    /**
+     * Reserva la siguiente secuencia de la sala con un {@code $inc} atómico, solo se trae el contador.
+     */
+    private long nextSequence(String roomId) {
+        var query = new Query(Criteria.where("_id").is(roomId));
+        query.fields().include(ChatRoom.SEQUENCE_FIELD);
+
+        var update = new Update().inc(ChatRoom.SEQUENCE_FIELD, 1);
+        var room = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), ChatRoom.class);
+
+        if (room == null) {
+            throw ProblemDetails.notFound("No se encontró la sala de chat");
+        }
+
+        return room.getSequence();
+    }
+
+    private void close(String roomId, long number) {
+        var update = new Update().set(ChatChunk.CLOSED_FIELD, true);
+        mongoTemplate.updateFirst(new Query(chunk(roomId, number)), update, ChatChunk.class);
+    }
+
+    private long openChunkNumber(String roomId) {
+        var cached = openChunks.getIfPresent(roomId);
+        if (cached != null) return cached;
+
+        var query = new Query(Criteria.where(CHAT_CHUNK_ROOM_KEY).is(new ObjectId(roomId)))
+                .with(Sort.by(Sort.Order.desc(ChatChunk.NUMBER_FIELD)));
+
+        query.fields().include(ChatChunk.NUMBER_FIELD);
+
+        var latest = mongoTemplate.findOne(query, ChatChunk.class);
+        return latest == null ? 0 : latest.getNumber();
+    }
+
+    private static Criteria chunk(String roomId, long number) {
+        return Criteria.where(CHAT_CHUNK_ROOM_KEY).is(new ObjectId(roomId)).and(ChatChunk.NUMBER_FIELD).is(number);
+    }
+}
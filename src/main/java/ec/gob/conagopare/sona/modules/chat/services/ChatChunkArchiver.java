@@ -0,0 +1,381 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import com.mongodb.DBRef;
+import ec.gob.conagopare.sona.modules.chat.ChatConfig;
+import ec.gob.conagopare.sona.modules.chat.models.ChatChunk;
+import ec.gob.conagopare.sona.modules.chat.models.ChatChunkArchive;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archiva los chunks antiguos que ya leyeron todos los participantes en {@link ChatChunkArchive#COLLECTION}.
+ * <p>
+ * Un chunk se archiva cuando está cerrado, su último mensaje tiene más de {@code chat.archive.age} y la marca de
+ * lectura de cada participante está en un chunk posterior. Los chunks anteriores a {@link ChatChunk#CLOSED_FIELD} no
+ * tienen el campo, así que también se consideran cerrados los que no son el último de su sala; y los participantes sin
+ * marca de lectura, como en las salas que nadie leyó desde que existen las marcas, deben tener cada mensaje del chunk en
+ * su {@code readBy} o haberlo enviado. Los mensajes se guardan comprimidos y sin {@code readBy};
+ * primero se inserta el archivo y después se elimina el chunk, así las lecturas siempre encuentran los mensajes en
+ * alguna de las dos colecciones. Varias réplicas pueden ejecutar el archivado a la vez, el índice único del archivo
+ * evita duplicados.
+ * <p>
+ * El chunk solo se elimina si su {@link ChatChunk#VERSION_FIELD} no cambió desde que se leyó, si una edición, una
+ * eliminación o una miniatura llegó en medio se descarta el archivo insertado y el chunk se archiva en otra ejecución.
+ */
+@Slf4j
+@Component
+public class ChatChunkArchiver implements DisposableBean {
+
+    private static final String MESSAGES_KEY = "messages";
+    private static final String READ_BY_KEY = "readBy";
+    private static final String CREATED_AT_KEY = "createdAt";
+    private static final String SENT_BY_KEY = "sentBy";
+    private static final String PARTICIPANT_ID_KEY = "participantId";
+    private static final String DELETED_AT_KEY = "deletedAt";
+    private static final String ROOM_KEY = "room";
+    private static final String CHAT_CHUNK_ROOM_KEY = "room.$id";
+
+    private final MongoTemplate mongoTemplate;
+    private final ChatConfig.Archive config;
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    public ChatChunkArchiver(ChatConfig config, MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.config = config.getArchive();
+
+        var threadFactory = new CustomizableThreadFactory("chat-archive-");
+        threadFactory.setDaemon(true);
+        this.scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!config.isEnabled()) return;
+
+        var interval = config.getInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                archive();
+            } catch (Exception e) {
+                log.error("Error archivando los chunks del chat", e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Archiva todos los chunks que cumplen las condiciones, recorriéndolos por id en lotes de
+     * {@code chat.archive.batch-size}.
+     *
+     * @return cantidad de chunks archivados
+     */
+    public int archive() {
+        var cutoff = Instant.now().minus(config.getAge());
+        var archived = 0;
+        Object lastId = null;
+
+        while (true) {
+            var criteria = Criteria.where(MESSAGES_KEY + "." + CREATED_AT_KEY).not().gte(cutoff);
+
+            if (lastId != null) criteria = criteria.and("_id").gt(lastId);
+
+            var query = new Query(criteria)
+                    .with(Sort.by(Sort.Direction.ASC, "_id"))
+                    .limit(config.getBatchSize());
+
+            query.fields().include(ChatChunk.NUMBER_FIELD, ChatChunk.CLOSED_FIELD, ROOM_KEY);
+
+            var candidates = mongoTemplate.find(query, Document.class, ChatChunk.COLLECTION);
+            if (candidates.isEmpty()) break;
+
+            var rooms = readMarks(candidates);
+            var latest = latestChunks(candidates);
+            for (var candidate : candidates) {
+                var roomId = roomId(candidate);
+                var number = candidate.get(ChatChunk.NUMBER_FIELD, Number.class).longValue();
+                var room = rooms.get(roomId);
+
+                var closed = Boolean.TRUE.equals(candidate.getBoolean(ChatChunk.CLOSED_FIELD))
+                        || number < latest.getOrDefault(roomId, number);
+
+                if (!closed || room == null) continue;
+
+                var unmarked = unmarked(room, number);
+                if (unmarked != null && archive(candidate.get("_id"), roomId, unmarked)) {
+                    archived++;
+                }
+            }
+
+            if (candidates.size() < config.getBatchSize()) break;
+            lastId = candidates.get(candidates.size() - 1).get("_id");
+        }
+
+        if (archived > 0) {
+            log.info("Archivados {} chunks del chat anteriores a {}", archived, cutoff);
+        }
+
+        return archived;
+    }
+
+    private boolean archive(Object chunkId, String roomId, List<Long> unmarked) {
+        var chunk = mongoTemplate.findOne(new Query(Criteria.where("_id").is(chunkId)), Document.class, ChatChunk.COLLECTION);
+        if (chunk == null) return false;
+
+        var messages = chunk.getList(MESSAGES_KEY, Document.class, List.of());
+        if (messages.isEmpty() || !readBy(messages, unmarked)) return false;
+
+        var messageIds = new ArrayList<String>(messages.size());
+        for (var message : messages) {
+            message.remove(READ_BY_KEY);
+            messageIds.add(message.getString("_id"));
+        }
+
+        var archive = ChatChunkArchive.builder()
+                .id(chunkId.toString())
+                .roomId(roomId)
+                .number(chunk.get(ChatChunk.NUMBER_FIELD, Number.class).longValue())
+                .messageIds(messageIds)
+                .firstMessageAt(createdAt(messages.get(0)))
+                .lastMessageAt(createdAt(messages.get(messages.size() - 1)))
+                .messages(compress(new Document(MESSAGES_KEY, messages)))
+                .archivedAt(Instant.now())
+                .build();
+
+        var inserted = true;
+        try {
+            mongoTemplate.insert(archive);
+        } catch (DuplicateKeyException e) {
+            log.debug("Chunk {} was already archived", chunkId);
+            inserted = false;
+        }
+
+        // Un chunk cerrado, o que ya no es el último de su sala, no recibe más mensajes; solo la versión puede cambiar.
+        // Un chunk sin versión nunca se modificó, el filtro por null también coincide con el campo ausente
+        var unchanged = Criteria.where("_id").is(chunkId)
+                .and(ChatChunk.VERSION_FIELD).is(chunk.get(ChatChunk.VERSION_FIELD));
+
+        if (mongoTemplate.remove(new Query(unchanged), ChatChunk.COLLECTION).getDeletedCount() > 0) return true;
+
+        var exists = mongoTemplate.exists(new Query(Criteria.where("_id").is(chunkId)), ChatChunk.COLLECTION);
+        if (exists && inserted) {
+            log.debug("Chunk {} changed while archiving, it will be archived again later", chunkId);
+            mongoTemplate.remove(new Query(Criteria.where("_id").is(archive.getId())), ChatChunkArchive.class);
+        }
+
+        return !exists;
+    }
+
+    /**
+     * Obtiene un chunk archivado con sus mensajes descomprimidos.
+     *
+     * @param roomId id de la sala de chat
+     * @param number número del chunk
+     * @return chunk, vacío si no está archivado
+     */
+    public Optional<ChatChunk> find(String roomId, long number) {
+        var query = new Query(Criteria
+                .where(ChatChunkArchive.ROOM_ID_FIELD).is(new ObjectId(roomId))
+                .and(ChatChunkArchive.NUMBER_FIELD).is(number));
+
+        return Optional.ofNullable(mongoTemplate.findOne(query, ChatChunkArchive.class)).map(this::toChunk);
+    }
+
+    /**
+     * Obtiene el chunk archivado que contiene un mensaje, sin descomprimirlo.
+     *
+     * @param roomId    id de la sala de chat
+     * @param messageId id del mensaje
+     * @return chunk archivado, vacío si el mensaje no está archivado
+     */
+    public Optional<ChatChunkArchive> findContaining(String roomId, String messageId) {
+        var query = new Query(Criteria
+                .where(ChatChunkArchive.ROOM_ID_FIELD).is(new ObjectId(roomId))
+                .and(ChatChunkArchive.MESSAGE_IDS_FIELD).is(messageId));
+
+        query.fields().exclude(MESSAGES_KEY);
+        return Optional.ofNullable(mongoTemplate.findOne(query, ChatChunkArchive.class));
+    }
+
+    public long count(String roomId) {
+        var query = new Query(Criteria.where(ChatChunkArchive.ROOM_ID_FIELD).is(new ObjectId(roomId)));
+        return mongoTemplate.count(query, ChatChunkArchive.class);
+    }
+
+    private ChatChunk toChunk(ChatChunkArchive archive) {
+        var converter = mongoTemplate.getConverter();
+        var messages = decompress(archive.getMessages()).getList(MESSAGES_KEY, Document.class, List.of()).stream()
+                .map(message -> converter.read(ChatMessage.class, message))
+                .toList();
+
+        return ChatChunk.builder()
+                .id(archive.getId())
+                .number(archive.getNumber())
+                .closed(true)
+                .messages(messages)
+                .build();
+    }
+
+    private Map<String, ChatRoom> readMarks(List<Document> chunks) {
+        var roomIds = chunks.stream()
+                .map(ChatChunkArchiver::roomId)
+                .distinct()
+                .map(ObjectId::new)
+                .toList();
+
+        var query = new Query(Criteria.where("_id").in(roomIds));
+        query.fields().include(ChatRoom.PARTICIPANTS_FIELD, ChatRoom.READ_MARKS_FIELD);
+
+        var rooms = new HashMap<String, ChatRoom>();
+        for (var room : mongoTemplate.find(query, ChatRoom.class)) {
+            rooms.put(room.getId(), room);
+        }
+        return rooms;
+    }
+
+    /**
+     * Número del último chunk de cada sala de los candidatos, solo para las salas con algún candidato sin
+     * {@link ChatChunk#CLOSED_FIELD}. Usa el índice {@code (room.$id, number)}.
+     */
+    private Map<String, Long> latestChunks(List<Document> chunks) {
+        var roomIds = chunks.stream()
+                .filter(chunk -> !Boolean.TRUE.equals(chunk.getBoolean(ChatChunk.CLOSED_FIELD)))
+                .map(ChatChunkArchiver::roomId)
+                .distinct()
+                .map(ObjectId::new)
+                .toList();
+
+        var latest = new HashMap<String, Long>();
+        if (roomIds.isEmpty()) return latest;
+
+        // Las rutas de los campos en $group no admiten $id, se agrupa por la referencia completa
+        var aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where(CHAT_CHUNK_ROOM_KEY).in(roomIds)),
+                Aggregation.group(ROOM_KEY).max(ChatChunk.NUMBER_FIELD).as(ChatChunk.NUMBER_FIELD)
+        );
+
+        for (var room : mongoTemplate.aggregate(aggregation, ChatChunk.COLLECTION, Document.class)) {
+            latest.put(roomId(room.get("_id"), room), room.get(ChatChunk.NUMBER_FIELD, Number.class).longValue());
+        }
+        return latest;
+    }
+
+    /**
+     * Participantes sin marca de lectura, que se revisan con el {@code readBy} de los mensajes.
+     *
+     * @return {@code null} si algún participante tiene la marca en este chunk o en uno anterior
+     */
+    private static List<Long> unmarked(ChatRoom room, long number) {
+        var participants = room.getParticipants();
+        if (participants == null || participants.isEmpty()) return null;
+
+        var marks = room.getReadMarks() == null ? Map.<Long, ChatRoom.ReadMark>of() : room.getReadMarks();
+        var unmarked = new ArrayList<Long>();
+
+        for (var participant : participants) {
+            var mark = marks.get(participant);
+            if (mark == null) unmarked.add(participant);
+            else if (mark.getChunk() <= number) return null;
+        }
+        return unmarked;
+    }
+
+    /**
+     * Si cada participante envió o tiene en el {@code readBy} cada mensaje, los eliminados no cuentan.
+     */
+    private static boolean readBy(List<Document> messages, List<Long> participants) {
+        if (participants.isEmpty()) return true;
+
+        for (var message : messages) {
+            if (message.get(DELETED_AT_KEY) != null) continue;
+
+            var readers = new HashSet<Long>();
+            var sentBy = message.get(SENT_BY_KEY, Number.class);
+            if (sentBy != null) readers.add(sentBy.longValue());
+
+            for (var readBy : message.getList(READ_BY_KEY, Document.class, List.of())) {
+                var participantId = readBy.get(PARTICIPANT_ID_KEY, Number.class);
+                if (participantId != null) readers.add(participantId.longValue());
+            }
+
+            if (!readers.containsAll(participants)) return false;
+        }
+        return true;
+    }
+
+    private static String roomId(Document chunk) {
+        return roomId(chunk.get(ROOM_KEY), chunk);
+    }
+
+    private static String roomId(Object reference, Document source) {
+        if (reference instanceof DBRef ref) return ref.getId().toString();
+        if (reference instanceof Document document) return document.get("$id").toString();
+        throw new IllegalStateException("Chunk " + source.get("_id") + " has no room reference");
+    }
+
+    private static Instant createdAt(Document message) {
+        var createdAt = message.get(CREATED_AT_KEY, Date.class);
+        return createdAt == null ? null : createdAt.toInstant();
+    }
+
+    static byte[] compress(Document document) {
+        var buffer = new RawBsonDocument(document, new DocumentCodec()).getByteBuffer();
+        var bson = new byte[buffer.remaining()];
+        buffer.get(bson);
+
+        var out = new ByteArrayOutputStream(bson.length / 2);
+        try (var gzip = new GZIPOutputStream(out)) {
+            gzip.write(bson);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    static Document decompress(byte[] content) {
+        try (var gzip = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            return new RawBsonDocument(gzip.readAllBytes()).decode(new DocumentCodec());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        scheduler.shutdownNow();
+        if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Chat archive did not stop in time");
+        }
+    }
+}
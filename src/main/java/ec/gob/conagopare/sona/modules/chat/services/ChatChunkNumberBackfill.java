@@ -0,0 +1,94 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import com.mongodb.DBRef;
+import ec.gob.conagopare.sona.modules.chat.models.ChatChunk;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Renumera los chunks de las salas con números repetidos, que la forma anterior de agregar mensajes (buscar el chunk
+ * y después guardarlo) podía crear cuando dos mensajes llegaban a la vez.
+ * <p>
+ * Se ejecuta al iniciar la aplicación, antes de que {@code MongoConfiguration} cree el índice único
+ * {@code (number, room.$id)}, que no se puede crear con duplicados. Los chunks de cada sala afectada se numeran de nuevo
+ * desde 1 por número y luego por id, así se conserva el orden de los mensajes. Las marcas de lectura y los chunks
+ * archivados que referencian números son posteriores al índice, no hay ninguno que corregir.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChatChunkNumberBackfill {
+
+    private static final String ROOM_KEY = "room";
+    private static final String CHAT_CHUNK_ROOM_KEY = "room.$id";
+    private static final String COUNT_KEY = "count";
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void backfill() {
+        // Las rutas de los campos en $group no admiten $id, se agrupa por la referencia completa
+        var duplicates = Aggregation.newAggregation(
+                Aggregation.group(ROOM_KEY, ChatChunk.NUMBER_FIELD).count().as(COUNT_KEY),
+                Aggregation.match(Criteria.where(COUNT_KEY).gt(1)),
+                context -> new Document("$group", new Document("_id", "$_id." + ROOM_KEY))
+        );
+
+        var rooms = mongoTemplate.aggregate(duplicates, ChatChunk.COLLECTION, Document.class).getMappedResults();
+        if (rooms.isEmpty()) return;
+
+        var renumbered = 0;
+        for (var room : rooms) {
+            renumbered += renumber(room.get("_id"));
+        }
+
+        log.info("Renumerados {} chunks de {} salas con números repetidos", renumbered, rooms.size());
+    }
+
+    private int renumber(Object reference) {
+        Object roomId = null;
+        if (reference instanceof DBRef ref) roomId = ref.getId();
+        if (reference instanceof Document document) roomId = document.get("$id");
+
+        if (roomId == null) {
+            log.warn("Chat chunks with duplicate numbers have no room reference, renumbering skipped");
+            return 0;
+        }
+
+        var query = new Query(Criteria.where(CHAT_CHUNK_ROOM_KEY).is(roomId))
+                .with(Sort.by(Sort.Order.asc(ChatChunk.NUMBER_FIELD), Sort.Order.asc("_id")));
+
+        query.fields().include(ChatChunk.NUMBER_FIELD);
+
+        var chunks = mongoTemplate.find(query, Document.class, ChatChunk.COLLECTION);
+        var bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatChunk.COLLECTION);
+        var updates = 0;
+
+        for (var i = 0; i < chunks.size(); i++) {
+            var chunk = chunks.get(i);
+            var number = i + 1L;
+            if (chunk.get(ChatChunk.NUMBER_FIELD, Number.class).longValue() == number) continue;
+
+            bulk.updateOne(new Query(Criteria.where("_id").is(chunk.get("_id"))), new Update().set(ChatChunk.NUMBER_FIELD, number));
+            updates++;
+        }
+
+        if (updates > 0) {
+            bulk.execute();
+            log.warn("Chat room {} had duplicate chunk numbers, {} chunks renumbered", roomId, updates);
+        }
+
+        return updates;
+    }
+}
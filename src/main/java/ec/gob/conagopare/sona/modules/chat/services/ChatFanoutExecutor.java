@@ -0,0 +1,103 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.modules.chat.ChatConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ejecutor acotado para la distribución de eventos del chat (bandejas de entrada, mensajes leídos y notificaciones),
+ * separado del {@code ForkJoinPool} común. Cuando la cola se llena, la tarea la ejecuta el hilo que la envía, lo que
+ * frena a los emisores en lugar de perder eventos.
+ * <p>
+ * Métricas expuestas en Micrometer:
+ * <ul>
+ *     <li>{@code executor.*} con {@code name=chat.fanout}: tamaño de la cola, hilos activos, tareas completadas.</li>
+ *     <li>{@code chat.fanout.latency}: tiempo desde que se encola la tarea hasta que termina, por tarea y resultado.</li>
+ *     <li>{@code chat.fanout.failures}: tareas que terminaron con error, por tarea.</li>
+ *     <li>{@code chat.fanout.rejected}: tareas que ejecutó el hilo emisor porque la cola estaba llena.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class ChatFanoutExecutor implements DisposableBean {
+
+    private static final String EXECUTOR_NAME = "chat.fanout";
+
+    private final MeterRegistry registry;
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+
+    public ChatFanoutExecutor(ChatConfig config, MeterRegistry registry) {
+        var fanout = config.getFanout();
+
+        this.registry = registry;
+        this.rejected = Counter.builder(EXECUTOR_NAME + ".rejected")
+                .description("Tareas ejecutadas por el hilo emisor porque la cola estaba llena")
+                .register(registry);
+
+        this.executor = new ThreadPoolExecutor(
+                fanout.getThreads(),
+                fanout.getThreads(),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(fanout.getQueueCapacity()),
+                threadFactory(),
+                (task, pool) -> {
+                    rejected.increment();
+                    if (!pool.isShutdown()) task.run();
+                }
+        );
+
+        new ExecutorServiceMetrics(executor, EXECUTOR_NAME, Tags.empty()).bindTo(registry);
+    }
+
+    private static CustomizableThreadFactory threadFactory() {
+        var factory = new CustomizableThreadFactory("chat-fanout-");
+        factory.setDaemon(true);
+        return factory;
+    }
+
+    /**
+     * Ejecuta una tarea de distribución, cada tarea debe cubrir a todos los destinatarios de un mismo evento.
+     *
+     * @param task     nombre de la tarea para las métricas
+     * @param runnable tarea a ejecutar
+     */
+    public void execute(String task, Runnable runnable) {
+        var sample = Timer.start(registry);
+
+        executor.execute(() -> {
+            var outcome = "success";
+            try {
+                runnable.run();
+            } catch (Exception e) {
+                outcome = "failure";
+                registry.counter(EXECUTOR_NAME + ".failures", "task", task).increment();
+                log.error("Error en la tarea de distribución del chat {}", task, e);
+            } finally {
+                sample.stop(Timer.builder(EXECUTOR_NAME + ".latency")
+                        .tag("task", task)
+                        .tag("outcome", outcome)
+                        .register(registry));
+            }
+        });
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Chat fan-out executor did not finish pending tasks, {} discarded", executor.shutdownNow().size());
+        }
+    }
+}
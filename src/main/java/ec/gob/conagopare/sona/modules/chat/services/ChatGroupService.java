@@ -0,0 +1,213 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.modules.chat.ChatConfig;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatGroupDto;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoomType;
+import ec.gob.conagopare.sona.modules.chat.repositories.ChatRoomRepository;
+import ec.gob.conagopare.sona.modules.user.service.UserService;
+import io.github.luidmidev.springframework.web.problemdetails.ProblemDetails;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Creación y administración de salas grupales. Los mensajes de los grupos se publican una sola vez en el topic de la
+ * sala, ver {@link ChatBroadcaster#destinations(ChatRoom, String)}.
+ * <p>
+ * Los cambios de miembros se aplican con una sola actualización condicionada al tamaño de la sala y actualizan la
+ * caché de salas de esta réplica; las demás réplicas los ven cuando expira su caché ({@code chat.room-cache.ttl}).
+ * Un participante quitado deja de recibir los eventos del topic de la sala en esta réplica de inmediato y en las demás
+ * cuando expira su caché, ver {@link ChatRoomDeliveryInterceptor}.
+ */
+@Slf4j
+@Service
+@Validated
+@RequiredArgsConstructor
+public class ChatGroupService {
+
+    private final MongoTemplate mongoTemplate;
+    private final ChatRoomRepository roomRepository;
+    private final ChatRoomCache roomCache;
+    private final UserService userService;
+    private final ChatConfig config;
+
+    /**
+     * Crea una sala grupal con el usuario como participante y administrador.
+     *
+     * @param group nombre y participantes iniciales
+     * @param jwt   token de autenticación
+     * @return sala creada
+     */
+    @PreAuthorize("hasAnyRole('admin', 'administrative', 'legal_professional', 'medical_professional')")
+    public ChatRoom create(@Valid ChatGroupDto group, Jwt jwt) {
+        var userId = userService.getUserId(jwt);
+
+        var participants = new LinkedHashSet<Long>();
+        participants.add(userId);
+        participants.addAll(group.getParticipants());
+
+        checkSize(participants.size());
+        checkUsersExist(participants);
+
+        var room = roomRepository.save(ChatRoom.builder()
+                .name(group.getName().trim())
+                .type(ChatRoomType.GROUP)
+                .participants(new ArrayList<>(participants))
+                .admins(new ArrayList<>(List.of(userId)))
+                .build());
+
+        roomCache.put(room);
+        log.info("Chat group {} created by {} with {} participants", room.getId(), userId, participants.size());
+        return room;
+    }
+
+    @PreAuthorize("isAuthenticated()")
+    public ChatRoom rename(String roomId, @NotBlank String name, Jwt jwt) {
+        adminGroup(roomId, jwt);
+        return update(groupQuery(roomId), new Update().set(ChatRoom.NAME_FIELD, name.trim()));
+    }
+
+    /**
+     * Agrega participantes a una sala grupal, los que ya están se ignoran.
+     *
+     * @param roomId  id de la sala grupal
+     * @param userIds ids de los usuarios a agregar
+     * @param jwt     token de autenticación de un administrador del grupo
+     * @return sala actualizada
+     */
+    @PreAuthorize("isAuthenticated()")
+    public ChatRoom addParticipants(String roomId, List<Long> userIds, Jwt jwt) {
+        var room = adminGroup(roomId, jwt);
+
+        var added = new LinkedHashSet<>(userIds);
+        added.removeAll(room.getParticipants());
+        if (added.isEmpty()) return room;
+
+        checkSize(room.getParticipants().size() + added.size());
+        checkUsersExist(added);
+
+        // La posición max - agregados no debe existir, así el grupo no supera el máximo aunque se agreguen en paralelo
+        var query = groupQuery(roomId)
+                .addCriteria(Criteria.where(ChatRoom.PARTICIPANTS_FIELD + "." + (config.getGroups().getMaxParticipants() - added.size())).exists(false));
+
+        return update(query, new Update().addToSet(ChatRoom.PARTICIPANTS_FIELD).each(added.toArray()));
+    }
+
+    /**
+     * Quita un participante de una sala grupal. Un administrador puede quitar a cualquiera y cada participante puede
+     * salir del grupo; el último administrador no puede salir mientras queden otros participantes.
+     *
+     * @param roomId id de la sala grupal
+     * @param userId id del participante a quitar
+     * @param jwt    token de autenticación
+     * @return sala actualizada
+     */
+    @PreAuthorize("isAuthenticated()")
+    public ChatRoom removeParticipant(String roomId, Long userId, Jwt jwt) {
+        var requesterId = userService.getUserId(jwt);
+        var room = group(roomId);
+
+        if (!room.getParticipants().contains(requesterId)) {
+            throw ProblemDetails.notFound("No se encontró la sala de chat");
+        }
+
+        if (!requesterId.equals(userId) && !room.getAdmins().contains(requesterId)) {
+            throw ProblemDetails.forbidden("Solo los administradores pueden quitar participantes del grupo");
+        }
+
+        if (!room.getParticipants().contains(userId)) return room;
+
+        if (room.getAdmins().equals(List.of(userId)) && room.getParticipants().size() > 1) {
+            throw ProblemDetails.badRequest("Asigna otro administrador antes de salir del grupo");
+        }
+
+        var update = new Update()
+                .pull(ChatRoom.PARTICIPANTS_FIELD, userId)
+                .pull(ChatRoom.ADMINS_FIELD, userId)
+                .unset(ChatRoom.READ_MARKS_FIELD + "." + userId);
+
+        return update(groupQuery(roomId), update);
+    }
+
+    /**
+     * Convierte a un participante en administrador del grupo.
+     *
+     * @param roomId id de la sala grupal
+     * @param userId id del participante
+     * @param jwt    token de autenticación de un administrador del grupo
+     * @return sala actualizada
+     */
+    @PreAuthorize("isAuthenticated()")
+    public ChatRoom addAdmin(String roomId, Long userId, Jwt jwt) {
+        var room = adminGroup(roomId, jwt);
+
+        if (!room.getParticipants().contains(userId)) {
+            throw ProblemDetails.badRequest("El usuario no es participante del grupo");
+        }
+
+        var query = groupQuery(roomId).addCriteria(Criteria.where(ChatRoom.PARTICIPANTS_FIELD).is(userId));
+        return update(query, new Update().addToSet(ChatRoom.ADMINS_FIELD, userId));
+    }
+
+    private ChatRoom update(Query query, Update update) {
+        var room = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), ChatRoom.class);
+        if (room == null) {
+            throw ProblemDetails.conflict("Conflicto", "El grupo cambió o alcanzó el máximo de participantes, inténtalo de nuevo");
+        }
+
+        roomCache.put(room);
+        return room;
+    }
+
+    private ChatRoom adminGroup(String roomId, Jwt jwt) {
+        var userId = userService.getUserId(jwt);
+        var room = group(roomId);
+
+        if (!room.getAdmins().contains(userId)) {
+            throw ProblemDetails.forbidden("Solo los administradores pueden modificar el grupo");
+        }
+
+        return room;
+    }
+
+    private ChatRoom group(String roomId) {
+        var room = roomRepository.findById(roomId).orElseThrow(() -> ProblemDetails.notFound("No se encontró la sala de chat"));
+        if (room.getType() != ChatRoomType.GROUP) {
+            throw ProblemDetails.badRequest("La sala de chat no es un grupo");
+        }
+        return room;
+    }
+
+    private void checkSize(int participants) {
+        var max = config.getGroups().getMaxParticipants();
+        if (participants > max) {
+            throw ProblemDetails.badRequest("Un grupo no puede tener más de " + max + " participantes");
+        }
+    }
+
+    private void checkUsersExist(Collection<Long> userIds) {
+        if (userService.map(userIds).size() != userIds.size()) {
+            throw ProblemDetails.badRequest("Algunos participantes no existen");
+        }
+    }
+
+    private static Query groupQuery(String roomId) {
+        return new Query(Criteria.where("_id").is(roomId).and(ChatRoom.TYPE_FIELD).is(ChatRoomType.GROUP));
+    }
+}
@@ -0,0 +1,224 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.application.storage.StreamingStorage;
+import ec.gob.conagopare.sona.modules.chat.ChatConfig;
+import ec.gob.conagopare.sona.modules.chat.models.ChatChunk;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Genera las miniaturas de las imágenes del chat fuera del hilo de la petición.
+ * <p>
+ * La imagen se decodifica con submuestreo para no cargar en memoria la resolución completa, se reduce a
+ * {@code chat.media.thumbnail-size} píxeles en su lado más largo y se guarda como JPEG en
+ * {@link #thumbnailPath(String)}. Las dimensiones y la ruta de la miniatura se guardan en {@link ChatMessage#getMedia()}.
+ * Cuando la cola está llena la imagen se queda sin miniatura y los clientes usan la original.
+ */
+@Slf4j
+@Component
+public class ChatMediaProcessor implements DisposableBean {
+
+    private static final String EXECUTOR_NAME = "chat.media";
+    private static final String CHAT_CHUNK_ROOM_KEY = "room.$id";
+    private static final String THUMBNAILS_DIR = "thumbs";
+    private static final String THUMBNAIL_CONTENT_TYPE = "image/jpeg";
+
+    private final StreamingStorage storage;
+    private final MongoTemplate mongoTemplate;
+    private final int thumbnailSize;
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+    private final Counter failures;
+
+    public ChatMediaProcessor(ChatConfig config, StreamingStorage storage, MongoTemplate mongoTemplate, MeterRegistry registry) {
+        var media = config.getMedia();
+
+        this.storage = storage;
+        this.mongoTemplate = mongoTemplate;
+        this.thumbnailSize = media.getThumbnailSize();
+        this.rejected = Counter.builder(EXECUTOR_NAME + ".rejected")
+                .description("Imágenes que se quedaron sin miniatura porque la cola estaba llena")
+                .register(registry);
+        this.failures = Counter.builder(EXECUTOR_NAME + ".failures")
+                .description("Imágenes cuya miniatura no se pudo generar")
+                .register(registry);
+
+        var threadFactory = new CustomizableThreadFactory("chat-media-");
+        threadFactory.setDaemon(true);
+
+        this.executor = new ThreadPoolExecutor(
+                media.getThreads(),
+                media.getThreads(),
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(media.getQueueCapacity()),
+                threadFactory,
+                (task, pool) -> {
+                    rejected.increment();
+                    log.warn("Chat media queue is full, thumbnail skipped");
+                }
+        );
+
+        new ExecutorServiceMetrics(executor, EXECUTOR_NAME, Tags.empty()).bindTo(registry);
+    }
+
+    /**
+     * Encola la generación de la miniatura de una imagen ya agregada a la sala.
+     *
+     * @param roomId  id de la sala de chat
+     * @param message mensaje de tipo imagen
+     */
+    public void thumbnail(String roomId, ChatMessage message) {
+        executor.execute(() -> {
+            try {
+                process(roomId, message);
+            } catch (Exception e) {
+                failures.increment();
+                log.error("Error generando la miniatura de {}", message.getMessage(), e);
+            }
+        });
+    }
+
+    void process(String roomId, ChatMessage message) throws IOException {
+        var path = message.getMessage();
+        var resource = storage.open(path).orElse(null);
+        if (resource == null) {
+            log.warn("Chat image {} not found, thumbnail skipped", path);
+            return;
+        }
+
+        Thumbnail thumbnail;
+        try (var in = resource.getInputStream()) {
+            thumbnail = render(in);
+        }
+
+        if (thumbnail == null) {
+            log.warn("Chat image {} could not be decoded, thumbnail skipped", path);
+            return;
+        }
+
+        var thumbnailPath = thumbnailPath(path);
+        storage.store(new ByteArrayInputStream(thumbnail.content()), thumbnailPath, THUMBNAIL_CONTENT_TYPE);
+
+        var media = ChatMessage.Media.builder()
+                .width(thumbnail.sourceWidth())
+                .height(thumbnail.sourceHeight())
+                .thumbnail(thumbnailPath)
+                .thumbnailWidth(thumbnail.width())
+                .thumbnailHeight(thumbnail.height())
+                .build();
+
+        var query = new Query(Criteria
+                .where(CHAT_CHUNK_ROOM_KEY).is(new ObjectId(roomId))
+                .and(ChatChunk.MESSAGES_FIELD).elemMatch(Criteria
+                        .where("_id").is(message.getId())
+                        .and(ChatMessage.DELETED_AT_FIELD).exists(false)
+                )
+        );
+
+        var update = new Update()
+                .set(ChatChunk.MESSAGES_FIELD + ".$.media", media)
+                .inc(ChatChunk.VERSION_FIELD, 1);
+
+        if (mongoTemplate.updateFirst(query, update, ChatChunk.class).getMatchedCount() == 0) {
+            // El mensaje se eliminó mientras se generaba la miniatura
+            storage.delete(thumbnailPath);
+            return;
+        }
+
+        message.setMedia(media);
+    }
+
+    private Thumbnail render(InputStream in) throws IOException {
+        try (var input = ImageIO.createImageInputStream(in)) {
+            if (input == null) return null;
+
+            var readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) return null;
+
+            var reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                var sourceWidth = reader.getWidth(0);
+                var sourceHeight = reader.getHeight(0);
+
+                // Submuestreo para decodificar como máximo el doble del tamaño de la miniatura
+                var step = Math.max(1, Math.max(sourceWidth, sourceHeight) / (thumbnailSize * 2));
+                var param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+
+                var source = reader.read(0, param);
+
+                var scale = Math.min(1.0, (double) thumbnailSize / Math.max(sourceWidth, sourceHeight));
+                var width = Math.max(1, (int) Math.round(sourceWidth * scale));
+                var height = Math.max(1, (int) Math.round(sourceHeight * scale));
+
+                var target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+                var graphics = target.createGraphics();
+                try {
+                    graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                    graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+                } finally {
+                    graphics.dispose();
+                }
+
+                var out = new ByteArrayOutputStream();
+                ImageIO.write(target, "jpg", out);
+
+                return new Thumbnail(out.toByteArray(), width, height, sourceWidth, sourceHeight);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Ruta de la miniatura de una imagen, {@code .../images/<nombre>.jpg} en {@code .../images/thumbs/}.
+     *
+     * @param path ruta de la imagen original
+     * @return ruta de la miniatura
+     */
+    public static String thumbnailPath(String path) {
+        var slash = path.lastIndexOf('/');
+        var dir = slash < 0 ? "" : path.substring(0, slash + 1);
+        var filename = path.substring(slash + 1);
+        var dot = filename.lastIndexOf('.');
+        var name = dot < 0 ? filename : filename.substring(0, dot);
+        return dir + THUMBNAILS_DIR + "/" + name + ".jpg";
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Chat media executor did not finish pending thumbnails, {} discarded", executor.shutdownNow().size());
+        }
+    }
+
+    private record Thumbnail(byte[] content, int width, int height, int sourceWidth, int sourceHeight) {
+    }
+}
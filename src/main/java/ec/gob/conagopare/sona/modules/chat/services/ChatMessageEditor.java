@@ -0,0 +1,115 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.modules.chat.models.ChatChunk;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
+import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Edita y elimina mensajes dentro de su chunk con filtros de arreglo sobre {@code messages._id}, sin reescribir el
+ * arreglo de mensajes. Los mensajes eliminados se quedan en su posición como marca, así no cambian los índices que usan
+ * las marcas de lectura y el historial, ni la numeración de los chunks. Los chunks archivados no se modifican.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChatMessageEditor {
+
+    private static final String CHAT_CHUNK_ROOM_KEY = "room.$id";
+    private static final String MESSAGE_FILTER = "message";
+    private static final String MESSAGE_PATH = ChatChunk.MESSAGES_FIELD + ".$[" + MESSAGE_FILTER + "].";
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Busca un mensaje en los chunks sin archivar, trayendo solo ese mensaje con la proyección posicional.
+     *
+     * @param roomId    id de la sala de chat
+     * @param messageId id del mensaje
+     * @return mensaje, vacío si no existe o está archivado
+     */
+    public Optional<ChatMessage> find(String roomId, String messageId) {
+        var query = new Query(chunksOf(roomId).and(ChatChunk.MESSAGES_FIELD + "._id").is(messageId));
+        query.fields().position(ChatChunk.MESSAGES_FIELD, 1);
+
+        var chunk = mongoTemplate.findOne(query, ChatChunk.class);
+        if (chunk == null || chunk.getMessages().isEmpty()) return Optional.empty();
+
+        return Optional.of(chunk.getMessages().get(0));
+    }
+
+    /**
+     * Reemplaza el texto del mensaje y guarda el anterior en su historial. Solo se aplica si el texto no cambió desde
+     * que se leyó {@code current} y el mensaje no fue eliminado, así dos ediciones simultáneas no pierden versiones.
+     *
+     * @param roomId   id de la sala de chat
+     * @param current  mensaje como se leyó antes de editarlo
+     * @param message  texto nuevo
+     * @param editedAt fecha de la edición
+     * @return {@code false} si el mensaje cambió mientras tanto
+     */
+    public boolean edit(String roomId, ChatMessage current, String message, Instant editedAt) {
+        var previous = ChatMessage.Edit.builder()
+                .message(current.getMessage())
+                .editedAt(editedAt)
+                .build();
+
+        var update = new Update()
+                .set(MESSAGE_PATH + ChatMessage.MESSAGE_FIELD, message)
+                .set(MESSAGE_PATH + ChatMessage.EDITED_AT_FIELD, editedAt)
+                .inc(ChatChunk.SIZE_FIELD, ChatChunk.estimateEditSize(message))
+                .inc(ChatChunk.VERSION_FIELD, 1)
+                .filterArray(Criteria.where(MESSAGE_FILTER + "._id").is(current.getId()));
+
+        update.push(MESSAGE_PATH + ChatMessage.EDITS_FIELD).slice(-ChatMessage.MAX_EDITS).each(previous);
+
+        var query = messageQuery(roomId, Criteria
+                .where("_id").is(current.getId())
+                .and(ChatMessage.MESSAGE_FIELD).is(current.getMessage())
+                .and(ChatMessage.DELETED_AT_FIELD).exists(false)
+        );
+
+        return mongoTemplate.updateFirst(query, update, ChatChunk.class).getModifiedCount() > 0;
+    }
+
+    /**
+     * Deja el mensaje como marca de eliminado: se quitan el texto, el recurso, la miniatura y el historial.
+     *
+     * @param roomId    id de la sala de chat
+     * @param messageId id del mensaje
+     * @param deletedAt fecha de la eliminación
+     * @return {@code false} si el mensaje ya estaba eliminado
+     */
+    public boolean delete(String roomId, String messageId, Instant deletedAt) {
+        var update = new Update()
+                .set(MESSAGE_PATH + ChatMessage.DELETED_AT_FIELD, deletedAt)
+                .unset(MESSAGE_PATH + ChatMessage.MESSAGE_FIELD)
+                .unset(MESSAGE_PATH + ChatMessage.RESOURCE_FIELD)
+                .unset(MESSAGE_PATH + ChatMessage.MEDIA_FIELD)
+                .unset(MESSAGE_PATH + ChatMessage.EDITS_FIELD)
+                .inc(ChatChunk.VERSION_FIELD, 1)
+                .filterArray(Criteria.where(MESSAGE_FILTER + "._id").is(messageId));
+
+        var query = messageQuery(roomId, Criteria
+                .where("_id").is(messageId)
+                .and(ChatMessage.DELETED_AT_FIELD).exists(false)
+        );
+
+        return mongoTemplate.updateFirst(query, update, ChatChunk.class).getModifiedCount() > 0;
+    }
+
+    private static Query messageQuery(String roomId, Criteria message) {
+        return new Query(chunksOf(roomId).and(ChatChunk.MESSAGES_FIELD).elemMatch(message));
+    }
+
+    private static Criteria chunksOf(String roomId) {
+        return Criteria.where(CHAT_CHUNK_ROOM_KEY).is(new ObjectId(roomId));
+    }
+}
@@ -0,0 +1,192 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.modules.chat.ChatConfig;
+import ec.gob.conagopare.sona.modules.chat.dto.ReadMessages;
+import ec.gob.conagopare.sona.modules.chat.models.ChatChunk;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agrupa las lecturas que envía el cliente mientras el usuario recorre la sala.
+ * <p>
+ * Las lecturas de un mismo participante en una sala se acumulan durante {@code chat.read-receipts.window}. Al cerrar
+ * la ventana se busca el mensaje más reciente entre los leídos y se guarda como marca de lectura del participante en
+ * {@code chat_rooms.readMarks}, con una actualización condicional que solo avanza la marca. Si la marca avanzó se
+ * publica un único evento {@link ReadMessages} con todos los mensajes acumulados.
+ */
+@Slf4j
+@Component
+public class ChatReadReceiptAggregator implements DisposableBean {
+
+    private static final String CHAT_CHUNK_ROOM_KEY = "room.$id";
+    private static final String MESSAGE_INDEX = "index";
+
+    private final MongoTemplate mongoTemplate;
+    private final ChatBroadcaster broadcaster;
+    private final ChatFanoutExecutor fanout;
+    private final Duration window;
+
+    private final Map<PendingKey, PendingRead> pending = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    public ChatReadReceiptAggregator(ChatConfig config, MongoTemplate mongoTemplate, ChatBroadcaster broadcaster, ChatFanoutExecutor fanout) {
+        this.mongoTemplate = mongoTemplate;
+        this.broadcaster = broadcaster;
+        this.fanout = fanout;
+        this.window = config.getReadReceipts().getWindow();
+
+        var threadFactory = new CustomizableThreadFactory("chat-read-receipts-");
+        threadFactory.setDaemon(true);
+        this.scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+    }
+
+    /**
+     * Registra mensajes leídos por un participante, se guardan y notifican al cerrar la ventana de la sala.
+     *
+     * @param room        sala de chat
+     * @param userId      id del participante que leyó los mensajes
+     * @param messagesIds ids de los mensajes leídos
+     */
+    public void add(ChatRoom room, Long userId, Collection<String> messagesIds) {
+        if (messagesIds.isEmpty()) return;
+
+        var key = new PendingKey(room.getId(), userId);
+        var created = new boolean[1];
+
+        pending.compute(key, (k, current) -> {
+            var read = current;
+            if (read == null) {
+                read = new PendingRead(room);
+                created[0] = true;
+            }
+            read.messagesIds.addAll(messagesIds);
+            return read;
+        });
+
+        if (created[0]) {
+            scheduler.schedule(() -> fanout.execute("read-receipt", () -> flush(key)), window.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    void flush(PendingKey key) {
+        var read = pending.remove(key);
+        if (read == null) return;
+
+        var room = read.room;
+        var userId = key.userId();
+        var messagesIds = List.copyOf(read.messagesIds);
+
+        var mark = latest(room.getId(), messagesIds);
+        if (mark == null) {
+            log.warn("No se encontraron los mensajes leídos en la sala {}", room.getId());
+            return;
+        }
+
+        if (!advance(room.getId(), userId, mark)) {
+            log.debug("Read mark of user {} in room {} is already past {}", userId, room.getId(), mark.getMessageId());
+            return;
+        }
+
+        var readMessages = ReadMessages.builder()
+                .roomId(room.getId())
+                .readBy(new ChatMessage.ReadBy(userId, mark.getReadAt()))
+                .lastReadMessageId(mark.getMessageId())
+                .messageIds(messagesIds)
+                .build();
+
+        broadcaster.read(room, readMessages);
+    }
+
+    /**
+     * Busca, entre los mensajes leídos, el que está en la posición más avanzada de la sala.
+     */
+    private ChatRoom.ReadMark latest(String roomId, List<String> messagesIds) {
+        var messageIdField = ChatChunk.MESSAGES_FIELD + "._id";
+
+        var aggregate = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where(CHAT_CHUNK_ROOM_KEY).is(new ObjectId(roomId)).and(messageIdField).in(messagesIds)),
+                Aggregation.unwind(ChatChunk.MESSAGES_FIELD, MESSAGE_INDEX),
+                Aggregation.match(Criteria.where(messageIdField).in(messagesIds)),
+                Aggregation.sort(Sort.by(Sort.Order.desc(ChatChunk.NUMBER_FIELD), Sort.Order.desc(MESSAGE_INDEX))),
+                Aggregation.limit(1),
+                Aggregation.project(ChatChunk.NUMBER_FIELD, MESSAGE_INDEX).and(messageIdField).as("messageId")
+        );
+
+        var result = mongoTemplate.aggregate(aggregate, ChatChunk.class, Document.class).getUniqueMappedResult();
+        if (result == null) return null;
+
+        return ChatRoom.ReadMark.builder()
+                .messageId(result.getString("messageId"))
+                .chunk(result.get(ChatChunk.NUMBER_FIELD, Number.class).longValue())
+                .index(result.get(MESSAGE_INDEX, Number.class).intValue())
+                .readAt(Instant.now())
+                .build();
+    }
+
+    /**
+     * Guarda la marca solo si está después de la marca actual del participante.
+     */
+    private boolean advance(String roomId, Long userId, ChatRoom.ReadMark mark) {
+        var path = ChatRoom.READ_MARKS_FIELD + "." + userId;
+
+        var query = new Query(Criteria.where("_id").is(roomId).orOperator(
+                Criteria.where(path).exists(false),
+                Criteria.where(path + ".chunk").lt(mark.getChunk()),
+                Criteria.where(path + ".chunk").is(mark.getChunk()).and(path + "." + MESSAGE_INDEX).lt(mark.getIndex())
+        ));
+
+        var update = new Update().set(path, mark);
+        return mongoTemplate.updateFirst(query, update, ChatRoom.class).getModifiedCount() > 0;
+    }
+
+    /**
+     * Guarda las lecturas pendientes antes de detener la aplicación.
+     */
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        for (var key : new ArrayList<>(pending.keySet())) {
+            try {
+                flush(key);
+            } catch (Exception e) {
+                log.error("Error guardando las lecturas pendientes de la sala {}", key.roomId(), e);
+            }
+        }
+    }
+
+    record PendingKey(String roomId, Long userId) {
+    }
+
+    private static class PendingRead {
+        private final ChatRoom room;
+        private final Set<String> messagesIds = new LinkedHashSet<>();
+
+        private PendingRead(ChatRoom room) {
+            this.room = room;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ec.gob.conagopare.sona.modules.chat.ChatConfig;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.repositories.ChatRoomRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Salas de chat en memoria para las rutas de envío y lectura, que solo necesitan el tipo y los participantes.
+ * <p>
+ * Las salas se guardan como máximo {@code chat.room-cache.ttl} desde que se consultaron. Las marcas de lectura de una
+ * sala en memoria pueden estar desactualizadas, por eso las consultas que las retornan al cliente van a la base de
+ * datos. Las métricas de aciertos y fallos se publican como {@code cache.gets{cache="chat.rooms"}}.
+ */
+@Component
+public class ChatRoomCache {
+
+    private static final String CACHE_NAME = "chat.rooms";
+
+    private final ChatRoomRepository repository;
+    private final Cache<String, ChatRoom> rooms;
+
+    public ChatRoomCache(ChatConfig config, ChatRoomRepository repository, MeterRegistry registry) {
+        var roomCache = config.getRoomCache();
+
+        this.repository = repository;
+        this.rooms = Caffeine.newBuilder()
+                .maximumSize(roomCache.getMaximumSize())
+                .expireAfterWrite(roomCache.getTtl())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(registry, rooms, CACHE_NAME);
+    }
+
+    /**
+     * Obtiene una sala, solo consulta la base de datos si no está en memoria. Las salas que no existen no se guardan.
+     *
+     * @param roomId id de la sala de chat
+     * @return sala de chat, vacío si no existe
+     */
+    public Optional<ChatRoom> get(String roomId) {
+        return Optional.ofNullable(rooms.get(roomId, id -> repository.findById(id).orElse(null)));
+    }
+
+    /**
+     * Lee la sala de la base de datos y reemplaza la que está en memoria, para las verificaciones que no pueden usar
+     * una sala desactualizada.
+     *
+     * @param roomId id de la sala de chat
+     * @return sala de chat, vacío si no existe
+     */
+    public Optional<ChatRoom> refresh(String roomId) {
+        var room = repository.findById(roomId);
+        room.ifPresentOrElse(this::put, () -> invalidate(roomId));
+        return room;
+    }
+
+    /**
+     * Guarda en memoria una sala recién creada o modificada.
+     *
+     * @param room sala de chat guardada en la base de datos
+     */
+    public void put(ChatRoom room) {
+        rooms.put(room.getId(), room);
+    }
+
+    /**
+     * Descarta la sala en memoria, la siguiente consulta la lee de la base de datos.
+     *
+     * @param roomId id de la sala de chat
+     */
+    public void invalidate(String roomId) {
+        rooms.invalidate(roomId);
+    }
+}
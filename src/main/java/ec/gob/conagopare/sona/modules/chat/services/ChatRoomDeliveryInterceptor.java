@@ -0,0 +1,56 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.application.configuration.OutboundChannelInterceptor;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Descarta los eventos del topic de una sala grupal que el broker entrega a una sesión cuyo usuario ya no es
+ * participante de la sala. La suscripción sigue abierta hasta que el cliente se desconecte, pero no recibe mensajes,
+ * lecturas ni eventos de escritura del grupo.
+ * <p>
+ * Se usa la caché de salas, así la réplica que quita al participante lo aplica de inmediato y las demás cuando expira
+ * su caché ({@code chat.room-cache.ttl}).
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChatRoomDeliveryInterceptor implements OutboundChannelInterceptor {
+
+    private final ChatRoomCache roomCache;
+
+    /**
+     * Perezoso porque el registro de sesiones depende del broker, que se configura con este interceptor.
+     */
+    @Lazy
+    private final ChatSessionRegistry sessions;
+
+    @Override
+    public Message<?> preSend(@NotNull Message<?> message, @NotNull MessageChannel channel) {
+        var headers = message.getHeaders();
+        if (SimpMessageHeaderAccessor.getMessageType(headers) != SimpMessageType.MESSAGE) return message;
+
+        var destination = SimpMessageHeaderAccessor.getDestination(headers);
+        var sessionId = SimpMessageHeaderAccessor.getSessionId(headers);
+        if (destination == null || sessionId == null || !destination.startsWith(ChatBroadcaster.ROOM_TOPIC)) return message;
+
+        var roomId = ChatSubscriptionInterceptor.roomId(destination);
+        var participant = sessions.sessionUser(sessionId)
+                .flatMap(userId -> roomCache.get(roomId).map(room -> room.getParticipants().contains(userId)))
+                .orElse(false);
+
+        if (!participant) {
+            log.debug("Dropped {} for session {} that is no longer a participant", destination, sessionId);
+            return null;
+        }
+
+        return message;
+    }
+}
@@ -0,0 +1,77 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoomType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+
+/**
+ * Asigna {@link ChatRoom#getPairKey()} a las salas privadas creadas antes de que existiera la clave.
+ * <p>
+ * Se ejecuta al iniciar la aplicación, antes de que {@code MongoConfiguration} cree el índice único. Si hay salas
+ * privadas duplicadas entre los mismos usuarios, solo la más antigua recibe la clave; las demás se siguen pudiendo
+ * consultar por id, pero las nuevas conversaciones usan la más antigua.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChatRoomPairKeyBackfill {
+
+    private final MongoTemplate mongoTemplate;
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void backfill() {
+        var pending = new Query(Criteria
+                .where(ChatRoom.TYPE_FIELD).is(ChatRoomType.PRIVATE)
+                .and(ChatRoom.PAIR_KEY_FIELD).exists(false))
+                .with(Sort.by(Sort.Direction.ASC, "_id"));
+
+        pending.fields().include(ChatRoom.PARTICIPANTS_FIELD);
+
+        var rooms = mongoTemplate.find(pending, ChatRoom.class);
+        if (rooms.isEmpty()) return;
+
+        var existing = new Query(Criteria.where(ChatRoom.PAIR_KEY_FIELD).exists(true));
+        existing.fields().include(ChatRoom.PAIR_KEY_FIELD);
+
+        var assigned = new HashSet<String>();
+        mongoTemplate.find(existing, ChatRoom.class).forEach(room -> assigned.add(room.getPairKey()));
+
+        var bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatRoom.class);
+        var updates = 0;
+
+        for (var room : rooms) {
+            var participants = room.getParticipants();
+            if (participants == null || participants.size() != 2) {
+                log.warn("Private chat room {} does not have two participants, pair key skipped", room.getId());
+                continue;
+            }
+
+            var pairKey = ChatRoom.pairKey(participants.get(0), participants.get(1));
+            if (!assigned.add(pairKey)) {
+                log.warn("Private chat room {} duplicates pair {}, pair key skipped", room.getId(), pairKey);
+                continue;
+            }
+
+            bulk.updateOne(new Query(Criteria.where("_id").is(room.getId())), new Update().set(ChatRoom.PAIR_KEY_FIELD, pairKey));
+            updates++;
+        }
+
+        if (updates > 0) {
+            bulk.execute();
+        }
+
+        log.info("Asignada la clave de sala privada a {} de {} salas", updates, rooms.size());
+    }
+}
@@ -0,0 +1,137 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.application.common.utils.NormalizerUtils;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
+import ec.gob.conagopare.sona.modules.chat.models.ChatSearchEntry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Mantiene el índice de búsqueda de los mensajes de texto en {@link ChatSearchEntry#COLLECTION} y lo consulta.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChatSearchIndex {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^a-z0-9]+");
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int MAX_TERMS_PER_MESSAGE = 128;
+    private static final int MAX_QUERY_TERMS = 8;
+    private static final int SNIPPET_LENGTH = 160;
+    private static final int MAX_PAGE_SIZE = 50;
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Agrega o reemplaza la entrada de un mensaje de texto.
+     *
+     * @param roomId  id de la sala de chat
+     * @param message mensaje de texto
+     */
+    public void index(String roomId, ChatMessage message) {
+        var terms = tokenize(message.getMessage(), MAX_TERMS_PER_MESSAGE);
+        if (terms.isEmpty()) return;
+
+        var query = new Query(Criteria.where("_id").is(message.getId()));
+        var update = new Update()
+                .set(ChatSearchEntry.ROOM_ID_FIELD, roomId)
+                .set("sentBy", message.getSentBy())
+                .set(ChatSearchEntry.CREATED_AT_FIELD, message.getCreatedAt())
+                .set("snippet", snippet(message.getMessage()))
+                .set(ChatSearchEntry.TERMS_FIELD, terms);
+
+        mongoTemplate.upsert(query, update, ChatSearchEntry.class);
+    }
+
+    /**
+     * Actualiza la entrada de un mensaje editado, si el texto nuevo no tiene palabras la entrada se elimina.
+     *
+     * @param roomId  id de la sala de chat
+     * @param message mensaje de texto editado
+     */
+    public void reindex(String roomId, ChatMessage message) {
+        if (tokenize(message.getMessage(), MAX_TERMS_PER_MESSAGE).isEmpty()) {
+            remove(message.getId());
+        } else {
+            index(roomId, message);
+        }
+    }
+
+    /**
+     * Elimina la entrada de un mensaje.
+     *
+     * @param messageId id del mensaje
+     */
+    public void remove(String messageId) {
+        mongoTemplate.remove(new Query(Criteria.where("_id").is(messageId)), ChatSearchEntry.class);
+    }
+
+    /**
+     * Busca los mensajes que contienen todas las palabras de la consulta, desde el más reciente.
+     *
+     * @param roomIds  salas en las que se busca
+     * @param search   texto a buscar
+     * @param pageable página de resultados, se ignora el orden porque siempre es por fecha descendente
+     * @return página de mensajes encontrados
+     */
+    public Page<ChatSearchEntry> search(Collection<String> roomIds, String search, Pageable pageable) {
+        var terms = tokenize(search, MAX_QUERY_TERMS);
+        if (terms.isEmpty() || roomIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        var criteria = Criteria.where(ChatSearchEntry.TERMS_FIELD).all(terms)
+                .and(ChatSearchEntry.ROOM_ID_FIELD).in(roomIds);
+
+        var page = PageRequest.of(pageable.getPageNumber(), Math.min(pageable.getPageSize(), MAX_PAGE_SIZE), Sort.by(Sort.Direction.DESC, ChatSearchEntry.CREATED_AT_FIELD));
+        var query = new Query(criteria).with(page);
+
+        query.fields().exclude(ChatSearchEntry.TERMS_FIELD);
+
+        var entries = mongoTemplate.find(query, ChatSearchEntry.class);
+        return PageableExecutionUtils.getPage(entries, page, () -> mongoTemplate.count(new Query(criteria), ChatSearchEntry.class));
+    }
+
+    /**
+     * Separa el texto en palabras en minúsculas y sin tildes, sin repetir y en el orden en que aparecen.
+     *
+     * @param text  texto a separar
+     * @param limit cantidad máxima de palabras
+     * @return palabras de al menos dos caracteres
+     */
+    static List<String> tokenize(String text, int limit) {
+        if (text == null || text.isBlank()) return List.of();
+
+        var normalized = NormalizerUtils.toASCII(text).toLowerCase(Locale.ROOT);
+        var terms = new LinkedHashSet<String>();
+
+        for (var token : TOKEN_SEPARATOR.split(normalized)) {
+            if (token.length() < MIN_TERM_LENGTH) continue;
+            terms.add(token);
+            if (terms.size() == limit) break;
+        }
+
+        return new ArrayList<>(terms);
+    }
+
+    private static String snippet(String message) {
+        var text = message.strip();
+        return text.length() <= SNIPPET_LENGTH ? text : text.substring(0, SNIPPET_LENGTH) + "…";
+    }
+}
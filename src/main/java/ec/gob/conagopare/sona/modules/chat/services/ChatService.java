@@ -1,31 +1,47 @@
 package ec.gob.conagopare.sona.modules.chat.services;
 
 import ec.gob.conagopare.sona.application.common.utils.FileUtils;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatInboxRoom;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatMessageChange;
 import ec.gob.conagopare.sona.modules.chat.dto.ChatMessagePayload;
-import ec.gob.conagopare.sona.modules.chat.dto.ReadMessages;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatMessagesSlice;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatParticipant;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatSync;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatSyncRequest;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatUploadRequest;
 import ec.gob.conagopare.sona.modules.chat.models.*;
 import ec.gob.conagopare.sona.modules.chat.repositories.ChatRoomRepository;
 import ec.gob.conagopare.sona.application.firebase.NotificationService;
+import ec.gob.conagopare.sona.application.storage.StoredResource;
+import ec.gob.conagopare.sona.application.storage.StreamingStorage;
+import ec.gob.conagopare.sona.application.storage.UploadSlot;
+import ec.gob.conagopare.sona.modules.chat.ChatConfig;
 import ec.gob.conagopare.sona.modules.user.service.UserService;
 import io.github.luidmidev.jakarta.validations.ContentType;
 import io.github.luidmidev.jakarta.validations.FileSize;
 import io.github.luidmidev.jakarta.validations.Image;
 import io.github.luidmidev.springframework.web.problemdetails.ProblemDetails;
-import io.github.luidmidev.storage.Storage;
-import io.github.luidmidev.storage.Stored;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotEmpty;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bson.Document;
 import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
 import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.stereotype.Service;
@@ -34,10 +50,12 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
-import java.util.function.Function;
-
-import static java.util.concurrent.CompletableFuture.runAsync;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -49,20 +67,49 @@ public class ChatService {
     private static final String CHAT_CHUNK_NUMBER_KEY = "number";
     private static final String CHAT_CHUNK_ROOM_KEY = "room.$id";
     private static final String USERS_CHATS_PATH = "users/%d/chats/%s/%s";
+    private static final Pattern CHAT_MEDIA_PATH = Pattern.compile("^users/\\d+/chats/([^/]+)/(images|voices)/[^/]+$");
     private static final String MESSAGES = "messages";
+    private static final String PARTICIPANTS = ChatRoom.PARTICIPANTS_FIELD;
+    private static final String INBOX_SUMMARY = "summary";
+    private static final List<ChatMessageType> MEDIA_TYPES = List.of(ChatMessageType.IMAGE, ChatMessageType.VOICE);
+    private static final long MAX_MEDIA_SIZE = 25L * 1024 * 1024;
+    public static final String THUMBNAIL_VARIANT = "thumb";
+    public static final int MAX_HISTORY_LIMIT = 100;
+    public static final int MAX_SYNC_MESSAGES_PER_ROOM = 200;
+
+    /**
+     * Margen para las diferencias de reloj entre réplicas al comparar las marcas de lectura con la última sincronización.
+     */
+    private static final Duration SYNC_CLOCK_SKEW = Duration.ofSeconds(5);
+
+    /**
+     * Tiempo tras el cual una secuencia reservada sin mensaje se considera descartada, normalmente el mensaje se
+     * agrega milisegundos después de reservarla.
+     */
+    private static final Duration SEQUENCE_GAP_TIMEOUT = Duration.ofSeconds(30);
 
-    private final SimpMessagingTemplate messaging;
     private final MongoTemplate mongoTemplate;
     private final UserService userService;
     private final ChatRoomRepository roomRepository;
+    private final ChatRoomCache roomCache;
     private final NotificationService notificationService;
-    private final Storage storage;
+    private final StreamingStorage streamingStorage;
+    private final ChatChunkAppender chunkAppender;
+    private final ChatChunkArchiver chunkArchiver;
+    private final ChatBroadcaster broadcaster;
+    private final ChatFanoutExecutor fanout;
+    private final ChatReadReceiptAggregator readReceipts;
+    private final ChatMediaProcessor mediaProcessor;
+    private final ChatSearchIndex searchIndex;
+    private final ChatMessageEditor messageEditor;
+    private final ChatSessionRegistry sessions;
+    private final ChatConfig config;
 
     @PreAuthorize("isAuthenticated()")
     public ChatMessagePayload sendMessage(@NotEmpty String message, String roomId, String requestId, Jwt jwt) {
-        var user = userService.getUser(jwt);
-        var room = room(roomId);
-        var chatMessage = ChatMessage.now(message, user.getId(), ChatMessageType.TEXT);
+        var userId = userService.getUserId(jwt);
+        var room = participantRoom(roomId, userId);
+        var chatMessage = ChatMessage.now(message, userId, ChatMessageType.TEXT);
         return sendMessageToSuscribers(requestId, room, chatMessage);
     }
 
@@ -76,7 +123,7 @@ public class ChatService {
             String requestId,
             Jwt jwt
     ) throws IOException {
-        return sendFile(file, roomId, requestId, jwt, ChatMessageType.IMAGE, "images");
+        return sendFile(file, roomId, requestId, jwt, ChatMessageType.IMAGE);
     }
 
     @PreAuthorize("isAuthenticated()")
@@ -92,7 +139,7 @@ public class ChatService {
             Jwt jwt
 
     ) throws IOException {
-        return sendFile(file, roomId, requestId, jwt, ChatMessageType.VOICE, "voices");
+        return sendFile(file, roomId, requestId, jwt, ChatMessageType.VOICE);
     }
 
     @PreAuthorize("isAuthenticated()")
@@ -101,30 +148,150 @@ public class ChatService {
             String roomId,
             String requestId,
             Jwt jwt,
-            ChatMessageType type,
-            String dir
+            ChatMessageType type
     ) throws IOException {
 
-        var user = userService.getUser(jwt);
-        var room = room(roomId);
+        var userId = userService.getUserId(jwt);
+        var room = participantRoom(roomId, userId);
 
-        var filePath = storage.store(
+        var filePath = streamingStorage.store(
                 file.getInputStream(),
-                FileUtils.factoryUUIDFileName(file.getOriginalFilename()),
-                String.format(USERS_CHATS_PATH, user.getId(), room.getId(), dir)
+                mediaDir(userId, room.getId(), type) + FileUtils.factoryUUIDFileName(file.getOriginalFilename()),
+                file.getContentType()
         );
 
-        var chatMessage = ChatMessage.now(filePath, user.getId(), type);
+        var chatMessage = ChatMessage.now(filePath, userId, type);
+        return sendMessageToSuscribers(requestId, room, chatMessage);
+    }
+
+    /**
+     * Reserva una URL para que el cliente suba una imagen o un audio directamente al almacenamiento, sin que el
+     * archivo pase por el servidor. El mensaje se envía cuando el cliente confirma la subida con
+     * {@link #confirmUpload(String, String, String, Jwt)}.
+     *
+     * @param roomId  id de la sala de chat
+     * @param request archivo que se quiere subir
+     * @param jwt     token de autenticación
+     * @return URL y cabeceras para subir el archivo
+     * @throws IOException si no se puede generar la URL de subida
+     */
+    @PreAuthorize("isAuthenticated()")
+    public UploadSlot requestUpload(String roomId, @Valid ChatUploadRequest request, Jwt jwt) throws IOException {
+        var userId = userService.getUserId(jwt);
+        var room = participantRoom(roomId, userId);
+        var type = request.getType();
+
+        if (!acceptsContentType(type, request.getContentType())) {
+            throw ProblemDetails.badRequest("El tipo de contenido " + request.getContentType() + " no es válido para un mensaje " + type);
+        }
+
+        if (request.getSize() > MAX_MEDIA_SIZE) {
+            throw ProblemDetails.badRequest("El archivo supera el tamaño máximo de 25 MB");
+        }
+
+        var path = mediaDir(userId, room.getId(), type) + FileUtils.factoryUUIDFileName(request.getFilename());
+        return streamingStorage.reserve(path, request.getContentType(), MAX_MEDIA_SIZE, config.getUpload().getTtl());
+    }
+
+    /**
+     * Envía el mensaje de una imagen o un audio que el cliente ya subió con la URL de
+     * {@link #requestUpload(String, ChatUploadRequest, Jwt)}. Solo se consultan los metadatos del archivo.
+     *
+     * @param roomId    id de la sala de chat
+     * @param path      ruta retornada al reservar la subida
+     * @param requestId id de la petición del cliente
+     * @param jwt       token de autenticación
+     * @return mensaje enviado
+     * @throws IOException si ocurre un error al consultar el almacenamiento
+     */
+    @PreAuthorize("isAuthenticated()")
+    public ChatMessagePayload confirmUpload(String roomId, String path, String requestId, Jwt jwt) throws IOException {
+        var userId = userService.getUserId(jwt);
+        var room = participantRoom(roomId, userId);
+
+        var type = MEDIA_TYPES.stream()
+                .filter(media -> isUploadPath(path, mediaDir(userId, room.getId(), media)))
+                .findFirst()
+                .orElseThrow(() -> ProblemDetails.badRequest("La ruta no corresponde a un archivo de esta sala de chat"));
+
+        var resource = streamingStorage.open(path)
+                .orElseThrow(() -> ProblemDetails.badRequest("El archivo aún no se ha subido"));
+
+        if (resource.contentLength() > MAX_MEDIA_SIZE || !acceptsContentType(type, resource.getContentType())) {
+            throw ProblemDetails.badRequest("El archivo subido no es válido para un mensaje " + type);
+        }
+
+        var chatMessage = ChatMessage.now(path, userId, type);
         return sendMessageToSuscribers(requestId, room, chatMessage);
     }
 
-    public Stored resource(String id) throws IOException {
-        return storage.download(id).orElseThrow(ProblemDetails::notFound);
+    private ChatRoom participantRoom(String roomId, Long userId) {
+        var room = cachedRoom(roomId);
+        if (!room.getParticipants().contains(userId)) {
+            throw ProblemDetails.forbidden("No tienes permiso para enviar mensajes en esta sala de chat");
+        }
+        return room;
+    }
+
+    private static String mediaDir(Long userId, String roomId, ChatMessageType type) {
+        var dir = switch (type) {
+            case IMAGE -> "images";
+            case VOICE -> "voices";
+            default -> throw ProblemDetails.badRequest("Solo se pueden subir imágenes o audios");
+        };
+        return String.format(USERS_CHATS_PATH, userId, roomId, dir) + "/";
+    }
+
+    private static boolean isUploadPath(String path, String dir) {
+        if (!path.startsWith(dir)) return false;
+        var filename = path.substring(dir.length());
+        return !filename.isEmpty() && !filename.contains("/") && !filename.contains("..");
+    }
+
+    private static boolean acceptsContentType(ChatMessageType type, String contentType) {
+        if (contentType == null) return false;
+        return switch (type) {
+            case IMAGE -> contentType.startsWith("image/");
+            case VOICE -> contentType.startsWith("audio/");
+            default -> false;
+        };
+    }
+
+    /**
+     * Obtiene un archivo del chat sin cargar su contenido, se lee al escribir la respuesta. Solo los participantes de
+     * la sala a la que pertenece la ruta pueden obtenerlo.
+     *
+     * @param id      ruta del archivo retornada al enviar la imagen o el audio
+     * @param variant {@code thumb} para la miniatura de una imagen, si aún no existe se retorna la original
+     * @param jwt     token de autenticación
+     * @return archivo almacenado
+     * @throws IOException si ocurre un error al consultar el almacenamiento
+     */
+    @PreAuthorize("isAuthenticated()")
+    public StoredResource resource(String id, String variant, Jwt jwt) throws IOException {
+        if (variant != null && !THUMBNAIL_VARIANT.equals(variant)) {
+            throw ProblemDetails.badRequest("Variante de archivo no soportada: " + variant);
+        }
+
+        var matcher = CHAT_MEDIA_PATH.matcher(id);
+        if (!matcher.matches()) throw ProblemDetails.notFound();
+
+        var userId = userService.getUserId(jwt);
+        if (!cachedRoom(matcher.group(1)).getParticipants().contains(userId)) {
+            throw ProblemDetails.forbidden("No tienes permiso para ver los archivos de esta sala de chat");
+        }
+
+        if (THUMBNAIL_VARIANT.equals(variant)) {
+            var thumbnail = streamingStorage.open(ChatMediaProcessor.thumbnailPath(id));
+            if (thumbnail.isPresent()) return thumbnail.get();
+        }
+
+        return streamingStorage.open(id).orElseThrow(ProblemDetails::notFound);
     }
 
     private ChatMessagePayload sendMessageToSuscribers(String requestId, ChatRoom room, ChatMessage chatMessage) {
         var roomId = room.getId();
-        addMessage(room, chatMessage);
+        chunkAppender.append(room, chatMessage);
 
         var chatMessageSent = ChatMessagePayload.builder()
                 .requestId(requestId)
@@ -132,60 +299,198 @@ public class ChatService {
                 .message(chatMessage)
                 .build();
 
-        for (var participant : room.getParticipants()) {
-            runAsync(() -> {
-                messaging.convertAndSend("/topic/chat.inbox." + participant, chatMessageSent);
-                if (participant.equals(chatMessage.getSentBy())) return;
-                notificationService.send(participant,
-                        "Tienes un nuevo mensaje en tu calendario menstrual",
-                        "Ingresa a la aplicación para revisarla."
-                );
-            }).exceptionally(logExpecionally("Error enviando mensaje a la bandeja de entrada"));
+        broadcaster.message(room, chatMessageSent);
+
+        if (chatMessage.getType() == ChatMessageType.IMAGE) {
+            mediaProcessor.thumbnail(roomId, chatMessage);
+        }
+
+        if (chatMessage.getType() == ChatMessageType.TEXT) {
+            fanout.execute("search-index", () -> searchIndex.index(roomId, chatMessage));
+        }
+
+        // Los participantes conectados ya reciben el mensaje por su bandeja de entrada
+        var recipients = room.getParticipants().stream()
+                .filter(participant -> !participant.equals(chatMessage.getSentBy()))
+                .filter(participant -> !sessions.isOnline(participant))
+                .toList();
+
+        if (!recipients.isEmpty()) {
+            fanout.execute("notification", () -> notificationService.send(recipients,
+                    "Tienes un nuevo mensaje en tu calendario menstrual",
+                    "Ingresa a la aplicación para revisarla."
+            ));
         }
 
         return chatMessageSent;
     }
 
+    /**
+     * Registra los mensajes leídos por el usuario. Las lecturas se acumulan por sala y participante, y se guardan como
+     * una marca de lectura hasta el mensaje más reciente, ver {@link ChatReadReceiptAggregator}.
+     *
+     * @param roomId      id de la sala de chat
+     * @param messagesIds ids de los mensajes leídos
+     * @param jwt         token de autenticación
+     */
     @PreAuthorize("isAuthenticated()")
     public void read(String roomId, List<String> messagesIds, Jwt jwt) {
-        log.info("Marking messages as read: roomId={}, messagesIds={}", roomId, messagesIds);
+        log.debug("Marking messages as read: roomId={}, messagesIds={}", roomId, messagesIds);
 
-        var user = userService.getUser(jwt);
-        var room = room(roomId);
-        var userId = user.getId();
+        var userId = userService.getUserId(jwt);
+        var room = cachedRoom(roomId);
 
         if (!room.getParticipants().contains(userId)) {
             throw ProblemDetails.forbidden("No tienes permiso para leer mensajes en esta sala de chat");
         }
 
-        var readBy = ChatMessage.ReadBy.now(userId);
-        var query = new Query()
-                .addCriteria(chunksOf(roomId).and("messages.id").in(messagesIds));
+        readReceipts.add(room, userId, messagesIds);
+    }
 
-        var update = new Update()
-                .addToSet("messages.$[message].readBy", readBy)
-                .filterArray(Criteria
-                        .where("message._id").in(messagesIds)
-                        .and("message.sentBy").ne(userId)
-                        .and("message.readBy.participantId").ne(userId)
-                );
+    /**
+     * Notifica al resto de la sala que el usuario está escribiendo o dejó de hacerlo, ver {@link ChatSessionRegistry}.
+     *
+     * @param roomId id de la sala de chat
+     * @param typing {@code false} cuando el usuario dejó de escribir
+     * @param jwt    token de autenticación
+     */
+    @PreAuthorize("isAuthenticated()")
+    public void typing(String roomId, boolean typing, Jwt jwt) {
+        var userId = userService.getUserId(jwt);
+        var room = participantRoom(roomId, userId);
+        sessions.typing(room, userId, typing);
+    }
 
-        var result = mongoTemplate.updateMulti(query, update, ChatChunk.class);
+    /**
+     * Edita el texto de un mensaje propio. El texto anterior se guarda en el historial del mensaje y el cambio se
+     * publica a la sala como {@link ChatMessageChange}.
+     *
+     * @param roomId    id de la sala de chat
+     * @param messageId id del mensaje
+     * @param message   texto nuevo
+     * @param jwt       token de autenticación
+     * @return cambio publicado
+     */
+    @PreAuthorize("isAuthenticated()")
+    public ChatMessageChange edit(String roomId, String messageId, @NotEmpty String message, Jwt jwt) {
+        var userId = userService.getUserId(jwt);
+        var room = participantRoom(roomId, userId);
+        var current = ownMessage(roomId, messageId, userId);
+
+        if (current.getType() != ChatMessageType.TEXT) {
+            throw ProblemDetails.badRequest("Solo se pueden editar mensajes de texto");
+        }
+
+        if (message.equals(current.getMessage())) {
+            return ChatMessageChange.builder()
+                    .roomId(roomId)
+                    .messageId(messageId)
+                    .sequence(current.getSequence())
+                    .type(ChatMessageChange.Type.EDITED)
+                    .message(message)
+                    .at(current.getEditedAt() == null ? current.getCreatedAt() : current.getEditedAt())
+                    .build();
+        }
 
-        if (result.getModifiedCount() == 0) {
-            log.warn("No se marcaron mensajes como leídos");
-            return;
+        var editedAt = Instant.now();
+        if (!messageEditor.edit(roomId, current, message, editedAt)) {
+            throw ProblemDetails.conflict("Conflicto", "El mensaje cambió mientras se editaba, inténtalo de nuevo");
         }
 
-        var readMessages = ReadMessages.builder()
+        current.setMessage(message);
+        current.setEditedAt(editedAt);
+        fanout.execute("search-index", () -> searchIndex.reindex(roomId, current));
+
+        return publishChange(room, ChatMessageChange.builder()
                 .roomId(roomId)
-                .readBy(readBy)
-                .messageIds(messagesIds)
-                .build();
+                .messageId(messageId)
+                .sequence(current.getSequence())
+                .type(ChatMessageChange.Type.EDITED)
+                .message(message)
+                .at(editedAt)
+                .build());
+    }
+
+    /**
+     * Elimina un mensaje propio. El mensaje se queda en su chunk como marca sin contenido y la eliminación se publica a
+     * la sala como {@link ChatMessageChange}. Los archivos de las imágenes y audios, con su miniatura, se borran del
+     * almacenamiento después de eliminar el mensaje.
+     *
+     * @param roomId    id de la sala de chat
+     * @param messageId id del mensaje
+     * @param jwt       token de autenticación
+     * @return cambio publicado
+     */
+    @PreAuthorize("isAuthenticated()")
+    public ChatMessageChange delete(String roomId, String messageId, Jwt jwt) {
+        var userId = userService.getUserId(jwt);
+        var room = participantRoom(roomId, userId);
+        var current = ownMessage(roomId, messageId, userId);
+
+        var deletedAt = Instant.now();
+        if (!messageEditor.delete(roomId, messageId, deletedAt)) {
+            throw ProblemDetails.notFound("No se encontró el mensaje");
+        }
 
-        for (var participant : room.getParticipants()) {
-            runAsync(() -> messaging.convertAndSend("/topic/chat.inbox." + participant + ".read", readMessages)).exceptionally(logExpecionally("Error enviando mensajes leídos a la bandeja de entrada"));
+        if (current.getType() == ChatMessageType.TEXT) {
+            fanout.execute("search-index", () -> searchIndex.remove(messageId));
+        } else if (current.getType() == ChatMessageType.IMAGE || current.getType() == ChatMessageType.VOICE) {
+            fanout.execute("media-delete", () -> deleteMedia(current));
         }
+
+        return publishChange(room, ChatMessageChange.builder()
+                .roomId(roomId)
+                .messageId(messageId)
+                .sequence(current.getSequence())
+                .type(ChatMessageChange.Type.DELETED)
+                .at(deletedAt)
+                .build());
+    }
+
+    /**
+     * Borra el archivo de un mensaje eliminado y, en las imágenes, su miniatura aunque todavía no esté registrada en
+     * {@link ChatMessage#getMedia()}.
+     */
+    private void deleteMedia(ChatMessage message) {
+        var path = message.getMessage();
+        try {
+            streamingStorage.delete(path);
+            if (message.getType() == ChatMessageType.IMAGE) {
+                streamingStorage.delete(ChatMediaProcessor.thumbnailPath(path));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Mensaje sin eliminar del usuario en los chunks sin archivar, los mensajes archivados ya no se pueden modificar.
+     */
+    private ChatMessage ownMessage(String roomId, String messageId, Long userId) {
+        var message = messageEditor.find(roomId, messageId).orElseThrow(() -> chunkArchiver.findContaining(roomId, messageId).isPresent()
+                ? ProblemDetails.badRequest("El mensaje es demasiado antiguo para modificarse")
+                : ProblemDetails.notFound("No se encontró el mensaje"));
+
+        if (message.getDeletedAt() != null) {
+            throw ProblemDetails.notFound("No se encontró el mensaje");
+        }
+
+        if (!userId.equals(message.getSentBy())) {
+            throw ProblemDetails.forbidden("Solo puedes modificar tus propios mensajes");
+        }
+
+        return message;
+    }
+
+    /**
+     * Marca la sala como modificada para la sincronización y publica el cambio a sus participantes.
+     */
+    private ChatMessageChange publishChange(ChatRoom room, ChatMessageChange change) {
+        var query = new Query(Criteria.where("_id").is(room.getId()));
+        mongoTemplate.updateFirst(query, new Update().max(ChatRoom.CHANGED_AT_FIELD, change.getAt()), ChatRoom.class);
+
+        broadcaster.change(room, change);
+        return change;
     }
 
     @PreAuthorize("isAuthenticated()")
@@ -193,6 +498,13 @@ public class ChatService {
         return roomRepository.findById(chatRoomId).orElseThrow(() -> ProblemDetails.notFound("No se encontró la sala de chat"));
     }
 
+    /**
+     * Sala de chat para las rutas de envío y lectura, que solo usan su tipo y participantes, ver {@link ChatRoomCache}.
+     */
+    private ChatRoom cachedRoom(String chatRoomId) {
+        return roomCache.get(chatRoomId).orElseThrow(() -> ProblemDetails.notFound("No se encontró la sala de chat"));
+    }
+
     @PreAuthorize("isAuthenticated()")
     public List<ChatRoom> rooms(Jwt jwt) {
         var user = userService.getUser(jwt);
@@ -204,6 +516,234 @@ public class ChatService {
                 .toList();
     }
 
+    /**
+     * Retorna lo que cambió en las salas del usuario desde la última sincronización del cliente: los mensajes con una
+     * secuencia mayor a la última recibida en cada sala, los mensajes ya recibidos que se editaron o eliminaron y las
+     * marcas de lectura que cambiaron. Las salas se consultan
+     * en una sola consulta y solo se buscan mensajes en las que tienen mensajes nuevos, usando el índice
+     * {@code (room.$id, lastSequence)} de los chunks.
+     *
+     * @param request última secuencia recibida por sala y fecha de la sincronización anterior
+     * @param jwt     token de autenticación
+     * @return cambios de las salas con novedades
+     */
+    @PreAuthorize("isAuthenticated()")
+    public ChatSync sync(ChatSyncRequest request, Jwt jwt) {
+        var userId = userService.getUserId(jwt);
+        var syncedAt = Instant.now();
+        var since = request.getSince() == null ? null : request.getSince().minus(SYNC_CLOCK_SKEW);
+        var seen = request.getRooms() == null ? Map.<String, Long>of() : request.getRooms();
+
+        var query = new Query(Criteria.where(PARTICIPANTS).is(userId));
+        query.fields().include(ChatRoom.SEQUENCE_FIELD, ChatRoom.READ_MARKS_FIELD, ChatRoom.CHANGED_AT_FIELD);
+
+        var changes = new ArrayList<ChatSync.RoomChanges>();
+
+        for (var room : mongoTemplate.find(query, ChatRoom.class)) {
+            var lastSeen = seen.getOrDefault(room.getId(), 0L);
+            var marks = room.getReadMarks() == null ? Map.<Long, ChatRoom.ReadMark>of() : room.getReadMarks();
+            var marksChanged = marks.values().stream().anyMatch(mark -> since == null || mark.getReadAt() == null || mark.getReadAt().isAfter(since));
+
+            var messagesChanged = lastSeen > 0 && room.getChangedAt() != null && (since == null || room.getChangedAt().isAfter(since));
+
+            if (room.getSequence() <= lastSeen && !marksChanged && !messagesChanged) continue;
+
+            var roomChanges = room.getSequence() > lastSeen
+                    ? messagesSince(room.getId(), lastSeen, syncedAt)
+                    : ChatSync.RoomChanges.builder().roomId(room.getId()).sequence(lastSeen).build();
+
+            if (marksChanged) roomChanges.setReadMarks(marks);
+            if (messagesChanged) roomChanges.setChanged(changedSince(room.getId(), lastSeen, since));
+            changes.add(roomChanges);
+        }
+
+        return new ChatSync(syncedAt, changes);
+    }
+
+    /**
+     * Mensajes de la sala con secuencia mayor a {@code sequence}. La secuencia retornada avanza solo mientras los
+     * mensajes son consecutivos, si falta uno porque aún se está agregando el cliente lo vuelve a pedir en la siguiente
+     * sincronización.
+     */
+    private ChatSync.RoomChanges messagesSince(String roomId, long sequence, Instant now) {
+        var sequenceField = MESSAGES + ".sequence";
+
+        var aggregate = Aggregation.newAggregation(
+                Aggregation.match(chunksOf(roomId).and(ChatChunk.LAST_SEQUENCE_FIELD).gt(sequence)),
+                Aggregation.unwind(MESSAGES),
+                Aggregation.match(Criteria.where(sequenceField).gt(sequence)),
+                Aggregation.sort(Sort.Direction.ASC, sequenceField),
+                Aggregation.limit(MAX_SYNC_MESSAGES_PER_ROOM + 1L),
+                Aggregation.replaceRoot(MESSAGES)
+        );
+
+        var messages = new ArrayList<>(mongoTemplate.aggregate(aggregate, ChatChunk.class, ChatMessage.class).getMappedResults());
+        var hasMore = messages.size() > MAX_SYNC_MESSAGES_PER_ROOM;
+        if (hasMore) messages.remove(messages.size() - 1);
+
+        var cursor = sequence;
+        var gapTimeout = now.minus(SEQUENCE_GAP_TIMEOUT);
+        for (var message : messages) {
+            var consecutive = message.getSequence() == cursor + 1;
+            if (!consecutive && message.getCreatedAt().isAfter(gapTimeout)) break;
+            cursor = message.getSequence();
+        }
+
+        return ChatSync.RoomChanges.builder()
+                .roomId(roomId)
+                .sequence(cursor)
+                .messages(messages)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    /**
+     * Mensajes con secuencia hasta {@code sequence}, que el cliente ya tiene, editados o eliminados después de
+     * {@code since}. Sin {@code since} se retornan todos los mensajes editados o eliminados.
+     */
+    private List<ChatMessage> changedSince(String roomId, long sequence, Instant since) {
+        var editedAt = MESSAGES + "." + ChatMessage.EDITED_AT_FIELD;
+        var deletedAt = MESSAGES + "." + ChatMessage.DELETED_AT_FIELD;
+        var sequenceField = MESSAGES + ".sequence";
+
+        var changed = since == null
+                ? new Criteria().orOperator(Criteria.where(editedAt).exists(true), Criteria.where(deletedAt).exists(true))
+                : new Criteria().orOperator(Criteria.where(editedAt).gt(since), Criteria.where(deletedAt).gt(since));
+
+        var aggregate = Aggregation.newAggregation(
+                Aggregation.match(chunksOf(roomId).andOperator(changed)),
+                Aggregation.unwind(MESSAGES),
+                Aggregation.match(Criteria.where(sequenceField).lte(sequence).andOperator(changed)),
+                Aggregation.sort(Sort.Direction.ASC, sequenceField),
+                Aggregation.limit(MAX_SYNC_MESSAGES_PER_ROOM),
+                Aggregation.replaceRoot(MESSAGES)
+        );
+
+        return mongoTemplate.aggregate(aggregate, ChatChunk.class, ChatMessage.class).getMappedResults();
+    }
+
+    /**
+     * Busca mensajes de texto en las salas del usuario con el índice de {@link ChatSearchIndex}, sin leer los chunks.
+     * Se retornan los mensajes que contienen todas las palabras buscadas, sin importar tildes ni mayúsculas.
+     *
+     * @param search   palabras a buscar
+     * @param pageable página de resultados, ordenados desde el mensaje más reciente
+     * @param jwt      token de autenticación
+     * @return página de mensajes encontrados con el inicio de su texto
+     */
+    @PreAuthorize("isAuthenticated()")
+    public Page<ChatSearchEntry> search(@NotBlank String search, Pageable pageable, Jwt jwt) {
+        var userId = userService.getUserId(jwt);
+
+        var query = new Query(Criteria.where(PARTICIPANTS).is(userId));
+        query.fields().include("_id");
+
+        var roomIds = mongoTemplate.find(query, ChatRoom.class).stream()
+                .map(ChatRoom::getId)
+                .toList();
+
+        return searchIndex.search(roomIds, search, pageable);
+    }
+
+    /**
+     * Obtiene las salas del usuario para la bandeja de entrada en una sola agregación sobre {@code chat_rooms}, el
+     * {@code $lookup} a {@code chat_chunks} resuelve el último mensaje y la cantidad de mensajes sin leer de cada sala.
+     * Los datos de los participantes se consultan en una sola consulta al final.
+     *
+     * @param jwt token de autenticación
+     * @return salas con mensajes, ordenadas desde la de actividad más reciente
+     */
+    @PreAuthorize("isAuthenticated()")
+    public List<ChatInboxRoom> inbox(Jwt jwt) {
+        var userId = userService.getUserId(jwt);
+
+        var aggregate = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where(PARTICIPANTS).is(userId)),
+                lookupInboxSummary(userId),
+                Aggregation.unwind(INBOX_SUMMARY),
+                Aggregation.sort(Sort.Direction.DESC, INBOX_SUMMARY + ".lastMessage.createdAt"),
+                Aggregation.project("name", "type", PARTICIPANTS, ChatRoom.READ_MARKS_FIELD)
+                        .and(INBOX_SUMMARY + ".lastMessage").as("lastMessage")
+                        .and(INBOX_SUMMARY + ".unreadCount").as("unreadCount")
+        );
+
+        var collection = mongoTemplate.getCollectionName(ChatRoom.class);
+        var rooms = mongoTemplate.aggregate(aggregate, collection, ChatInboxRoom.class).getMappedResults();
+
+        var participantIds = rooms.stream()
+                .flatMap(room -> room.getParticipants().stream())
+                .collect(Collectors.toSet());
+
+        var participants = userService.map(participantIds);
+
+        for (var room : rooms) {
+            room.setParticipantSummaries(room.getParticipants().stream()
+                    .map(participants::get)
+                    .filter(Objects::nonNull)
+                    .map(ChatParticipant::of)
+                    .toList());
+        }
+
+        return rooms;
+    }
+
+    /**
+     * {@code $lookup} de los chunks de cada sala, usa el índice {@code (room.$id, number)} y reduce los chunks a un
+     * único documento con el último mensaje y los mensajes sin leer, es decir, los enviados por otro participante que
+     * están después de la marca de lectura del usuario y no tienen un {@code readBy} del usuario.
+     * <p>
+     * Solo se leen los chunks desde el de la marca de lectura, el más reciente siempre está en ese rango, así que el
+     * último mensaje no cambia y no se recorre el historial ya leído.
+     */
+    private static AggregationOperation lookupInboxSummary(Long userId) {
+        var markChunk = new Document("$ifNull", List.of("$$mark.chunk", 0));
+        var markIndex = new Document("$ifNull", List.of("$$mark.index", -1));
+        var messagesSize = new Document("$size", "$" + MESSAGES);
+
+        // Posición del primer mensaje sin leer dentro del chunk, el chunk de la marca empieza después del índice leído
+        var unreadStart = new Document("$cond", List.of(
+                new Document("$gt", List.of("$" + CHAT_CHUNK_NUMBER_KEY, markChunk)),
+                0,
+                new Document("$add", List.of(markIndex, 1))
+        ));
+
+        var unreadFilter = new Document("$filter", new Document()
+                .append("input", new Document("$slice", List.of("$" + MESSAGES, unreadStart, new Document("$max", List.of(1, messagesSize)))))
+                .append("as", "message")
+                .append("cond", new Document("$and", List.of(
+                        new Document("$ne", List.of("$$message.sentBy", userId)),
+                        new Document("$not", List.of(new Document("$in", List.of(
+                                userId,
+                                new Document("$ifNull", List.of("$$message.readBy.participantId", List.of()))
+                        ))))
+                )))
+        );
+
+        var pipeline = List.of(
+                new Document("$match", new Document("$expr", new Document("$gte", List.of("$" + CHAT_CHUNK_NUMBER_KEY, markChunk)))),
+                new Document("$project", new Document()
+                        .append(CHAT_CHUNK_NUMBER_KEY, 1)
+                        .append("lastMessage", new Document("$last", "$" + MESSAGES))
+                        .append("unread", new Document("$size", unreadFilter))
+                ),
+                new Document("$sort", new Document(CHAT_CHUNK_NUMBER_KEY, -1)),
+                new Document("$group", new Document()
+                        .append("_id", null)
+                        .append("lastMessage", new Document("$first", "$lastMessage"))
+                        .append("unreadCount", new Document("$sum", "$unread"))
+                )
+        );
+
+        return context -> new Document("$lookup", new Document()
+                .append("from", ChatChunk.COLLECTION)
+                .append("localField", "_id")
+                .append("foreignField", CHAT_CHUNK_ROOM_KEY)
+                .append("let", new Document("mark", "$" + ChatRoom.READ_MARKS_FIELD + "." + userId))
+                .append("pipeline", pipeline)
+                .append("as", INBOX_SUMMARY)
+        );
+    }
+
 
     @PreAuthorize("isAuthenticated()")
     public List<ChatMessage> messages(String roomId, long chunk) {
@@ -211,7 +751,147 @@ public class ChatService {
                 .addCriteria(chunksOf(roomId).and(CHAT_CHUNK_NUMBER_KEY).is(chunk));
 
         var chatChunk = mongoTemplate.findOne(query, ChatChunk.class);
-        return chatChunk == null ? List.of() : chatChunk.getMessages();
+        if (chatChunk == null) {
+            return chunkArchiver.find(roomId, chunk).map(ChatChunk::getMessages).orElse(List.of());
+        }
+        return chatChunk.getMessages();
+    }
+
+    /**
+     * Obtiene una porción acotada del historial de la sala a partir de un mensaje cursor. Solo se traen de Mongo los
+     * mensajes solicitados mediante {@code $slice}, recorriendo los chunks anteriores o siguientes cuando la porción
+     * cruza el límite de un chunk. Los chunks archivados por {@link ChatChunkArchiver} se leen completos.
+     *
+     * @param roomId id de la sala de chat
+     * @param before id del mensaje desde el cual obtener los mensajes anteriores
+     * @param after  id del mensaje desde el cual obtener los mensajes siguientes
+     * @param limit  cantidad máxima de mensajes a retornar
+     * @return mensajes en orden cronológico, sin cursores se retornan los más recientes
+     */
+    @PreAuthorize("isAuthenticated()")
+    public ChatMessagesSlice history(String roomId, String before, String after, @Min(1) @Max(MAX_HISTORY_LIMIT) int limit) {
+        if (before != null && after != null) {
+            throw ProblemDetails.badRequest("Solo se puede usar uno de los cursores before o after");
+        }
+
+        if (after != null) {
+            var cursor = locate(roomId, after);
+            return forward(roomId, cursor.number(), cursor.index() + 1, limit);
+        }
+
+        if (before != null) {
+            var cursor = locate(roomId, before);
+            return backward(roomId, cursor.number(), cursor.index(), limit);
+        }
+
+        var latestQuery = new Query()
+                .addCriteria(chunksOf(roomId))
+                .with(Sort.by(Sort.Order.desc(CHAT_CHUNK_NUMBER_KEY)));
+
+        var latest = slice(latestQuery, -(limit + 1), limit + 1);
+        if (latest == null) return ChatMessagesSlice.empty();
+
+        var messages = new ArrayList<>(latest.getMessages());
+        return collectBackward(roomId, latest.getNumber() - 1, messages, limit);
+    }
+
+    private ChatMessagesSlice backward(String roomId, long number, int endExclusive, int limit) {
+        var messages = new ArrayList<ChatMessage>();
+        var start = Math.max(0, endExclusive - (limit + 1));
+
+        if (endExclusive > start) {
+            var chunk = slice(roomId, number, start, endExclusive - start);
+            if (chunk != null) messages.addAll(chunk.getMessages());
+        }
+
+        return collectBackward(roomId, number - 1, messages, limit);
+    }
+
+    private ChatMessagesSlice collectBackward(String roomId, long number, List<ChatMessage> messages, int limit) {
+        var wanted = limit + 1;
+
+        for (var current = number; current > 0 && messages.size() < wanted; current--) {
+            var remaining = wanted - messages.size();
+            var chunk = slice(roomId, current, -remaining, remaining);
+            if (chunk != null) messages.addAll(0, chunk.getMessages());
+        }
+
+        var hasMore = messages.size() > limit;
+        var result = hasMore ? messages.subList(messages.size() - limit, messages.size()) : messages;
+        return new ChatMessagesSlice(List.copyOf(result), hasMore);
+    }
+
+    private ChatMessagesSlice forward(String roomId, long number, int start, int limit) {
+        var wanted = limit + 1;
+        var messages = new ArrayList<ChatMessage>();
+
+        for (var current = number; messages.size() < wanted; current++) {
+            var chunk = slice(roomId, current, current == number ? start : 0, wanted - messages.size());
+            if (chunk == null) break;
+            messages.addAll(chunk.getMessages());
+        }
+
+        var hasMore = messages.size() > limit;
+        var result = hasMore ? messages.subList(0, limit) : messages;
+        return new ChatMessagesSlice(List.copyOf(result), hasMore);
+    }
+
+    /**
+     * Busca el chunk que contiene al mensaje y su posición dentro del arreglo de mensajes, sin traer los mensajes.
+     */
+    private MessageCursor locate(String roomId, String messageId) {
+        var aggregate = Aggregation.newAggregation(
+                Aggregation.match(chunksOf(roomId).and(MESSAGES + "._id").is(messageId)),
+                Aggregation.project(CHAT_CHUNK_NUMBER_KEY)
+                        .and(ArrayOperators.IndexOfArray.arrayOf(MESSAGES + "._id").indexOf(messageId)).as("index")
+        );
+
+        var result = mongoTemplate.aggregate(aggregate, ChatChunk.class, Document.class).getUniqueMappedResult();
+
+        if (result == null) {
+            return chunkArchiver.findContaining(roomId, messageId)
+                    .map(archive -> new MessageCursor(archive.getNumber(), archive.getMessageIds().indexOf(messageId)))
+                    .orElseThrow(() -> ProblemDetails.notFound("No se encontró el mensaje"));
+        }
+
+        return new MessageCursor(
+                result.get(CHAT_CHUNK_NUMBER_KEY, Number.class).longValue(),
+                result.get("index", Number.class).intValue()
+        );
+    }
+
+    private ChatChunk slice(Query query, int skip, int count) {
+        query.fields()
+                .include(CHAT_CHUNK_NUMBER_KEY)
+                .slice(MESSAGES, skip, count);
+
+        return mongoTemplate.findOne(query, ChatChunk.class);
+    }
+
+    /**
+     * Igual que {@code $slice} sobre los mensajes de un chunk, si el chunk está archivado se recorta en memoria.
+     */
+    private ChatChunk slice(String roomId, long number, int skip, int count) {
+        var chunk = slice(chunkQuery(roomId, number), skip, count);
+        if (chunk != null) return chunk;
+
+        return chunkArchiver.find(roomId, number)
+                .map(archived -> {
+                    var messages = archived.getMessages();
+                    var from = skip < 0 ? Math.max(0, messages.size() + skip) : Math.min(skip, messages.size());
+                    var to = Math.min(messages.size(), from + count);
+                    archived.setMessages(messages.subList(from, to));
+                    return archived;
+                })
+                .orElse(null);
+    }
+
+    private static Query chunkQuery(String roomId, long number) {
+        return new Query()
+                .addCriteria(chunksOf(roomId).and(CHAT_CHUNK_NUMBER_KEY).is(number));
+    }
+
+    private record MessageCursor(long number, int index) {
     }
 
     @PreAuthorize("isAuthenticated()")
@@ -268,23 +948,36 @@ public class ChatService {
         var query = new Query()
                 .addCriteria(chunksOf(roomId));
 
-        return mongoTemplate.count(query, ChatChunk.class);
+        return mongoTemplate.count(query, ChatChunk.class) + chunkArchiver.count(roomId);
     }
 
+    /**
+     * Busca o crea la sala privada entre dos usuarios en una sola operación sobre el índice único de
+     * {@link ChatRoom#getPairKey()}, dos peticiones simultáneas obtienen la misma sala.
+     */
     private ChatRoom findOrCreatePrivateRoom(Long senderId, Long recipientId) {
-        return roomRepository
-                .findByParticipantsAndType(List.of(senderId, recipientId), ChatRoomType.PRIVATE)
-                .orElseGet(() -> createPrivateRoom(senderId, recipientId));
-    }
+        var pairKey = ChatRoom.pairKey(senderId, recipientId);
+        var query = new Query(Criteria.where(ChatRoom.PAIR_KEY_FIELD).is(pairKey));
 
-    private ChatRoom createPrivateRoom(Long senderId, Long recipientId) {
-        var newRoom = ChatRoom.builder()
-                .type(ChatRoomType.PRIVATE)
-                .participants(List.of(senderId, recipientId))
-                .name("Private Chat between " + senderId + " and " + recipientId)
-                .build();
+        var update = new Update()
+                .setOnInsert(ChatRoom.TYPE_FIELD, ChatRoomType.PRIVATE)
+                .setOnInsert(PARTICIPANTS, List.of(senderId, recipientId))
+                .setOnInsert("name", "Private Chat between " + senderId + " and " + recipientId);
+
+        ChatRoom room;
+        try {
+            room = mongoTemplate.findAndModify(query, update, FindAndModifyOptions.options().upsert(true).returnNew(true), ChatRoom.class);
+        } catch (DuplicateKeyException e) {
+            // Otra petición creó la sala entre la búsqueda y la inserción del upsert
+            room = mongoTemplate.findOne(query, ChatRoom.class);
+        }
 
-        return roomRepository.save(newRoom);
+        if (room == null) {
+            throw ProblemDetails.internalServerError("No se pudo crear la sala de chat");
+        }
+
+        roomCache.put(room);
+        return room;
     }
 
     private boolean existsChunk(String roomId) {
@@ -295,69 +988,10 @@ public class ChatService {
     }
 
 
-    private long getChunkSize(String id) {
-        var aggregate = Aggregation.newAggregation(
-                Aggregation.match(Criteria.where("_id").is(new ObjectId(id))),
-                Aggregation.project()
-                        .andExclude("_id")
-                        .and(context -> new Document("$bsonSize", Aggregation.ROOT)).as("size")
-        );
-
-        var result = mongoTemplate.aggregate(aggregate, ChatChunk.class, Document.class).getUniqueMappedResult();
-
-        if (result == null) return 0;
-
-        var sizeValue = result.get("size", Number.class);
-        return sizeValue != null ? sizeValue.longValue() : 0;
-    }
-
-    private void addMessage(ChatRoom chatRoom, ChatMessage message) {
-
-        var query = new Query()
-                .addCriteria(chunksOf(chatRoom.getId()))
-                .with(Sort.by(Sort.Order.desc(CHAT_CHUNK_NUMBER_KEY)));
-
-        var projectedQuery = Query.of(query);
-        projectedQuery.fields()
-                .include("_id")
-                .include(CHAT_CHUNK_NUMBER_KEY);
-
-        var latestChunk = mongoTemplate.findOne(projectedQuery, ChatChunk.class);
-
-        if (latestChunk == null) {
-            mongoTemplate.save(ChatChunk.withFirstMessage(chatRoom, 1, message));
-            return;
-        }
-
-        var aproxSize = getChunkSize(latestChunk.getId());
-
-        if (aproxSize > ChatChunk.MAX_CHUNK_SIZE) {
-            mongoTemplate.save(ChatChunk.withFirstMessage(chatRoom, latestChunk.getNumber() + 1, message));
-            return;
-        }
-
-        var update = new Update();
-        update.push(MESSAGES, message);
-
-        var result = mongoTemplate.updateFirst(query, update, ChatChunk.class);
-
-        if (result.getModifiedCount() == 0) {
-            throw ProblemDetails.internalServerError("No se pudo agregar el mensaje al chat, resultado de la operación: " + result);
-        }
-    }
-
-
     private static Criteria chunksOf(String roomId) {
         return Criteria.where(CHAT_CHUNK_ROOM_KEY).is(new ObjectId(roomId));
     }
 
-    private static Function<Throwable, Void> logExpecionally(String message) {
-        return ex -> {
-            log.error(message, ex);
-            return null;
-        };
-    }
-
 
 }
 
@@ -0,0 +1,184 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ec.gob.conagopare.sona.modules.chat.ChatConfig;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatPresence;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatTyping;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.user.service.UserService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sesiones STOMP abiertas en esta réplica por usuario.
+ * <p>
+ * Cuando un usuario abre su primera sesión o cierra la última se envía un {@link ChatPresence} a quienes comparten
+ * alguna sala con él, y mientras tenga una sesión abierta no recibe notificaciones push de los mensajes nuevos porque
+ * ya los recibe por su bandeja de entrada. Solo se registran las sesiones autenticadas con un JWT. Con varias réplicas
+ * cada una conoce solo sus sesiones, un usuario conectado a otra réplica recibe la notificación push igualmente.
+ */
+@Slf4j
+@Component
+public class ChatSessionRegistry {
+
+    private final UserService userService;
+    private final MongoTemplate mongoTemplate;
+    private final ChatBroadcaster broadcaster;
+    private final ChatFanoutExecutor fanout;
+
+    private final Map<String, Long> sessionUsers = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> userSessions = new ConcurrentHashMap<>();
+
+    /**
+     * Último estado de escritura enviado por sala y participante, para descartar los eventos repetidos.
+     */
+    private final Cache<TypingKey, TypingSent> typing;
+    private final long typingInterval;
+
+    public ChatSessionRegistry(ChatConfig config, UserService userService, MongoTemplate mongoTemplate, ChatBroadcaster broadcaster, ChatFanoutExecutor fanout) {
+        this.userService = userService;
+        this.mongoTemplate = mongoTemplate;
+        this.broadcaster = broadcaster;
+        this.fanout = fanout;
+        this.typingInterval = config.getPresence().getTypingInterval().toNanos();
+        this.typing = Caffeine.newBuilder()
+                .expireAfterWrite(config.getPresence().getTypingInterval())
+                .build();
+    }
+
+    @EventListener
+    public void onConnect(SessionConnectEvent event) {
+        var sessionId = SimpMessageHeaderAccessor.getSessionId(event.getMessage().getHeaders());
+        var userId = userId(event.getUser());
+        if (sessionId == null || userId == null) return;
+
+        sessionUsers.put(sessionId, userId);
+
+        var first = new boolean[1];
+        userSessions.compute(userId, (id, sessions) -> {
+            if (sessions == null) sessions = ConcurrentHashMap.newKeySet();
+            first[0] = sessions.isEmpty();
+            sessions.add(sessionId);
+            return sessions;
+        });
+
+        if (first[0]) publish(userId, true);
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        var userId = sessionUsers.remove(event.getSessionId());
+        if (userId == null) return;
+
+        var last = new boolean[1];
+        userSessions.computeIfPresent(userId, (id, sessions) -> {
+            sessions.remove(event.getSessionId());
+            last[0] = sessions.isEmpty();
+            return sessions.isEmpty() ? null : sessions;
+        });
+
+        if (last[0]) publish(userId, false);
+    }
+
+    /**
+     * @param sessionId id de la sesión STOMP
+     * @return usuario de la sesión, vacío si no está abierta en esta réplica
+     */
+    public Optional<Long> sessionUser(String sessionId) {
+        return Optional.ofNullable(sessionUsers.get(sessionId));
+    }
+
+    /**
+     * @param userId id del usuario
+     * @return {@code true} si el usuario tiene alguna sesión abierta en esta réplica
+     */
+    public boolean isOnline(Long userId) {
+        return userSessions.containsKey(userId);
+    }
+
+    /**
+     * Envía el estado de escritura de un participante al resto de la sala. Si el estado no cambió desde el último
+     * evento enviado hace menos de {@code chat.presence.typing-interval}, se descarta.
+     *
+     * @param room          sala de chat
+     * @param participantId participante que escribe
+     * @param isTyping      {@code false} cuando dejó de escribir
+     */
+    public void typing(ChatRoom room, Long participantId, boolean isTyping) {
+        var key = new TypingKey(room.getId(), participantId);
+        var now = System.nanoTime();
+        var send = new boolean[1];
+
+        // Se compara con la fecha del último evento enviado, los descartados no reinician el intervalo
+        typing.asMap().compute(key, (k, last) -> {
+            if (last != null && last.typing() == isTyping && now - last.sentAt() < typingInterval) return last;
+            send[0] = true;
+            return new TypingSent(isTyping, now);
+        });
+
+        if (!send[0]) return;
+
+        broadcaster.typing(room, ChatTyping.builder()
+                .roomId(room.getId())
+                .participantId(participantId)
+                .typing(isTyping)
+                .build());
+    }
+
+    private void publish(Long userId, boolean online) {
+        var presence = ChatPresence.builder()
+                .participantId(userId)
+                .online(online)
+                .at(Instant.now())
+                .build();
+
+        fanout.execute("presence", () -> {
+            var contacts = contacts(userId);
+            if (!contacts.isEmpty()) broadcaster.presence(contacts, presence);
+        });
+    }
+
+    private Set<Long> contacts(Long userId) {
+        var query = new Query(Criteria.where(ChatRoom.PARTICIPANTS_FIELD).is(userId));
+        var contacts = new HashSet<>(mongoTemplate.findDistinct(query, ChatRoom.PARTICIPANTS_FIELD, ChatRoom.class, Long.class));
+        contacts.remove(userId);
+        return contacts;
+    }
+
+    private Long userId(Principal principal) {
+        if (!(principal instanceof Authentication authentication) || !(authentication.getPrincipal() instanceof Jwt jwt)) {
+            return null;
+        }
+
+        try {
+            return userService.getUserId(jwt);
+        } catch (Exception e) {
+            log.warn("Could not resolve user of websocket session {}: {}", jwt.getSubject(), e.getMessage());
+            return null;
+        }
+    }
+
+    record TypingKey(String roomId, Long participantId) {
+    }
+
+    record TypingSent(boolean typing, long sentAt) {
+    }
+}
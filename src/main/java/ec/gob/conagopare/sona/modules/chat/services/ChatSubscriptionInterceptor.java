@@ -0,0 +1,98 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.modules.user.service.UserService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Pattern;
+
+/**
+ * Autoriza las suscripciones a los topics del chat: la bandeja de entrada ({@code /topic/chat.inbox.{id}} y sus
+ * sufijos) solo la puede escuchar el usuario con ese id, y el topic de una sala grupal
+ * ({@code /topic/chat.room.{roomId}}) solo sus participantes. Los destinos con comodines o patrones bajo
+ * {@code /topic/chat.} se rechazan, con ellos una suscripción recibiría los eventos de otras bandejas o salas.
+ * <p>
+ * La sala se lee de la base de datos en cada suscripción, así un participante quitado en otra réplica no puede volver
+ * a suscribirse aunque la caché de esta réplica esté desactualizada. Las suscripciones que ya existen las filtra
+ * {@link ChatRoomDeliveryInterceptor}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ChatSubscriptionInterceptor implements ChannelInterceptor {
+
+    private static final String CHAT_TOPIC = "/topic/chat.";
+
+    /**
+     * Comodines de {@code AntPathMatcher} en el broker simple y de los topics del relay.
+     */
+    private static final Pattern WILDCARDS = Pattern.compile("[*?#{}]");
+
+    private final ChatRoomCache roomCache;
+    private final UserService userService;
+
+    @Override
+    public Message<?> preSend(@NotNull Message<?> message, @NotNull MessageChannel channel) {
+        var accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() != StompCommand.SUBSCRIBE) return message;
+
+        var destination = accessor.getDestination();
+        if (destination == null || !destination.startsWith(CHAT_TOPIC)) return message;
+
+        if (WILDCARDS.matcher(destination).find()) {
+            throw new AccessDeniedException("No se permiten patrones en los topics del chat");
+        }
+
+        var inbox = destination.startsWith(ChatBroadcaster.INBOX_TOPIC);
+        if (!inbox && !destination.startsWith(ChatBroadcaster.ROOM_TOPIC)) return message;
+
+        if (!(accessor.getUser() instanceof JwtAuthenticationToken authentication)) {
+            throw new AccessDeniedException("La sesión no está autenticada");
+        }
+
+        var userId = userService.getUserId(authentication.getToken());
+
+        if (inbox) {
+            if (!String.valueOf(userId).equals(topicId(destination, ChatBroadcaster.INBOX_TOPIC))) {
+                log.debug("User {} denied subscription to {}", userId, destination);
+                throw new AccessDeniedException("Solo puedes suscribirte a tu propia bandeja de entrada");
+            }
+            return message;
+        }
+
+        var roomId = roomId(destination);
+        var participant = roomCache.refresh(roomId)
+                .map(room -> room.getParticipants().contains(userId))
+                .orElse(false);
+
+        if (!participant) {
+            log.debug("User {} denied subscription to {}", userId, destination);
+            throw new AccessDeniedException("No eres participante de la sala de chat");
+        }
+
+        return message;
+    }
+
+    /**
+     * Id de la sala en {@code /topic/chat.room.{roomId}} o {@code /topic/chat.room.{roomId}.{sufijo}}.
+     */
+    static String roomId(String destination) {
+        return topicId(destination, ChatBroadcaster.ROOM_TOPIC);
+    }
+
+    private static String topicId(String destination, String topic) {
+        var rest = destination.substring(topic.length());
+        var dot = rest.indexOf('.');
+        return dot < 0 ? rest : rest.substring(0, dot);
+    }
+}
@@ -0,0 +1,265 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.DBRef;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatMessageChange;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatMessagePayload;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatPresence;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatTyping;
+import ec.gob.conagopare.sona.modules.chat.dto.ReadMessages;
+import ec.gob.conagopare.sona.modules.chat.models.ChatChunk;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.models.ChatSignal;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonDocumentReader;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.types.ObjectId;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Reparte los eventos del chat entre réplicas que usan el broker en memoria.
+ * <p>
+ * Cada réplica escucha el change stream de {@code chat_chunks}: los inserts de chunks y los {@code $push} de mensajes
+ * ({@code messages.N} en los campos actualizados) se entregan a los participantes conectados a la réplica. Los eventos
+ * que no quedan en los chunks, como los mensajes leídos, la escritura o la conexión de los participantes, se publican
+ * en {@code chat_signals}, igual que las ediciones y eliminaciones de mensajes, que el change stream de los chunks no
+ * reconoce como mensajes nuevos. La réplica que origina el evento lo entrega de inmediato a sus sesiones y descarta su
+ * propio evento del change stream.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "websocket.broker", name = "mode", havingValue = "mongo")
+public class MongoChatBroadcaster implements ChatBroadcaster, SmartLifecycle {
+
+    private static final Pattern APPENDED_MESSAGE = Pattern.compile("^" + ChatChunk.MESSAGES_FIELD + "\\.\\d+$");
+    private static final Duration SUBSCRIPTION_TIMEOUT = Duration.ofSeconds(10);
+    private static final DocumentCodec DOCUMENT_CODEC = new DocumentCodec();
+
+    private final String node = UUID.randomUUID().toString();
+    private final SimpMessagingTemplate messaging;
+    private final MongoTemplate mongoTemplate;
+    private final ChatFanoutExecutor fanout;
+    private final ChatRoomCache roomCache;
+    private final DefaultMessageListenerContainer container;
+
+    /**
+     * Mensajes que esta réplica ya entregó a sus sesiones.
+     */
+    private final Cache<String, Boolean> deliveredMessages = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(1))
+            .build();
+
+    private final Cache<String, String> chunkRooms = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+
+    public MongoChatBroadcaster(SimpMessagingTemplate messaging, MongoTemplate mongoTemplate, ChatFanoutExecutor fanout, ChatRoomCache roomCache) {
+        this.messaging = messaging;
+        this.mongoTemplate = mongoTemplate;
+        this.fanout = fanout;
+        this.roomCache = roomCache;
+        this.container = new DefaultMessageListenerContainer(mongoTemplate);
+    }
+
+    @Override
+    public void message(ChatRoom room, ChatMessagePayload payload) {
+        if (markDelivered(payload.getMessage().getId())) {
+            var destinations = ChatBroadcaster.destinations(room, "");
+            fanout.execute("inbox", () -> deliver(destinations, payload));
+        }
+    }
+
+    @Override
+    public void read(ChatRoom room, ReadMessages readMessages) {
+        signal("read", ChatBroadcaster.destinations(room, READ_SUFFIX), readMessages);
+    }
+
+    @Override
+    public void change(ChatRoom room, ChatMessageChange change) {
+        signal("change", ChatBroadcaster.destinations(room, CHANGE_SUFFIX), change);
+    }
+
+    @Override
+    public void typing(ChatRoom room, ChatTyping typing) {
+        var own = ChatBroadcaster.typingInbox(typing.getParticipantId());
+        var destinations = ChatBroadcaster.destinations(room, TYPING_SUFFIX).stream()
+                .filter(destination -> !destination.equals(own))
+                .toList();
+
+        signal("typing", destinations, typing);
+    }
+
+    @Override
+    public void presence(Collection<Long> contacts, ChatPresence presence) {
+        signal("presence", contacts.stream().map(ChatBroadcaster::presenceInbox).toList(), presence);
+    }
+
+    /**
+     * Entrega el evento a las sesiones de esta réplica y lo publica en {@code chat_signals} para las demás.
+     */
+    private void signal(String task, List<String> destinations, Object payload) {
+        if (destinations.isEmpty()) return;
+
+        fanout.execute(task, () -> deliver(destinations, payload));
+
+        mongoTemplate.insert(ChatSignal.builder()
+                .origin(node)
+                .destinations(destinations)
+                .payload(payload)
+                .createdAt(Instant.now())
+                .build());
+    }
+
+    @Override
+    public void start() {
+        container.start();
+
+        var chunks = container.register(ChangeStreamRequest.builder(this::onChunkChange)
+                .collection(ChatChunk.COLLECTION)
+                .filter(operationTypes(OperationType.INSERT, OperationType.UPDATE))
+                .build(), Document.class);
+
+        var signals = container.register(ChangeStreamRequest.builder(this::onSignal)
+                .collection(ChatSignal.COLLECTION)
+                .filter(operationTypes(OperationType.INSERT))
+                .build(), Document.class);
+
+        try {
+            if (!chunks.await(SUBSCRIPTION_TIMEOUT) || !signals.await(SUBSCRIPTION_TIMEOUT)) {
+                log.warn("Chat change streams are not active yet, events may be missed until they are");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        log.info("Chat broadcaster {} listening to {} and {}", node, ChatChunk.COLLECTION, ChatSignal.COLLECTION);
+    }
+
+    @Override
+    public void stop() {
+        container.stop();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return container.isRunning();
+    }
+
+    private void onChunkChange(Message<ChangeStreamDocument<Document>, Document> message) {
+        try {
+            var event = message.getRaw();
+            if (event == null || event.getDocumentKey() == null) return;
+
+            var chunkId = event.getDocumentKey().getObjectId("_id").getValue();
+            var messages = new ArrayList<Document>();
+            String roomId;
+
+            if (event.getOperationType() == OperationType.INSERT && event.getFullDocument() != null) {
+                var chunk = event.getFullDocument();
+                roomId = String.valueOf(refId(chunk.get("room")));
+                chunkRooms.put(chunkId.toHexString(), roomId);
+                messages.addAll(chunk.getList(ChatChunk.MESSAGES_FIELD, Document.class, List.of()));
+            } else if (event.getUpdateDescription() != null && event.getUpdateDescription().getUpdatedFields() != null) {
+                for (var field : event.getUpdateDescription().getUpdatedFields().entrySet()) {
+                    if (!APPENDED_MESSAGE.matcher(field.getKey()).matches() || !field.getValue().isDocument()) continue;
+                    messages.add(DOCUMENT_CODEC.decode(new BsonDocumentReader(field.getValue().asDocument()), DecoderContext.builder().build()));
+                }
+                if (messages.isEmpty()) return;
+                roomId = chunkRooms.get(chunkId.toHexString(), id -> roomOf(chunkId));
+            } else {
+                return;
+            }
+
+            if (roomId == null) return;
+
+            var room = roomCache.get(roomId).orElse(null);
+            if (room == null) return;
+
+            for (var document : messages) {
+                var chatMessage = mongoTemplate.getConverter().read(ChatMessage.class, document);
+                if (!markDelivered(chatMessage.getId())) continue;
+
+                deliver(ChatBroadcaster.destinations(room, ""), ChatMessagePayload.builder()
+                        .roomId(roomId)
+                        .message(chatMessage)
+                        .build());
+            }
+        } catch (Exception e) {
+            log.error("Error distribuyendo mensaje del chat desde el change stream", e);
+        }
+    }
+
+    private void onSignal(Message<ChangeStreamDocument<Document>, Document> message) {
+        try {
+            var document = message.getBody();
+            if (document == null || node.equals(document.getString("origin"))) return;
+
+            var signal = mongoTemplate.getConverter().read(ChatSignal.class, document);
+            deliver(signal.getDestinations(), signal.getPayload());
+        } catch (Exception e) {
+            log.error("Error distribuyendo evento del chat desde el change stream", e);
+        }
+    }
+
+    /**
+     * El evento del change stream puede llegar antes o después de la entrega local, se entrega solo el primero.
+     */
+    private boolean markDelivered(String messageId) {
+        return deliveredMessages.asMap().putIfAbsent(messageId, Boolean.TRUE) == null;
+    }
+
+    private void deliver(Collection<String> destinations, Object payload) {
+        for (var destination : destinations) {
+            messaging.convertAndSend(destination, payload);
+        }
+    }
+
+    private String roomOf(ObjectId chunkId) {
+        var query = new Query(Criteria.where("_id").is(chunkId));
+        query.fields().include("room");
+
+        var chunk = mongoTemplate.findOne(query, Document.class, ChatChunk.COLLECTION);
+        if (chunk == null) return null;
+
+        var roomId = refId(chunk.get("room"));
+        return roomId == null ? null : roomId.toString();
+    }
+
+    private static Object refId(Object reference) {
+        if (reference instanceof DBRef ref) return ref.getId();
+        if (reference instanceof Document document) return document.get("$id");
+        return null;
+    }
+
+    private static Aggregation operationTypes(OperationType... types) {
+        var values = new ArrayList<String>();
+        for (var type : types) values.add(type.getValue());
+        return Aggregation.newAggregation(Aggregation.match(Criteria.where("operationType").in(values)));
+    }
+}
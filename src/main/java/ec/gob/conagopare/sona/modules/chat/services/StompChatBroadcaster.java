@@ -0,0 +1,81 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.modules.chat.dto.ChatMessageChange;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatMessagePayload;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatPresence;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatTyping;
+import ec.gob.conagopare.sona.modules.chat.dto.ReadMessages;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.NoneNestedConditions;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Publica directamente en el broker configurado, ya sea el broker en memoria (una sola réplica) o el relay STOMP
+ * externo, que se encarga de llegar a las sesiones de todas las réplicas.
+ */
+@Component
+@RequiredArgsConstructor
+@Conditional(StompChatBroadcaster.NotMongoMode.class)
+public class StompChatBroadcaster implements ChatBroadcaster {
+
+    private final SimpMessagingTemplate messaging;
+    private final ChatFanoutExecutor fanout;
+
+    @Override
+    public void message(ChatRoom room, ChatMessagePayload payload) {
+        var destinations = ChatBroadcaster.destinations(room, "");
+        fanout.execute("inbox", () -> send(destinations, payload));
+    }
+
+    @Override
+    public void read(ChatRoom room, ReadMessages readMessages) {
+        var destinations = ChatBroadcaster.destinations(room, READ_SUFFIX);
+        fanout.execute("read", () -> send(destinations, readMessages));
+    }
+
+    @Override
+    public void change(ChatRoom room, ChatMessageChange change) {
+        var destinations = ChatBroadcaster.destinations(room, CHANGE_SUFFIX);
+        fanout.execute("change", () -> send(destinations, change));
+    }
+
+    @Override
+    public void typing(ChatRoom room, ChatTyping typing) {
+        var own = ChatBroadcaster.typingInbox(typing.getParticipantId());
+        var destinations = ChatBroadcaster.destinations(room, TYPING_SUFFIX).stream()
+                .filter(destination -> !destination.equals(own))
+                .toList();
+
+        fanout.execute("typing", () -> send(destinations, typing));
+    }
+
+    @Override
+    public void presence(Collection<Long> contacts, ChatPresence presence) {
+        var destinations = contacts.stream().map(ChatBroadcaster::presenceInbox).toList();
+        fanout.execute("presence", () -> send(destinations, presence));
+    }
+
+    private void send(List<String> destinations, Object payload) {
+        for (var destination : destinations) {
+            messaging.convertAndSend(destination, payload);
+        }
+    }
+
+    static class NotMongoMode extends NoneNestedConditions {
+
+        NotMongoMode() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnProperty(prefix = "websocket.broker", name = "mode", havingValue = "mongo")
+        static class MongoMode {
+        }
+    }
+}
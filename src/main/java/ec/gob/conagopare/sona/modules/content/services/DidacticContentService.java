@@ -16,6 +16,7 @@ import lombok.SneakyThrows;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.util.MultiValueMap;
 
@@ -30,6 +31,7 @@ public class DidacticContentService implements JpaCrudService<DidacticContent, D
 
     private final DidacticContentRepository repository;
     private final EntityManager entityManager;
+    @Lazy
     private final Storage storage;
 
     @Override
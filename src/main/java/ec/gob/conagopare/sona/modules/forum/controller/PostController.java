@@ -1,10 +1,12 @@
 package ec.gob.conagopare.sona.modules.forum.controller;
 
+import ec.gob.conagopare.sona.application.common.schemas.CursorPage;
 import ec.gob.conagopare.sona.application.common.schemas.Message;
 import ec.gob.conagopare.sona.modules.forum.dto.NewComment;
 import ec.gob.conagopare.sona.modules.forum.dto.PostDto;
 import ec.gob.conagopare.sona.modules.forum.dto.TopPostsResult;
 import ec.gob.conagopare.sona.modules.forum.models.Post;
+import ec.gob.conagopare.sona.modules.forum.models.PostComment;
 import ec.gob.conagopare.sona.modules.forum.service.PostService;
 import io.github.luidmidev.springframework.data.crud.core.SpringDataCrudAutoConfiguration;
 import io.github.luidmidev.springframework.data.crud.core.http.controllers.CrudController;
@@ -27,6 +29,19 @@ public class PostController implements CrudController<Post, PostDto, String, Pos
     private final PostService service;
     private final SpreadSheetExporter exporter;
 
+    @GetMapping("/feed")
+    public ResponseEntity<CursorPage<Post>> feed(
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean total,
+            @RequestParam(required = false) MultiValueMap<String, String> filters,
+            Pageable pageable
+    ) {
+        var ignoreParams = SpringDataCrudAutoConfiguration.getIgnoreParams();
+        if (ignoreParams != null) ignoreParams.forEach(filters::remove);
+        return ResponseEntity.ok(service.feed(search, cursor, pageable, filters, total));
+    }
+
     @PostMapping("/{postId}/like")
     public ResponseEntity<Message> likePost(
             @PathVariable String postId
@@ -53,7 +68,7 @@ public class PostController implements CrudController<Post, PostDto, String, Pos
 
 
     @PostMapping("/{postId}/comments")
-    public ResponseEntity<Post.Comment> createComment(
+    public ResponseEntity<PostComment> createComment(
             @PathVariable String postId,
             @RequestBody NewComment newComment
     ) {
@@ -62,7 +77,7 @@ public class PostController implements CrudController<Post, PostDto, String, Pos
     }
 
     @GetMapping("/{postId}/comments")
-    public ResponseEntity<Page<Post.Comment>> pageComments(
+    public ResponseEntity<Page<PostComment>> pageComments(
             @PathVariable(required = false) String postId,
             @RequestParam(required = false) String search,
             @RequestParam(required = false) MultiValueMap<String, String> filters,
@@ -73,6 +88,20 @@ public class PostController implements CrudController<Post, PostDto, String, Pos
         return ResponseEntity.ok(service.pageComments(postId, search, pageable, filters));
     }
 
+    @GetMapping("/{postId}/comments/feed")
+    public ResponseEntity<CursorPage<PostComment>> commentsFeed(
+            @PathVariable String postId,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean total,
+            @RequestParam(required = false) MultiValueMap<String, String> filters,
+            Pageable pageable
+    ) {
+        var ignoreParams = SpringDataCrudAutoConfiguration.getIgnoreParams();
+        if (ignoreParams != null) ignoreParams.forEach(filters::remove);
+        return ResponseEntity.ok(service.commentsFeed(postId, search, cursor, pageable, filters, total));
+    }
+
     @DeleteMapping("/{postId}/comments/{commentId}")
     public ResponseEntity<Message> deleteComment(
             @PathVariable String postId,
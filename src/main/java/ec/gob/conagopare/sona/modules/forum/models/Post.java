@@ -1,70 +1,78 @@
 package ec.gob.conagopare.sona.modules.forum.models;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.Transient;
 import org.springframework.data.domain.Persistable;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TextScore;
 
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 @EqualsAndHashCode(callSuper = true)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Document(collection = "post")
+@Document(collection = "post", language = "spanish")
+@CompoundIndex(name = "created_at", def = "{'createdAt': -1, '_id': -1}")
+@CompoundIndex(name = "likes_count", def = "{'likesCount': -1, '_id': -1}")
+@CompoundIndex(name = "comments_count", def = "{'commentsCount': -1, '_id': -1}")
+@CompoundIndex(name = "author_created_at", def = "{'author': 1, 'createdAt': -1, '_id': -1}")
 public class Post extends ByAuthor<Long> implements Persistable<String> {
 
     public static final String CONTENT_FIELD = "content";
-    public static final String COMMENTS_FIELD = "comments";
     public static final String LIKED_BY_FIELD = "likedBy";
     public static final String REPORTED_BY_FIELD = "reportedBy";
     public static final String CREATED_AT_FIELD = "createdAt";
+    public static final String LIKES_COUNT_FIELD = "likesCount";
+    public static final String COMMENTS_COUNT_FIELD = "commentsCount";
+    public static final String REPORTS_COUNT_FIELD = "reportsCount";
+
+    /**
+     * Arreglo de comentarios embebidos de las publicaciones anteriores a {@link PostComment}, solo lo lee la migración.
+     */
+    public static final String COMMENTS_FIELD = "comments";
 
     @Id
     private String id;
+    @TextIndexed
     private String content;
-    private List<Comment> comments = new ArrayList<>();
     private List<Long> likedBy = new ArrayList<>();
     private List<Long> reportedBy = new ArrayList<>();
     private Instant createdAt;
 
+    /**
+     * Cantidad de elementos de {@link #likedBy}, se actualiza con {@code $inc} en la misma operación que el arreglo.
+     */
+    private long likesCount;
+
+    /**
+     * Cantidad de comentarios en {@link PostComment#COLLECTION}, se incrementa y decrementa junto con cada comentario.
+     */
+    private long commentsCount;
+
+    /**
+     * Cantidad de elementos de {@link #reportedBy}, se actualiza con {@code $inc} en la misma operación que el arreglo.
+     */
+    private long reportsCount;
+
+    /**
+     * Relevancia en las búsquedas por texto, solo se lee de las búsquedas y no se guarda.
+     */
+    @TextScore
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Float score;
+
     @Transient
     private boolean iAmAuthor = false;
 
-    public static Comment newComment(String content, Long author, boolean isAnonymous) {
-        var comment = new Comment();
-        comment.setId(UUID.randomUUID().toString());
-        comment.setContent(content);
-        comment.setAuthor(author);
-        comment.setAnonymous(isAnonymous);
-        comment.setCreatedAt(Instant.now());
-        return comment;
-    }
-
     @Override
     public boolean isNew() {
         return id == null;
     }
-
-    @EqualsAndHashCode(callSuper = true)
-    @Data
-    @NoArgsConstructor
-    @AllArgsConstructor
-    public static class Comment extends ByAuthor<Long> {
-
-        public static final String CONTENT_FIELD = "content";
-        public static final String CREATED_AT_FIELD = "createdAt";
-        public static final String LIKED_BY_FIELD = "likedBy";
-        public static final String REPORTED_BY_FIELD = "reportedBy";
-
-        private String id;
-        private String content;
-        private Instant createdAt;
-        private List<Long> likedBy = new ArrayList<>();
-        private List<Long> reportedBy = new ArrayList<>();
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,75 @@
+package ec.gob.conagopare.sona.modules.forum.models;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.TextIndexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TextScore;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Comentario de una publicación, guardado fuera del documento de la publicación para que las páginas de publicaciones
+ * no carguen los comentarios y las publicaciones con muchos comentarios no crezcan sin límite.
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = PostComment.COLLECTION, language = "spanish")
+@CompoundIndex(name = "post_created_at", def = "{'postId': 1, 'createdAt': 1, '_id': 1}")
+@CompoundIndex(name = "author", def = "{'author': 1}")
+public class PostComment extends ByAuthor<Long> {
+
+    public static final String COLLECTION = "post_comments";
+
+    public static final String POST_ID_FIELD = "postId";
+    public static final String CONTENT_FIELD = "content";
+    public static final String CREATED_AT_FIELD = "createdAt";
+    public static final String LIKED_BY_FIELD = "likedBy";
+    public static final String REPORTED_BY_FIELD = "reportedBy";
+    public static final String LIKES_COUNT_FIELD = "likesCount";
+    public static final String REPORTS_COUNT_FIELD = "reportsCount";
+
+    /**
+     * Los comentarios migrados de las publicaciones conservan su id, los nuevos también usan un UUID.
+     */
+    @Id
+    private String id;
+
+    @Field(targetType = FieldType.OBJECT_ID)
+    private String postId;
+
+    @TextIndexed
+    private String content;
+    private Instant createdAt;
+    private List<Long> likedBy = new ArrayList<>();
+    private List<Long> reportedBy = new ArrayList<>();
+    private long likesCount;
+    private long reportsCount;
+
+    /**
+     * Relevancia en las búsquedas por texto, solo se lee de las búsquedas y no se guarda.
+     */
+    @TextScore
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Float score;
+
+    public static PostComment of(String postId, String content, Long author, boolean isAnonymous) {
+        var comment = new PostComment();
+        comment.setId(UUID.randomUUID().toString());
+        comment.setPostId(postId);
+        comment.setContent(content);
+        comment.setAuthor(author);
+        comment.setAnonymous(isAnonymous);
+        comment.setCreatedAt(Instant.now());
+        return comment;
+    }
+}
@@ -0,0 +1,89 @@
+package ec.gob.conagopare.sona.modules.forum.service;
+
+import ec.gob.conagopare.sona.modules.forum.models.Post;
+import ec.gob.conagopare.sona.modules.forum.models.PostComment;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Mueve los comentarios embebidos en {@code post.comments} a {@link PostComment#COLLECTION} con la aplicación en
+ * funcionamiento, una publicación a la vez.
+ * <p>
+ * Los comentarios se copian con su id usando reemplazos con upsert, así repetir la migración de una publicación no los
+ * duplica. Después se suma la cantidad migrada a {@link Post#getCommentsCount()} y se elimina el arreglo en la misma
+ * actualización, condicionada a que el arreglo siga existiendo; los comentarios creados en la publicación mientras
+ * tanto ya están contados.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PostCommentMigration {
+
+    private static final int BATCH_SIZE = 100;
+
+    private final MongoTemplate mongo;
+
+    @Order(0)
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        var collection = mongo.getCollectionName(Post.class);
+        var posts = 0;
+        var comments = 0;
+
+        while (true) {
+            var query = new Query(where(Post.COMMENTS_FIELD).exists(true)).limit(BATCH_SIZE);
+            query.fields().include(Post.COMMENTS_FIELD);
+
+            var batch = mongo.find(query, Document.class, collection);
+            if (batch.isEmpty()) break;
+
+            for (var post : batch) {
+                comments += migrate(post, collection);
+                posts++;
+            }
+        }
+
+        if (posts > 0) {
+            log.info("Migrados {} comentarios de {} publicaciones a {}", comments, posts, PostComment.COLLECTION);
+        }
+    }
+
+    private int migrate(Document post, String collection) {
+        var postId = post.get("_id");
+        var comments = post.getList(Post.COMMENTS_FIELD, Document.class, List.of());
+
+        if (!comments.isEmpty()) {
+            var bulk = mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, PostComment.class);
+            for (var embedded : comments) {
+                var comment = new Document(embedded);
+                comment.putIfAbsent("_id", UUID.randomUUID().toString());
+                comment.put(PostComment.POST_ID_FIELD, postId);
+
+                bulk.replaceOne(new Query(where("_id").is(comment.get("_id"))), comment, FindAndReplaceOptions.options().upsert());
+            }
+            bulk.execute();
+        }
+
+        var update = new Update()
+                .inc(Post.COMMENTS_COUNT_FIELD, comments.size())
+                .unset(Post.COMMENTS_FIELD);
+
+        mongo.updateFirst(new Query(where("_id").is(postId).and(Post.COMMENTS_FIELD).exists(true)), update, collection);
+        return comments.size();
+    }
+}
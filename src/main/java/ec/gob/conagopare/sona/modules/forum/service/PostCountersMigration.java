@@ -0,0 +1,55 @@
+package ec.gob.conagopare.sona.modules.forum.service;
+
+import ec.gob.conagopare.sona.modules.forum.models.Post;
+import ec.gob.conagopare.sona.modules.forum.models.PostComment;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArrayOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Calcula los contadores de likes y reportes de las publicaciones y comentarios que no los tienen, por ejemplo los
+ * creados antes de que existieran los contadores o los comentarios recién migrados por {@link PostCommentMigration}.
+ * <p>
+ * Solo se actualizan los documentos sin el contador, así después de la primera ejecución no queda nada por recalcular.
+ * Cada documento se actualiza con un pipeline que lee el tamaño del arreglo en la misma operación, así un like que
+ * llega durante la migración no deja el contador desfasado. Un arreglo nulo o ausente cuenta como vacío.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PostCountersMigration {
+
+    private final MongoTemplate mongo;
+
+    @Order(1)
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        var posts = reconcile(Post.class, Post.LIKED_BY_FIELD, Post.LIKES_COUNT_FIELD)
+                + reconcile(Post.class, Post.REPORTED_BY_FIELD, Post.REPORTS_COUNT_FIELD);
+
+        var comments = reconcile(PostComment.class, PostComment.LIKED_BY_FIELD, PostComment.LIKES_COUNT_FIELD)
+                + reconcile(PostComment.class, PostComment.REPORTED_BY_FIELD, PostComment.REPORTS_COUNT_FIELD);
+
+        if (posts + comments > 0) {
+            log.info("Contadores recalculados en {} publicaciones y {} comentarios", posts, comments);
+        }
+    }
+
+    private long reconcile(Class<?> entity, String arrayField, String countField) {
+        var size = ArrayOperators.Size.lengthOfArray(ConditionalOperators.ifNull(arrayField).then(List.of()));
+        var query = new Query(Criteria.where(countField).exists(false));
+        var update = AggregationUpdate.update().set(countField).toValue(size);
+        return mongo.updateMulti(query, update, entity).getModifiedCount();
+    }
+}
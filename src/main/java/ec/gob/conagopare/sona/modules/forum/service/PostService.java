@@ -1,12 +1,13 @@
 package ec.gob.conagopare.sona.modules.forum.service;
 
+import ec.gob.conagopare.sona.application.common.schemas.CursorPage;
 import ec.gob.conagopare.sona.application.common.utils.MongoUtils;
 import ec.gob.conagopare.sona.modules.forum.dto.NewComment;
 import ec.gob.conagopare.sona.modules.forum.dto.PostDto;
 import ec.gob.conagopare.sona.modules.forum.dto.TopPostsResult;
 import ec.gob.conagopare.sona.modules.forum.models.ByAuthor;
 import ec.gob.conagopare.sona.modules.forum.models.Post;
-import ec.gob.conagopare.sona.modules.forum.models.Post.Comment;
+import ec.gob.conagopare.sona.modules.forum.models.PostComment;
 import ec.gob.conagopare.sona.modules.forum.repository.PostRepository;
 import ec.gob.conagopare.sona.modules.user.models.Authority;
 import ec.gob.conagopare.sona.modules.user.models.User;
@@ -20,16 +21,18 @@ import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
 import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
-import org.springframework.data.mongodb.core.aggregation.ProjectionOperation;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
@@ -38,10 +41,9 @@ import org.springframework.util.MultiValueMap;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
-import java.util.function.BiFunction;
-import java.util.function.Function;
-import java.util.regex.Pattern;
 
 import static org.springframework.data.mongodb.core.query.Criteria.where;
 
@@ -58,8 +60,18 @@ public class PostService implements StandardCrudService<Post, PostDto, String, P
             Authority.ADMINISTRATIVE
     );
 
-    public static final String COMMENT_ARRAY_FILTER = "comment";
-    public static final String COMMENT_ID_FILTER = "comment._id";
+    /**
+     * Campo con la relevancia de la búsqueda por texto, ver {@link #textSearch(String)}.
+     */
+    private static final String SCORE_FIELD = "score";
+    private static final Sort BY_RELEVANCE = Sort.by(Sort.Direction.DESC, SCORE_FIELD);
+
+    /**
+     * Campos de orden con un índice {@code (campo, _id)}, en los comentarios el índice empieza por {@code postId}. Ver
+     * {@link #pagination(String, Pageable, Set)}.
+     */
+    private static final Set<String> POST_INDEXED_SORTS = Set.of(Post.CREATED_AT_FIELD, Post.LIKES_COUNT_FIELD, Post.COMMENTS_COUNT_FIELD);
+    private static final Set<String> COMMENT_INDEXED_SORTS = Set.of(PostComment.CREATED_AT_FIELD);
 
     private final PostRepository repository;
     private final EntityManager entityManager;
@@ -99,51 +111,62 @@ public class PostService implements StandardCrudService<Post, PostDto, String, P
             if (isPriviliged) throw ProblemDetails.notFound("Publicación no encontrada");
             throw ProblemDetails.forbidden("No tienes permisos para eliminar esta publicación");
         }
+        mongo.remove(Query.query(where(PostComment.POST_ID_FIELD).is(new ObjectId(id))), PostComment.class);
     }
 
+    /**
+     * Agrega un comentario en {@link PostComment#COLLECTION} y después incrementa el contador de la publicación, así el
+     * contador nunca cuenta un comentario que no se guardó. Si la publicación ya no existe el comentario se elimina.
+     */
     @PreAuthorize("isAuthenticated()")
-    public Comment commentPost(String postId, NewComment newComment) {
-        return updatePost(isId(postId), (update, user) -> {
-            var content = newComment.getContent();
-            var anonymous = solveAnonymous(user, newComment.getAnonymous());
-            var comment = Post.newComment(content, user.getId(), anonymous);
-            update.push(Post.COMMENTS_FIELD, comment);
-            return comment;
-        });
+    public PostComment commentPost(String postId, NewComment newComment) {
+        var user = userService.getCurrentUser();
+        var anonymous = solveAnonymous(user, newComment.getAnonymous());
+        var comment = mongo.insert(PostComment.of(postId, newComment.getContent(), user.getId(), anonymous));
+
+        var result = mongo.updateFirst(isId(postId), new Update().inc(Post.COMMENTS_COUNT_FIELD, 1), Post.class);
+        if (result.getMatchedCount() == 0) {
+            mongo.remove(commentQuery(postId, comment.getId()), PostComment.class);
+            throw ProblemDetails.notFound("Publicación no encontrada");
+        }
+
+        return comment;
     }
 
+    /**
+     * Elimina un comentario, lo pueden eliminar su autor, el autor de la publicación y los usuarios privilegiados.
+     */
     @PreAuthorize("isAuthenticated()")
     public void deleteComment(String postId, String commentId) {
         var user = userService.getCurrentUser();
+        var query = commentQuery(postId, commentId);
+
+        var comment = mongo.findOne(query, PostComment.class);
+        if (comment == null) {
+            throw ProblemDetails.notFound("Comentario no encontrado");
+        }
 
-        var criteria = where("_id").is(new ObjectId(postId));
-
-        if (isPriviliged(user)) {
-            criteria.and(Post.COMMENTS_FIELD).elemMatch(where("id").is(commentId));
-        } else {
-            criteria.andOperator(
-                    new Criteria().orOperator(
-                            where(Post.COMMENTS_FIELD).elemMatch(where("id")
-                                    .is(commentId)
-                                    .and(ByAuthor.AUTHOR_FIELD)
-                                    .is(user.getId())),
-                            where(ByAuthor.AUTHOR_FIELD).is(user.getId())
-                    )
-            );
+        var canDelete = isPriviliged(user)
+                || user.getId().equals(comment.getRealAuthor())
+                || mongo.exists(isAuthor(postId, user.getId()), Post.class);
+
+        if (!canDelete) {
+            throw ProblemDetails.forbidden("No tienes permisos para eliminar este comentario");
         }
 
-        var query = Query.query(criteria);
-        updatePost(query, update -> update.pull(Post.COMMENTS_FIELD, Query.query(where("id").is(commentId))));
+        if (mongo.remove(query, PostComment.class).getDeletedCount() > 0) {
+            mongo.updateFirst(isId(postId), new Update().inc(Post.COMMENTS_COUNT_FIELD, -1), Post.class);
+        }
     }
 
     @PreAuthorize("isAuthenticated()")
     public void likePost(String postId) {
-        updatePost(isId(postId), (update, user) -> update.addToSet(Post.LIKED_BY_FIELD, user.getId()));
+        updateMembership(postTarget(postId), Post.LIKED_BY_FIELD, Post.LIKES_COUNT_FIELD, true, Post.class);
     }
 
     @PreAuthorize("isAuthenticated()")
     public void unlikePost(String postId) {
-        updatePost(isId(postId), (update, user) -> update.pull(Post.LIKED_BY_FIELD, user.getId()));
+        updateMembership(postTarget(postId), Post.LIKED_BY_FIELD, Post.LIKES_COUNT_FIELD, false, Post.class);
     }
 
     @PreAuthorize("isAuthenticated()")
@@ -151,7 +174,7 @@ public class PostService implements StandardCrudService<Post, PostDto, String, P
         if (hasReported(postId)) {
             throw ProblemDetails.badRequest("Ya has reportado esta publicación");
         }
-        updatePost(isId(postId), (update, user) -> update.addToSet(Post.REPORTED_BY_FIELD, user.getId()));
+        updateMembership(postTarget(postId), Post.REPORTED_BY_FIELD, Post.REPORTS_COUNT_FIELD, true, Post.class);
     }
 
     private boolean hasReported(String postId) {
@@ -163,19 +186,28 @@ public class PostService implements StandardCrudService<Post, PostDto, String, P
         return mongo.exists(query, Post.class);
     }
 
-    private <T> T updatePost(Query query, BiFunction<Update, User, T> updater) {
-        var user = userService.getCurrentUser();
-        return updatePost(query, update -> updater.apply(update, user));
-    }
-
-    private <T> T updatePost(Query query, Function<Update, T> updater) {
-        var update = new Update();
-        var returned = updater.apply(update);
-        var result = mongo.updateFirst(query, update, Post.class);
-        if (result.getModifiedCount() == 0) {
-            throw ProblemDetails.notFound("Publicación no encontrada");
+    /**
+     * Agrega o quita al usuario actual de un arreglo de ids y actualiza su contador con {@code $inc} en la misma
+     * operación. La consulta exige que el usuario no esté (o sí esté) en el arreglo, así el contador solo cambia cuando
+     * el arreglo cambia; repetir la operación no hace nada.
+     *
+     * @param target     criterio del documento a actualizar
+     * @param arrayField arreglo de ids de usuarios
+     * @param countField contador de {@code arrayField}
+     * @param add        {@code true} para agregar al usuario, {@code false} para quitarlo
+     * @param entity     clase del documento
+     */
+    private void updateMembership(Criteria target, String arrayField, String countField, boolean add, Class<?> entity) {
+        var userId = userService.getCurrentUser().getId();
+
+        var membership = add ? where(arrayField).ne(userId) : where(arrayField).is(userId);
+        var update = add ? new Update().addToSet(arrayField, userId) : new Update().pull(arrayField, userId);
+        update.inc(countField, add ? 1 : -1);
+
+        var result = mongo.updateFirst(Query.query(new Criteria().andOperator(target, membership)), update, entity);
+        if (result.getMatchedCount() == 0 && !mongo.exists(Query.query(target), entity)) {
+            throw ProblemDetails.notFound(entity == Post.class ? "Publicación no encontrada" : "Comentario no encontrado");
         }
-        return returned;
     }
 
     @Override
@@ -188,22 +220,40 @@ public class PostService implements StandardCrudService<Post, PostDto, String, P
         return internalSearch(search, pageable, new LinkedMultiValueMap<>());
     }
 
+    /**
+     * Con búsqueda y sin orden explícito los resultados se ordenan por relevancia, ver {@link #textSearch(String)}.
+     */
     @Override
     public Page<Post> internalSearch(String search, Pageable pageable, MultiValueMap<String, String> filters) {
-        var operations = new ArrayList<AggregationOperation>();
+        var operations = postOperations(search, filters);
+        var sorted = words(search).length > 0 ? sortedOrDefault(pageable, BY_RELEVANCE) : pageable;
+        return MongoUtils.getPage(mongo, sorted, operations, Post.class, pagination(search, sorted, POST_INDEXED_SORTS));
+    }
 
-        operations.add(projection()
-                .andExpression("size(likedBy)").as("likesCount")
-                .andExpression("size(comments)").as("commentsCount")
-                .andExpression("size(reportedBy)").as("reportsCount")
-        );
+    /**
+     * Publicaciones paginadas por cursor, ver {@link MongoUtils#getCursorPage}. Sin orden explícito se ordenan por
+     * relevancia si hay búsqueda, si no de la más reciente a la más antigua.
+     *
+     * @param search    texto a buscar en el contenido
+     * @param cursor    cursor de la página anterior, {@code null} para la primera página
+     * @param pageable  tamaño de página y orden, el número de página se ignora
+     * @param filters   filtros, {@code author}
+     * @param withTotal si se incluye el total, estimado cuando no hay búsqueda ni filtros
+     * @return página de publicaciones
+     */
+    @PreAuthorize("isAuthenticated()")
+    public CursorPage<Post> feed(String search, String cursor, Pageable pageable, MultiValueMap<String, String> filters, boolean withTotal) {
+        var operations = postOperations(search, filters);
+        var sorted = sortedOrDefault(pageable, defaultSort(search, Sort.by(Sort.Direction.DESC, Post.CREATED_AT_FIELD)));
+        var page = MongoUtils.getCursorPage(mongo, sorted, cursor, total(withTotal, operations), operations, Post.class);
+        hooks.onFind(page.getContent(), List.of());
+        return page;
+    }
 
+    private static ArrayList<AggregationOperation> postOperations(String search, MultiValueMap<String, String> filters) {
+        var operations = textSearch(search);
         var and = new ArrayList<Criteria>();
 
-        if (!StringUtils.isBlank(search)) {
-            and.add(where(Post.CONTENT_FIELD).regex(search, "i"));
-        }
-
         var author = filters.getFirst("author");
         if (author != null) {
             and.add(where(ByAuthor.AUTHOR_FIELD).is(Long.parseLong(author)));
@@ -213,29 +263,95 @@ public class PostService implements StandardCrudService<Post, PostDto, String, P
             operations.add(Aggregation.match(new Criteria().andOperator(and)));
         }
 
-        return MongoUtils.getPage(mongo, pageable, operations, Post.class);
+        return operations;
     }
 
+    /**
+     * Búsqueda con el índice de texto del contenido (español, sin distinguir mayúsculas ni tildes). Devuelve el
+     * {@code $match} con {@code $text}, que debe ser la primera etapa del pipeline, y agrega la relevancia en
+     * {@link #SCORE_FIELD}. Cada palabra de {@link #words(String)} se pasa entre comillas, así {@code $text} exige
+     * todas las palabras y una búsqueda más larga devuelve menos resultados, igual que la búsqueda anterior.
+     *
+     * @param search texto ingresado por el usuario
+     * @return etapas de la búsqueda, vacío si no hay búsqueda
+     */
+    private static ArrayList<AggregationOperation> textSearch(String search) {
+        var operations = new ArrayList<AggregationOperation>();
+
+        var words = words(search);
+        if (words.length == 0) return operations;
+
+        var criteria = TextCriteria.forDefaultLanguage();
+        for (var word : words) {
+            criteria.matchingPhrase(word);
+        }
+
+        operations.add(Aggregation.match(criteria));
+        operations.add(context -> new Document("$addFields", new Document(SCORE_FIELD, new Document("$meta", "textScore"))));
+        return operations;
+    }
+
+    /**
+     * Palabras de la búsqueda, sin las comillas ni los {@code -} del usuario para que no se interpreten como frases ni
+     * exclusiones.
+     */
+    private static String[] words(String search) {
+        var normalizedSearch = StringUtils.normalize(search);
+        if (normalizedSearch == null) return new String[0];
+
+        return Arrays.stream(normalizedSearch.split("[\\s\"]+"))
+                .map(word -> word.replaceFirst("^-+", ""))
+                .filter(word -> !word.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    private static Sort defaultSort(String search, Sort sort) {
+        return words(search).length > 0 ? BY_RELEVANCE : sort;
+    }
+
+    /**
+     * {@link MongoUtils.Pagination#FACET} solo cuando un índice resuelve el orden y el {@code $sort} no carga los
+     * resultados en memoria. Con otro orden, y siempre al ordenar por relevancia, el {@code $sort} antes del
+     * {@code $facet} tendría que ordenar todos los resultados; con {@link MongoUtils.Pagination#SEPARATE_COUNT} el
+     * {@code $sort} se une al {@code $limit} y solo guarda la página, y el conteo no ordena.
+     *
+     * @param indexed campos que se ordenan con un índice, solos o seguidos de {@code _id} en la misma dirección
+     */
+    private static MongoUtils.Pagination pagination(String search, Pageable pageable, Set<String> indexed) {
+        var orders = pageable.getSort().toList();
+        if (orders.isEmpty()) return MongoUtils.Pagination.FACET;
+        if (words(search).length > 0) return MongoUtils.Pagination.SEPARATE_COUNT;
+
+        var first = orders.get(0);
+        var backed = indexed.contains(first.getProperty()) && orders.stream()
+                .skip(1)
+                .allMatch(order -> order.getProperty().equals("_id") && order.getDirection() == first.getDirection());
+
+        return backed ? MongoUtils.Pagination.FACET : MongoUtils.Pagination.SEPARATE_COUNT;
+    }
+
+    private static MongoUtils.Total total(boolean withTotal, List<AggregationOperation> operations) {
+        if (!withTotal) return MongoUtils.Total.NONE;
+        return operations.isEmpty() ? MongoUtils.Total.ESTIMATED : MongoUtils.Total.EXACT;
+    }
+
+    private static Pageable sortedOrDefault(Pageable pageable, Sort sort) {
+        if (pageable.getSort().isSorted()) return pageable;
+        return pageable.isPaged()
+                ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort)
+                : Pageable.unpaged(sort);
+    }
 
     public void likeComment(String forumId, String commentId) {
-        updatePost(isId(forumId), (update, user) -> update
-                .addToSet(Post.COMMENTS_FIELD + ".$[" + COMMENT_ARRAY_FILTER + "]." + Post.Comment.LIKED_BY_FIELD, user.getId())
-                .filterArray(where(COMMENT_ID_FILTER).is(commentId))
-        );
+        updateMembership(commentTarget(forumId, commentId), PostComment.LIKED_BY_FIELD, PostComment.LIKES_COUNT_FIELD, true, PostComment.class);
     }
 
     public void unlikeComment(String forumId, String commentId) {
-        updatePost(isId(forumId), (update, user) -> update
-                .pull(Post.COMMENTS_FIELD + ".$[" + COMMENT_ARRAY_FILTER + "]." + Post.Comment.LIKED_BY_FIELD, user.getId())
-                .filterArray(where(COMMENT_ID_FILTER).is(commentId))
-        );
+        updateMembership(commentTarget(forumId, commentId), PostComment.LIKED_BY_FIELD, PostComment.LIKES_COUNT_FIELD, false, PostComment.class);
     }
 
     public void reportComment(String forumId, String commentId) {
-        updatePost(isId(forumId), (update, user) -> update
-                .addToSet(Post.COMMENTS_FIELD + ".$[" + COMMENT_ARRAY_FILTER + "]." + Post.Comment.REPORTED_BY_FIELD, user.getId())
-                .filterArray(where(COMMENT_ID_FILTER).is(commentId))
-        );
+        updateMembership(commentTarget(forumId, commentId), PostComment.REPORTED_BY_FIELD, PostComment.REPORTS_COUNT_FIELD, true, PostComment.class);
     }
 
     private static boolean solveAnonymous(User user, Boolean anonymous) {
@@ -295,94 +411,85 @@ public class PostService implements StandardCrudService<Post, PostDto, String, P
     }
 
     private Post mostLiked() {
-        var aggregation = Aggregation.newAggregation(
-                projection()
-                        .andExpression("size(likedBy)").as("likesCount"),
-                Aggregation.sort(Sort.Direction.DESC, "likesCount"),
-                Aggregation.limit(1)
-        );
+        var query = new Query()
+                .with(Sort.by(Sort.Direction.DESC, Post.LIKES_COUNT_FIELD))
+                .limit(1);
 
-        var results = mongo.aggregate(aggregation, "post", Post.class);
-
-        return results.getUniqueMappedResult();
+        return mongo.findOne(query, Post.class);
     }
 
     private Post mostCommented() {
-        Aggregation aggregation = Aggregation.newAggregation(
-                projection()
-                        .andExpression("size(comments)").as("commentsCount"),
-                Aggregation.sort(Sort.Direction.DESC, "commentsCount"),
-                Aggregation.limit(1)
-        );
+        var query = new Query()
+                .with(Sort.by(Sort.Direction.DESC, Post.COMMENTS_COUNT_FIELD))
+                .limit(1);
 
-        var results = mongo.aggregate(aggregation, mongo.getCollectionName(Post.class), Post.class);
+        return mongo.findOne(query, Post.class);
+    }
 
-        return results.getUniqueMappedResult();
+    /**
+     * Pagina los comentarios de {@link PostComment#COLLECTION}. Sin orden explícito se ordenan por relevancia si hay
+     * búsqueda, si no por fecha de creación, que con el filtro por publicación usa el índice
+     * {@code (postId, createdAt, _id)}.
+     */
+    @PreAuthorize("isAuthenticated()")
+    public Page<PostComment> pageComments(String postId, String search, Pageable pageable, MultiValueMap<String, String> filters) {
+        var operations = commentOperations(postId, search, filters);
+        var sorted = sortedOrDefault(pageable, defaultSort(search, Sort.by(Sort.Direction.ASC, PostComment.CREATED_AT_FIELD)));
+        return MongoUtils.getPage(mongo, sorted, operations, PostComment.class, pagination(search, sorted, COMMENT_INDEXED_SORTS));
     }
 
+    /**
+     * Comentarios paginados por cursor, ver {@link MongoUtils#getCursorPage}. Sin orden explícito se ordenan como en
+     * {@link #pageComments}.
+     *
+     * @param postId    id de la publicación
+     * @param search    texto a buscar en el contenido
+     * @param cursor    cursor de la página anterior, {@code null} para la primera página
+     * @param pageable  tamaño de página y orden, el número de página se ignora
+     * @param filters   filtros, {@code authorId}
+     * @param withTotal si se incluye el total, estimado cuando no hay publicación, búsqueda ni filtros
+     * @return página de comentarios
+     */
     @PreAuthorize("isAuthenticated()")
-    public Page<Comment> pageComments(String postId, String search, Pageable pageable, MultiValueMap<String, String> filters) {
-        // Crear el pipeline de agregación
-        var operations = new ArrayList<AggregationOperation>();
+    public CursorPage<PostComment> commentsFeed(String postId, String search, String cursor, Pageable pageable, MultiValueMap<String, String> filters, boolean withTotal) {
+        var operations = commentOperations(postId, search, filters);
+        var sorted = sortedOrDefault(pageable, defaultSort(search, Sort.by(Sort.Direction.ASC, PostComment.CREATED_AT_FIELD)));
+        return MongoUtils.getCursorPage(mongo, sorted, cursor, total(withTotal, operations), operations, PostComment.class);
+    }
+
+    private static ArrayList<AggregationOperation> commentOperations(String postId, String search, MultiValueMap<String, String> filters) {
+        // La búsqueda por texto debe ser la primera etapa
+        var operations = textSearch(search);
+        var and = new ArrayList<Criteria>();
 
         // Filtrar por publicación si se especifica
         if (postId != null) {
-            operations.add(Aggregation.match(where("_id").is(new ObjectId(postId))));
+            and.add(where(PostComment.POST_ID_FIELD).is(new ObjectId(postId)));
         }
 
-        // Desenrollar los comentarios
-        operations.add(Aggregation.unwind("comments"));
-
-        // Proyectar los campos necesarios
-        operations.add(Aggregation.project()
-                .andExclude("_id")
-                .and("comments._id").as("_id")
-                .and("comments.author").as(ByAuthor.AUTHOR_FIELD)
-                .and("comments.anonymous").as(ByAuthor.ANONYMOUS_FIELD)
-                .and("comments.content").as(Comment.CONTENT_FIELD)
-                .and("comments.createdAt").as(Comment.CREATED_AT_FIELD)
-                .and("comments.likedBy").as(Comment.LIKED_BY_FIELD)
-                .and("comments.reportedBy").as(Comment.REPORTED_BY_FIELD)
-                .andExpression("size(comments.likedBy)").as("likesCount")
-                .andExpression("size(comments.reportedBy)").as("reportsCount")
-        );
-
         // Filtrar por autor si se especifica
         var authorId = filters.getFirst("authorId");
         if (authorId != null) {
-            operations.add(Aggregation.match(
-                    where(ByAuthor.AUTHOR_FIELD).is(Long.parseLong(authorId))
-            ));
+            and.add(where(ByAuthor.AUTHOR_FIELD).is(Long.parseLong(authorId)));
         }
 
-        // Si hay búsqueda por texto, agregar filtro
-        var normalizedSearch = StringUtils.normalize(search);
-        if (normalizedSearch != null) {
-
-            var escapedSearch = Pattern.quote(normalizedSearch); // Escapar input del usuario
-
-            operations.add(Aggregation.match(
-                    where(Comment.CONTENT_FIELD).regex(escapedSearch, "i")
-            ));
+        if (!and.isEmpty()) {
+            operations.add(Aggregation.match(new Criteria().andOperator(and)));
         }
 
-        var collectionName = mongo.getCollectionName(Post.class);
+        return operations;
+    }
 
-        //agregamos el ordenamiento
-        return MongoUtils.getPage(mongo, pageable, operations, collectionName, Comment.class);
+    private static Query commentQuery(String postId, String commentId) {
+        return Query.query(commentTarget(postId, commentId));
     }
 
+    private static Criteria commentTarget(String postId, String commentId) {
+        return where("_id").is(commentId).and(PostComment.POST_ID_FIELD).is(new ObjectId(postId));
+    }
 
-    private static ProjectionOperation projection() {
-        return Aggregation.project().andInclude(
-                Post.CONTENT_FIELD,
-                Post.COMMENTS_FIELD,
-                Post.LIKED_BY_FIELD,
-                Post.REPORTED_BY_FIELD,
-                Post.CREATED_AT_FIELD,
-                ByAuthor.AUTHOR_FIELD,
-                ByAuthor.ANONYMOUS_FIELD
-        );
+    private static Criteria postTarget(String postId) {
+        return where("_id").is(new ObjectId(postId));
     }
 
 }
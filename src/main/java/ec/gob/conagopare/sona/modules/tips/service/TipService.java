@@ -23,6 +23,7 @@ import org.hibernate.validator.constraints.Range;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
@@ -47,6 +48,7 @@ public class TipService implements JpaCrudService<Tip, TipDto, UUID, TipReposito
     private final TipRepository repository;
     private final EntityManager entityManager;
     private final TipValuationRepository valuationRepository;
+    @Lazy
     private final Storage storage;
     private final NotificationService notificationService;
     private final UserService userService;
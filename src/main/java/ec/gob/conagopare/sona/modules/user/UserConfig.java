@@ -5,12 +5,15 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Data
 @Configuration
 @ConfigurationProperties(prefix = "user")
 public class UserConfig {
 
     private final Bootstrap bootstrap = new Bootstrap();
+    private final IdCache idCache = new IdCache();
     private String syncApiKey;
 
     @Data
@@ -19,6 +22,18 @@ public class UserConfig {
         private BootstrapUser admin;
     }
 
+    @Data
+    public static class IdCache {
+        /**
+         * Cantidad máxima de ids de Keycloak en memoria.
+         */
+        private long maximumSize = 50_000;
+        /**
+         * Tiempo que se recuerda el id de un usuario desde que se consultó a la base de datos.
+         */
+        private Duration ttl = Duration.ofMinutes(30);
+    }
+
     @Data
     public static class BootstrapUser {
 
@@ -2,10 +2,14 @@ package ec.gob.conagopare.sona.modules.user.repositories;
 
 import ec.gob.conagopare.sona.modules.user.models.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByKeycloakId(String keykloaId);
+
+    @Query("SELECT u.id FROM User u WHERE u.keycloakId = ?1")
+    Optional<Long> findIdByKeycloakId(String keycloakId);
 }
@@ -0,0 +1,52 @@
+package ec.gob.conagopare.sona.modules.user.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import ec.gob.conagopare.sona.modules.user.UserConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * Ids de los usuarios por su id de Keycloak, para no consultar la base de datos en cada petición que solo necesita
+ * el id del usuario autenticado.
+ * <p>
+ * La relación entre ambos ids no cambia, se descarta al sincronizar el usuario con Keycloak y como máximo
+ * {@code user.id-cache.ttl} después de consultarla. Las métricas se publican como {@code cache.gets{cache="users.ids"}}.
+ */
+@Component
+public class UserIdCache {
+
+    private static final String CACHE_NAME = "users.ids";
+
+    private final Cache<String, Long> ids;
+
+    public UserIdCache(UserConfig config, MeterRegistry registry) {
+        var idCache = config.getIdCache();
+
+        this.ids = Caffeine.newBuilder()
+                .maximumSize(idCache.getMaximumSize())
+                .expireAfterWrite(idCache.getTtl())
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(registry, ids, CACHE_NAME);
+    }
+
+    /**
+     * Obtiene el id del usuario, si no está en memoria lo busca con {@code loader}.
+     *
+     * @param keycloakId id del usuario en Keycloak
+     * @param loader     consulta del id, retorna {@code null} si el usuario no existe
+     * @return id del usuario, {@code null} si no existe
+     */
+    public Long get(String keycloakId, Function<String, Long> loader) {
+        return ids.get(keycloakId, loader);
+    }
+
+    public void invalidate(String keycloakId) {
+        ids.invalidate(keycloakId);
+    }
+}
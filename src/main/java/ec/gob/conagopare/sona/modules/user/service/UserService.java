@@ -29,6 +29,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.keycloak.representations.idm.UserRepresentation;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.Profiles;
@@ -62,8 +63,9 @@ public class UserService implements JpaCrudService<User, UserDto, Long, UserRepo
     private final Storage storage;
     private final String clientId;
     private final Environment environment;
+    private final UserIdCache idCache;
 
-    public UserService(UserRepository repository, EntityManager entityManager, UserConfig config, KeycloakUserManager keycloakUserManager, Storage storage, @Value("${keycloak.client-id}") String clientId, Environment environment) {
+    public UserService(UserRepository repository, EntityManager entityManager, UserConfig config, KeycloakUserManager keycloakUserManager, @Lazy Storage storage, @Value("${keycloak.client-id}") String clientId, Environment environment, UserIdCache idCache) {
         this.repository = repository;
         this.entityManager = entityManager;
         this.config = config;
@@ -71,6 +73,7 @@ public class UserService implements JpaCrudService<User, UserDto, Long, UserRepo
         this.storage = storage;
         this.clientId = clientId;
         this.environment = environment;
+        this.idCache = idCache;
     }
 
     @PreAuthorize("isAuthenticated()")
@@ -212,6 +215,21 @@ public class UserService implements JpaCrudService<User, UserDto, Long, UserRepo
                 .orElseThrow(() -> ProblemDetails.notFound("Usuario no encontrado"));
     }
 
+    /**
+     * Obtiene solo el id del usuario autenticado, sin consultar la base de datos si ya se conoce, ver {@link UserIdCache}.
+     *
+     * @param jwt token de autenticación
+     * @return id del usuario
+     */
+    @PreAuthorize("isAuthenticated()")
+    public Long getUserId(Jwt jwt) {
+        var userId = idCache.get(jwt.getSubject(), keycloakId -> repository.findIdByKeycloakId(keycloakId).orElse(null));
+        if (userId == null) {
+            throw ProblemDetails.notFound("Usuario no encontrado");
+        }
+        return userId;
+    }
+
     private User getUser(String keycloakId) {
         return repository.findByKeycloakId(keycloakId).orElseThrow(() -> ProblemDetails.notFound("Usuario no encontrado"));
     }
@@ -322,6 +340,7 @@ public class UserService implements JpaCrudService<User, UserDto, Long, UserRepo
         }
 
         repository.save(user);
+        idCache.invalidate(userSync.userId());
         log.info("Sincronizando usuarios con Keycloak: {}", userSync);
     }
 
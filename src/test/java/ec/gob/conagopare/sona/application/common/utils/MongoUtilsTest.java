@@ -1,14 +1,151 @@
 package ec.gob.conagopare.sona.application.common.utils;
 
+import io.github.luidmidev.springframework.web.problemdetails.ProblemDetailsException;
+import org.bson.Document;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
 
 class MongoUtilsTest {
 
+    private static final PageRequest PAGE = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "createdAt"));
+
     @Test
     void testConstructor() {
         assertThrows(UnsupportedOperationException.class, MongoUtils::new);
     }
 
-}
\ No newline at end of file
+    @Test
+    void getCursorPage_CuandoHayMasDocumentos_DebeRetornarCursorQueFiltraDespuesDelUltimo() {
+        var documents = List.of(document(3), document(2), document(1));
+        var mongo = mongo(documents);
+
+        var first = MongoUtils.getCursorPage(mongo, PAGE, null, MongoUtils.Total.NONE, new ArrayList<>(), "post", Document.class);
+
+        assertEquals(2, first.getContent().size());
+        assertNotNull(first.getNext());
+        assertNull(first.getTotal());
+
+        MongoUtils.getCursorPage(mongo, PAGE, first.getNext(), MongoUtils.Total.NONE, new ArrayList<>(), "post", Document.class);
+
+        var aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongo, times(2)).aggregate(aggregation.capture(), eq("post"), eq(Document.class));
+
+        var pipeline = aggregation.getAllValues().get(1).toPipeline(Aggregation.DEFAULT_CONTEXT);
+        var seek = pipeline.get(0).get("$match", Document.class).getList("$or", Document.class);
+        assertEquals(new Document("createdAt", new Document("$lt", documents.get(1).get("createdAt"))), seek.get(0));
+        assertEquals(-1, pipeline.get(1).get("$sort", Document.class).get("_id"), "El _id desempata en la dirección del orden");
+        assertEquals(3, pipeline.get(2).get("$limit", Number.class).intValue());
+    }
+
+    @Test
+    void getCursorPage_CuandoEsLaUltimaPagina_NoDebeRetornarCursor() {
+        var mongo = mongo(List.of(document(1)));
+
+        var page = MongoUtils.getCursorPage(mongo, PAGE, null, MongoUtils.Total.ESTIMATED, new ArrayList<>(), "post", Document.class);
+
+        assertEquals(1, page.getContent().size());
+        assertNull(page.getNext());
+        assertEquals(10L, page.getTotal());
+    }
+
+    @Test
+    void getCursorPage_CuandoElCursorEsDeOtroOrden_DebeLanzarExcepcion() {
+        var mongo = mongo(List.of(document(3), document(2), document(1)));
+        var cursor = MongoUtils.getCursorPage(mongo, PAGE, null, MongoUtils.Total.NONE, new ArrayList<>(), "post", Document.class).getNext();
+        var otherSort = PageRequest.of(0, 2, Sort.by(Sort.Direction.DESC, "likesCount"));
+        List<AggregationOperation> operations = new ArrayList<>();
+
+        var exception = assertThrows(ProblemDetailsException.class, () -> MongoUtils.getCursorPage(mongo, otherSort, cursor, MongoUtils.Total.NONE, operations, "post", Document.class));
+        assertEquals(400, exception.getBody().getStatus());
+    }
+
+    @Test
+    void getCursorPage_CuandoElCursorNoEsValido_DebeLanzarExcepcion() {
+        var mongo = mongo(List.of());
+        List<AggregationOperation> operations = new ArrayList<>();
+
+        var exception = assertThrows(ProblemDetailsException.class, () -> MongoUtils.getCursorPage(mongo, PAGE, "no-es-un-cursor", MongoUtils.Total.NONE, operations, "post", Document.class));
+        assertEquals(400, exception.getBody().getStatus());
+    }
+
+    @Test
+    void getCursorPage_CuandoElCursorTieneOperadores_DebeLanzarExcepcion() {
+        var mongo = mongo(List.of());
+        List<AggregationOperation> operations = new ArrayList<>();
+        var keys = List.of("-createdAt", "-_id");
+        var operator = cursor(keys, List.of(new Document("$ne", null), "id"));
+        var array = cursor(keys, List.of(List.of(1, 2), "id"));
+
+        for (var cursor : List.of(operator, array)) {
+            var exception = assertThrows(ProblemDetailsException.class, () -> MongoUtils.getCursorPage(mongo, PAGE, cursor, MongoUtils.Total.NONE, operations, "post", Document.class));
+            assertEquals(400, exception.getBody().getStatus());
+        }
+        verify(mongo, never()).aggregate(any(Aggregation.class), eq("post"), eq(Document.class));
+    }
+
+    @Test
+    void getPage_ConFacet_DebeObtenerElementosYTotalEnUnaSolaAgregacion() {
+        var facet = new Document("content", List.of(document(2), document(1)))
+                .append("total", List.of(new Document("total", 7)));
+        var mongo = mongo(List.of(facet));
+
+        var page = MongoUtils.getPage(mongo, PAGE, new ArrayList<>(), "post", Document.class, MongoUtils.Pagination.FACET);
+
+        assertEquals(2, page.getContent().size());
+        assertEquals(7, page.getTotalElements());
+
+        var aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongo, times(1)).aggregate(aggregation.capture(), eq("post"), eq(Document.class));
+        var pipeline = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertTrue(pipeline.get(pipeline.size() - 1).containsKey("$facet"));
+    }
+
+    @Test
+    void getPage_ConFacetSinResultados_DebeRetornarTotalCero() {
+        var facet = new Document("content", List.of()).append("total", List.of());
+        var mongo = mongo(List.of(facet));
+
+        var page = MongoUtils.getPage(mongo, PAGE, new ArrayList<>(), "post", Document.class, MongoUtils.Pagination.FACET);
+
+        assertTrue(page.getContent().isEmpty());
+        assertEquals(0, page.getTotalElements());
+    }
+
+    private static MongoOperations mongo(List<Document> documents) {
+        var mongo = mock(MongoOperations.class);
+        var converter = mock(MongoConverter.class);
+        when(mongo.getConverter()).thenReturn(converter);
+        when(mongo.estimatedCount("post")).thenReturn(10L);
+        when(converter.read(eq(Document.class), any(Document.class))).thenAnswer(invocation -> invocation.getArgument(1));
+        when(mongo.aggregate(any(Aggregation.class), eq("post"), eq(Document.class))).thenAnswer(invocation -> new AggregationResults<>(new ArrayList<>(documents), new Document()));
+        return mongo;
+    }
+
+    private static String cursor(List<String> keys, List<Object> values) {
+        var json = new Document("k", keys).append("v", values).toJson();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Document document(long createdAt) {
+        return new Document("_id", new ObjectId()).append("createdAt", new Date(createdAt * 1000));
+    }
+}
@@ -0,0 +1,52 @@
+package ec.gob.conagopare.sona.application.configuration;
+
+import ec.gob.conagopare.sona.modules.chat.models.ChatChunk;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MongoConfigurationTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private IndexOperations indexOps;
+    @Mock
+    private IndexOperations otherIndexOps;
+
+    @Test
+    void ensureIndexes_CuandoUnIndiceFalla_DebeContinuarConLosDemas() {
+        var mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(new MongoCustomConversions(List.of()).getSimpleTypeHolder());
+        mappingContext.setInitialEntitySet(Set.of(ChatChunk.class));
+        mappingContext.afterPropertiesSet();
+
+        // ChatChunk referencia a ChatRoom, que también se registra en el contexto
+        when(mongoTemplate.indexOps(any(Class.class))).thenReturn(otherIndexOps);
+        when(mongoTemplate.indexOps(ChatChunk.class)).thenReturn(indexOps);
+        // El índice único no se puede crear si hay chunks con el mismo número en una sala
+        when(indexOps.ensureIndex(any(IndexDefinition.class)))
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key error"))
+                .thenReturn("room_number", "room_last_sequence");
+
+        var configuration = new MongoConfiguration(mongoTemplate, mappingContext);
+
+        assertThatCode(configuration::ensureIndexes).doesNotThrowAnyException();
+        verify(indexOps, times(3)).ensureIndex(any(IndexDefinition.class));
+    }
+}
@@ -0,0 +1,104 @@
+package ec.gob.conagopare.sona.application.configuration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebSocketAuthenticationInterceptorTest {
+
+    @Mock
+    private JwtDecoder jwtDecoder;
+    @Mock
+    private MessageChannel channel;
+    @Mock
+    private MessageHandler handler;
+
+    private WebSocketAuthenticationInterceptor interceptor;
+    private Jwt jwt;
+
+    @BeforeEach
+    void setUp() {
+        interceptor = new WebSocketAuthenticationInterceptor(jwtDecoder, new JwtAuthenticationConverter());
+        jwt = Jwt.withTokenValue("token")
+                .header("alg", "none")
+                .subject("keycloak-id")
+                .build();
+    }
+
+    @Test
+    void preSend_conTokenValidoEnConnect_debeAsociarElUsuarioALaSesion() {
+        when(jwtDecoder.decode("token")).thenReturn(jwt);
+
+        var message = interceptor.preSend(stomp(StompCommand.CONNECT, "Bearer token"), channel);
+
+        var user = SimpMessageHeaderAccessor.getUser(message.getHeaders());
+        assertThat(user).isInstanceOf(JwtAuthenticationToken.class);
+        assertThat(((JwtAuthenticationToken) user).getToken()).isEqualTo(jwt);
+    }
+
+    @Test
+    void preSend_conTokenInvalido_debeRechazarLaConexion() {
+        when(jwtDecoder.decode("token")).thenThrow(new BadJwtException("expired"));
+
+        var message = stomp(StompCommand.CONNECT, "Bearer token");
+
+        assertThatThrownBy(() -> interceptor.preSend(message, channel)).isInstanceOf(BadCredentialsException.class);
+    }
+
+    @Test
+    void preSend_sinTokenEnConnect_debeRechazarLaConexion() {
+        var accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        var message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+
+        assertThatThrownBy(() -> interceptor.preSend(message, channel)).isInstanceOf(BadCredentialsException.class);
+        verifyNoInteractions(jwtDecoder);
+    }
+
+    @Test
+    void preSend_fueraDeConnect_noDebeDecodificarElToken() {
+        interceptor.preSend(stomp(StompCommand.SEND, "Bearer token"), channel);
+
+        verifyNoInteractions(jwtDecoder);
+    }
+
+    @Test
+    void beforeHandle_debeColocarElUsuarioEnElContextoMientrasSeProcesa() {
+        var accessor = StompHeaderAccessor.create(StompCommand.SEND);
+        accessor.setUser(new JwtAuthenticationToken(jwt));
+        var message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+
+        interceptor.beforeHandle(message, channel, handler);
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isEqualTo(accessor.getUser());
+
+        interceptor.afterMessageHandled(message, channel, handler, null);
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    private static Message<byte[]> stomp(StompCommand command, String authorization) {
+        var accessor = StompHeaderAccessor.create(command);
+        accessor.addNativeHeader("Authorization", authorization);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,69 @@
+package ec.gob.conagopare.sona.application.storage;
+
+import com.google.cloud.ReadChannel;
+import com.google.cloud.storage.Blob;
+import com.google.cloud.storage.Bucket;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GoogleCloudStreamingStorageTest {
+
+    private static final String PATH = "users/1/chats/room/voices/audio.mp3";
+
+    @Mock
+    private Bucket bucket;
+    @Mock
+    private Blob blob;
+    @Mock
+    private ReadChannel reader;
+
+    @Test
+    void open_CuandoNoExiste_DebeRetornarVacio() {
+        when(bucket.get(PATH)).thenReturn(null);
+        assertThat(new GoogleCloudStreamingStorage(bucket).open(PATH)).isEmpty();
+    }
+
+    @Test
+    void open_DebeSaltarConSeekSinDescargarLosBytesAnteriores() throws IOException {
+        when(bucket.get(PATH)).thenReturn(blob);
+        when(blob.exists()).thenReturn(true);
+        when(blob.getName()).thenReturn(PATH);
+        when(blob.getContentType()).thenReturn("audio/mpeg");
+        when(blob.getSize()).thenReturn(1000L);
+        when(blob.getEtag()).thenReturn("CJ3q");
+        when(blob.reader()).thenReturn(reader);
+        when(reader.read(any(ByteBuffer.class))).thenAnswer(invocation -> {
+            ByteBuffer buffer = invocation.getArgument(0);
+            var count = buffer.remaining();
+            buffer.position(buffer.position() + count);
+            return count;
+        });
+
+        var resource = new GoogleCloudStreamingStorage(bucket).open(PATH).orElseThrow();
+
+        assertThat(resource.getFilename()).isEqualTo("audio.mp3");
+        assertThat(resource.contentLength()).isEqualTo(1000L);
+        assertThat(resource.getEtag()).isEqualTo("CJ3q");
+
+        try (var in = resource.getInputStream()) {
+            assertThat(in.skip(900)).isEqualTo(900);
+            assertThat(in.read(new byte[50])).isEqualTo(50);
+            assertThat(in.skip(500)).isEqualTo(50);
+        }
+
+        verify(reader).seek(900);
+        verify(reader).seek(1000);
+        verify(reader).read(any(ByteBuffer.class));
+        verify(reader).close();
+    }
+}
@@ -0,0 +1,82 @@
+package ec.gob.conagopare.sona.application.storage;
+
+import io.github.luidmidev.springframework.web.problemdetails.ProblemDetailsException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LocalFileSystemStorageTest {
+
+    private static final String PATH = "users/1/chats/room/images/foto.jpg";
+
+    @TempDir
+    private Path root;
+
+    private LocalFileSystemStorage storage;
+
+    @BeforeEach
+    void setUp() {
+        storage = new LocalFileSystemStorage(root, "http://localhost/storage/local/upload", "secret");
+    }
+
+    @Test
+    void delete_CuandoElArchivoExiste_DebeEliminarlo() throws IOException {
+        storage.store(new ByteArrayInputStream(new byte[]{1}), PATH, "image/jpeg");
+
+        assertThat(storage.delete(PATH)).isTrue();
+        assertThat(storage.open(PATH)).isEmpty();
+        assertThat(storage.delete(PATH)).isFalse();
+    }
+
+    @Test
+    void upload_ConTokenValido_DebeGuardarElArchivo() throws IOException {
+        var slot = storage.reserve(PATH, "image/jpeg", 10, Duration.ofMinutes(5));
+
+        storage.upload(token(slot), "image/jpeg", new ByteArrayInputStream(new byte[]{1, 2, 3}));
+
+        var resource = storage.open(PATH).orElseThrow();
+        assertThat(resource.contentLength()).isEqualTo(3);
+        assertThat(resource.getContentType()).isEqualTo("image/jpeg");
+        assertThat(resource.getInputStream().readAllBytes()).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void upload_ConTokenAlterado_DebeRechazarlo() {
+        var slot = storage.reserve(PATH, "image/jpeg", 10, Duration.ofMinutes(5));
+        var tampered = new LocalFileSystemStorage(root, "http://localhost", "otra").reserve(PATH, "image/jpeg", 10, Duration.ofMinutes(5));
+        var forged = token(slot).substring(0, token(slot).indexOf('.')) + token(tampered).substring(token(tampered).indexOf('.'));
+        var content = new ByteArrayInputStream(new byte[]{1});
+
+        assertThrows(ProblemDetailsException.class, () -> storage.upload(forged, "image/jpeg", content));
+        assertThat(Files.exists(root.resolve(PATH))).isFalse();
+    }
+
+    @Test
+    void upload_CuandoSuperaElTamano_DebeEliminarElArchivo() {
+        var slot = storage.reserve(PATH, "image/jpeg", 2, Duration.ofMinutes(5));
+        var token = token(slot);
+        var content = new ByteArrayInputStream(new byte[]{1, 2, 3});
+
+        assertThrows(ProblemDetailsException.class, () -> storage.upload(token, "image/jpeg", content));
+        assertThat(Files.exists(root.resolve(PATH))).isFalse();
+    }
+
+    @Test
+    void reserve_ConRutaFueraDelDirectorio_DebeRechazarla() {
+        var ttl = Duration.ofMinutes(5);
+        assertThrows(ProblemDetailsException.class, () -> storage.reserve("../fuera.jpg", "image/jpeg", 10, ttl));
+    }
+
+    private static String token(UploadSlot slot) {
+        return slot.getUrl().substring(slot.getUrl().indexOf("token=") + "token=".length());
+    }
+}
@@ -0,0 +1,170 @@
+package ec.gob.conagopare.sona.modules.chat;
+
+import ec.gob.conagopare.sona.modules.chat.dto.ChatMessagePayload;
+import ec.gob.conagopare.sona.modules.chat.dto.ReadMessages;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessageType;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoomType;
+import ec.gob.conagopare.sona.modules.chat.services.ChatBroadcaster;
+import ec.gob.conagopare.sona.modules.chat.services.ChatChunkAppender;
+import ec.gob.conagopare.sona.modules.chat.services.ChatFanoutExecutor;
+import ec.gob.conagopare.sona.modules.chat.services.MongoChatBroadcaster;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.testcontainers.containers.MongoDBContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Levanta dos contextos de Spring con {@code websocket.broker.mode=mongo} sobre el mismo Mongo, cada uno con su propio
+ * broker local, y comprueba que los eventos publicados en una réplica llegan a las sesiones de la otra.
+ */
+class ChatBrokerFanoutIntegrationTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private static MongoDBContainer mongo;
+    private static Node nodeA;
+    private static Node nodeB;
+
+    @BeforeAll
+    static void setUp() {
+        mongo = new MongoDBContainer("mongo:7.0.9");
+        mongo.start();
+
+        nodeA = new Node(mongo.getReplicaSetUrl("chat-fanout"));
+        nodeB = new Node(mongo.getReplicaSetUrl("chat-fanout"));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        nodeA.close();
+        nodeB.close();
+        mongo.stop();
+    }
+
+    @Test
+    void mensajesEnviadosEnUnNodo_DebenLlegarAlOtroNodoUnaSolaVez() throws InterruptedException {
+        var room = nodeA.mongoTemplate.save(ChatRoom.builder()
+                .type(ChatRoomType.PRIVATE)
+                .participants(List.of(1L, 2L))
+                .build());
+
+        // El primer mensaje crea el chunk (insert), el segundo se agrega con $push (update)
+        for (var text : List.of("Hola", "¿Cómo estás?")) {
+            var message = ChatMessage.now(text, 1L, ChatMessageType.TEXT);
+            nodeA.appender.append(room, message);
+            nodeA.broadcaster.message(room, new ChatMessagePayload(message, room.getId(), "request-" + text));
+
+            var received = nodeB.channel.await(ChatBroadcaster.inbox(2L));
+            assertThat(received).isInstanceOf(ChatMessagePayload.class);
+            assertThat(((ChatMessagePayload) received).getMessage().getId()).isEqualTo(message.getId());
+            assertThat(((ChatMessagePayload) received).getRoomId()).isEqualTo(room.getId());
+        }
+
+        // La réplica de origen ya entregó los mensajes, su propio evento del change stream se descarta
+        TimeUnit.SECONDS.sleep(1);
+        assertThat(nodeA.channel.sentTo(ChatBroadcaster.inbox(2L))).hasSize(2);
+    }
+
+    @Test
+    void mensajesLeidosEnUnNodo_DebenLlegarAlOtroNodo() throws InterruptedException {
+        var room = nodeA.mongoTemplate.save(ChatRoom.builder()
+                .type(ChatRoomType.PRIVATE)
+                .participants(List.of(3L, 4L))
+                .build());
+
+        var readMessages = ReadMessages.builder()
+                .roomId(room.getId())
+                .readBy(ChatMessage.ReadBy.now(4L))
+                .messageIds(List.of("message-1"))
+                .build();
+
+        nodeA.broadcaster.read(room, readMessages);
+
+        var received = nodeB.channel.await(ChatBroadcaster.readInbox(3L));
+        assertThat(received).isInstanceOf(ReadMessages.class);
+        assertThat(((ReadMessages) received).getMessageIds()).containsExactly("message-1");
+        assertThat(((ReadMessages) received).getReadBy().getParticipantId()).isEqualTo(4L);
+    }
+
+    private static class Node implements AutoCloseable {
+
+        private final AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        private final RecordingChannel channel = new RecordingChannel();
+        private final MongoTemplate mongoTemplate;
+        private final MongoChatBroadcaster broadcaster;
+        private final ChatChunkAppender appender;
+
+        Node(String connectionString) {
+            TestPropertyValues.of("websocket.broker.mode=mongo").applyTo(context);
+            context.registerBean(MongoTemplate.class, () -> new MongoTemplate(new SimpleMongoClientDatabaseFactory(connectionString)));
+            context.registerBean(SimpMessagingTemplate.class, () -> new SimpMessagingTemplate(channel));
+            context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+            context.register(ChatConfig.class, ChatFanoutExecutor.class, MongoChatBroadcaster.class, ChatChunkAppender.class);
+            context.refresh();
+
+            mongoTemplate = context.getBean(MongoTemplate.class);
+            broadcaster = context.getBean(MongoChatBroadcaster.class);
+            appender = context.getBean(ChatChunkAppender.class);
+        }
+
+        @Override
+        public void close() {
+            context.close();
+        }
+    }
+
+    /**
+     * Canal que reemplaza al broker local y guarda lo que se envió a cada destino.
+     */
+    private static class RecordingChannel implements MessageChannel {
+
+        private final LinkedBlockingQueue<Message<?>> pending = new LinkedBlockingQueue<>();
+        private final List<Message<?>> sent = new ArrayList<>();
+
+        @Override
+        public boolean send(Message<?> message, long timeout) {
+            synchronized (sent) {
+                sent.add(message);
+            }
+            return pending.add(message);
+        }
+
+        Object await(String destination) throws InterruptedException {
+            var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+            while (System.nanoTime() < deadline) {
+                var message = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (message != null && destination.equals(SimpMessageHeaderAccessor.getDestination(message.getHeaders()))) {
+                    return message.getPayload();
+                }
+            }
+            throw new AssertionError("No se recibió ningún evento en " + destination);
+        }
+
+        List<Message<?>> sentTo(String destination) {
+            synchronized (sent) {
+                return sent.stream()
+                        .filter(message -> destination.equals(SimpMessageHeaderAccessor.getDestination(message.getHeaders())))
+                        .toList();
+            }
+        }
+    }
+}
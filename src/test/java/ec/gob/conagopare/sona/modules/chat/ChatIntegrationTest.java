@@ -12,6 +12,7 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 import org.testcontainers.shaded.org.apache.commons.io.FileUtils;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.is;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -109,7 +110,17 @@ class ChatIntegrationTest extends IntegrationTest {
         mockMvc.perform(get("/chat/resource")
                         .param("id", messageId)
                         .header("Authorization", "Bearer " + accessToken1))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().string("Cache-Control", containsString("private")));
+
+        mockMvc.perform(get("/chat/resource")
+                        .param("id", messageId)
+                        .header("Range", "bytes=0-99")
+                        .header("Authorization", "Bearer " + accessToken1))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Length", "100"));
 
         var accessToken2 = obtainAccessToken(USER2_USERNAME, USER2_PASSWORD);
 
@@ -118,6 +129,14 @@ class ChatIntegrationTest extends IntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].id").value(roomId));
 
+        mockMvc.perform(get("/chat/inbox")
+                        .header("Authorization", "Bearer " + accessToken2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(roomId))
+                .andExpect(jsonPath("$[0].lastMessage.type").value("VOICE"))
+                .andExpect(jsonPath("$[0].unreadCount").value(3))
+                .andExpect(jsonPath("$[0].participantSummaries.length()").value(2));
+
         mockMvc.perform(get("/chat/room/{roomId}", roomId)
                         .header("Authorization", "Bearer " + accessToken2))
                 .andExpect(status().isOk())
@@ -147,6 +166,29 @@ class ChatIntegrationTest extends IntegrationTest {
                 .getResponse().
                 getContentAsString();
 
+        var historyJson = mockMvc.perform(get("/chat/room/{roomId}/history", roomId)
+                        .param("limit", "2")
+                        .header("Authorization", "Bearer " + accessToken2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messages.length()").value(2))
+                .andExpect(jsonPath("$.messages[0].type").value("IMAGE"))
+                .andExpect(jsonPath("$.messages[1].type").value("VOICE"))
+                .andExpect(jsonPath("$.hasMore").value(true))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        var oldestId = JsonPath.read(historyJson, "$.messages[0].id").toString();
+
+        mockMvc.perform(get("/chat/room/{roomId}/history", roomId)
+                        .param("before", oldestId)
+                        .param("limit", "2")
+                        .header("Authorization", "Bearer " + accessToken2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.messages.length()").value(1))
+                .andExpect(jsonPath("$.messages[0].message").value("Hello World"))
+                .andExpect(jsonPath("$.hasMore").value(false));
+
         var messagesid = JsonPath.read(messagesJson, "$[*].id");
 
         mockMvc.perform(put("/chat/room/{roomId}/read", roomId)
@@ -0,0 +1,248 @@
+package ec.gob.conagopare.sona.modules.chat;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.jayway.jsonpath.JsonPath;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatMessagePayload;
+import ec.gob.conagopare.sona.modules.chat.services.ChatBroadcaster;
+import ec.gob.conagopare.sona.modules.user.dto.SingUpUser;
+import ec.gob.conagopare.sona.test.IntegrationTest;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Prueba de carga del chat con usuarios simulados: cada usuario se conecta por STOMP a {@code /ws}, se suscribe a su
+ * bandeja de entrada ({@code /topic/chat.inbox.{id}}) y envía mensajes por {@code POST /chat/send/{roomId}} a la sala
+ * privada con el siguiente usuario. La latencia se mide desde el envío de la petición hasta que el destinatario
+ * recibe el mensaje por su bandeja de entrada.
+ * <p>
+ * Usa los contenedores de {@link IntegrationTest} y Firebase simulado. Se ejecuta solo bajo demanda:
+ * {@code ./mvnw test -Dtest=ChatLoadTest -Dloadtest=true -Dloadtest.users=100 -Dloadtest.messages=50 -Dloadtest.rate=2}
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class ChatLoadTest extends IntegrationTest {
+
+    private static final int USERS = Integer.getInteger("loadtest.users", 50);
+    private static final int MESSAGES_PER_USER = Integer.getInteger("loadtest.messages", 50);
+    private static final int MESSAGES_PER_SECOND = Integer.getInteger("loadtest.rate", 2);
+    private static final String PASSWORD = "Qwerty1598.1598.";
+
+    @MockitoBean
+    private FirebaseApp firebaseApp;
+    @MockitoBean
+    private FirebaseMessaging firebaseMessaging;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @LocalServerPort
+    private int port;
+
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    /**
+     * Momento de envío por requestId.
+     */
+    private final Map<String, Long> sentAt = new ConcurrentHashMap<>();
+    private final List<Long> latencies = new ArrayList<>();
+    private final AtomicLong sendErrors = new AtomicLong();
+
+    @Test
+    void concurrentUsers() throws Exception {
+        var users = signUpUsers();
+        var rooms = new ArrayList<String>(USERS);
+        for (var i = 0; i < USERS; i++) {
+            rooms.add(privateRoom(users.get(i), users.get((i + 1) % USERS)));
+        }
+
+        var total = USERS * MESSAGES_PER_USER;
+        var delivered = new CountDownLatch(total);
+
+        var stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        var converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        stompClient.setMessageConverter(converter);
+
+        var sessions = new ArrayList<StompSession>(USERS);
+        for (var user : users) {
+            sessions.add(connect(stompClient, user, delivered));
+        }
+
+        log.info("{} usuarios conectados, enviando {} mensajes a {} mensajes/s por usuario", USERS, total, MESSAGES_PER_SECOND);
+
+        var senders = Executors.newFixedThreadPool(USERS);
+        var start = System.nanoTime();
+
+        for (var i = 0; i < USERS; i++) {
+            var user = users.get(i);
+            var roomId = rooms.get(i);
+            senders.execute(() -> sendAll(user, roomId));
+        }
+
+        senders.shutdown();
+        assertThat(senders.awaitTermination(30, TimeUnit.MINUTES)).isTrue();
+        var completed = delivered.await(1, TimeUnit.MINUTES);
+        var elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        sessions.forEach(StompSession::disconnect);
+        stompClient.stop();
+
+        report(total, elapsedSeconds);
+        assertThat(completed).as("todos los mensajes enviados se entregaron").isTrue();
+    }
+
+    private void sendAll(SimulatedUser user, String roomId) {
+        var interval = 1000L / MESSAGES_PER_SECOND;
+        for (var i = 0; i < MESSAGES_PER_USER; i++) {
+            var requestId = user.id() + "-" + i;
+            var request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/chat/send/" + roomId + "?requestId=" + requestId))
+                    .header("Authorization", "Bearer " + user.token())
+                    .header("Content-Type", "text/plain")
+                    .POST(HttpRequest.BodyPublishers.ofString("Mensaje " + i + " de " + user.id()))
+                    .build();
+
+            try {
+                sentAt.put(requestId, System.nanoTime());
+                var response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200) sendErrors.incrementAndGet();
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                sendErrors.incrementAndGet();
+            }
+        }
+    }
+
+    private StompSession connect(WebSocketStompClient client, SimulatedUser user, CountDownLatch delivered) throws Exception {
+        var connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + user.token());
+
+        var session = client.connectAsync("ws://localhost:" + port + "/ws", new WebSocketHttpHeaders(), connectHeaders, new StompSessionHandlerAdapter() {
+        }).get(30, TimeUnit.SECONDS);
+
+        session.subscribe(ChatBroadcaster.inbox(user.id().longValue()), new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return ChatMessagePayload.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                var received = System.nanoTime();
+                var message = (ChatMessagePayload) payload;
+
+                // El remitente también recibe su mensaje, solo se mide la entrega al destinatario
+                if (message.getMessage().getSentBy() == user.id().longValue()) return;
+
+                var sent = sentAt.get(message.getRequestId());
+                if (sent == null) return;
+
+                synchronized (latencies) {
+                    latencies.add(received - sent);
+                }
+                delivered.countDown();
+            }
+        });
+
+        return session;
+    }
+
+    private List<SimulatedUser> signUpUsers() throws Exception {
+        var users = new ArrayList<SimulatedUser>(USERS);
+        var suffix = Long.toString(System.currentTimeMillis(), 36);
+
+        for (var i = 0; i < USERS; i++) {
+            var username = "load" + suffix + i;
+
+            var singUpUser = new SingUpUser();
+            singUpUser.setFirstName("Load");
+            singUpUser.setLastName("User " + i);
+            singUpUser.setUsername(username);
+            singUpUser.setPassword(PASSWORD);
+            singUpUser.setEmail(username + "@load.test");
+            singUp(singUpUser, mockMvc);
+
+            var token = obtainAccessToken(username, PASSWORD);
+            users.add(new SimulatedUser(getUserId(token, mockMvc), token));
+        }
+
+        return users;
+    }
+
+    private String privateRoom(SimulatedUser user, SimulatedUser other) throws Exception {
+        var json = mockMvc.perform(get("/chat/user/{userId}/room", other.id())
+                        .header("Authorization", "Bearer " + user.token()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        return JsonPath.read(json, "$.id");
+    }
+
+    private void report(int total, double elapsedSeconds) {
+        List<Long> sorted;
+        synchronized (latencies) {
+            sorted = latencies.stream().sorted().toList();
+        }
+
+        log.info("Usuarios: {}, mensajes enviados: {}, entregados: {}, errores de envío: {}", USERS, total, sorted.size(), sendErrors.get());
+        log.info("Throughput: {} mensajes entregados/s en {} s", String.format("%.1f", sorted.size() / elapsedSeconds), String.format("%.1f", elapsedSeconds));
+
+        if (sorted.isEmpty()) return;
+
+        log.info("Latencia de entrega (ms): p50={} p90={} p99={} max={}",
+                millis(percentile(sorted, 0.50)),
+                millis(percentile(sorted, 0.90)),
+                millis(percentile(sorted, 0.99)),
+                millis(sorted.get(sorted.size() - 1)));
+    }
+
+    private static long percentile(List<Long> sorted, double percentile) {
+        var index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, index));
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1_000_000.0);
+    }
+
+    private record SimulatedUser(Integer id, String token) {
+    }
+}
@@ -0,0 +1,102 @@
+package ec.gob.conagopare.sona.modules.chat.controllers;
+
+import ec.gob.conagopare.sona.modules.chat.dto.ChatAck;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatMessagePayload;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatSendRequest;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessageType;
+import ec.gob.conagopare.sona.modules.chat.services.ChatBroadcaster;
+import ec.gob.conagopare.sona.modules.chat.services.ChatService;
+import ec.gob.conagopare.sona.modules.user.service.UserService;
+import io.github.luidmidev.springframework.web.problemdetails.ProblemDetails;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestChatStompController {
+
+    private static final Long USER_ID = 1L;
+    private static final String ROOM_ID = "room-id";
+
+    @Mock
+    private ChatService service;
+    @Mock
+    private UserService userService;
+    @Mock
+    private SimpMessagingTemplate messaging;
+
+    @InjectMocks
+    private ChatStompController controller;
+
+    private Jwt jwt;
+    private JwtAuthenticationToken principal;
+
+    @BeforeEach
+    void setUp() {
+        jwt = Jwt.withTokenValue("token")
+                .header("alg", "none")
+                .subject("keycloak-id")
+                .build();
+        principal = new JwtAuthenticationToken(jwt);
+    }
+
+    @Test
+    void send_ShouldAckWithRequestIdAndMessageId() {
+        var message = ChatMessage.now("Hola", USER_ID, ChatMessageType.TEXT);
+        message.setSequence(7);
+
+        when(userService.getUserId(jwt)).thenReturn(USER_ID);
+        when(service.sendMessage("Hola", ROOM_ID, "req-1", jwt)).thenReturn(ChatMessagePayload.builder()
+                .requestId("req-1")
+                .roomId(ROOM_ID)
+                .message(message)
+                .build());
+
+        controller.send(ROOM_ID, new ChatSendRequest("req-1", "Hola"), principal);
+
+        var ack = ArgumentCaptor.forClass(ChatAck.class);
+        verify(messaging).convertAndSend(eq(ChatBroadcaster.ackInbox(USER_ID)), ack.capture());
+        assertThat(ack.getValue().getRequestId()).isEqualTo("req-1");
+        assertThat(ack.getValue().getMessageId()).isEqualTo(message.getId());
+        assertThat(ack.getValue().getSequence()).isEqualTo(7L);
+        assertThat(ack.getValue().getError()).isNull();
+    }
+
+    @Test
+    void send_WhenServiceRejects_ShouldAckWithError() {
+        when(userService.getUserId(jwt)).thenReturn(USER_ID);
+        when(service.sendMessage(any(), eq(ROOM_ID), eq("req-1"), eq(jwt))).thenThrow(ProblemDetails.forbidden("No tienes permiso"));
+
+        controller.send(ROOM_ID, new ChatSendRequest("req-1", "Hola"), principal);
+
+        var ack = ArgumentCaptor.forClass(ChatAck.class);
+        verify(messaging).convertAndSend(eq(ChatBroadcaster.ackInbox(USER_ID)), ack.capture());
+        assertThat(ack.getValue().getRequestId()).isEqualTo("req-1");
+        assertThat(ack.getValue().getMessageId()).isNull();
+        assertThat(ack.getValue().getError()).isNotNull();
+    }
+
+    @Test
+    void read_ShouldUseSessionUser() {
+        var messageIds = List.of("msg-1");
+
+        controller.read(ROOM_ID, messageIds, principal);
+
+        verify(service).read(ROOM_ID, messageIds, jwt);
+    }
+}
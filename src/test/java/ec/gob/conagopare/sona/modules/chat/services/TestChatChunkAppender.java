@@ -0,0 +1,136 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import com.mongodb.client.result.UpdateResult;
+import ec.gob.conagopare.sona.modules.chat.models.ChatChunk;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessageType;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoomType;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestChatChunkAppender {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private ChatChunkAppender appender;
+
+    private ChatRoom room;
+    private ChatMessage message;
+
+    @BeforeEach
+    void setUp() {
+        room = ChatRoom.builder()
+                .id(ObjectId.get().toHexString())
+                .type(ChatRoomType.PRIVATE)
+                .participants(List.of(1L, 2L))
+                .build();
+
+        message = ChatMessage.now("Hola", 1L, ChatMessageType.TEXT);
+    }
+
+    @Test
+    void append_CuandoNoExistenChunks_DebeInsertarElPrimero() {
+        stubSequence(1);
+        when(mongoTemplate.findOne(any(Query.class), eq(ChatChunk.class))).thenReturn(null);
+
+        appender.append(room, message);
+
+        verify(mongoTemplate).insert(argThat((ChatChunk chunk) -> chunk.getNumber() == 1 && chunk.getMessages().contains(message)));
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(ChatChunk.class));
+    }
+
+    @Test
+    void append_CuandoElChunkTieneEspacio_DebeHacerUnSoloUpdate() {
+        stubSequence(1);
+        when(mongoTemplate.findOne(any(Query.class), eq(ChatChunk.class))).thenReturn(ChatChunk.builder().number(3).build());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ChatChunk.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        appender.append(room, message);
+        appender.append(room, message);
+
+        // El chunk abierto se consulta una sola vez y luego se usa el de la caché
+        verify(mongoTemplate, times(1)).findOne(any(Query.class), eq(ChatChunk.class));
+        verify(mongoTemplate, times(2)).updateFirst(any(Query.class), any(Update.class), eq(ChatChunk.class));
+        verify(mongoTemplate, never()).insert(any(ChatChunk.class));
+    }
+
+    @Test
+    void append_CuandoElChunkEstaLleno_DebeCerrarloYAbrirElSiguiente() {
+        stubSequence(1);
+        when(mongoTemplate.findOne(any(Query.class), eq(ChatChunk.class))).thenReturn(ChatChunk.builder().number(3).build());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ChatChunk.class))).thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        appender.append(room, message);
+
+        verify(mongoTemplate).updateFirst(any(Query.class), argThat((Update update) -> update.modifies(ChatChunk.CLOSED_FIELD)), eq(ChatChunk.class));
+        verify(mongoTemplate).insert(argThat((ChatChunk chunk) -> chunk.getNumber() == 4));
+    }
+
+    @Test
+    void append_CuandoOtroNodoAbrioElChunk_DebeReintentarEnElSiguiente() {
+        stubSequence(1);
+        when(mongoTemplate.findOne(any(Query.class), eq(ChatChunk.class))).thenReturn(null);
+        when(mongoTemplate.insert(any(ChatChunk.class))).thenThrow(new DuplicateKeyException("E11000"));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ChatChunk.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        appender.append(room, message);
+
+        verify(mongoTemplate, times(1)).insert(any(ChatChunk.class));
+        verify(mongoTemplate, times(1)).updateFirst(any(Query.class), any(Update.class), eq(ChatChunk.class));
+    }
+
+    @Test
+    void append_DebeAsignarLaSiguienteSecuenciaDeLaSala() {
+        stubSequence(42);
+        when(mongoTemplate.findOne(any(Query.class), eq(ChatChunk.class))).thenReturn(ChatChunk.builder().number(3).build());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ChatChunk.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        appender.append(room, message);
+
+        assertThat(message.getSequence()).isEqualTo(42L);
+        verify(mongoTemplate).updateFirst(any(Query.class), argThat((Update update) -> update.modifies(ChatChunk.LAST_SEQUENCE_FIELD)), eq(ChatChunk.class));
+    }
+
+    @Test
+    void append_CuandoLaSalaNoExiste_DebeFallarSinAgregar() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ChatRoom.class))).thenReturn(null);
+
+        assertThatThrownBy(() -> appender.append(room, message)).isNotNull();
+        verify(mongoTemplate, never()).insert(any(ChatChunk.class));
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(ChatChunk.class));
+    }
+
+    @Test
+    void estimateSize_DebeCrecerConElContenido() {
+        var large = ChatMessage.now("a".repeat(1000), 1L, ChatMessageType.TEXT);
+        assertThat(ChatChunk.estimateSize(large)).isGreaterThan(ChatChunk.estimateSize(message) + 900);
+    }
+
+    private void stubSequence(long sequence) {
+        var updated = ChatRoom.builder().id(room.getId()).sequence(sequence).build();
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ChatRoom.class))).thenReturn(updated);
+    }
+}
@@ -0,0 +1,237 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import com.mongodb.DBRef;
+import com.mongodb.client.result.DeleteResult;
+import ec.gob.conagopare.sona.modules.chat.ChatConfig;
+import ec.gob.conagopare.sona.modules.chat.models.ChatChunk;
+import ec.gob.conagopare.sona.modules.chat.models.ChatChunkArchive;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestChatChunkArchiver {
+
+    private static final ObjectId ROOM_ID = ObjectId.get();
+    private static final ObjectId CHUNK_ID = ObjectId.get();
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private ChatChunkArchiver archiver;
+
+    @BeforeEach
+    void setUp() {
+        archiver = new ChatChunkArchiver(new ChatConfig(), mongoTemplate);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        archiver.destroy();
+    }
+
+    @Test
+    void archive_ShouldMoveChunkReadByAllParticipantsWithoutReadBy() {
+        mockCandidate(room(3L, 2L));
+        when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq(ChatChunk.COLLECTION))).thenReturn(fullChunk());
+        when(mongoTemplate.remove(any(Query.class), eq(ChatChunk.COLLECTION))).thenReturn(DeleteResult.acknowledged(1));
+
+        assertThat(archiver.archive()).isEqualTo(1);
+
+        var archive = ArgumentCaptor.forClass(ChatChunkArchive.class);
+        verify(mongoTemplate).insert(archive.capture());
+
+        var remove = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(remove.capture(), eq(ChatChunk.COLLECTION));
+        assertThat(remove.getValue().getQueryObject()).containsEntry("version", 0L);
+
+        var archived = archive.getValue();
+        assertThat(archived.getId()).isEqualTo(CHUNK_ID.toHexString());
+        assertThat(archived.getRoomId()).isEqualTo(ROOM_ID.toHexString());
+        assertThat(archived.getMessageIds()).containsExactly("msg-1", "msg-2");
+
+        var messages = ChatChunkArchiver.decompress(archived.getMessages()).getList("messages", Document.class);
+        assertThat(messages).extracting(m -> m.getString("message")).containsExactly("Hola", "Adiós");
+        assertThat(messages).allSatisfy(m -> assertThat(m).doesNotContainKey("readBy"));
+    }
+
+    @Test
+    void archive_WhenMessageIsEditedBeforeRemove_ShouldKeepChunkAndDiscardArchive() {
+        var stored = fullChunk();
+        mockCandidate(room(3L, 2L));
+        when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq(ChatChunk.COLLECTION))).thenReturn(fullChunk());
+
+        // La edición llega después de leer el chunk y antes de eliminarlo, como ChatMessageEditor.edit incrementa la versión
+        doAnswer(invocation -> stored.put("version", stored.getLong("version") + 1))
+                .when(mongoTemplate).insert(any(ChatChunkArchive.class));
+        when(mongoTemplate.remove(any(Query.class), eq(ChatChunk.COLLECTION))).thenAnswer(invocation -> {
+            var version = invocation.getArgument(0, Query.class).getQueryObject().get("version");
+            return DeleteResult.acknowledged(stored.get("version").equals(version) ? 1 : 0);
+        });
+        when(mongoTemplate.exists(any(Query.class), eq(ChatChunk.COLLECTION))).thenReturn(true);
+
+        assertThat(archiver.archive()).isZero();
+
+        verify(mongoTemplate).remove(any(Query.class), eq(ChatChunkArchive.class));
+    }
+
+    @Test
+    void archive_WhenParticipantHasNotReadPastChunk_ShouldKeepChunk() {
+        mockCandidate(room(3L, 1L));
+
+        assertThat(archiver.archive()).isZero();
+
+        verify(mongoTemplate, never()).insert(any(ChatChunkArchive.class));
+        verify(mongoTemplate, never()).remove(any(Query.class), anyString());
+    }
+
+    @Test
+    void archive_WhenLegacyRoomHasNoClosedFlagsNorReadMarks_ShouldArchiveReadChunksExceptLatest() {
+        var room = new DBRef("chat_rooms", ROOM_ID);
+        var first = new Document("_id", CHUNK_ID).append("number", 1L).append("room", room);
+        var latest = new Document("_id", ObjectId.get()).append("number", 2L).append("room", room);
+        var legacyRoom = ChatRoom.builder().id(ROOM_ID.toHexString()).participants(List.of(1L, 2L)).readMarks(null).build();
+
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(ChatChunk.COLLECTION))).thenReturn(List.of(first, latest));
+        when(mongoTemplate.find(any(Query.class), eq(ChatRoom.class))).thenReturn(List.of(legacyRoom));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(ChatChunk.COLLECTION), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(new Document("_id", new Document("$ref", "chat_rooms").append("$id", ROOM_ID)).append("number", 2L)), new Document()));
+        when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq(ChatChunk.COLLECTION))).thenReturn(legacyChunk(true));
+        when(mongoTemplate.remove(any(Query.class), eq(ChatChunk.COLLECTION))).thenReturn(DeleteResult.acknowledged(1));
+
+        assertThat(archiver.archive()).isEqualTo(1);
+
+        var read = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findOne(read.capture(), eq(Document.class), eq(ChatChunk.COLLECTION));
+        assertThat(read.getValue().getQueryObject()).containsEntry("_id", CHUNK_ID);
+
+        var remove = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).remove(remove.capture(), eq(ChatChunk.COLLECTION));
+        assertThat(remove.getValue().getQueryObject()).containsEntry("_id", CHUNK_ID).doesNotContainKey("closed");
+    }
+
+    @Test
+    void archive_WhenLegacyMessageIsNotInReadBy_ShouldKeepChunk() {
+        var room = new DBRef("chat_rooms", ROOM_ID);
+        var first = new Document("_id", CHUNK_ID).append("number", 1L).append("room", room);
+        var legacyRoom = ChatRoom.builder().id(ROOM_ID.toHexString()).participants(List.of(1L, 2L)).readMarks(Map.of()).build();
+
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(ChatChunk.COLLECTION))).thenReturn(List.of(first));
+        when(mongoTemplate.find(any(Query.class), eq(ChatRoom.class))).thenReturn(List.of(legacyRoom));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(ChatChunk.COLLECTION), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(new Document("_id", new DBRef("chat_rooms", ROOM_ID)).append("number", 2L)), new Document()));
+        when(mongoTemplate.findOne(any(Query.class), eq(Document.class), eq(ChatChunk.COLLECTION))).thenReturn(legacyChunk(false));
+
+        assertThat(archiver.archive()).isZero();
+
+        verify(mongoTemplate, never()).insert(any(ChatChunkArchive.class));
+        verify(mongoTemplate, never()).remove(any(Query.class), anyString());
+    }
+
+    @Test
+    void find_ShouldDecompressArchivedMessages() {
+        var conversions = new MongoCustomConversions(List.of());
+        var mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+
+        var converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+
+        var archive = ChatChunkArchive.builder()
+                .id(CHUNK_ID.toHexString())
+                .number(1)
+                .messages(ChatChunkArchiver.compress(new Document("messages", fullChunk().getList("messages", Document.class))))
+                .build();
+
+        when(mongoTemplate.findOne(any(Query.class), eq(ChatChunkArchive.class))).thenReturn(archive);
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+
+        var chunk = archiver.find(ROOM_ID.toHexString(), 1).orElseThrow();
+
+        assertThat(chunk.getNumber()).isEqualTo(1);
+        assertThat(chunk.getMessages()).extracting("id").containsExactly("msg-1", "msg-2");
+        assertThat(chunk.getMessages().get(0).getCreatedAt()).isNotNull();
+    }
+
+    private void mockCandidate(ChatRoom room) {
+        var candidate = new Document("_id", CHUNK_ID)
+                .append("number", 1L)
+                .append("closed", true)
+                .append("room", new DBRef("chat_rooms", ROOM_ID));
+
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(ChatChunk.COLLECTION))).thenReturn(List.of(candidate));
+        when(mongoTemplate.find(any(Query.class), eq(ChatRoom.class))).thenReturn(List.of(room));
+    }
+
+    private static ChatRoom room(long firstMarkChunk, long secondMarkChunk) {
+        return ChatRoom.builder()
+                .id(ROOM_ID.toHexString())
+                .participants(List.of(1L, 2L))
+                .readMarks(Map.of(
+                        1L, ChatRoom.ReadMark.builder().chunk(firstMarkChunk).build(),
+                        2L, ChatRoom.ReadMark.builder().chunk(secondMarkChunk).build()
+                ))
+                .build();
+    }
+
+    /**
+     * Chunk escrito antes de {@code size}, {@code closed} y las marcas de lectura, con las lecturas en {@code readBy}.
+     */
+    private static Document legacyChunk(boolean readByAll) {
+        var createdAt = Date.from(Instant.now().minus(200, ChronoUnit.DAYS));
+        var messages = new ArrayList<>(List.of(
+                new Document("_id", "msg-1").append("message", "Hola").append("createdAt", createdAt).append("sentBy", 1L).append("type", "TEXT")
+                        .append("readBy", List.of(new Document("participantId", 2L))),
+                new Document("_id", "msg-2").append("message", "Adiós").append("createdAt", createdAt).append("sentBy", 2L).append("type", "TEXT")
+                        .append("readBy", readByAll ? List.of(new Document("participantId", 1L)) : List.of())
+        ));
+
+        return new Document("_id", CHUNK_ID)
+                .append("number", 1L)
+                .append("messages", messages);
+    }
+
+    private static Document fullChunk() {
+        var createdAt = Date.from(Instant.now().minus(200, ChronoUnit.DAYS));
+        var messages = new ArrayList<>(List.of(
+                new Document("_id", "msg-1").append("message", "Hola").append("createdAt", createdAt).append("sentBy", 1L).append("type", "TEXT")
+                        .append("readBy", List.of(new Document("participantId", 2L))),
+                new Document("_id", "msg-2").append("message", "Adiós").append("createdAt", createdAt).append("sentBy", 2L).append("type", "TEXT")
+        ));
+
+        return new Document("_id", CHUNK_ID)
+                .append("number", 1L)
+                .append("closed", true)
+                .append("version", 0L)
+                .append("messages", messages);
+    }
+}
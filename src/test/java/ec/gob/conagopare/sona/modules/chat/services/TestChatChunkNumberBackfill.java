@@ -0,0 +1,99 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import com.mongodb.DBRef;
+import ec.gob.conagopare.sona.modules.chat.models.ChatChunk;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestChatChunkNumberBackfill {
+
+    private static final ObjectId ROOM_ID = ObjectId.get();
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private BulkOperations bulk;
+
+    @InjectMocks
+    private ChatChunkNumberBackfill backfill;
+
+    @Test
+    void backfill_WhenRoomHasDuplicateNumbers_ShouldRenumberItsChunksInOrder() {
+        var first = chunk(1);
+        var duplicate = chunk(1);
+        var second = chunk(2);
+
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(ChatChunk.COLLECTION), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(new Document("_id", new DBRef("chat_rooms", ROOM_ID))), new Document()));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq(ChatChunk.COLLECTION))).thenReturn(List.of(first, duplicate, second));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatChunk.COLLECTION)).thenReturn(bulk);
+
+        backfill.backfill();
+
+        var find = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(find.capture(), eq(Document.class), eq(ChatChunk.COLLECTION));
+        assertThat(find.getValue().getQueryObject()).containsEntry("room.$id", ROOM_ID);
+        assertThat(find.getValue().getSortObject()).isEqualTo(new Document("number", 1).append("_id", 1));
+
+        var queries = ArgumentCaptor.forClass(Query.class);
+        var updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(2)).updateOne(queries.capture(), updates.capture());
+        verify(bulk).execute();
+
+        assertThat(queries.getAllValues()).extracting(q -> q.getQueryObject().get("_id")).containsExactly(duplicate.get("_id"), second.get("_id"));
+        assertThat(updates.getAllValues())
+                .extracting(u -> u.getUpdateObject().get("$set", Document.class).get(ChatChunk.NUMBER_FIELD))
+                .containsExactly(2L, 3L);
+    }
+
+    @Test
+    void backfill_WhenThereAreNoDuplicates_ShouldNotTouchChunks() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(ChatChunk.COLLECTION), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(), new Document()));
+
+        backfill.backfill();
+
+        verify(mongoTemplate, never()).find(any(Query.class), eq(Document.class), eq(ChatChunk.COLLECTION));
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), any(String.class));
+    }
+
+    @Test
+    void backfill_ShouldGroupByRoomAndNumber() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(ChatChunk.COLLECTION), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(), new Document()));
+
+        backfill.backfill();
+
+        var aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq(ChatChunk.COLLECTION), eq(Document.class));
+        var pipeline = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        assertThat(pipeline.get(0).get("$group", Document.class).get("_id")).isEqualTo(new Document("room", "$room").append("number", "$number"));
+        assertThat(pipeline.get(1).get("$match", Document.class).get("count")).isEqualTo(new Document("$gt", 1));
+        assertThat(pipeline.get(2).get("$group", Document.class).get("_id")).isEqualTo("$_id.room");
+    }
+
+    private static Document chunk(long number) {
+        return new Document("_id", ObjectId.get()).append("number", number);
+    }
+}
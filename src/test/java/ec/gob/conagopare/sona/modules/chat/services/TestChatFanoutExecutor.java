@@ -0,0 +1,77 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.modules.chat.ChatConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestChatFanoutExecutor {
+
+    private SimpleMeterRegistry registry;
+    private ChatFanoutExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        var config = new ChatConfig();
+        config.getFanout().setThreads(1);
+        config.getFanout().setQueueCapacity(1);
+
+        registry = new SimpleMeterRegistry();
+        executor = new ChatFanoutExecutor(config, registry);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.destroy();
+    }
+
+    @Test
+    void execute_ShouldRecordLatencyAndFailures() throws InterruptedException {
+        var done = new CountDownLatch(2);
+
+        executor.execute("inbox", done::countDown);
+        executor.execute("inbox", () -> {
+            done.countDown();
+            throw new IllegalStateException("FCM no disponible");
+        });
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.destroy();
+
+        assertThat(registry.get("chat.fanout.latency").tags("task", "inbox", "outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(registry.get("chat.fanout.failures").tags("task", "inbox").counter().count()).isEqualTo(1);
+        assertThat(registry.find("executor.queued").tags("name", "chat.fanout").gauge()).isNotNull();
+    }
+
+    @Test
+    void execute_WhenQueueIsFull_ShouldRunOnCallerThread() throws InterruptedException {
+        var release = new CountDownLatch(1);
+        var callerThread = new AtomicReference<Thread>();
+
+        // Ocupa el único hilo y el único lugar de la cola
+        executor.execute("inbox", () -> await(release));
+        executor.execute("inbox", () -> {
+        });
+        executor.execute("inbox", () -> callerThread.set(Thread.currentThread()));
+
+        release.countDown();
+
+        assertThat(callerThread.get()).isEqualTo(Thread.currentThread());
+        assertThat(registry.get("chat.fanout.rejected").counter().count()).isEqualTo(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.modules.chat.ChatConfig;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatGroupDto;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoomType;
+import ec.gob.conagopare.sona.modules.chat.repositories.ChatRoomRepository;
+import ec.gob.conagopare.sona.modules.user.models.User;
+import ec.gob.conagopare.sona.modules.user.service.UserService;
+import io.github.luidmidev.springframework.web.problemdetails.ProblemDetailsException;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestChatGroupService {
+
+    private static final Long ADMIN_ID = 1L;
+    private static final Long MEMBER_ID = 2L;
+    private static final String ROOM_ID = ObjectId.get().toHexString();
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private ChatRoomRepository roomRepository;
+    @Mock
+    private ChatRoomCache roomCache;
+    @Mock
+    private UserService userService;
+    @Mock
+    private Jwt jwt;
+
+    private final ChatConfig config = new ChatConfig();
+    private ChatGroupService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ChatGroupService(mongoTemplate, roomRepository, roomCache, userService, config);
+    }
+
+    @Test
+    void create_ShouldAddCreatorAsParticipantAndAdmin() {
+        when(userService.getUserId(jwt)).thenReturn(ADMIN_ID);
+        when(userService.map(any())).thenReturn(users(ADMIN_ID, MEMBER_ID, 3L));
+        when(roomRepository.save(any(ChatRoom.class))).thenAnswer(invocation -> {
+            ChatRoom room = invocation.getArgument(0);
+            room.setId(ROOM_ID);
+            return room;
+        });
+
+        var group = ChatGroupDto.builder()
+                .name("  Grupo de apoyo ")
+                .participants(List.of(MEMBER_ID, 3L, ADMIN_ID))
+                .build();
+
+        var room = service.create(group, jwt);
+
+        assertThat(room.getType()).isEqualTo(ChatRoomType.GROUP);
+        assertThat(room.getName()).isEqualTo("Grupo de apoyo");
+        assertThat(room.getParticipants()).containsExactly(ADMIN_ID, MEMBER_ID, 3L);
+        assertThat(room.getAdmins()).containsExactly(ADMIN_ID);
+        verify(roomCache).put(room);
+    }
+
+    @Test
+    void create_WithMoreThanMaxParticipants_ShouldFail() {
+        config.getGroups().setMaxParticipants(2);
+        when(userService.getUserId(jwt)).thenReturn(ADMIN_ID);
+
+        var group = ChatGroupDto.builder()
+                .name("Grupo")
+                .participants(List.of(MEMBER_ID, 3L))
+                .build();
+
+        assertThrows(ProblemDetailsException.class, () -> service.create(group, jwt));
+        verifyNoInteractions(roomRepository);
+    }
+
+    @Test
+    void addParticipants_ShouldAddOnlyNewUsersInSingleConditionalUpdate() {
+        var room = group();
+        when(userService.getUserId(jwt)).thenReturn(ADMIN_ID);
+        when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+        when(userService.map(any())).thenReturn(users(3L));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ChatRoom.class)))
+                .thenReturn(room);
+
+        service.addParticipants(ROOM_ID, List.of(MEMBER_ID, 3L), jwt);
+
+        var query = ArgumentCaptor.forClass(Query.class);
+        var update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), any(FindAndModifyOptions.class), eq(ChatRoom.class));
+
+        // Con el máximo por defecto y un usuario nuevo, la posición 999 no debe existir
+        assertThat(query.getValue().getQueryObject()).containsKey(ChatRoom.PARTICIPANTS_FIELD + ".999");
+        assertThat(update.getValue().modifies(ChatRoom.PARTICIPANTS_FIELD)).isTrue();
+        verify(roomCache).put(room);
+    }
+
+    @Test
+    void addParticipants_WhenGroupChangedConcurrently_ShouldFail() {
+        when(userService.getUserId(jwt)).thenReturn(ADMIN_ID);
+        when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(group()));
+        when(userService.map(any())).thenReturn(users(3L));
+
+        assertThrows(ProblemDetailsException.class, () -> service.addParticipants(ROOM_ID, List.of(3L), jwt));
+        verifyNoInteractions(roomCache);
+    }
+
+    @Test
+    void addParticipants_ByNonAdmin_ShouldFail() {
+        when(userService.getUserId(jwt)).thenReturn(MEMBER_ID);
+        when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(group()));
+
+        assertThrows(ProblemDetailsException.class, () -> service.addParticipants(ROOM_ID, List.of(3L), jwt));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void removeParticipant_ByNonAdminForOtherUser_ShouldFail() {
+        when(userService.getUserId(jwt)).thenReturn(MEMBER_ID);
+        when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(group()));
+
+        assertThrows(ProblemDetailsException.class, () -> service.removeParticipant(ROOM_ID, ADMIN_ID, jwt));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void removeParticipant_ByNonParticipant_ShouldNotRevealGroup() {
+        when(userService.getUserId(jwt)).thenReturn(3L);
+        when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(group()));
+
+        var exception = assertThrows(ProblemDetailsException.class, () -> service.removeParticipant(ROOM_ID, 3L, jwt));
+        assertThat(exception.getBody().getStatus()).isEqualTo(404);
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void removeParticipant_LastAdminLeaving_ShouldFail() {
+        when(userService.getUserId(jwt)).thenReturn(ADMIN_ID);
+        when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(group()));
+
+        assertThrows(ProblemDetailsException.class, () -> service.removeParticipant(ROOM_ID, ADMIN_ID, jwt));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void removeParticipant_MemberLeaving_ShouldPullParticipantAndReadMark() {
+        var room = group();
+        when(userService.getUserId(jwt)).thenReturn(MEMBER_ID);
+        when(roomRepository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ChatRoom.class)))
+                .thenReturn(room);
+
+        service.removeParticipant(ROOM_ID, MEMBER_ID, jwt);
+
+        var update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(any(Query.class), update.capture(), any(FindAndModifyOptions.class), eq(ChatRoom.class));
+        assertThat(update.getValue().modifies(ChatRoom.PARTICIPANTS_FIELD)).isTrue();
+        assertThat(update.getValue().modifies(ChatRoom.READ_MARKS_FIELD + "." + MEMBER_ID)).isTrue();
+    }
+
+    private static ChatRoom group() {
+        return ChatRoom.builder()
+                .id(ROOM_ID)
+                .name("Grupo")
+                .type(ChatRoomType.GROUP)
+                .participants(new ArrayList<>(List.of(ADMIN_ID, MEMBER_ID)))
+                .admins(new ArrayList<>(List.of(ADMIN_ID)))
+                .build();
+    }
+
+    private static Map<Long, User> users(Long... ids) {
+        var users = new HashMap<Long, User>();
+        for (var id : ids) {
+            users.put(id, new User());
+        }
+        return users;
+    }
+}
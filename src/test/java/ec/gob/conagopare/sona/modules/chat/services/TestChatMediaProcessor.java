@@ -0,0 +1,131 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import com.mongodb.client.result.UpdateResult;
+import ec.gob.conagopare.sona.application.storage.StoredResource;
+import ec.gob.conagopare.sona.application.storage.StreamingStorage;
+import ec.gob.conagopare.sona.modules.chat.ChatConfig;
+import ec.gob.conagopare.sona.modules.chat.models.ChatChunk;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessageType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestChatMediaProcessor {
+
+    private static final String ROOM_ID = ObjectId.get().toHexString();
+    private static final String PATH = "users/1/chats/" + ROOM_ID + "/images/foto.png";
+
+    @Mock
+    private StreamingStorage storage;
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private StoredResource resource;
+
+    private ChatMediaProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        processor = new ChatMediaProcessor(new ChatConfig(), storage, mongoTemplate, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        processor.destroy();
+    }
+
+    @Test
+    void process_ShouldStoreBoundedThumbnailAndRecordDimensions() throws IOException {
+        var message = ChatMessage.now(PATH, 1L, ChatMessageType.IMAGE);
+        var content = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(1600, 800, BufferedImage.TYPE_INT_RGB), "png", content);
+
+        when(storage.open(PATH)).thenReturn(Optional.of(resource));
+        when(resource.getInputStream()).thenReturn(new ByteArrayInputStream(content.toByteArray()));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ChatChunk.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        processor.process(ROOM_ID, message);
+
+        var thumbnail = ArgumentCaptor.forClass(InputStream.class);
+        verify(storage).store(thumbnail.capture(), eq("users/1/chats/" + ROOM_ID + "/images/thumbs/foto.jpg"), eq("image/jpeg"));
+
+        var stored = ImageIO.read(thumbnail.getValue());
+        assertThat(stored.getWidth()).isEqualTo(320);
+        assertThat(stored.getHeight()).isEqualTo(160);
+
+        var update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(ChatChunk.class));
+
+        var media = message.getMedia();
+        assertThat(update.getValue().getUpdateObject().get("$set", Document.class).get("messages.$.media")).isEqualTo(media);
+        assertThat(media.getWidth()).isEqualTo(1600);
+        assertThat(media.getHeight()).isEqualTo(800);
+        assertThat(media.getThumbnailWidth()).isEqualTo(320);
+        assertThat(media.getThumbnailHeight()).isEqualTo(160);
+    }
+
+    @Test
+    void process_WhenMessageWasDeleted_ShouldRemoveThumbnail() throws IOException {
+        var message = ChatMessage.now(PATH, 1L, ChatMessageType.IMAGE);
+        var content = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB), "png", content);
+
+        when(storage.open(PATH)).thenReturn(Optional.of(resource));
+        when(resource.getInputStream()).thenReturn(new ByteArrayInputStream(content.toByteArray()));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ChatChunk.class))).thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        processor.process(ROOM_ID, message);
+
+        var query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateFirst(query.capture(), any(Update.class), eq(ChatChunk.class));
+        var elemMatch = query.getValue().getQueryObject().get(ChatChunk.MESSAGES_FIELD, Document.class).get("$elemMatch", Document.class);
+        assertThat(elemMatch.get(ChatMessage.DELETED_AT_FIELD)).isEqualTo(new Document("$exists", false));
+
+        verify(storage).delete(ChatMediaProcessor.thumbnailPath(PATH));
+        assertThat(message.getMedia()).isNull();
+    }
+
+    @Test
+    void process_WhenImageCannotBeDecoded_ShouldSkipThumbnail() throws IOException {
+        var message = ChatMessage.now(PATH, 1L, ChatMessageType.IMAGE);
+
+        when(storage.open(PATH)).thenReturn(Optional.of(resource));
+        when(resource.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[]{1, 2, 3}));
+
+        processor.process(ROOM_ID, message);
+
+        verify(storage, never()).store(any(), any(), any());
+        verifyNoInteractions(mongoTemplate);
+        assertThat(message.getMedia()).isNull();
+    }
+
+    @Test
+    void thumbnailPath_ShouldPlaceJpegInThumbsDir() {
+        assertThat(ChatMediaProcessor.thumbnailPath("users/1/chats/r/images/a.b.png")).isEqualTo("users/1/chats/r/images/thumbs/a.b.jpg");
+    }
+}
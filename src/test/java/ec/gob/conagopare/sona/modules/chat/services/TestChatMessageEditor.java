@@ -0,0 +1,83 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import com.mongodb.client.result.UpdateResult;
+import ec.gob.conagopare.sona.modules.chat.models.ChatChunk;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessageType;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestChatMessageEditor {
+
+    private static final String ROOM_ID = ObjectId.get().toHexString();
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private ChatMessageEditor editor;
+
+    @BeforeEach
+    void setUp() {
+        editor = new ChatMessageEditor(mongoTemplate);
+    }
+
+    @Test
+    void edit_ShouldUpdateOnlyMatchedElementAndKeepPreviousText() {
+        var message = ChatMessage.now("Hola", 1L, ChatMessageType.TEXT);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ChatChunk.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        assertThat(editor.edit(ROOM_ID, message, "Hola a todos", Instant.now())).isTrue();
+
+        var query = ArgumentCaptor.forClass(Query.class);
+        var update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(query.capture(), update.capture(), eq(ChatChunk.class));
+
+        // Solo se edita si el texto sigue siendo el que se leyó
+        var elemMatch = query.getValue().getQueryObject().get(ChatChunk.MESSAGES_FIELD, Document.class).get("$elemMatch", Document.class);
+        assertThat(elemMatch).containsEntry(ChatMessage.MESSAGE_FIELD, "Hola");
+
+        var updateObject = update.getValue().getUpdateObject();
+        assertThat(updateObject.get("$set", Document.class)).containsKeys("messages.$[message].message", "messages.$[message].editedAt");
+        assertThat(updateObject.get("$inc", Document.class)).containsEntry(ChatChunk.SIZE_FIELD, ChatChunk.estimateEditSize("Hola a todos"));
+        assertThat(update.getValue().modifies("messages.$[message].edits")).isTrue();
+        assertThat(update.getValue().getArrayFilters()).hasSize(1);
+    }
+
+    @Test
+    void delete_ShouldLeaveTombstoneWithoutContent() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ChatChunk.class))).thenReturn(UpdateResult.acknowledged(1, 0L, null));
+
+        assertThat(editor.delete(ROOM_ID, "message-id", Instant.now())).isFalse();
+
+        var update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(ChatChunk.class));
+
+        var updateObject = update.getValue().getUpdateObject();
+        assertThat(updateObject.get("$set", Document.class)).containsKey("messages.$[message].deletedAt");
+        assertThat(updateObject.get("$unset", Document.class)).containsKeys(
+                "messages.$[message].message",
+                "messages.$[message].resource",
+                "messages.$[message].media",
+                "messages.$[message].edits"
+        );
+        // El mensaje se queda en el arreglo, nunca se quita con $pull
+        assertThat(updateObject).doesNotContainKey("$pull");
+    }
+}
@@ -0,0 +1,113 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import com.mongodb.client.result.UpdateResult;
+import ec.gob.conagopare.sona.modules.chat.ChatConfig;
+import ec.gob.conagopare.sona.modules.chat.dto.ReadMessages;
+import ec.gob.conagopare.sona.modules.chat.models.ChatChunk;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoomType;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestChatReadReceiptAggregator {
+
+    private static final Long USER_ID = 2L;
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private ChatBroadcaster broadcaster;
+    @Mock
+    private ChatFanoutExecutor fanout;
+
+    private ChatReadReceiptAggregator aggregator;
+    private ChatRoom room;
+
+    @BeforeEach
+    void setUp() {
+        var config = new ChatConfig();
+        config.getReadReceipts().setWindow(Duration.ofHours(1));
+
+        aggregator = new ChatReadReceiptAggregator(config, mongoTemplate, broadcaster, fanout);
+        room = ChatRoom.builder()
+                .id(ObjectId.get().toHexString())
+                .type(ChatRoomType.PRIVATE)
+                .participants(List.of(1L, USER_ID))
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        aggregator.destroy();
+    }
+
+    @Test
+    void add_ShouldCoalesceReadsIntoSingleMarkAndEvent() {
+        AggregationResults<Document> aggregationResults = mock(AggregationResults.class);
+        var updateResult = mock(UpdateResult.class);
+
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(ChatChunk.class), eq(Document.class))).thenReturn(aggregationResults);
+        when(aggregationResults.getUniqueMappedResult()).thenReturn(new Document("number", 2L).append("index", 4).append("messageId", "msg-3"));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ChatRoom.class))).thenReturn(updateResult);
+        when(updateResult.getModifiedCount()).thenReturn(1L);
+
+        aggregator.add(room, USER_ID, List.of("msg-1", "msg-2"));
+        aggregator.add(room, USER_ID, List.of("msg-2", "msg-3"));
+
+        // Solo la primera lectura de la ventana programa el guardado
+        verify(fanout, never()).execute(any(), any());
+        aggregator.flush(new ChatReadReceiptAggregator.PendingKey(room.getId(), USER_ID));
+
+        var update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(1)).aggregate(any(Aggregation.class), eq(ChatChunk.class), eq(Document.class));
+        verify(mongoTemplate, times(1)).updateFirst(any(Query.class), update.capture(), eq(ChatRoom.class));
+
+        var mark = (ChatRoom.ReadMark) update.getValue().getUpdateObject().get("$set", Document.class).get("readMarks." + USER_ID);
+        assertThat(mark.getChunk()).isEqualTo(2L);
+        assertThat(mark.getIndex()).isEqualTo(4);
+        assertThat(mark.getMessageId()).isEqualTo("msg-3");
+
+        var event = ArgumentCaptor.forClass(ReadMessages.class);
+        verify(broadcaster, times(1)).read(eq(room), event.capture());
+        assertThat(event.getValue().getMessageIds()).containsExactly("msg-1", "msg-2", "msg-3");
+        assertThat(event.getValue().getLastReadMessageId()).isEqualTo("msg-3");
+        assertThat(event.getValue().getReadBy().getParticipantId()).isEqualTo(USER_ID);
+    }
+
+    @Test
+    void flush_WhenMarkDoesNotAdvance_ShouldNotBroadcast() {
+        AggregationResults<Document> aggregationResults = mock(AggregationResults.class);
+        var updateResult = mock(UpdateResult.class);
+
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(ChatChunk.class), eq(Document.class))).thenReturn(aggregationResults);
+        when(aggregationResults.getUniqueMappedResult()).thenReturn(new Document("number", 1L).append("index", 0).append("messageId", "msg-1"));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(ChatRoom.class))).thenReturn(updateResult);
+        when(updateResult.getModifiedCount()).thenReturn(0L);
+
+        aggregator.add(room, USER_ID, List.of("msg-1"));
+        aggregator.flush(new ChatReadReceiptAggregator.PendingKey(room.getId(), USER_ID));
+
+        verifyNoInteractions(broadcaster);
+    }
+}
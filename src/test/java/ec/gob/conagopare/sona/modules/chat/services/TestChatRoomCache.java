@@ -0,0 +1,76 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.modules.chat.ChatConfig;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoomType;
+import ec.gob.conagopare.sona.modules.chat.repositories.ChatRoomRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestChatRoomCache {
+
+    private static final String ROOM_ID = ObjectId.get().toHexString();
+
+    @Mock
+    private ChatRoomRepository repository;
+
+    private SimpleMeterRegistry registry;
+    private ChatRoomCache cache;
+    private ChatRoom room;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        cache = new ChatRoomCache(new ChatConfig(), repository, registry);
+        room = ChatRoom.builder()
+                .id(ROOM_ID)
+                .type(ChatRoomType.PRIVATE)
+                .participants(List.of(1L, 2L))
+                .build();
+    }
+
+    @Test
+    void get_ShouldQueryRepositoryOnlyOnMiss() {
+        when(repository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+
+        assertThat(cache.get(ROOM_ID)).contains(room);
+        assertThat(cache.get(ROOM_ID)).contains(room);
+
+        verify(repository, times(1)).findById(ROOM_ID);
+        assertThat(registry.get("cache.gets").tag("cache", "chat.rooms").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("cache", "chat.rooms").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void get_WhenRoomIsMissing_ShouldNotCacheAbsence() {
+        when(repository.findById(ROOM_ID)).thenReturn(Optional.empty(), Optional.of(room));
+
+        assertThat(cache.get(ROOM_ID)).isEmpty();
+        assertThat(cache.get(ROOM_ID)).contains(room);
+    }
+
+    @Test
+    void invalidate_ShouldReloadFromRepository() {
+        cache.put(room);
+        assertThat(cache.get(ROOM_ID)).contains(room);
+        verifyNoInteractions(repository);
+
+        when(repository.findById(ROOM_ID)).thenReturn(Optional.of(room));
+        cache.invalidate(ROOM_ID);
+        cache.get(ROOM_ID);
+
+        verify(repository, times(1)).findById(ROOM_ID);
+    }
+}
@@ -0,0 +1,85 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoomType;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestChatRoomDeliveryInterceptor {
+
+    private static final Long USER_ID = 1L;
+    private static final String SESSION_ID = "s1";
+    private static final String ROOM_ID = ObjectId.get().toHexString();
+
+    @Mock
+    private ChatRoomCache roomCache;
+    @Mock
+    private ChatSessionRegistry sessions;
+    @Mock
+    private MessageChannel channel;
+
+    private ChatRoomDeliveryInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        interceptor = new ChatRoomDeliveryInterceptor(roomCache, sessions);
+    }
+
+    @Test
+    void preSend_RoomEventForParticipant_ShouldBeDelivered() {
+        when(sessions.sessionUser(SESSION_ID)).thenReturn(Optional.of(USER_ID));
+        when(roomCache.get(ROOM_ID)).thenReturn(Optional.of(room(USER_ID, 2L)));
+
+        var message = message(ChatBroadcaster.ROOM_TOPIC + ROOM_ID + ChatBroadcaster.TYPING_SUFFIX);
+
+        assertThat(interceptor.preSend(message, channel)).isSameAs(message);
+    }
+
+    @Test
+    void preSend_RoomEventForRemovedParticipant_ShouldBeDropped() {
+        when(sessions.sessionUser(SESSION_ID)).thenReturn(Optional.of(USER_ID));
+        when(roomCache.get(ROOM_ID)).thenReturn(Optional.of(room(2L, 3L)));
+
+        assertThat(interceptor.preSend(message(ChatBroadcaster.ROOM_TOPIC + ROOM_ID), channel)).isNull();
+    }
+
+    @Test
+    void preSend_InboxEvent_ShouldNotBeChecked() {
+        var message = message(ChatBroadcaster.inbox(USER_ID));
+
+        assertThat(interceptor.preSend(message, channel)).isSameAs(message);
+        verifyNoInteractions(roomCache, sessions);
+    }
+
+    private static ChatRoom room(Long... participants) {
+        return ChatRoom.builder()
+                .id(ROOM_ID)
+                .type(ChatRoomType.GROUP)
+                .participants(List.of(participants))
+                .build();
+    }
+
+    private static Message<byte[]> message(String destination) {
+        var accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setSessionId(SESSION_ID);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,79 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoomType;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestChatRoomPairKeyBackfill {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private BulkOperations bulk;
+
+    @InjectMocks
+    private ChatRoomPairKeyBackfill backfill;
+
+    @Test
+    void backfill_ShouldAssignPairKeyOnlyToOldestRoomOfEachPair() {
+        var oldest = room("room-1", 2L, 1L);
+        var duplicate = room("room-2", 1L, 2L);
+        var other = room("room-3", 1L, 3L);
+        var alreadyKeyed = ChatRoom.builder().pairKey("1:4").build();
+        var duplicateOfKeyed = room("room-4", 4L, 1L);
+
+        when(mongoTemplate.find(argThat(q -> q != null && q.getQueryObject().containsKey(ChatRoom.TYPE_FIELD)), eq(ChatRoom.class)))
+                .thenReturn(List.of(oldest, duplicate, other, duplicateOfKeyed));
+        when(mongoTemplate.find(argThat(q -> q != null && !q.getQueryObject().containsKey(ChatRoom.TYPE_FIELD)), eq(ChatRoom.class)))
+                .thenReturn(List.of(alreadyKeyed));
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ChatRoom.class)).thenReturn(bulk);
+
+        backfill.backfill();
+
+        var queries = ArgumentCaptor.forClass(Query.class);
+        var updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(2)).updateOne(queries.capture(), updates.capture());
+        verify(bulk).execute();
+
+        assertThat(queries.getAllValues()).extracting(q -> q.getQueryObject().get("_id")).containsExactly("room-1", "room-3");
+        assertThat(updates.getAllValues())
+                .extracting(u -> u.getUpdateObject().get("$set", Document.class).get(ChatRoom.PAIR_KEY_FIELD))
+                .containsExactly("1:2", "1:3");
+    }
+
+    @Test
+    void backfill_WhenNothingPending_ShouldNotTouchRooms() {
+        when(mongoTemplate.find(any(Query.class), eq(ChatRoom.class))).thenReturn(List.of());
+
+        backfill.backfill();
+
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(ChatRoom.class));
+    }
+
+    private static ChatRoom room(String id, Long first, Long second) {
+        return ChatRoom.builder()
+                .id(id)
+                .type(ChatRoomType.PRIVATE)
+                .participants(List.of(first, second))
+                .build();
+    }
+}
@@ -0,0 +1,79 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessage;
+import ec.gob.conagopare.sona.modules.chat.models.ChatMessageType;
+import ec.gob.conagopare.sona.modules.chat.models.ChatSearchEntry;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestChatSearchIndex {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @InjectMocks
+    private ChatSearchIndex searchIndex;
+
+    @Test
+    void tokenize_ShouldNormalizeAccentsCaseAndRepeatedWords() {
+        assertThat(ChatSearchIndex.tokenize("¿Mañana a las 10? ¡MAÑANA sí, Ángel!", 10))
+                .containsExactly("manana", "las", "10", "si", "angel");
+    }
+
+    @Test
+    void index_ShouldUpsertEntryWithTermsAndSnippet() {
+        var message = ChatMessage.now("Hola, ¿cómo estás?", 1L, ChatMessageType.TEXT);
+
+        searchIndex.index("room-1", message);
+
+        var query = ArgumentCaptor.forClass(Query.class);
+        var update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(query.capture(), update.capture(), eq(ChatSearchEntry.class));
+
+        var set = update.getValue().getUpdateObject().get("$set", Document.class);
+        assertThat(query.getValue().getQueryObject().get("_id")).isEqualTo(message.getId());
+        assertThat(set.get(ChatSearchEntry.TERMS_FIELD)).isEqualTo(List.of("hola", "como", "estas"));
+        assertThat(set.get(ChatSearchEntry.ROOM_ID_FIELD)).isEqualTo("room-1");
+        assertThat(set.get("snippet")).isEqualTo("Hola, ¿cómo estás?");
+    }
+
+    @Test
+    void search_ShouldMatchAllTermsInGivenRooms() {
+        var entry = ChatSearchEntry.builder().messageId("msg-1").roomId("room-1").build();
+        when(mongoTemplate.find(any(Query.class), eq(ChatSearchEntry.class))).thenReturn(List.of(entry));
+
+        var page = searchIndex.search(List.of("room-1", "room-2"), "Cita médica", PageRequest.of(0, 20));
+
+        var query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(ChatSearchEntry.class));
+
+        var criteria = query.getValue().getQueryObject();
+        assertThat(criteria.get(ChatSearchEntry.TERMS_FIELD, Document.class).get("$all")).isEqualTo(List.of("cita", "medica"));
+        assertThat(criteria.get(ChatSearchEntry.ROOM_ID_FIELD, Document.class).get("$in")).isEqualTo(List.of("room-1", "room-2"));
+        assertThat(query.getValue().getSortObject().get(ChatSearchEntry.CREATED_AT_FIELD)).isEqualTo(-1);
+        assertThat(page.getContent()).containsExactly(entry);
+    }
+
+    @Test
+    void search_WithoutTerms_ShouldNotQuery() {
+        assertThat(searchIndex.search(List.of("room-1"), "¿ ?", PageRequest.of(0, 20))).isEmpty();
+        verifyNoInteractions(mongoTemplate);
+    }
+}
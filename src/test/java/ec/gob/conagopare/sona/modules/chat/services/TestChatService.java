@@ -1,26 +1,39 @@
 package ec.gob.conagopare.sona.modules.chat.services;
 
-import com.mongodb.client.result.UpdateResult;
-import ec.gob.conagopare.sona.modules.chat.dto.ReadMessages;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatInboxRoom;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatMessageChange;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatParticipant;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatSyncRequest;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatUploadRequest;
 import ec.gob.conagopare.sona.modules.chat.models.*;
 import ec.gob.conagopare.sona.modules.chat.repositories.ChatRoomRepository;
 import ec.gob.conagopare.sona.modules.user.models.User;
 import ec.gob.conagopare.sona.application.firebase.NotificationService;
+import ec.gob.conagopare.sona.application.storage.StoredResource;
+import ec.gob.conagopare.sona.application.storage.StreamingStorage;
+import ec.gob.conagopare.sona.application.storage.UploadSlot;
+import ec.gob.conagopare.sona.modules.chat.ChatConfig;
 import ec.gob.conagopare.sona.modules.user.service.UserService;
-import io.github.luidmidev.storage.Storage;
+import io.github.luidmidev.springframework.web.problemdetails.ProblemDetailsException;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.AggregationResults;
 import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
 import org.springframework.data.mongodb.core.query.Query;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.security.oauth2.jwt.Jwt;
 
 import java.io.IOException;
@@ -28,16 +41,17 @@ import java.io.InputStream;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
-import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.web.multipart.MultipartFile;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
@@ -48,8 +62,6 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class TestChatService {
 
-    @Mock
-    private SimpMessagingTemplate messaging;
     @Mock
     private MongoTemplate mongoTemplate;
     @Mock
@@ -57,9 +69,31 @@ class TestChatService {
     @Mock
     private ChatRoomRepository roomRepository;
     @Mock
+    private ChatRoomCache roomCache;
+    @Mock
     private NotificationService notificationService;
     @Mock
-    private Storage storage;
+    private StreamingStorage streamingStorage;
+    @Mock
+    private ChatChunkAppender chunkAppender;
+    @Mock
+    private ChatChunkArchiver chunkArchiver;
+    @Mock
+    private ChatBroadcaster broadcaster;
+    @Mock
+    private ChatFanoutExecutor fanout;
+    @Mock
+    private ChatReadReceiptAggregator readReceipts;
+    @Mock
+    private ChatMediaProcessor mediaProcessor;
+    @Mock
+    private ChatSearchIndex searchIndex;
+    @Mock
+    private ChatSessionRegistry sessions;
+    @Mock
+    private ChatMessageEditor messageEditor;
+    @Spy
+    private ChatConfig config = new ChatConfig();
 
     @InjectMocks
     private ChatService chatService;
@@ -108,39 +142,239 @@ class TestChatService {
         var storedPath = "users/1/chats/test-room-id/images/test.jpg";
         var file = mock(MultipartFile.class);
 
-        when(userService.getUser(any(Jwt.class))).thenReturn(user);
-        when(roomRepository.findById(anyString())).thenReturn(Optional.of(room));
+        when(userService.getUserId(any(Jwt.class))).thenReturn(USER_ID);
+        when(roomCache.get(anyString())).thenReturn(Optional.of(room));
         when(file.getOriginalFilename()).thenReturn("test.jpg");
         when(file.getInputStream()).thenReturn(mock(InputStream.class));
-        when(storage.store(any(InputStream.class), anyString(), anyString())).thenReturn(storedPath);
-        when(mongoTemplate.save(any(ChatChunk.class))).thenReturn(mock(ChatChunk.class));
+        when(streamingStorage.store(any(InputStream.class), anyString(), any())).thenReturn(storedPath);
 
         chatService.sendImage(file, ROOM_ID, REQUEST_ID, jwt);
 
-        verify(storage).store(any(InputStream.class), anyString(), contains("images"));
+        verify(streamingStorage).store(any(InputStream.class), contains("/images/"), any());
+        verify(chunkAppender).append(eq(room), argThat(m -> m.getType() == ChatMessageType.IMAGE && storedPath.equals(m.getMessage())));
+        verify(broadcaster).message(eq(room), argThat(payload -> REQUEST_ID.equals(payload.getRequestId())));
+        verify(fanout, times(1)).execute(eq("notification"), any(Runnable.class));
+        verify(mediaProcessor).thumbnail(eq(ROOM_ID), argThat(m -> storedPath.equals(m.getMessage())));
     }
 
     @Test
-    void read_ShouldMarkMessagesAsRead() {
+    void read_ShouldQueueReadReceipt() {
         var messageIds = List.of("msg-1", "msg-2");
-        var updateResult = mock(UpdateResult.class);
-
 
-        when(userService.getUser(any(Jwt.class))).thenReturn(user);
-        when(roomRepository.findById(anyString())).thenReturn(Optional.of(room));
-        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(ChatChunk.class))).thenReturn(updateResult);
-        when(updateResult.getModifiedCount()).thenReturn(2L);
+        when(userService.getUserId(any(Jwt.class))).thenReturn(USER_ID);
+        when(roomCache.get(anyString())).thenReturn(Optional.of(room));
 
         chatService.read(ROOM_ID, messageIds, jwt);
 
-        verify(messaging, atLeast(1)).convertAndSend(
-                argThat(topic -> topic.startsWith("/topic/chat.inbox")),
-                argThat((ReadMessages rm) ->
-                        rm.getRoomId().equals(ROOM_ID) &&
-                                rm.getMessageIds().equals(messageIds) &&
-                                rm.getReadBy().getParticipantId().equals(USER_ID)
-                )
-        );
+        verify(readReceipts).add(room, USER_ID, messageIds);
+        verifyNoInteractions(mongoTemplate, broadcaster);
+    }
+
+    @Test
+    void read_WhenUserIsNotParticipant_ShouldThrowForbidden() {
+        var messageIds = List.of("msg-1");
+
+        when(userService.getUserId(any(Jwt.class))).thenReturn(3L);
+        when(roomCache.get(anyString())).thenReturn(Optional.of(room));
+
+        assertThrows(ProblemDetailsException.class, () -> chatService.read(ROOM_ID, messageIds, jwt));
+        verifyNoInteractions(readReceipts);
+    }
+
+    @Test
+    void sendMessage_WhenRecipientIsOnline_ShouldNotSendPushNotification() {
+        when(userService.getUserId(any(Jwt.class))).thenReturn(USER_ID);
+        when(roomCache.get(anyString())).thenReturn(Optional.of(room));
+        when(sessions.isOnline(OTHER_USER_ID)).thenReturn(true);
+
+        chatService.sendMessage("Hola", ROOM_ID, REQUEST_ID, jwt);
+
+        verify(broadcaster).message(eq(room), any());
+        verify(fanout, never()).execute(eq("notification"), any(Runnable.class));
+    }
+
+    @Test
+    void typing_ShouldDelegateToSessionRegistry() {
+        when(userService.getUserId(any(Jwt.class))).thenReturn(USER_ID);
+        when(roomCache.get(anyString())).thenReturn(Optional.of(room));
+
+        chatService.typing(ROOM_ID, true, jwt);
+
+        verify(sessions).typing(room, USER_ID, true);
+    }
+
+    @Test
+    void sendMessage_ShouldIndexTextForSearch() {
+        when(userService.getUserId(any(Jwt.class))).thenReturn(USER_ID);
+        when(roomCache.get(anyString())).thenReturn(Optional.of(room));
+
+        var payload = chatService.sendMessage("Hola", ROOM_ID, REQUEST_ID, jwt);
+
+        var task = ArgumentCaptor.forClass(Runnable.class);
+        verify(fanout).execute(eq("search-index"), task.capture());
+        task.getValue().run();
+        verify(searchIndex).index(ROOM_ID, payload.getMessage());
+    }
+
+    @Test
+    void search_ShouldSearchOnlyInUserRooms() {
+        var pageable = PageRequest.of(0, 20);
+
+        when(userService.getUserId(jwt)).thenReturn(USER_ID);
+        when(mongoTemplate.find(any(Query.class), eq(ChatRoom.class))).thenReturn(List.of(room));
+        when(searchIndex.search(List.of(ROOM_ID), "hola", pageable)).thenReturn(Page.empty(pageable));
+
+        assertThat(chatService.search("hola", pageable, jwt)).isEmpty();
+        verify(mongoTemplate).find(argThat((Query q) -> USER_ID.equals(q.getQueryObject().get(ChatRoom.PARTICIPANTS_FIELD))), eq(ChatRoom.class));
+    }
+
+    @Test
+    void sendMessage_WhenRoomIsMissing_ShouldThrowNotFound() {
+        when(userService.getUserId(any(Jwt.class))).thenReturn(USER_ID);
+        when(roomCache.get(anyString())).thenReturn(Optional.empty());
+
+        assertThrows(ProblemDetailsException.class, () -> chatService.sendMessage("Hola", ROOM_ID, REQUEST_ID, jwt));
+        verifyNoInteractions(chunkAppender, broadcaster, roomRepository);
+    }
+
+    @Test
+    void sendMessage_WhenSenderWasRemovedFromGroup_ShouldThrowForbidden() {
+        var group = ChatRoom.builder()
+                .id(ROOM_ID)
+                .type(ChatRoomType.GROUP)
+                .participants(List.of(OTHER_USER_ID, 3L))
+                .build();
+
+        when(userService.getUserId(any(Jwt.class))).thenReturn(USER_ID);
+        when(roomCache.get(anyString())).thenReturn(Optional.of(group));
+
+        var exception = assertThrows(ProblemDetailsException.class, () -> chatService.sendMessage("Hola", ROOM_ID, REQUEST_ID, jwt));
+        assertThat(exception.getBody().getStatus()).isEqualTo(403);
+        verifyNoInteractions(chunkAppender, broadcaster, fanout);
+    }
+
+    @Test
+    void sendImage_WhenSenderWasRemovedFromGroup_ShouldNotStoreFile() {
+        var group = ChatRoom.builder()
+                .id(ROOM_ID)
+                .type(ChatRoomType.GROUP)
+                .participants(List.of(OTHER_USER_ID))
+                .build();
+        var file = mock(MultipartFile.class);
+
+        when(userService.getUserId(any(Jwt.class))).thenReturn(USER_ID);
+        when(roomCache.get(anyString())).thenReturn(Optional.of(group));
+
+        assertThrows(ProblemDetailsException.class, () -> chatService.sendImage(file, ROOM_ID, REQUEST_ID, jwt));
+        verifyNoInteractions(streamingStorage, chunkAppender, broadcaster);
+    }
+
+    @Test
+    void resource_WhenMissing_ShouldThrowNotFound() throws IOException {
+        var path = "users/2/chats/" + ROOM_ID + "/images/missing.jpg";
+
+        when(userService.getUserId(jwt)).thenReturn(USER_ID);
+        when(roomCache.get(ROOM_ID)).thenReturn(Optional.of(room));
+        when(streamingStorage.open(path)).thenReturn(Optional.empty());
+
+        assertThrows(ProblemDetailsException.class, () -> chatService.resource(path, null, jwt));
+    }
+
+    @Test
+    void resource_WithThumbVariant_ShouldFallBackToOriginal() throws IOException {
+        var path = "users/1/chats/" + ROOM_ID + "/images/foto.png";
+        var original = mock(StoredResource.class);
+
+        when(userService.getUserId(jwt)).thenReturn(USER_ID);
+        when(roomCache.get(ROOM_ID)).thenReturn(Optional.of(room));
+        when(streamingStorage.open("users/1/chats/" + ROOM_ID + "/images/thumbs/foto.jpg")).thenReturn(Optional.empty());
+        when(streamingStorage.open(path)).thenReturn(Optional.of(original));
+
+        assertThat(chatService.resource(path, "thumb", jwt)).isSameAs(original);
+    }
+
+    @Test
+    void resource_WhenNotParticipant_ShouldThrowForbidden() throws IOException {
+        var path = "users/2/chats/" + ROOM_ID + "/voices/audio.mp3";
+
+        when(userService.getUserId(jwt)).thenReturn(3L);
+        when(roomCache.get(ROOM_ID)).thenReturn(Optional.of(room));
+
+        var exception = assertThrows(ProblemDetailsException.class, () -> chatService.resource(path, null, jwt));
+        assertThat(exception.getBody().getStatus()).isEqualTo(403);
+        verifyNoInteractions(streamingStorage);
+    }
+
+    @Test
+    void resource_WhenPathIsNotChatMedia_ShouldThrowNotFound() {
+        assertThrows(ProblemDetailsException.class, () -> chatService.resource("users/1/profile/foto.png", null, jwt));
+        verifyNoInteractions(streamingStorage, roomCache);
+    }
+
+    @Test
+    void requestUpload_ShouldReserveSlotInRoomMediaDir() throws IOException {
+        var request = ChatUploadRequest.builder()
+                .type(ChatMessageType.VOICE)
+                .filename("nota.mp3")
+                .contentType("audio/mpeg")
+                .size(1024)
+                .build();
+        var ttl = config.getUpload().getTtl();
+
+        when(userService.getUserId(any(Jwt.class))).thenReturn(USER_ID);
+        when(roomCache.get(anyString())).thenReturn(Optional.of(room));
+        when(streamingStorage.reserve(anyString(), eq("audio/mpeg"), anyLong(), eq(ttl)))
+                .thenAnswer(invocation -> UploadSlot.builder().path(invocation.getArgument(0)).build());
+
+        var slot = chatService.requestUpload(ROOM_ID, request, jwt);
+
+        assertThat(slot.getPath()).startsWith("users/1/chats/" + ROOM_ID + "/voices/").endsWith(".mp3");
+        verifyNoInteractions(chunkAppender, broadcaster);
+    }
+
+    @Test
+    void requestUpload_WithWrongContentType_ShouldThrowBadRequest() {
+        var request = ChatUploadRequest.builder()
+                .type(ChatMessageType.IMAGE)
+                .filename("nota.mp3")
+                .contentType("audio/mpeg")
+                .size(1024)
+                .build();
+
+        when(userService.getUserId(any(Jwt.class))).thenReturn(USER_ID);
+        when(roomCache.get(anyString())).thenReturn(Optional.of(room));
+
+        assertThrows(ProblemDetailsException.class, () -> chatService.requestUpload(ROOM_ID, request, jwt));
+        verifyNoInteractions(streamingStorage);
+    }
+
+    @Test
+    void confirmUpload_ShouldSendMessageWithUploadedFile() throws IOException {
+        var path = "users/1/chats/" + ROOM_ID + "/images/foto.jpg";
+        var resource = mock(StoredResource.class);
+
+        when(userService.getUserId(any(Jwt.class))).thenReturn(USER_ID);
+        when(roomCache.get(anyString())).thenReturn(Optional.of(room));
+        when(streamingStorage.open(path)).thenReturn(Optional.of(resource));
+        when(resource.contentLength()).thenReturn(2048L);
+        when(resource.getContentType()).thenReturn("image/jpeg");
+
+        var payload = chatService.confirmUpload(ROOM_ID, path, REQUEST_ID, jwt);
+
+        assertThat(payload.getMessage().getType()).isEqualTo(ChatMessageType.IMAGE);
+        assertThat(payload.getMessage().getMessage()).isEqualTo(path);
+        verify(chunkAppender).append(eq(room), any(ChatMessage.class));
+    }
+
+    @Test
+    void confirmUpload_WithPathOutsideRoom_ShouldThrowBadRequest() {
+        var path = "users/1/chats/" + ROOM_ID + "/images/../../other/images/foto.jpg";
+
+        when(userService.getUserId(any(Jwt.class))).thenReturn(USER_ID);
+        when(roomCache.get(anyString())).thenReturn(Optional.of(room));
+
+        assertThrows(ProblemDetailsException.class, () -> chatService.confirmUpload(ROOM_ID, path, REQUEST_ID, jwt));
+        verifyNoInteractions(streamingStorage, chunkAppender);
     }
 
     @Test
@@ -158,21 +392,37 @@ class TestChatService {
     }
 
     @Test
-    void room_ShouldCreateNewRoomIfNotExists() {
+    void room_ShouldFindOrCreatePrivateRoomByPairKey() {
         User recipient = User.builder().id(OTHER_USER_ID).build();
 
         when(userService.getUser(any(Jwt.class))).thenReturn(user);
         when(userService.getUser(anyLong())).thenReturn(recipient);
-        when(roomRepository.findByParticipantsAndType(anyList(), eq(ChatRoomType.PRIVATE)))
-                .thenReturn(Optional.empty());
-        when(roomRepository.save(any(ChatRoom.class))).thenReturn(room);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ChatRoom.class)))
+                .thenReturn(room);
 
-        chatService.room(OTHER_USER_ID, jwt);
+        assertThat(chatService.room(OTHER_USER_ID, jwt)).isEqualTo(room);
 
-        verify(roomRepository).save(argThat((ChatRoom r) ->
-                r.getParticipants().containsAll(List.of(USER_ID, OTHER_USER_ID)) &&
-                        r.getType().equals(ChatRoomType.PRIVATE)
-        ));
+        var query = ArgumentCaptor.forClass(Query.class);
+        var options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoTemplate).findAndModify(query.capture(), any(Update.class), options.capture(), eq(ChatRoom.class));
+
+        assertThat(query.getValue().getQueryObject().get(ChatRoom.PAIR_KEY_FIELD)).isEqualTo("1:2");
+        assertThat(options.getValue().isUpsert()).isTrue();
+        assertThat(options.getValue().isReturnNew()).isTrue();
+        verify(roomCache).put(room);
+    }
+
+    @Test
+    void room_WhenConcurrentUpsertCollides_ShouldReturnExistingRoom() {
+        User recipient = User.builder().id(OTHER_USER_ID).build();
+
+        when(userService.getUser(any(Jwt.class))).thenReturn(user);
+        when(userService.getUser(anyLong())).thenReturn(recipient);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(ChatRoom.class)))
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key error"));
+        when(mongoTemplate.findOne(any(Query.class), eq(ChatRoom.class))).thenReturn(room);
+
+        assertThat(chatService.room(OTHER_USER_ID, jwt)).isEqualTo(room);
     }
 
     @Test
@@ -192,10 +442,300 @@ class TestChatService {
                 .containsExactly(message);
     }
 
+    @Test
+    void history_WithoutCursor_ShouldWalkBackToPreviousChunk() {
+        var older = textMessage("older");
+        var previous = textMessage("previous");
+        var latest = textMessage("latest");
+
+        when(mongoTemplate.findOne(any(Query.class), eq(ChatChunk.class))).thenReturn(
+                ChatChunk.builder().number(2L).messages(List.of(latest)).build(),
+                ChatChunk.builder().number(1L).messages(List.of(older, previous)).build()
+        );
+
+        var slice = chatService.history(ROOM_ID, null, null, 2);
+
+        assertThat(slice.getMessages()).containsExactly(previous, latest);
+        assertThat(slice.isHasMore()).isTrue();
+        verify(mongoTemplate, times(2)).findOne(any(Query.class), eq(ChatChunk.class));
+    }
+
+    @Test
+    void history_WithAfterCursor_ShouldReturnFollowingMessages() {
+        AggregationResults<Document> aggregationResults = mock(AggregationResults.class);
+        var next = textMessage("next");
+
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(ChatChunk.class), eq(Document.class))).thenReturn(aggregationResults);
+        when(aggregationResults.getUniqueMappedResult()).thenReturn(new Document("number", 1L).append("index", 0));
+        when(mongoTemplate.findOne(any(Query.class), eq(ChatChunk.class))).thenReturn(
+                ChatChunk.builder().number(1L).messages(List.of(next)).build(),
+                null
+        );
+
+        var slice = chatService.history(ROOM_ID, null, message.getId(), 20);
+
+        assertThat(slice.getMessages()).containsExactly(next);
+        assertThat(slice.isHasMore()).isFalse();
+    }
+
+    @Test
+    void history_WithBothCursors_ShouldThrowBadRequest() {
+        var messageId = message.getId();
+        assertThrows(ProblemDetailsException.class, () -> chatService.history(ROOM_ID, messageId, messageId, 20));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    private static ChatMessage textMessage(String text) {
+        return ChatMessage.now(text, USER_ID, ChatMessageType.TEXT);
+    }
+
+    @Test
+    void inbox_ShouldResolveRoomsWithSingleAggregation() {
+        var other = User.builder().id(OTHER_USER_ID).firstName("Other").build();
+        var inboxRoom = ChatInboxRoom.builder()
+                .id(ROOM_ID)
+                .type(ChatRoomType.PRIVATE)
+                .participants(List.of(USER_ID, OTHER_USER_ID))
+                .lastMessage(message)
+                .unreadCount(3)
+                .build();
+
+        AggregationResults<ChatInboxRoom> aggregationResults = mock(AggregationResults.class);
+
+        when(userService.getUserId(jwt)).thenReturn(USER_ID);
+        when(mongoTemplate.getCollectionName(ChatRoom.class)).thenReturn("chat_rooms");
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("chat_rooms"), eq(ChatInboxRoom.class))).thenReturn(aggregationResults);
+        when(aggregationResults.getMappedResults()).thenReturn(List.of(inboxRoom));
+        when(userService.map(Set.of(USER_ID, OTHER_USER_ID))).thenReturn(Map.of(USER_ID, user, OTHER_USER_ID, other));
+
+        var inbox = chatService.inbox(jwt);
+
+        assertThat(inbox).containsExactly(inboxRoom);
+        assertThat(inboxRoom.getParticipantSummaries())
+                .extracting(ChatParticipant::getId)
+                .containsExactly(USER_ID, OTHER_USER_ID);
+        verify(mongoTemplate, never()).exists(any(Query.class), eq(ChatChunk.class));
+
+        var aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(aggregation.capture(), eq("chat_rooms"), eq(ChatInboxRoom.class));
+        var lookup = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).get(1).get("$lookup", Document.class);
+        var firstStage = lookup.getList("pipeline", Document.class).get(0);
+        assertThat(firstStage.get("$match", Document.class).get("$expr", Document.class)).containsKey("$gte");
+    }
+
+    @Test
+    void sync_ShouldReturnMessagesAfterSequenceAndStopAtRecentGap() {
+        var now = Instant.now();
+        room.setSequence(5);
+
+        AggregationResults<ChatMessage> aggregationResults = mock(AggregationResults.class);
+
+        when(userService.getUserId(jwt)).thenReturn(USER_ID);
+        when(mongoTemplate.find(any(Query.class), eq(ChatRoom.class))).thenReturn(List.of(room));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(ChatChunk.class), eq(ChatMessage.class))).thenReturn(aggregationResults);
+        when(aggregationResults.getMappedResults()).thenReturn(List.of(
+                ChatMessage.builder().id("m3").sequence(3).createdAt(now).build(),
+                ChatMessage.builder().id("m5").sequence(5).createdAt(now).build()
+        ));
+
+        var request = ChatSyncRequest.builder().since(now).rooms(Map.of(ROOM_ID, 2L)).build();
+        var sync = chatService.sync(request, jwt);
+
+        assertThat(sync.getRooms()).hasSize(1);
+        var changes = sync.getRooms().get(0);
+        assertThat(changes.getMessages()).extracting(ChatMessage::getId).containsExactly("m3", "m5");
+        // La secuencia 4 aún se está agregando, el cliente la vuelve a pedir desde la 3
+        assertThat(changes.getSequence()).isEqualTo(3L);
+        assertThat(changes.isHasMore()).isFalse();
+        assertThat(changes.getReadMarks()).isNull();
+    }
+
+    @Test
+    void sync_WhenOnlyReadMarksChanged_ShouldNotQueryMessages() {
+        var now = Instant.now();
+        var mark = ChatRoom.ReadMark.builder().chunk(1).index(0).messageId("m1").readAt(now).build();
+        room.setSequence(5);
+        room.setReadMarks(Map.of(OTHER_USER_ID, mark));
+
+        when(userService.getUserId(jwt)).thenReturn(USER_ID);
+        when(mongoTemplate.find(any(Query.class), eq(ChatRoom.class))).thenReturn(List.of(room));
+
+        var request = ChatSyncRequest.builder().since(now.minusSeconds(60)).rooms(Map.of(ROOM_ID, 5L)).build();
+        var sync = chatService.sync(request, jwt);
+
+        assertThat(sync.getRooms()).hasSize(1);
+        assertThat(sync.getRooms().get(0).getSequence()).isEqualTo(5L);
+        assertThat(sync.getRooms().get(0).getReadMarks()).containsEntry(OTHER_USER_ID, mark);
+        verify(mongoTemplate, never()).aggregate(any(Aggregation.class), eq(ChatChunk.class), eq(ChatMessage.class));
+    }
+
+    @Test
+    void sync_WhenRoomIsUpToDate_ShouldSkipIt() {
+        room.setSequence(5);
+
+        when(userService.getUserId(jwt)).thenReturn(USER_ID);
+        when(mongoTemplate.find(any(Query.class), eq(ChatRoom.class))).thenReturn(List.of(room));
+
+        var request = ChatSyncRequest.builder().since(Instant.now()).rooms(Map.of(ROOM_ID, 5L)).build();
+
+        assertThat(chatService.sync(request, jwt).getRooms()).isEmpty();
+    }
+
+    @Test
+    void sync_WhenKnownMessagesWereEdited_ShouldReturnThemAsChanged() {
+        var now = Instant.now();
+        room.setSequence(5);
+        room.setChangedAt(now);
+
+        AggregationResults<ChatMessage> aggregationResults = mock(AggregationResults.class);
+        var edited = ChatMessage.builder().id("m2").sequence(2).message("Editado").editedAt(now).build();
+
+        when(userService.getUserId(jwt)).thenReturn(USER_ID);
+        when(mongoTemplate.find(any(Query.class), eq(ChatRoom.class))).thenReturn(List.of(room));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(ChatChunk.class), eq(ChatMessage.class))).thenReturn(aggregationResults);
+        when(aggregationResults.getMappedResults()).thenReturn(List.of(edited));
+
+        var request = ChatSyncRequest.builder().since(now.minusSeconds(60)).rooms(Map.of(ROOM_ID, 5L)).build();
+        var sync = chatService.sync(request, jwt);
+
+        assertThat(sync.getRooms()).hasSize(1);
+        var changes = sync.getRooms().get(0);
+        assertThat(changes.getMessages()).isEmpty();
+        assertThat(changes.getChanged()).containsExactly(edited);
+        assertThat(changes.getSequence()).isEqualTo(5L);
+    }
+
+    @Test
+    void edit_ShouldUpdateMessageAndPublishChange() {
+        message.setSequence(7);
+        when(userService.getUserId(jwt)).thenReturn(USER_ID);
+        when(roomCache.get(ROOM_ID)).thenReturn(Optional.of(room));
+        when(messageEditor.find(ROOM_ID, message.getId())).thenReturn(Optional.of(message));
+        when(messageEditor.edit(eq(ROOM_ID), eq(message), eq("Mensaje corregido"), any(Instant.class))).thenReturn(true);
+
+        var change = chatService.edit(ROOM_ID, message.getId(), "Mensaje corregido", jwt);
+
+        assertThat(change.getType()).isEqualTo(ChatMessageChange.Type.EDITED);
+        assertThat(change.getMessage()).isEqualTo("Mensaje corregido");
+        assertThat(change.getSequence()).isEqualTo(7L);
+        verify(broadcaster).change(room, change);
+        verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(ChatRoom.class));
+        verify(fanout).execute(eq("search-index"), any(Runnable.class));
+    }
+
+    @Test
+    void edit_OtherUsersMessage_ShouldFail() {
+        message.setSentBy(OTHER_USER_ID);
+        when(userService.getUserId(jwt)).thenReturn(USER_ID);
+        when(roomCache.get(ROOM_ID)).thenReturn(Optional.of(room));
+        when(messageEditor.find(ROOM_ID, message.getId())).thenReturn(Optional.of(message));
+
+        assertThrows(ProblemDetailsException.class, () -> chatService.edit(ROOM_ID, message.getId(), "Otro texto", jwt));
+        verify(messageEditor, never()).edit(any(), any(), any(), any());
+        verifyNoInteractions(broadcaster);
+    }
+
+    @Test
+    void edit_WhenMessageChangedConcurrently_ShouldFail() {
+        when(userService.getUserId(jwt)).thenReturn(USER_ID);
+        when(roomCache.get(ROOM_ID)).thenReturn(Optional.of(room));
+        when(messageEditor.find(ROOM_ID, message.getId())).thenReturn(Optional.of(message));
+        when(messageEditor.edit(eq(ROOM_ID), eq(message), eq("Otro texto"), any(Instant.class))).thenReturn(false);
+
+        assertThrows(ProblemDetailsException.class, () -> chatService.edit(ROOM_ID, message.getId(), "Otro texto", jwt));
+        verifyNoInteractions(broadcaster);
+    }
+
+    @Test
+    void edit_ArchivedMessage_ShouldFail() {
+        when(userService.getUserId(jwt)).thenReturn(USER_ID);
+        when(roomCache.get(ROOM_ID)).thenReturn(Optional.of(room));
+        when(messageEditor.find(ROOM_ID, message.getId())).thenReturn(Optional.empty());
+        when(chunkArchiver.findContaining(ROOM_ID, message.getId())).thenReturn(Optional.of(new ChatChunkArchive()));
+
+        assertThrows(ProblemDetailsException.class, () -> chatService.edit(ROOM_ID, message.getId(), "Otro texto", jwt));
+    }
+
+    @Test
+    void delete_ShouldLeaveTombstoneAndPublishChange() {
+        when(userService.getUserId(jwt)).thenReturn(USER_ID);
+        when(roomCache.get(ROOM_ID)).thenReturn(Optional.of(room));
+        when(messageEditor.find(ROOM_ID, message.getId())).thenReturn(Optional.of(message));
+        when(messageEditor.delete(eq(ROOM_ID), eq(message.getId()), any(Instant.class))).thenReturn(true);
+
+        var change = chatService.delete(ROOM_ID, message.getId(), jwt);
+
+        assertThat(change.getType()).isEqualTo(ChatMessageChange.Type.DELETED);
+        assertThat(change.getMessage()).isNull();
+        verify(broadcaster).change(room, change);
+
+        var task = ArgumentCaptor.forClass(Runnable.class);
+        verify(fanout).execute(eq("search-index"), task.capture());
+        task.getValue().run();
+        verify(searchIndex).remove(message.getId());
+    }
+
+    @Test
+    void delete_WhenImage_ShouldDeleteStoredFileAndThumbnail() throws IOException {
+        var path = "users/" + USER_ID + "/chats/" + ROOM_ID + "/images/foto.png";
+        var image = ChatMessage.now(path, USER_ID, ChatMessageType.IMAGE);
+
+        when(userService.getUserId(jwt)).thenReturn(USER_ID);
+        when(roomCache.get(ROOM_ID)).thenReturn(Optional.of(room));
+        when(messageEditor.find(ROOM_ID, image.getId())).thenReturn(Optional.of(image));
+        when(messageEditor.delete(eq(ROOM_ID), eq(image.getId()), any(Instant.class))).thenReturn(true);
+
+        chatService.delete(ROOM_ID, image.getId(), jwt);
+
+        var task = ArgumentCaptor.forClass(Runnable.class);
+        verify(fanout).execute(eq("media-delete"), task.capture());
+        verifyNoInteractions(streamingStorage);
+        task.getValue().run();
+        verify(streamingStorage).delete(path);
+        verify(streamingStorage).delete(ChatMediaProcessor.thumbnailPath(path));
+        verifyNoInteractions(searchIndex);
+    }
+
+    @Test
+    void messages_WhenChunkIsArchived_ShouldReadFromArchive() {
+        var archived = ChatChunk.builder().number(1L).messages(List.of(message)).build();
+
+        when(mongoTemplate.findOne(any(Query.class), eq(ChatChunk.class))).thenReturn(null);
+        when(chunkArchiver.find(ROOM_ID, 1L)).thenReturn(Optional.of(archived));
+
+        assertThat(chatService.messages(ROOM_ID, 1L)).containsExactly(message);
+    }
+
+    @Test
+    void history_WhenCursorIsArchived_ShouldSliceArchivedChunk() {
+        var first = ChatMessage.now("1", USER_ID, ChatMessageType.TEXT);
+        var second = ChatMessage.now("2", USER_ID, ChatMessageType.TEXT);
+        var third = ChatMessage.now("3", USER_ID, ChatMessageType.TEXT);
+        AggregationResults<Document> aggregationResults = mock(AggregationResults.class);
+
+        var archive = ChatChunkArchive.builder()
+                .number(1L)
+                .messageIds(List.of(first.getId(), second.getId(), third.getId()))
+                .build();
+
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(ChatChunk.class), eq(Document.class))).thenReturn(aggregationResults);
+        when(chunkArchiver.findContaining(ROOM_ID, third.getId())).thenReturn(Optional.of(archive));
+        when(chunkArchiver.find(ROOM_ID, 1L)).thenAnswer(invocation -> Optional.of(ChatChunk.builder()
+                .number(1L)
+                .messages(new ArrayList<>(List.of(first, second, third)))
+                .build()));
+
+        var slice = chatService.history(ROOM_ID, third.getId(), null, 1);
+
+        assertThat(slice.getMessages()).containsExactly(second);
+        assertThat(slice.isHasMore()).isTrue();
+    }
+
     @Test
     void chunkCount_ShouldReturnNumberOfChunks() {
         when(mongoTemplate.count(any(Query.class), eq(ChatChunk.class))).thenReturn(5L);
-        assertThat(chatService.chunkCount(ROOM_ID)).isEqualTo(5L);
+        when(chunkArchiver.count(ROOM_ID)).thenReturn(2L);
+        assertThat(chatService.chunkCount(ROOM_ID)).isEqualTo(7L);
     }
 
     @Test
@@ -0,0 +1,167 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.modules.chat.ChatConfig;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatPresence;
+import ec.gob.conagopare.sona.modules.chat.dto.ChatTyping;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoomType;
+import ec.gob.conagopare.sona.modules.user.service.UserService;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionConnectEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestChatSessionRegistry {
+
+    private static final Long USER_ID = 1L;
+    private static final Long CONTACT_ID = 2L;
+
+    @Mock
+    private UserService userService;
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private ChatBroadcaster broadcaster;
+    @Mock
+    private ChatFanoutExecutor fanout;
+
+    private ChatSessionRegistry registry;
+    private JwtAuthenticationToken authentication;
+
+    @BeforeEach
+    void setUp() {
+        registry = new ChatSessionRegistry(new ChatConfig(), userService, mongoTemplate, broadcaster, fanout);
+
+        var jwt = Jwt.withTokenValue("token")
+                .header("alg", "none")
+                .subject("keycloak-id")
+                .build();
+        authentication = new JwtAuthenticationToken(jwt);
+    }
+
+    @Test
+    void onConnect_ShouldPublishPresenceOnlyForFirstSession() {
+        when(userService.getUserId(any(Jwt.class))).thenReturn(USER_ID);
+        when(mongoTemplate.findDistinct(any(Query.class), eq(ChatRoom.PARTICIPANTS_FIELD), eq(ChatRoom.class), eq(Long.class)))
+                .thenReturn(List.of(USER_ID, CONTACT_ID));
+
+        registry.onConnect(connect("s1"));
+        registry.onConnect(connect("s2"));
+
+        assertThat(registry.isOnline(USER_ID)).isTrue();
+
+        var task = ArgumentCaptor.forClass(Runnable.class);
+        verify(fanout, times(1)).execute(eq("presence"), task.capture());
+        task.getValue().run();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<Long>> contacts = ArgumentCaptor.forClass(Collection.class);
+        var presence = ArgumentCaptor.forClass(ChatPresence.class);
+        verify(broadcaster).presence(contacts.capture(), presence.capture());
+
+        assertThat(contacts.getValue()).containsExactly(CONTACT_ID);
+        assertThat(presence.getValue().getParticipantId()).isEqualTo(USER_ID);
+        assertThat(presence.getValue().isOnline()).isTrue();
+    }
+
+    @Test
+    void onDisconnect_ShouldGoOfflineAfterLastSession() {
+        when(userService.getUserId(any(Jwt.class))).thenReturn(USER_ID);
+
+        registry.onConnect(connect("s1"));
+        registry.onConnect(connect("s2"));
+
+        registry.onDisconnect(disconnect("s1"));
+        assertThat(registry.isOnline(USER_ID)).isTrue();
+
+        registry.onDisconnect(disconnect("s2"));
+        assertThat(registry.isOnline(USER_ID)).isFalse();
+
+        // Una publicación al conectar y otra al cerrar la última sesión
+        verify(fanout, times(2)).execute(eq("presence"), any(Runnable.class));
+    }
+
+    @Test
+    void onConnect_WithoutAuthentication_ShouldIgnoreSession() {
+        registry.onConnect(new SessionConnectEvent(this, message("s1"), null));
+
+        assertThat(registry.isOnline(USER_ID)).isFalse();
+        verifyNoInteractions(userService, fanout);
+    }
+
+    @Test
+    void typing_ShouldDiscardRepeatedStateWithinInterval() {
+        var room = ChatRoom.builder()
+                .id(ObjectId.get().toHexString())
+                .type(ChatRoomType.PRIVATE)
+                .participants(List.of(USER_ID, CONTACT_ID))
+                .build();
+
+        registry.typing(room, USER_ID, true);
+        registry.typing(room, USER_ID, true);
+        registry.typing(room, USER_ID, false);
+
+        var typing = ArgumentCaptor.forClass(ChatTyping.class);
+        verify(broadcaster, times(2)).typing(eq(room), typing.capture());
+        assertThat(typing.getAllValues()).extracting(ChatTyping::isTyping).containsExactly(true, false);
+    }
+
+    @Test
+    void typing_WhenStillTyping_ShouldResendAfterInterval() throws InterruptedException {
+        var config = new ChatConfig();
+        config.getPresence().setTypingInterval(Duration.ofMillis(200));
+        registry = new ChatSessionRegistry(config, userService, mongoTemplate, broadcaster, fanout);
+
+        var room = ChatRoom.builder()
+                .id(ObjectId.get().toHexString())
+                .type(ChatRoomType.PRIVATE)
+                .participants(List.of(USER_ID, CONTACT_ID))
+                .build();
+
+        registry.typing(room, USER_ID, true);
+        Thread.sleep(120);
+        registry.typing(room, USER_ID, true);
+        Thread.sleep(120);
+        registry.typing(room, USER_ID, true);
+
+        verify(broadcaster, times(2)).typing(eq(room), any(ChatTyping.class));
+    }
+
+    private SessionConnectEvent connect(String sessionId) {
+        return new SessionConnectEvent(this, message(sessionId), authentication);
+    }
+
+    private SessionDisconnectEvent disconnect(String sessionId) {
+        return new SessionDisconnectEvent(this, message(sessionId), sessionId, CloseStatus.NORMAL, authentication);
+    }
+
+    private static Message<byte[]> message(String sessionId) {
+        var accessor = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+        accessor.setSessionId(sessionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
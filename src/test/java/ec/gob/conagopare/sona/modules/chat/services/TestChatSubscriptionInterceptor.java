@@ -0,0 +1,138 @@
+package ec.gob.conagopare.sona.modules.chat.services;
+
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoom;
+import ec.gob.conagopare.sona.modules.chat.models.ChatRoomType;
+import ec.gob.conagopare.sona.modules.user.service.UserService;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestChatSubscriptionInterceptor {
+
+    private static final Long USER_ID = 1L;
+    private static final String ROOM_ID = ObjectId.get().toHexString();
+
+    @Mock
+    private ChatRoomCache roomCache;
+    @Mock
+    private UserService userService;
+    @Mock
+    private MessageChannel channel;
+
+    private ChatSubscriptionInterceptor interceptor;
+    private JwtAuthenticationToken authentication;
+
+    @BeforeEach
+    void setUp() {
+        interceptor = new ChatSubscriptionInterceptor(roomCache, userService);
+
+        var jwt = Jwt.withTokenValue("token")
+                .header("alg", "none")
+                .subject("keycloak-id")
+                .build();
+        authentication = new JwtAuthenticationToken(jwt);
+    }
+
+    @Test
+    void preSend_ParticipantSubscribingToRoomTopic_ShouldPass() {
+        when(userService.getUserId(any(Jwt.class))).thenReturn(USER_ID);
+        when(roomCache.refresh(ROOM_ID)).thenReturn(Optional.of(room(USER_ID, 2L)));
+
+        var message = subscribe(ChatBroadcaster.ROOM_TOPIC + ROOM_ID + ChatBroadcaster.READ_SUFFIX, authentication);
+
+        assertThat(interceptor.preSend(message, channel)).isSameAs(message);
+    }
+
+    @Test
+    void preSend_NonParticipantSubscribingToRoomTopic_ShouldBeDenied() {
+        when(userService.getUserId(any(Jwt.class))).thenReturn(USER_ID);
+        when(roomCache.refresh(ROOM_ID)).thenReturn(Optional.of(room(2L, 3L)));
+
+        var message = subscribe(ChatBroadcaster.ROOM_TOPIC + ROOM_ID, authentication);
+
+        assertThrows(AccessDeniedException.class, () -> interceptor.preSend(message, channel));
+    }
+
+    @Test
+    void preSend_AnonymousSubscribingToRoomTopic_ShouldBeDenied() {
+        var message = subscribe(ChatBroadcaster.ROOM_TOPIC + ROOM_ID, null);
+
+        assertThrows(AccessDeniedException.class, () -> interceptor.preSend(message, channel));
+        verifyNoInteractions(roomCache);
+    }
+
+    @Test
+    void preSend_OwnInboxSubscription_ShouldPass() {
+        when(userService.getUserId(any(Jwt.class))).thenReturn(USER_ID);
+
+        for (var destination : List.of(ChatBroadcaster.inbox(USER_ID), ChatBroadcaster.changeInbox(USER_ID), ChatBroadcaster.ackInbox(USER_ID))) {
+            var message = subscribe(destination, authentication);
+            assertThat(interceptor.preSend(message, channel)).isSameAs(message);
+        }
+        verifyNoInteractions(roomCache);
+    }
+
+    @Test
+    void preSend_OtherUserInboxSubscription_ShouldBeDenied() {
+        when(userService.getUserId(any(Jwt.class))).thenReturn(USER_ID);
+
+        for (var destination : List.of(ChatBroadcaster.inbox(2L), ChatBroadcaster.readInbox(2L), ChatBroadcaster.inbox(USER_ID) + "0")) {
+            var message = subscribe(destination, authentication);
+            assertThrows(AccessDeniedException.class, () -> interceptor.preSend(message, channel));
+        }
+    }
+
+    @Test
+    void preSend_AnonymousInboxSubscription_ShouldBeDenied() {
+        var message = subscribe(ChatBroadcaster.inbox(USER_ID), null);
+
+        assertThrows(AccessDeniedException.class, () -> interceptor.preSend(message, channel));
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void preSend_WildcardChatDestination_ShouldBeDenied() {
+        for (var destination : List.of("/topic/chat.inbox.*", "/topic/chat.**", "/topic/chat.room.#", "/topic/chat.inbox.{id}.ack")) {
+            var message = subscribe(destination, authentication);
+            assertThrows(AccessDeniedException.class, () -> interceptor.preSend(message, channel), destination);
+        }
+        verifyNoInteractions(roomCache, userService);
+    }
+
+    private static ChatRoom room(Long... participants) {
+        return ChatRoom.builder()
+                .id(ROOM_ID)
+                .type(ChatRoomType.GROUP)
+                .participants(List.of(participants))
+                .build();
+    }
+
+    private static Message<byte[]> subscribe(String destination, JwtAuthenticationToken user) {
+        var accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setDestination(destination);
+        accessor.setSessionId("s1");
+        accessor.setUser(user);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
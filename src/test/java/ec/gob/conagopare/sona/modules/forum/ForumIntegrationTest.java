@@ -172,7 +172,17 @@ class ForumIntegrationTest extends IntegrationTest {
                         .param("page", "0")
                         .param("size", "10"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.content.size()").value(1));
+                .andExpect(jsonPath("$.content.size()").value(1))
+                .andExpect(jsonPath("$.content[0].content").value("Post to search 1"));
+
+        // La búsqueda no distingue tildes ni mayúsculas
+        mockMvc.perform(get("/forum/post")
+                        .header("Authorization", poster1accessToken)
+                        .param("search", "SEÁRCH")
+                        .param("page", "0")
+                        .param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.size()").value(3));
 
         var profileJson = mockMvc.perform(get("/user/profile")
                         .header("Authorization", poster1accessToken))
@@ -193,6 +203,57 @@ class ForumIntegrationTest extends IntegrationTest {
 
     }
 
+    @Test
+    void feedByCursor() throws Exception {
+
+        var reporterAccessToken = "Bearer " + obtainAccessToken(REPORTER_USERNAME, REPORTER_PASSWORD);
+
+        for (var i = 1; i <= 3; i++) {
+            var post = new PostDto();
+            post.setAnonymous(false);
+            post.setContent("Post feed " + i);
+            expectedCreatePost(post, reporterAccessToken);
+        }
+
+        var profileJson = mockMvc.perform(get("/user/profile")
+                        .header("Authorization", reporterAccessToken))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        var profileId = JsonPath.read(profileJson, "$.id").toString();
+
+        // Primera página, de la más reciente a la más antigua
+        var firstPage = mockMvc.perform(get("/forum/post/feed")
+                        .header("Authorization", reporterAccessToken)
+                        .param("author", profileId)
+                        .param("size", "2")
+                        .param("total", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.size()").value(2))
+                .andExpect(jsonPath("$.content[0].content").value("Post feed 3"))
+                .andExpect(jsonPath("$.content[1].content").value("Post feed 2"))
+                .andExpect(jsonPath("$.total").value(3))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String cursor = JsonPath.read(firstPage, "$.next");
+
+        // Segunda página con el cursor de la primera
+        mockMvc.perform(get("/forum/post/feed")
+                        .header("Authorization", reporterAccessToken)
+                        .param("author", profileId)
+                        .param("size", "2")
+                        .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.size()").value(1))
+                .andExpect(jsonPath("$.content[0].content").value("Post feed 1"))
+                .andExpect(jsonPath("$.next").doesNotExist())
+                .andExpect(jsonPath("$.total").doesNotExist());
+    }
+
     @Test
     void likePostAndUnlikePost() throws Exception {
 
@@ -276,7 +337,7 @@ class ForumIntegrationTest extends IntegrationTest {
         mockMvc.perform(get("/forum/post/{postId}", postId)
                         .header("Authorization", posterAccessToken))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.comments.size()").value(2));
+                .andExpect(jsonPath("$.commentsCount").value(2));
 
         // Se verifica que los comentarios se hayan creado a traves del endpoint de comentarios
         var commentsJson = mockMvc.perform(get("/forum/post/{postId}/comments", postId)
@@ -301,7 +362,7 @@ class ForumIntegrationTest extends IntegrationTest {
         mockMvc.perform(get("/forum/post/{postId}", postId)
                         .header("Authorization", posterAccessToken))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.comments.size()").value(1));
+                .andExpect(jsonPath("$.commentsCount").value(1));
 
         // Se likea el comentario restante
         mockMvc.perform(post("/forum/post/{postId}/comments/{commentId}/like", postId, comment2Id)
@@ -309,10 +370,10 @@ class ForumIntegrationTest extends IntegrationTest {
                 .andExpect(status().isOk());
 
         // Se verifica que el comentario se halla likeado
-        mockMvc.perform(get("/forum/post/{postId}", postId)
+        mockMvc.perform(get("/forum/post/{postId}/comments", postId)
                         .header("Authorization", posterAccessToken))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.comments[0].likedBy.size()").value(1));
+                .andExpect(jsonPath("$.content[0].likedBy.size()").value(1));
 
         // Se unlikea el comentario restante
         mockMvc.perform(post("/forum/post/{postId}/comments/{commentId}/unlike", postId, comment2Id)
@@ -320,10 +381,10 @@ class ForumIntegrationTest extends IntegrationTest {
                 .andExpect(status().isOk());
 
         // Se verifica que el comentario se halla unlikeado
-        mockMvc.perform(get("/forum/post/{postId}", postId)
+        mockMvc.perform(get("/forum/post/{postId}/comments", postId)
                         .header("Authorization", posterAccessToken))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.comments[0].likedBy.size()").value(0));
+                .andExpect(jsonPath("$.content[0].likedBy.size()").value(0));
 
         // Se reporta el comentario restante
         mockMvc.perform(post("/forum/post/{postId}/comments/{commentId}/report", postId, comment2Id)
@@ -331,10 +392,10 @@ class ForumIntegrationTest extends IntegrationTest {
                 .andExpect(status().isOk());
 
         // Se verifica que el comentario se halla reportado
-        mockMvc.perform(get("/forum/post/{postId}", postId)
+        mockMvc.perform(get("/forum/post/{postId}/comments", postId)
                         .header("Authorization", posterAccessToken))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.comments[0].reportedBy.size()").value(1));
+                .andExpect(jsonPath("$.content[0].reportedBy.size()").value(1));
 
     }
 
@@ -378,7 +439,7 @@ class ForumIntegrationTest extends IntegrationTest {
                 .andExpect(jsonPath("$.mostLikedPost.content").value("Post that have more likes"))
                 .andExpect(jsonPath("$.mostLikedPost.likedBy.size()").value(3))
                 .andExpect(jsonPath("$.mostCommentedPost.content").value("Post that have more comments"))
-                .andExpect(jsonPath("$.mostCommentedPost.comments.size()").value(4));
+                .andExpect(jsonPath("$.mostCommentedPost.commentsCount").value(4));
     }
 
     private void expectedLikePost(String postId, String likerAccessToken) throws Exception {
@@ -0,0 +1,83 @@
+package ec.gob.conagopare.sona.modules.forum.service;
+
+import ec.gob.conagopare.sona.modules.forum.models.Post;
+import ec.gob.conagopare.sona.modules.forum.models.PostComment;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestPostCommentMigration {
+
+    @InjectMocks
+    private PostCommentMigration migration;
+
+    @Mock
+    private MongoTemplate mongo;
+
+    @Mock
+    private BulkOperations bulk;
+
+    @Test
+    void migrate_CuandoHayComentariosEmbebidos_DebeMoverlosYContarlos() {
+        // Arrange
+        var postId = new ObjectId();
+        var post = new Document("_id", postId).append(Post.COMMENTS_FIELD, List.of(
+                new Document("_id", "comment-1").append(PostComment.CONTENT_FIELD, "Comentario 1").append(PostComment.CREATED_AT_FIELD, Instant.now()),
+                new Document("_id", "comment-2").append(PostComment.CONTENT_FIELD, "Comentario 2").append(PostComment.CREATED_AT_FIELD, Instant.now())
+        ));
+
+        // Mock
+        when(mongo.getCollectionName(Post.class)).thenReturn("post");
+        when(mongo.find(any(Query.class), eq(Document.class), eq("post"))).thenReturn(List.of(post), List.of());
+        when(mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, PostComment.class)).thenReturn(bulk);
+
+        // Act
+        migration.migrate();
+
+        // Assert
+        var comments = ArgumentCaptor.forClass(Object.class);
+        verify(bulk, times(2)).replaceOne(any(Query.class), comments.capture(), any(FindAndReplaceOptions.class));
+        verify(bulk).execute();
+        for (var comment : comments.getAllValues()) {
+            assertEquals(postId, ((Document) comment).get(PostComment.POST_ID_FIELD), "El comentario debe referenciar a la publicación");
+        }
+
+        var update = ArgumentCaptor.forClass(Update.class);
+        verify(mongo).updateFirst(any(Query.class), update.capture(), eq("post"));
+        var set = update.getValue().getUpdateObject();
+        assertEquals(2, ((Document) set.get("$inc")).get(Post.COMMENTS_COUNT_FIELD), "Se deben contar los comentarios migrados");
+        assertTrue(update.getValue().modifies(Post.COMMENTS_FIELD), "Se debe eliminar el arreglo de comentarios");
+    }
+
+    @Test
+    void migrate_CuandoNoHayComentariosEmbebidos_NoDebeModificarNada() {
+        // Mock
+        when(mongo.getCollectionName(Post.class)).thenReturn("post");
+        when(mongo.find(any(Query.class), eq(Document.class), eq("post"))).thenReturn(List.of());
+
+        // Act
+        migration.migrate();
+
+        // Assert
+        verify(mongo, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(PostComment.class));
+        verify(mongo, never()).updateFirst(any(Query.class), any(Update.class), any(String.class));
+    }
+}
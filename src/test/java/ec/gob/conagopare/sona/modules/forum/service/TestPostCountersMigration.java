@@ -0,0 +1,66 @@
+package ec.gob.conagopare.sona.modules.forum.service;
+
+import com.mongodb.client.result.UpdateResult;
+import ec.gob.conagopare.sona.modules.forum.models.Post;
+import ec.gob.conagopare.sona.modules.forum.models.PostComment;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TestPostCountersMigration {
+
+    @InjectMocks
+    private PostCountersMigration migration;
+
+    @Mock
+    private MongoTemplate mongo;
+
+    @Test
+    void migrate_DebeRecalcularLosContadoresDePublicacionesYComentarios() {
+        // Mock
+        when(mongo.updateMulti(any(Query.class), any(AggregationUpdate.class), any(Class.class))).thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        // Act
+        migration.migrate();
+
+        // Assert
+        verify(mongo, times(2)).updateMulti(any(Query.class), any(AggregationUpdate.class), eq(Post.class));
+        verify(mongo, times(2)).updateMulti(any(Query.class), any(AggregationUpdate.class), eq(PostComment.class));
+    }
+
+    @Test
+    void migrate_DebeActualizarSoloDocumentosSinContadorYTratarArreglosNulosComoVacios() {
+        // Mock
+        when(mongo.updateMulti(any(Query.class), any(AggregationUpdate.class), any(Class.class))).thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        // Act
+        migration.migrate();
+
+        // Assert
+        var queries = ArgumentCaptor.forClass(Query.class);
+        var updates = ArgumentCaptor.forClass(AggregationUpdate.class);
+        verify(mongo, times(2)).updateMulti(queries.capture(), updates.capture(), eq(Post.class));
+
+        var query = queries.getAllValues().get(0).getQueryObject();
+        assertEquals(new Document(Post.LIKES_COUNT_FIELD, new Document("$exists", false)), query, "Solo se deben recalcular los documentos sin contador");
+
+        var pipeline = updates.getAllValues().get(0).toPipeline(Aggregation.DEFAULT_CONTEXT);
+        var size = new Document("$size", new Document("$ifNull", List.of("$" + Post.LIKED_BY_FIELD, List.of())));
+        assertEquals(new Document("$set", new Document(Post.LIKES_COUNT_FIELD, size)), pipeline.get(0), "Un arreglo nulo o ausente debe contar como vacío");
+    }
+}
@@ -7,6 +7,7 @@ import ec.gob.conagopare.sona.modules.forum.dto.NewComment;
 import ec.gob.conagopare.sona.modules.forum.dto.PostDto;
 import ec.gob.conagopare.sona.modules.forum.dto.TopPostsResult;
 import ec.gob.conagopare.sona.modules.forum.models.Post;
+import ec.gob.conagopare.sona.modules.forum.models.PostComment;
 import ec.gob.conagopare.sona.modules.forum.repository.PostRepository;
 import ec.gob.conagopare.sona.modules.user.models.Authority;
 import ec.gob.conagopare.sona.modules.user.models.User;
@@ -19,17 +20,21 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.aggregation.Aggregation;
 import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.context.SecurityContextImpl;
 import org.springframework.security.oauth2.jwt.Jwt;
@@ -180,6 +185,7 @@ class TestPostService {
 
         // Assert
         verify(mongo).remove(any(Query.class), eq(Post.class));
+        verify(mongo).remove(any(Query.class), eq(PostComment.class));
     }
 
     @Test
@@ -228,12 +234,18 @@ class TestPostService {
         // Mock
         when(userService.getCurrentUser()).thenReturn(user);
         when(mongo.updateFirst(any(Query.class), any(), eq(Post.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongo.insert(any(PostComment.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         // Act
-        service.commentPost(id, comment);
+        var result = service.commentPost(id, comment);
 
         // Assert
-        verify(mongo).updateFirst(any(Query.class), any(), eq(Post.class));
+        var order = inOrder(mongo);
+        order.verify(mongo).insert(any(PostComment.class));
+        order.verify(mongo).updateFirst(any(Query.class), any(), eq(Post.class));
+        verify(mongo, never()).remove(any(Query.class), eq(PostComment.class));
+        assertEquals(id, result.getPostId(), "El comentario debe pertenecer a la publicación");
+        assertEquals(content, result.getContent(), "El contenido debe ser el mismo");
     }
 
     @Test
@@ -249,28 +261,38 @@ class TestPostService {
 
         // Mock
         when(userService.getCurrentUser()).thenReturn(user);
+        when(mongo.insert(any(PostComment.class))).thenAnswer(invocation -> invocation.getArgument(0));
         when(mongo.updateFirst(any(Query.class), any(), eq(Post.class))).thenReturn(UpdateResult.acknowledged(0, 0L, null));
 
         // Act & Assert
         var exception = assertThrows(ProblemDetailsException.class, () -> service.commentPost(id, comment));
         var body = exception.getBody();
         assertEquals(404, body.getStatus(), "El status debe ser 404");
+
+        var inserted = ArgumentCaptor.forClass(PostComment.class);
+        verify(mongo).insert(inserted.capture());
+        var removed = ArgumentCaptor.forClass(Query.class);
+        verify(mongo).remove(removed.capture(), eq(PostComment.class));
+        assertEquals(inserted.getValue().getId(), removed.getValue().getQueryObject().get("_id"), "Se debe eliminar el comentario insertado");
     }
 
     @Test
     void deleteComment_CuandoUsuarioEsAutor_DebeEliminarComentario() {
         // Arrange
         var postId = ObjectId.get().toHexString();
-        var commentId = ObjectId.get().toHexString();
+        var commentId = UUID.randomUUID().toString();
+        var comment = PostComment.of(postId, "comment", user.getId(), false);
 
         // Mock
         when(userService.getCurrentUser()).thenReturn(user);
-        when(mongo.updateFirst(any(Query.class), any(), eq(Post.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongo.findOne(any(Query.class), eq(PostComment.class))).thenReturn(comment);
+        when(mongo.remove(any(Query.class), eq(PostComment.class))).thenReturn(DeleteResult.acknowledged(1));
 
         // Act
         service.deleteComment(postId, commentId);
 
         // Assert
+        verify(mongo).remove(any(Query.class), eq(PostComment.class));
         verify(mongo).updateFirst(any(Query.class), any(), eq(Post.class));
     }
 
@@ -279,20 +301,77 @@ class TestPostService {
     void deleteComment_CuandoUsuarioEsAdmin_DebeEliminarComentario() {
         // Arrange
         var postId = ObjectId.get().toHexString();
-        var commentId = ObjectId.get().toHexString();
+        var commentId = UUID.randomUUID().toString();
+        var comment = PostComment.of(postId, "comment", 2L, false);
         user.setAuthorities(Set.of(Authority.ADMIN));
 
         // Mock
         when(userService.getCurrentUser()).thenReturn(user);
-        when(mongo.updateFirst(any(Query.class), any(), eq(Post.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongo.findOne(any(Query.class), eq(PostComment.class))).thenReturn(comment);
+        when(mongo.remove(any(Query.class), eq(PostComment.class))).thenReturn(DeleteResult.acknowledged(1));
 
         // Act
         service.deleteComment(postId, commentId);
 
         // Assert
+        verify(mongo).remove(any(Query.class), eq(PostComment.class));
         verify(mongo).updateFirst(any(Query.class), any(), eq(Post.class));
     }
 
+    @Test
+    void deleteComment_CuandoUsuarioEsAutorDelPost_DebeEliminarComentario() {
+        // Arrange
+        var postId = ObjectId.get().toHexString();
+        var commentId = UUID.randomUUID().toString();
+        var comment = PostComment.of(postId, "comment", 2L, false);
+
+        // Mock
+        when(userService.getCurrentUser()).thenReturn(user);
+        when(mongo.findOne(any(Query.class), eq(PostComment.class))).thenReturn(comment);
+        when(mongo.exists(any(Query.class), eq(Post.class))).thenReturn(true);
+        when(mongo.remove(any(Query.class), eq(PostComment.class))).thenReturn(DeleteResult.acknowledged(1));
+
+        // Act
+        service.deleteComment(postId, commentId);
+
+        // Assert
+        verify(mongo).remove(any(Query.class), eq(PostComment.class));
+    }
+
+    @Test
+    void deleteComment_CuandoUsuarioNoEsAutor_DebeLanzarExcepcion() {
+        // Arrange
+        var postId = ObjectId.get().toHexString();
+        var commentId = UUID.randomUUID().toString();
+        var comment = PostComment.of(postId, "comment", 2L, false);
+
+        // Mock
+        when(userService.getCurrentUser()).thenReturn(user);
+        when(mongo.findOne(any(Query.class), eq(PostComment.class))).thenReturn(comment);
+        when(mongo.exists(any(Query.class), eq(Post.class))).thenReturn(false);
+
+        // Act & Assert
+        var exception = assertThrows(ProblemDetailsException.class, () -> service.deleteComment(postId, commentId));
+        var body = exception.getBody();
+        assertEquals(403, body.getStatus(), "El status debe ser 403");
+        verify(mongo, never()).remove(any(Query.class), eq(PostComment.class));
+    }
+
+    @Test
+    void deleteComment_CuandoComentarioNoExiste_DebeLanzarExcepcion() {
+        // Arrange
+        var postId = ObjectId.get().toHexString();
+        var commentId = UUID.randomUUID().toString();
+
+        // Mock
+        when(userService.getCurrentUser()).thenReturn(user);
+
+        // Act & Assert
+        var exception = assertThrows(ProblemDetailsException.class, () -> service.deleteComment(postId, commentId));
+        var body = exception.getBody();
+        assertEquals(404, body.getStatus(), "El status debe ser 404");
+    }
+
     @Test
     void likePost_CuandoPostExiste_DebeAgregarLike() {
         // Arrange
@@ -306,7 +385,39 @@ class TestPostService {
         service.likePost(id);
 
         // Assert
-        verify(mongo).updateFirst(any(Query.class), any(), eq(Post.class));
+        var update = ArgumentCaptor.forClass(Update.class);
+        verify(mongo).updateFirst(any(Query.class), update.capture(), eq(Post.class));
+        assertTrue(update.getValue().modifies(Post.LIKED_BY_FIELD), "Se debe agregar el like");
+        assertTrue(update.getValue().modifies(Post.LIKES_COUNT_FIELD), "Se debe incrementar el contador de likes");
+    }
+
+    @Test
+    void likePost_CuandoYaLeDioLike_NoDebeLanzarExcepcion() {
+        // Arrange
+        var id = ObjectId.get().toHexString();
+
+        // Mock
+        when(userService.getCurrentUser()).thenReturn(user);
+        when(mongo.updateFirst(any(Query.class), any(), eq(Post.class))).thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(mongo.exists(any(Query.class), eq(Post.class))).thenReturn(true);
+
+        // Act & Assert
+        assertDoesNotThrow(() -> service.likePost(id));
+    }
+
+    @Test
+    void likePost_CuandoPostNoExiste_DebeLanzarExcepcion() {
+        // Arrange
+        var id = ObjectId.get().toHexString();
+
+        // Mock
+        when(userService.getCurrentUser()).thenReturn(user);
+        when(mongo.updateFirst(any(Query.class), any(), eq(Post.class))).thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        // Act & Assert
+        var exception = assertThrows(ProblemDetailsException.class, () -> service.likePost(id));
+        var body = exception.getBody();
+        assertEquals(404, body.getStatus(), "El status debe ser 404");
     }
 
     @Test
@@ -357,54 +468,70 @@ class TestPostService {
     }
 
     @Test
-    void likeComment_CuandoPostExiste_DebeAgregarLike() {
+    void likeComment_CuandoComentarioExiste_DebeAgregarLike() {
         // Arrange
         var postId = ObjectId.get().toHexString();
-        var commentId = ObjectId.get().toHexString();
+        var commentId = UUID.randomUUID().toString();
 
         // Mock
         when(userService.getCurrentUser()).thenReturn(user);
-        when(mongo.updateFirst(any(Query.class), any(), eq(Post.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongo.updateFirst(any(Query.class), any(), eq(PostComment.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
 
         // Act
         service.likeComment(postId, commentId);
 
         // Assert
-        verify(mongo).updateFirst(any(Query.class), any(), eq(Post.class));
+        verify(mongo).updateFirst(any(Query.class), any(), eq(PostComment.class));
     }
 
     @Test
-    void unlikeComment_CuandoPostExiste_DebeEliminarLike() {
+    void unlikeComment_CuandoComentarioExiste_DebeEliminarLike() {
         // Arrange
         var postId = ObjectId.get().toHexString();
-        var commentId = ObjectId.get().toHexString();
+        var commentId = UUID.randomUUID().toString();
 
         // Mock
         when(userService.getCurrentUser()).thenReturn(user);
-        when(mongo.updateFirst(any(Query.class), any(), eq(Post.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongo.updateFirst(any(Query.class), any(), eq(PostComment.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
 
         // Act
         service.unlikeComment(postId, commentId);
 
         // Assert
-        verify(mongo).updateFirst(any(Query.class), any(), eq(Post.class));
+        verify(mongo).updateFirst(any(Query.class), any(), eq(PostComment.class));
     }
 
     @Test
-    void reportComment_CuandoPostExiste_DebeReportarComentario() {
+    void reportComment_CuandoComentarioExiste_DebeReportarComentario() {
         // Arrange
         var postId = ObjectId.get().toHexString();
-        var commentId = ObjectId.get().toHexString();
+        var commentId = UUID.randomUUID().toString();
 
         // Mock
         when(userService.getCurrentUser()).thenReturn(user);
-        when(mongo.updateFirst(any(Query.class), any(), eq(Post.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
+        when(mongo.updateFirst(any(Query.class), any(), eq(PostComment.class))).thenReturn(UpdateResult.acknowledged(1, 1L, null));
 
         // Act
         service.reportComment(postId, commentId);
 
         // Assert
-        verify(mongo).updateFirst(any(Query.class), any(), eq(Post.class));
+        verify(mongo).updateFirst(any(Query.class), any(), eq(PostComment.class));
+    }
+
+    @Test
+    void likeComment_CuandoComentarioNoExiste_DebeLanzarExcepcion() {
+        // Arrange
+        var postId = ObjectId.get().toHexString();
+        var commentId = UUID.randomUUID().toString();
+
+        // Mock
+        when(userService.getCurrentUser()).thenReturn(user);
+        when(mongo.updateFirst(any(Query.class), any(), eq(PostComment.class))).thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        // Act & Assert
+        var exception = assertThrows(ProblemDetailsException.class, () -> service.likeComment(postId, commentId));
+        var body = exception.getBody();
+        assertEquals(404, body.getStatus(), "El status debe ser 404");
     }
 
     @Test
@@ -429,8 +556,8 @@ class TestPostService {
         // Mock
         when(mongo.getCollectionName(Post.class)).thenReturn("posts");
         when(userService.getCurrentUser()).thenReturn(user);
-        when(mongo.aggregate(any(Aggregation.class), any(String.class), eq(CountResult.class))).thenReturn(new AggregationResults<>(List.of(new CountResult(posts.size())), new Document()));
         when(mongo.aggregate(any(Aggregation.class), any(String.class), eq(Post.class))).thenReturn(new AggregationResults<>(posts, new Document()));
+        when(mongo.aggregate(any(Aggregation.class), any(String.class), eq(CountResult.class))).thenReturn(new AggregationResults<>(List.of(new CountResult(posts.size())), new Document()));
 
         // Act
         var result = service.page(search, pageable, filters);
@@ -481,9 +608,8 @@ class TestPostService {
         topPostsResult.setMostCommentedPost(post);
 
         // Mock
-        when(mongo.getCollectionName(Post.class)).thenReturn("posts");
         when(userService.getCurrentUser()).thenReturn(user);
-        when(mongo.aggregate(any(Aggregation.class), any(String.class), eq(Post.class))).thenReturn(new AggregationResults<>(List.of(post), new Document()));
+        when(mongo.findOne(any(Query.class), eq(Post.class))).thenReturn(post);
 
         // Act
         var result = service.topPosts();
@@ -495,7 +621,37 @@ class TestPostService {
     }
 
     @Test
-    void pageComments_ConBusquedaFiltrosYPaginacion_DebeRetornarComentarios() {
+    void feed_SinOrdenYSinFiltros_DebeOrdenarPorFechaYEstimarTotal() {
+        // Arrange
+        var post = new Post();
+        post.setAuthor(1L);
+        var pageable = Pageable.ofSize(10);
+        var filters = new LinkedMultiValueMap<String, String>();
+        var converter = mock(MongoConverter.class);
+
+        // Mock
+        when(userService.getCurrentUser()).thenReturn(user);
+        when(mongo.getCollectionName(Post.class)).thenReturn("post");
+        when(mongo.estimatedCount("post")).thenReturn(1L);
+        when(mongo.getConverter()).thenReturn(converter);
+        when(converter.read(eq(Post.class), any(Document.class))).thenReturn(post);
+        when(mongo.aggregate(any(Aggregation.class), eq("post"), eq(Document.class))).thenReturn(new AggregationResults<>(List.of(new Document()), new Document()));
+
+        // Act
+        var result = service.feed(null, null, pageable, filters, true);
+
+        // Assert
+        var aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongo).aggregate(aggregation.capture(), eq("post"), eq(Document.class));
+        var sort = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$sort", Document.class);
+        assertEquals(-1, sort.get(Post.CREATED_AT_FIELD), "Sin orden se deben mostrar primero las más recientes");
+        assertEquals(1L, result.getTotal(), "El total debe ser el estimado");
+        assertNull(result.getNext(), "No debe haber siguiente página");
+        assertTrue(result.getContent().get(0).isIAmAuthor(), "Se debe marcar al autor");
+    }
+
+    @Test
+    void pageComments_ConBusquedaFiltrosYPaginacion_DebeContarPorSeparado() {
         // Arrange
         var postId = ObjectId.get().toHexString();
         var search = "search";
@@ -504,21 +660,105 @@ class TestPostService {
                 "authorId", List.of("1")
         ));
 
-        var comments = new PageImpl<>(List.of(
-                new Post.Comment(),
-                new Post.Comment()
-        ));
-
         // Mock
-        when(mongo.getCollectionName(Post.class)).thenReturn("posts");
-        when(userService.getCurrentUser()).thenReturn(user);
-        when(mongo.aggregate(any(Aggregation.class), any(String.class), eq(CountResult.class))).thenReturn(new AggregationResults<>(List.of(new CountResult(comments.getTotalElements())), new Document()));
-        when(mongo.aggregate(any(Aggregation.class), any(String.class), eq(Post.Comment.class))).thenReturn(new AggregationResults<>(comments.getContent(), new Document()));
+        when(mongo.getCollectionName(PostComment.class)).thenReturn(PostComment.COLLECTION);
+        when(mongo.aggregate(any(Aggregation.class), any(String.class), eq(PostComment.class))).thenReturn(commentsResult());
+        when(mongo.aggregate(any(Aggregation.class), any(String.class), eq(CountResult.class))).thenReturn(new AggregationResults<>(List.of(new CountResult(12)), new Document()));
 
         // Act
         var result = service.pageComments(postId, search, pageable, filters);
 
         // Assert
         assertNotNull(result, "El resultado no debe ser nulo");
+        assertEquals(2, result.getContent().size(), "La cantidad de elementos debe ser la misma");
+        assertEquals(12, result.getTotalElements(), "El total debe venir del conteo");
+        verify(mongo, never()).aggregate(any(Aggregation.class), any(String.class), eq(Document.class));
+    }
+
+    @Test
+    void pageComments_ConBusqueda_DebeUsarIndiceDeTextoYOrdenarPorRelevancia() {
+        // Arrange
+        var postId = ObjectId.get().toHexString();
+        var search = " \"niños\" -escuela ";
+        var pageable = Pageable.ofSize(10);
+        var filters = new LinkedMultiValueMap<String, String>();
+
+        // Mock
+        when(mongo.getCollectionName(PostComment.class)).thenReturn(PostComment.COLLECTION);
+        when(mongo.aggregate(any(Aggregation.class), any(String.class), eq(PostComment.class))).thenReturn(commentsResult());
+        when(mongo.aggregate(any(Aggregation.class), any(String.class), eq(CountResult.class))).thenReturn(new AggregationResults<>(List.of(new CountResult(2)), new Document()));
+
+        // Act
+        service.pageComments(postId, search, pageable, filters);
+
+        // Assert
+        var aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongo).aggregate(aggregation.capture(), any(String.class), eq(PostComment.class));
+        var pipeline = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+
+        var text = pipeline.get(0).get("$match", Document.class).get("$text", Document.class);
+        assertNotNull(text, "La búsqueda por texto debe ser la primera etapa");
+        assertEquals("\"niños\" \"escuela\"", text.getString("$search"), "Se deben quitar las comillas y exclusiones del usuario y exigir cada palabra");
+        assertEquals(new Document("$meta", "textScore"), pipeline.get(1).get("$addFields", Document.class).get("score"), "Se debe agregar la relevancia");
+        assertEquals(new Document("score", -1), pipeline.get(3).get("$sort"), "Sin orden explícito se debe ordenar por relevancia");
+        assertEquals(10, pipeline.get(5).get("$limit", Number.class).intValue(), "El orden por relevancia debe limitarse a la página");
+    }
+
+    @Test
+    void pageComments_SinBusqueda_DebeUsarFacetConElOrdenDelIndice() {
+        // Arrange
+        var postId = ObjectId.get().toHexString();
+        var pageable = Pageable.ofSize(10).withPage(1);
+        var filters = new LinkedMultiValueMap<String, String>();
+        var converter = mock(MongoConverter.class);
+
+        // Mock
+        when(mongo.getCollectionName(PostComment.class)).thenReturn(PostComment.COLLECTION);
+        when(mongo.getConverter()).thenReturn(converter);
+        when(converter.read(eq(PostComment.class), any(Document.class))).thenReturn(new PostComment());
+        when(mongo.aggregate(any(Aggregation.class), any(String.class), eq(Document.class))).thenReturn(facetResult(12));
+
+        // Act
+        var result = service.pageComments(postId, null, pageable, filters);
+
+        // Assert
+        var aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongo, times(1)).aggregate(aggregation.capture(), any(String.class), eq(Document.class));
+        var pipeline = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT);
+        assertTrue(pipeline.get(pipeline.size() - 1).containsKey("$facet"), "El orden por fecha usa el índice y se pagina con $facet");
+        assertEquals(12, result.getTotalElements(), "El total debe venir del $facet");
+    }
+
+    @Test
+    void pageComments_ConOrdenSinIndice_DebeContarPorSeparado() {
+        // Arrange
+        var postId = ObjectId.get().toHexString();
+        var pageable = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, PostComment.LIKES_COUNT_FIELD));
+        var filters = new LinkedMultiValueMap<String, String>();
+
+        // Mock
+        when(mongo.getCollectionName(PostComment.class)).thenReturn(PostComment.COLLECTION);
+        when(mongo.aggregate(any(Aggregation.class), any(String.class), eq(PostComment.class))).thenReturn(commentsResult());
+        when(mongo.aggregate(any(Aggregation.class), any(String.class), eq(CountResult.class))).thenReturn(new AggregationResults<>(List.of(new CountResult(2)), new Document()));
+
+        // Act
+        service.pageComments(postId, null, pageable, filters);
+
+        // Assert
+        verify(mongo, never()).aggregate(any(Aggregation.class), any(String.class), eq(Document.class));
+        verify(mongo).aggregate(any(Aggregation.class), any(String.class), eq(CountResult.class));
+    }
+
+    private static AggregationResults<PostComment> commentsResult() {
+        return new AggregationResults<>(List.of(new PostComment(), new PostComment()), new Document());
+    }
+
+    /**
+     * Resultado de una página con {@code $facet}: dos elementos y el total.
+     */
+    private static AggregationResults<Document> facetResult(long total) {
+        var facet = new Document("content", List.of(new Document(), new Document()))
+                .append("total", List.of(new Document("total", total)));
+        return new AggregationResults<>(List.of(facet), new Document());
     }
 }
\ No newline at end of file